@@ -0,0 +1,26 @@
+package hunre.edu.vn.backend.annotation;
+
+import hunre.edu.vn.backend.entity.BaseEntity;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Bật ETag/Last-Modified cho endpoint GET. Validator được tính từ phiên bản của các loại entity
+ * mà dữ liệu trả về phụ thuộc vào; nếu client gửi validator còn khớp thì trả 304 ngay,
+ * không gọi controller.
+ * Đặt trên class để áp dụng cho mọi endpoint GET, annotation trên method sẽ được ưu tiên.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+    Class<? extends BaseEntity>[] value();
+
+    /**
+     * Endpoint đọc từ snapshot danh mục: khi snapshot sẵn sàng, validator lấy từ phiên bản snapshot
+     * (chỉ gửi ETag), còn value chỉ dùng khi endpoint đang đọc thẳng từ DB
+     */
+    boolean catalog() default false;
+}
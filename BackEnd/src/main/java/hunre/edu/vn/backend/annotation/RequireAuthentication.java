@@ -9,4 +9,9 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface RequireAuthentication {
     String[] roles() default {};
+
+    /**
+     * Mặc định bỏ qua kiểm tra với request GET; bật cho các endpoint GET trả dữ liệu nội bộ (xuất dữ liệu, thống kê)
+     */
+    boolean enforceOnGet() default false;
 }
\ No newline at end of file
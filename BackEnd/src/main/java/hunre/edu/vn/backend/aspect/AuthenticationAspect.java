@@ -37,8 +37,8 @@ public class AuthenticationAspect {
 
         HttpServletRequest request = attributes.getRequest();
 
-        // Bỏ qua kiểm tra nếu là phương thức GET
-        if (request.getMethod().equalsIgnoreCase("GET")) {
+        // Bỏ qua kiểm tra nếu là phương thức GET, trừ khi endpoint yêu cầu kiểm tra cả GET
+        if (request.getMethod().equalsIgnoreCase("GET") && !requireAuthentication.enforceOnGet()) {
             return;
         }
 
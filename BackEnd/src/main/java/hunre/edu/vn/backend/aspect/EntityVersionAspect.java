@@ -0,0 +1,97 @@
+package hunre.edu.vn.backend.aspect;
+
+import hunre.edu.vn.backend.repository.BaseRepository;
+import hunre.edu.vn.backend.utils.EntityVersionRegistry;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tăng phiên bản của loại entity sau mỗi thao tác ghi qua repository.
+ * Nếu đang trong transaction thì chỉ tăng sau khi commit, để client không nhận ETag mới
+ * đi kèm dữ liệu cũ; các loại entity được ghi trong cùng transaction được gom lại và tăng một lần.
+ */
+@Aspect
+@Component
+public class EntityVersionAspect {
+
+    private final EntityVersionRegistry entityVersionRegistry;
+    private final Map<Class<?>, Class<?>> entityTypeByProxy = new ConcurrentHashMap<>();
+
+    // Registry dùng repository riêng, tiêm lười để không tạo vòng phụ thuộc khi dựng proxy repository
+    public EntityVersionAspect(@Lazy EntityVersionRegistry entityVersionRegistry) {
+        this.entityVersionRegistry = entityVersionRegistry;
+    }
+
+    @AfterReturning("this(hunre.edu.vn.backend.repository.BaseRepository)")
+    public void afterRepositoryCall(JoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        if (!isWrite(method)) {
+            return;
+        }
+
+        Class<?> entityType = entityTypeByProxy.computeIfAbsent(joinPoint.getThis().getClass(), this::resolveEntityType);
+        if (entityType == null) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            entityVersionRegistry.bump(entityType);
+            return;
+        }
+
+        // Synchronization được tách theo transaction (kể cả REQUIRES_NEW lồng nhau) nên tìm lại trong danh sách hiện tại
+        PendingBump pending = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingBump existing) {
+                pending = existing;
+                break;
+            }
+        }
+        if (pending == null) {
+            pending = new PendingBump();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.entityTypes.add(entityType);
+    }
+
+    private boolean isWrite(Method method) {
+        String name = method.getName();
+        return name.startsWith("save")
+                || name.startsWith("delete")
+                || name.startsWith("softDelete")
+                || name.startsWith("restore")
+                || method.isAnnotationPresent(Modifying.class);
+    }
+
+    private class PendingBump implements TransactionSynchronization {
+        private final Set<Class<?>> entityTypes = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            entityVersionRegistry.bumpAll(entityTypes);
+        }
+    }
+
+    private Class<?> resolveEntityType(Class<?> proxyClass) {
+        for (Class<?> repositoryInterface : proxyClass.getInterfaces()) {
+            if (BaseRepository.class.isAssignableFrom(repositoryInterface) && repositoryInterface != BaseRepository.class) {
+                return GenericTypeResolver.resolveTypeArgument(repositoryInterface, BaseRepository.class);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,148 @@
+package hunre.edu.vn.backend.catalog;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Chỉ mục bất biến các discount đang hiệu lực theo ID thuốc.
+ * Discount sắp bắt đầu chưa được áp dụng nhưng ngày bắt đầu/kết thúc gần nhất được giữ lại
+ * làm mốc để biết khi nào chỉ mục hết đúng và phải dựng lại.
+ * Discount đã dùng hết lượt không nằm trong chỉ mục.
+ */
+public final class ActiveDiscountIndex {
+
+    private static final ActiveDiscountIndex EMPTY = new ActiveDiscountIndex(Collections.emptyMap(), null);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final Map<Long, List<Rule>> rulesByMedicine;
+    private final LocalDateTime nextBoundary;
+
+    /**
+     * Một discount đang hiệu lực
+     * @param limited Có giới hạn số lần sử dụng hay không
+     */
+    public record Rule(Long discountId, Long medicineId, double percentage, BigDecimal maxDiscountAmount,
+                       BigDecimal minPurchaseAmount, boolean limited) {
+
+        public boolean appliesTo(BigDecimal lineTotal) {
+            return minPurchaseAmount == null || lineTotal.compareTo(minPurchaseAmount) >= 0;
+        }
+
+        /**
+         * Số tiền giảm cho tổng tiền dòng hàng, đã áp trần maxDiscountAmount và không vượt quá tổng tiền
+         */
+        public BigDecimal discountFor(BigDecimal lineTotal) {
+            BigDecimal amount = lineTotal.multiply(BigDecimal.valueOf(percentage))
+                    .divide(HUNDRED, 2, RoundingMode.HALF_UP);
+            if (maxDiscountAmount != null) {
+                amount = amount.min(maxDiscountAmount);
+            }
+            return amount.min(lineTotal).max(BigDecimal.ZERO);
+        }
+    }
+
+    private ActiveDiscountIndex(Map<Long, List<Rule>> rulesByMedicine, LocalDateTime nextBoundary) {
+        this.rulesByMedicine = rulesByMedicine;
+        this.nextBoundary = nextBoundary;
+    }
+
+    public static ActiveDiscountIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Dựng chỉ mục từ kết quả DiscountRepository.findPricingRulesNotEndedBy
+     * @param rows Các dòng id, medicineId, discountPercentage, maxDiscountAmount, minPurchaseAmount,
+     *             usageLimit, currentUsageCount, startDate, endDate
+     * @param now Thời điểm dựng
+     */
+    public static ActiveDiscountIndex of(List<Object[]> rows, LocalDateTime now) {
+        Map<Long, List<Rule>> rulesByMedicine = new HashMap<>();
+        LocalDateTime nextBoundary = null;
+
+        for (Object[] row : rows) {
+            LocalDateTime startDate = (LocalDateTime) row[7];
+            LocalDateTime endDate = (LocalDateTime) row[8];
+            if (startDate != null && startDate.isAfter(now)) {
+                nextBoundary = earliest(nextBoundary, startDate);
+                continue;
+            }
+            if (endDate != null) {
+                nextBoundary = earliest(nextBoundary, endDate);
+            }
+
+            Integer usageLimit = (Integer) row[5];
+            int usageCount = row[6] != null ? (Integer) row[6] : 0;
+            if (row[1] == null || row[2] == null || (usageLimit != null && usageCount >= usageLimit)) {
+                continue;
+            }
+
+            Rule rule = new Rule((Long) row[0], (Long) row[1], (Double) row[2],
+                    (BigDecimal) row[3], (BigDecimal) row[4], usageLimit != null);
+            rulesByMedicine.computeIfAbsent(rule.medicineId(), id -> new ArrayList<>()).add(rule);
+        }
+
+        // Thứ tự cố định để so sánh hai chỉ mục theo từng thuốc
+        rulesByMedicine.values().forEach(rules -> rules.sort(Comparator.comparing(Rule::discountId)));
+        return new ActiveDiscountIndex(rulesByMedicine, nextBoundary);
+    }
+
+    /**
+     * Chỉ mục không còn đúng khi đã qua ngày bắt đầu hoặc kết thúc gần nhất
+     */
+    public boolean isStale(LocalDateTime now) {
+        return nextBoundary != null && !now.isBefore(nextBoundary);
+    }
+
+    public LocalDateTime getNextBoundary() {
+        return nextBoundary;
+    }
+
+    public int size() {
+        return rulesByMedicine.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Discount cho giảm nhiều nhất với tổng tiền dòng hàng, nếu có
+     */
+    public Optional<Rule> best(Long medicineId, BigDecimal lineTotal) {
+        List<Rule> candidates = candidates(medicineId, lineTotal);
+        return candidates.isEmpty() ? Optional.empty() : Optional.of(candidates.get(0));
+    }
+
+    /**
+     * Các discount áp dụng được cho tổng tiền dòng hàng, giảm nhiều nhất đứng trước
+     */
+    public List<Rule> candidates(Long medicineId, BigDecimal lineTotal) {
+        List<Rule> rules = rulesByMedicine.get(medicineId);
+        if (rules == null || lineTotal == null || lineTotal.signum() <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Rule> result = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (rule.appliesTo(lineTotal) && rule.discountFor(lineTotal).signum() > 0) {
+                result.add(rule);
+            }
+        }
+        result.sort(Comparator.<Rule, BigDecimal>comparing(rule -> rule.discountFor(lineTotal)).reversed()
+                .thenComparing(Rule::discountId));
+        return result;
+    }
+
+    /**
+     * ID các thuốc có tập discount hiệu lực khác nhau giữa hai chỉ mục
+     */
+    public Set<Long> changedMedicineIds(ActiveDiscountIndex other) {
+        Set<Long> medicineIds = new HashSet<>(rulesByMedicine.keySet());
+        medicineIds.addAll(other.rulesByMedicine.keySet());
+        medicineIds.removeIf(id -> Objects.equals(rulesByMedicine.get(id), other.rulesByMedicine.get(id)));
+        return medicineIds;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime current, LocalDateTime candidate) {
+        return current == null || candidate.isBefore(current) ? candidate : current;
+    }
+}
@@ -0,0 +1,27 @@
+package hunre.edu.vn.backend.catalog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Đọc file danh mục thuốc theo kiểu stream: dòng đầu là tiêu đề cột,
+ * mỗi dòng dữ liệu được chuyển ngay cho handler mà không nạp cả file vào bộ nhớ.
+ */
+public interface CatalogFileParser {
+
+    void parse(Path file, RowHandler handler) throws IOException;
+
+    @FunctionalInterface
+    interface RowHandler {
+        /**
+         * @param rowNumber Số thứ tự dòng trong file (dòng tiêu đề là 1)
+         * @param values Giá trị theo tên cột đã chuẩn hóa (chữ thường, bỏ khoảng trắng hai đầu)
+         */
+        void handle(int rowNumber, Map<String, String> values);
+    }
+
+    static String normalizeHeader(String header) {
+        return header == null ? "" : header.replace("﻿", "").trim().toLowerCase();
+    }
+}
@@ -0,0 +1,473 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.AttributeDTO;
+import hunre.edu.vn.backend.dto.CategoryDTO;
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import hunre.edu.vn.backend.repository.MedicineSearchRepository.SortOption;
+import hunre.edu.vn.backend.utils.SearchCursor;
+
+import java.math.BigDecimal;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Ảnh chụp bất biến của toàn bộ thuốc đang hoạt động.
+ * Dữ liệu được lưu theo cột (id, mã, tên, brand, giá, tồn kho) cùng bitset theo danh mục và brand,
+ * cho phép lọc và sắp xếp trong bộ nhớ mà không cần truy vấn database.
+ * Giá dùng để lọc, sắp xếp và đếm facet là giá bán sau discount (effectivePrice), giống giá khách nhìn thấy;
+ * thẻ thuốc chưa được tính giá sau discount thì dùng giá niêm yết.
+ * Mỗi lần thay đổi tạo ra một snapshot mới, snapshot cũ không bao giờ bị sửa.
+ */
+public final class CatalogSnapshot {
+
+    // Cận trên (không bao gồm) của các khoảng giá bán dùng cho facet, khoảng cuối không giới hạn
+    private static final long[] PRICE_BUCKET_BOUNDS = {50_000, 100_000, 200_000, 500_000};
+
+    // So sánh tên không phân biệt hoa thường nhưng phân biệt dấu, giống collation *_CI_AS của SQL Server,
+    // để cursor do snapshot và do database sinh ra cùng một thứ tự
+    private static final Collator NAME_COLLATOR = nameCollator();
+
+    private static final CatalogSnapshot EMPTY = new CatalogSnapshot(Collections.emptyList());
+
+    private final MedicineDTO.GetMedicineDTO[] cards;
+    private final long[] ids;
+    private final String[] names;
+    private final String[] lowerNames;
+    private final CollationKey[] nameKeys;
+    private final long[] brandIds;
+    private final double[] minPrices;
+    private final int[] totalStocks;
+    private final long[][] categoryIdsByRow;
+    private final int[] priceBucketMasks;
+    private final Map<Long, String> brandNames = new HashMap<>();
+    private final Map<Long, String> categoryNames = new HashMap<>();
+    private final Map<Long, BitSet> categoryRows = new HashMap<>();
+    private final Map<Long, BitSet> brandRows = new HashMap<>();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    private final int[] byName;
+    private final int[] byPrice;
+    // Chỉ mục giá bán sau discount theo từng thuộc tính: giá tăng dần kèm dòng của thuốc, để lọc khoảng giá bằng tìm nhị phân
+    private final double[] variantPrices;
+    private final int[] variantRows;
+    private final List<MedicineDTO.GetMedicineDTO> all;
+
+    private CatalogSnapshot(Collection<MedicineDTO.GetMedicineDTO> medicines) {
+        // Các dòng được sắp theo id tăng dần, trùng với thứ tự mặc định của tìm kiếm trên database
+        this.cards = medicines.stream()
+                .sorted(Comparator.comparing(MedicineDTO.GetMedicineDTO::getId))
+                .toArray(MedicineDTO.GetMedicineDTO[]::new);
+
+        int size = cards.length;
+        this.ids = new long[size];
+        this.names = new String[size];
+        this.lowerNames = new String[size];
+        this.nameKeys = new CollationKey[size];
+        this.brandIds = new long[size];
+        this.minPrices = new double[size];
+        this.totalStocks = new int[size];
+        this.categoryIdsByRow = new long[size][];
+        this.priceBucketMasks = new int[size];
+
+        for (int row = 0; row < size; row++) {
+            MedicineDTO.GetMedicineDTO card = cards[row];
+            ids[row] = card.getId();
+            names[row] = card.getName() != null ? card.getName() : "";
+            lowerNames[row] = names[row].toLowerCase();
+            nameKeys[row] = NAME_COLLATOR.getCollationKey(names[row]);
+            brandIds[row] = card.getBrand() != null && card.getBrand().getId() != null ? card.getBrand().getId() : 0L;
+            // NaN đánh dấu thuốc chưa có thuộc tính (không có giá)
+            BigDecimal minPrice = card.getMinEffectivePrice() != null ? card.getMinEffectivePrice() : card.getMinPrice();
+            minPrices[row] = minPrice != null ? minPrice.doubleValue() : Double.NaN;
+            totalStocks[row] = card.getTotalStock() != null ? card.getTotalStock() : 0;
+
+            rowById.put(ids[row], row);
+            if (brandIds[row] != 0L) {
+                brandRows.computeIfAbsent(brandIds[row], id -> new BitSet(size)).set(row);
+                brandNames.putIfAbsent(brandIds[row], card.getBrand().getName());
+            }
+            List<CategoryDTO.GetCategoryDTO> categories = card.getCategories() != null
+                    ? card.getCategories()
+                    : Collections.emptyList();
+            categoryIdsByRow[row] = new long[categories.size()];
+            for (int i = 0; i < categories.size(); i++) {
+                CategoryDTO.GetCategoryDTO category = categories.get(i);
+                categoryIdsByRow[row][i] = category.getId();
+                categoryRows.computeIfAbsent(category.getId(), id -> new BitSet(size)).set(row);
+                categoryNames.putIfAbsent(category.getId(), category.getName());
+            }
+            // Mỗi bit ứng với một khoảng giá mà ít nhất một thuộc tính của thuốc rơi vào
+            if (card.getAttributes() != null) {
+                for (AttributeDTO.GetAttributeDTO attribute : card.getAttributes()) {
+                    BigDecimal price = sellingPrice(attribute);
+                    if (price != null) {
+                        priceBucketMasks[row] |= 1 << priceBucket(price.doubleValue());
+                    }
+                }
+            }
+        }
+
+        this.byName = IntStream.range(0, size).boxed()
+                .sorted(Comparator.<Integer, CollationKey>comparing(row -> nameKeys[row]).thenComparingLong(row -> ids[row]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.byPrice = IntStream.range(0, size).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(this::priceKey).thenComparingLong(row -> ids[row]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        // Mỗi thuộc tính có giá bán là một phần tử của chỉ mục giá, sắp theo giá tăng dần
+        int variantCount = 0;
+        for (MedicineDTO.GetMedicineDTO card : cards) {
+            if (card.getAttributes() != null) {
+                for (AttributeDTO.GetAttributeDTO attribute : card.getAttributes()) {
+                    if (sellingPrice(attribute) != null) {
+                        variantCount++;
+                    }
+                }
+            }
+        }
+        double[] prices = new double[variantCount];
+        int[] rows = new int[variantCount];
+        int variant = 0;
+        for (int row = 0; row < size; row++) {
+            if (cards[row].getAttributes() == null) {
+                continue;
+            }
+            for (AttributeDTO.GetAttributeDTO attribute : cards[row].getAttributes()) {
+                BigDecimal price = sellingPrice(attribute);
+                if (price != null) {
+                    prices[variant] = price.doubleValue();
+                    rows[variant] = row;
+                    variant++;
+                }
+            }
+        }
+        int[] byVariantPrice = IntStream.range(0, variantCount).boxed()
+                .sorted(Comparator.comparingDouble(i -> prices[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.variantPrices = new double[variantCount];
+        this.variantRows = new int[variantCount];
+        for (int i = 0; i < variantCount; i++) {
+            variantPrices[i] = prices[byVariantPrice[i]];
+            variantRows[i] = rows[byVariantPrice[i]];
+        }
+        this.all = Collections.unmodifiableList(Arrays.asList(cards));
+    }
+
+    public static CatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static CatalogSnapshot of(Collection<MedicineDTO.GetMedicineDTO> medicines) {
+        return new CatalogSnapshot(medicines);
+    }
+
+    /**
+     * Tạo snapshot mới sau khi thay thế các thuốc đã cập nhật và loại bỏ các thuốc đã xóa
+     */
+    public CatalogSnapshot withChanges(Collection<MedicineDTO.GetMedicineDTO> upserts, Collection<Long> removedIds) {
+        Map<Long, MedicineDTO.GetMedicineDTO> merged = new LinkedHashMap<>();
+        for (MedicineDTO.GetMedicineDTO card : cards) {
+            merged.put(card.getId(), card);
+        }
+        removedIds.forEach(merged::remove);
+        upserts.forEach(card -> merged.put(card.getId(), card));
+        return new CatalogSnapshot(merged.values());
+    }
+
+    public int size() {
+        return cards.length;
+    }
+
+    public boolean contains(Long medicineId) {
+        return rowById.containsKey(medicineId);
+    }
+
+    public List<MedicineDTO.GetMedicineDTO> all() {
+        return all;
+    }
+
+    public Optional<MedicineDTO.GetMedicineDTO> findById(Long medicineId) {
+        Integer row = rowById.get(medicineId);
+        return row == null ? Optional.empty() : Optional.of(cards[row]);
+    }
+
+    /**
+     * Kiểm tra thuốc có nằm trong tập dòng đã lọc hay không
+     */
+    public boolean matches(BitSet rows, long medicineId) {
+        Integer row = rowById.get(medicineId);
+        return row != null && rows.get(row);
+    }
+
+    /**
+     * Lọc theo tên, brand, danh mục, khoảng giá và còn hàng, trả về tập dòng thỏa mãn
+     */
+    public BitSet filter(MedicineDTO.SearchMedicineDTO criteria) {
+        return filter(criteria, criteria.getCategoryId() != null ? Collections.singleton(criteria.getCategoryId()) : null);
+    }
+
+    /**
+     * Như {@link #filter(MedicineDTO.SearchMedicineDTO)}, nhưng thuốc chỉ cần thuộc một trong các danh mục
+     * của categoryScope (thường là danh mục được chọn cùng các danh mục con); null nghĩa là không lọc danh mục
+     */
+    public BitSet filter(MedicineDTO.SearchMedicineDTO criteria, Collection<Long> categoryScope) {
+        BitSet matches = new BitSet(cards.length);
+        matches.set(0, cards.length);
+
+        if (criteria.getBrandId() != null) {
+            matches.and(brandRows.getOrDefault(criteria.getBrandId(), new BitSet()));
+        }
+        if (categoryScope != null) {
+            BitSet inCategories = new BitSet(cards.length);
+            for (Long categoryId : categoryScope) {
+                BitSet rows = categoryRows.get(categoryId);
+                if (rows != null) {
+                    inCategories.or(rows);
+                }
+            }
+            matches.and(inCategories);
+        }
+
+        if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+            matches.and(rowsWithPriceBetween(
+                    criteria.getMinPrice() != null ? criteria.getMinPrice().doubleValue() : Double.NEGATIVE_INFINITY,
+                    criteria.getMaxPrice() != null ? criteria.getMaxPrice().doubleValue() : Double.POSITIVE_INFINITY));
+        }
+
+        String name = criteria.getName() != null && !criteria.getName().isBlank()
+                ? criteria.getName().trim().toLowerCase()
+                : null;
+        boolean inStock = Boolean.TRUE.equals(criteria.getInStock());
+
+        if (name != null || inStock) {
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                boolean keep = (name == null || lowerNames[row].contains(name))
+                        && (!inStock || totalStocks[row] > 0);
+                if (!keep) {
+                    matches.clear(row);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Các dòng có ít nhất một thuộc tính với giá bán sau discount trong [minPrice, maxPrice].
+     * Tìm nhị phân vị trí đầu tiên trong chỉ mục giá rồi quét đến khi vượt maxPrice,
+     * nên chi phí tỉ lệ với số thuộc tính trong khoảng chứ không phải toàn bộ danh mục.
+     */
+    public BitSet rowsWithPriceBetween(double minPrice, double maxPrice) {
+        BitSet rows = new BitSet(cards.length);
+        int low = 0;
+        int high = variantPrices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (variantPrices[mid] < minPrice) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < variantPrices.length && variantPrices[i] <= maxPrice; i++) {
+            rows.set(variantRows[i]);
+        }
+        return rows;
+    }
+
+    /**
+     * Trả về tối đa limit thuốc thỏa mãn tiêu chí, theo thứ tự sắp xếp yêu cầu.
+     * Nếu có cursor, bắt đầu ngay sau bản ghi mà cursor trỏ tới; ngược lại bỏ qua offset bản ghi đầu.
+     */
+    public List<MedicineDTO.GetMedicineDTO> query(MedicineDTO.SearchMedicineDTO criteria, SearchCursor cursor,
+                                                  int offset, int limit) {
+        return query(filter(criteria), SortOption.from(criteria.getSortBy()), cursor, offset, limit);
+    }
+
+    public List<MedicineDTO.GetMedicineDTO> query(BitSet matches, SortOption sort, SearchCursor cursor,
+                                                  int offset, int limit) {
+        List<MedicineDTO.GetMedicineDTO> result = new ArrayList<>();
+        int[] order = orderFor(sort);
+        boolean desc = sort.isDescending();
+        int size = cards.length;
+
+        int position;
+        if (cursor != null) {
+            CursorKey key = new CursorKey(sort, cursor);
+            position = desc ? lastBefore(order, key) : firstAfter(order, key);
+        } else {
+            position = desc ? size - 1 : 0;
+        }
+
+        int skipped = cursor == null ? 0 : offset;
+        while (position >= 0 && position < size && result.size() < limit) {
+            int row = order != null ? order[position] : position;
+            if (matches.get(row)) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    result.add(cards[row]);
+                }
+            }
+            position += desc ? -1 : 1;
+        }
+        return result;
+    }
+
+    /**
+     * Đếm số thuốc theo brand, danh mục và khoảng giá bán trên tập kết quả, trong một lần duyệt
+     */
+    public MedicineDTO.FacetCountsDTO facets(BitSet matches) {
+        Map<Long, Integer> brandCounts = new HashMap<>();
+        Map<Long, Integer> categoryCounts = new HashMap<>();
+        int[] priceCounts = new int[PRICE_BUCKET_BOUNDS.length + 1];
+
+        for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+            if (brandIds[row] != 0L) {
+                brandCounts.merge(brandIds[row], 1, Integer::sum);
+            }
+            for (long categoryId : categoryIdsByRow[row]) {
+                categoryCounts.merge(categoryId, 1, Integer::sum);
+            }
+            for (int mask = priceBucketMasks[row]; mask != 0; mask &= mask - 1) {
+                priceCounts[Integer.numberOfTrailingZeros(mask)]++;
+            }
+        }
+
+        List<MedicineDTO.FacetValueDTO> priceRanges = new ArrayList<>();
+        for (int bucket = 0; bucket < priceCounts.length; bucket++) {
+            if (priceCounts[bucket] == 0) {
+                continue;
+            }
+            priceRanges.add(MedicineDTO.FacetValueDTO.builder()
+                    .minPrice(bucket == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(PRICE_BUCKET_BOUNDS[bucket - 1]))
+                    .maxPrice(bucket < PRICE_BUCKET_BOUNDS.length ? BigDecimal.valueOf(PRICE_BUCKET_BOUNDS[bucket]) : null)
+                    .count(priceCounts[bucket])
+                    .build());
+        }
+
+        return MedicineDTO.FacetCountsDTO.builder()
+                .brands(toFacetValues(brandCounts, brandNames))
+                .categories(toFacetValues(categoryCounts, categoryNames))
+                .priceRanges(priceRanges)
+                .build();
+    }
+
+    private List<MedicineDTO.FacetValueDTO> toFacetValues(Map<Long, Integer> counts, Map<Long, String> labels) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .map(entry -> MedicineDTO.FacetValueDTO.builder()
+                        .id(entry.getKey())
+                        .label(labels.get(entry.getKey()))
+                        .count(entry.getValue())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private static int priceBucket(double price) {
+        int bucket = 0;
+        while (bucket < PRICE_BUCKET_BOUNDS.length && price >= PRICE_BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private int[] orderFor(SortOption sort) {
+        switch (sort) {
+            case NAME_ASC:
+            case NAME_DESC:
+                return byName;
+            case PRICE_ASC:
+            case PRICE_DESC:
+                return byPrice;
+            default:
+                return null;
+        }
+    }
+
+    // Vị trí đầu tiên có (khóa, id) lớn hơn cursor
+    private int firstAfter(int[] order, CursorKey cursor) {
+        int low = 0;
+        int high = cards.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int row = order != null ? order[mid] : mid;
+            if (compareToCursor(row, cursor) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Vị trí cuối cùng có (khóa, id) nhỏ hơn cursor
+    private int lastBefore(int[] order, CursorKey cursor) {
+        int low = 0;
+        int high = cards.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int row = order != null ? order[mid] : mid;
+            if (compareToCursor(row, cursor) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    private int compareToCursor(int row, CursorKey cursor) {
+        int result = 0;
+        switch (cursor.sort) {
+            case NAME_ASC:
+            case NAME_DESC:
+                result = nameKeys[row].compareTo(cursor.nameKey);
+                break;
+            case PRICE_ASC:
+            case PRICE_DESC:
+                result = Double.compare(priceKey(row), cursor.priceKey);
+                break;
+            default:
+        }
+        return result != 0 ? result : Long.compare(ids[row], cursor.id);
+    }
+
+    // Khóa của cursor được tính một lần cho mỗi lượt tìm nhị phân
+    private static final class CursorKey {
+        private final SortOption sort;
+        private final CollationKey nameKey;
+        private final double priceKey;
+        private final long id;
+
+        private CursorKey(SortOption sort, SearchCursor cursor) {
+            String key = cursor.getKey();
+            this.sort = sort;
+            this.nameKey = NAME_COLLATOR.getCollationKey(key != null ? key : "");
+            this.priceKey = key != null && (sort == SortOption.PRICE_ASC || sort == SortOption.PRICE_DESC)
+                    ? new BigDecimal(key).doubleValue()
+                    : 0d;
+            this.id = cursor.getId();
+        }
+    }
+
+    private static Collator nameCollator() {
+        Collator collator = Collator.getInstance(Locale.forLanguageTag("vi"));
+        collator.setStrength(Collator.SECONDARY);
+        return collator;
+    }
+
+    // Giá khách phải trả cho thuộc tính: giá sau discount nếu đã được tính, ngược lại là giá niêm yết
+    private static BigDecimal sellingPrice(AttributeDTO.GetAttributeDTO attribute) {
+        return attribute.getEffectivePrice() != null ? attribute.getEffectivePrice() : attribute.getPriceOut();
+    }
+
+    // Thuốc chưa có giá được xếp như giá 0, giống truy vấn trên database
+    private double priceKey(int row) {
+        return Double.isNaN(minPrices[row]) ? 0d : minPrices[row];
+    }
+}
@@ -0,0 +1,83 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.CategoryDTO;
+
+import java.util.*;
+
+/**
+ * Cây danh mục bất biến trong bộ nhớ, dựng từ danh sách phẳng các danh mục và bảng bao đóng.
+ * Dùng cho API cây danh mục và để mở rộng bộ lọc danh mục sang các danh mục con trên snapshot.
+ */
+public final class CategoryTree {
+
+    private final List<CategoryDTO.CategoryTreeDTO> roots;
+    private final Map<Long, Set<Long>> selfAndDescendants;
+
+    private CategoryTree(List<CategoryDTO.CategoryTreeDTO> roots, Map<Long, Set<Long>> selfAndDescendants) {
+        this.roots = roots;
+        this.selfAndDescendants = selfAndDescendants;
+    }
+
+    /**
+     * @param rows Mỗi phần tử gồm id, parentId (có thể null), name, image của các danh mục đang hoạt động
+     * @param links Các dòng của bảng bao đóng: ancestorId, descendantId, depth
+     */
+    public static CategoryTree of(List<Object[]> rows, List<Object[]> links) {
+        Map<Long, CategoryDTO.CategoryTreeDTO> nodes = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            Long id = ((Number) row[0]).longValue();
+            nodes.put(id, CategoryDTO.CategoryTreeDTO.builder()
+                    .id(id)
+                    .parentId(row[1] != null ? ((Number) row[1]).longValue() : null)
+                    .name((String) row[2])
+                    .image((String) row[3])
+                    .children(new ArrayList<>())
+                    .build());
+        }
+
+        // Bảng bao đóng giữ liên kết xuyên qua danh mục đã xóa, dùng nó làm nguồn duy nhất để cây
+        // và bộ lọc SQL theo danh mục con luôn khớp nhau: cha hiển thị là tổ tiên gần nhất còn hoạt động
+        Map<Long, Set<Long>> selfAndDescendants = new HashMap<>();
+        Map<Long, Long> nearestAncestor = new HashMap<>();
+        Map<Long, Integer> nearestDepth = new HashMap<>();
+        for (Object[] link : links) {
+            Long ancestorId = ((Number) link[0]).longValue();
+            Long descendantId = ((Number) link[1]).longValue();
+            int depth = ((Number) link[2]).intValue();
+            if (!nodes.containsKey(ancestorId) || !nodes.containsKey(descendantId)) {
+                continue;
+            }
+            selfAndDescendants.computeIfAbsent(ancestorId, key -> new HashSet<>()).add(descendantId);
+            if (depth > 0 && depth < nearestDepth.getOrDefault(descendantId, Integer.MAX_VALUE)) {
+                nearestDepth.put(descendantId, depth);
+                nearestAncestor.put(descendantId, ancestorId);
+            }
+        }
+
+        List<CategoryDTO.CategoryTreeDTO> roots = new ArrayList<>();
+        for (CategoryDTO.CategoryTreeDTO node : nodes.values()) {
+            selfAndDescendants.computeIfAbsent(node.getId(), key -> new HashSet<>()).add(node.getId());
+            Long parentId = nearestAncestor.get(node.getId());
+            node.setParentId(parentId);
+            if (parentId != null) {
+                nodes.get(parentId).getChildren().add(node);
+            } else {
+                roots.add(node);
+            }
+        }
+        selfAndDescendants.replaceAll((id, ids) -> Collections.unmodifiableSet(ids));
+
+        return new CategoryTree(Collections.unmodifiableList(roots), selfAndDescendants);
+    }
+
+    public List<CategoryDTO.CategoryTreeDTO> getRoots() {
+        return roots;
+    }
+
+    /**
+     * ID của danh mục và mọi danh mục con cháu; danh mục không tồn tại thì chỉ gồm chính nó
+     */
+    public Set<Long> selfAndDescendants(Long categoryId) {
+        return selfAndDescendants.getOrDefault(categoryId, Collections.singleton(categoryId));
+    }
+}
@@ -0,0 +1,88 @@
+package hunre.edu.vn.backend.catalog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Đọc CSV (RFC 4180): hỗ trợ giá trị trong dấu nháy kép, dấu nháy kép được nhân đôi
+ * và xuống dòng bên trong giá trị.
+ */
+public class CsvCatalogFileParser implements CatalogFileParser {
+
+    @Override
+    public void parse(Path file, RowHandler handler) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> headers = null;
+            int rowNumber = 0;
+            List<String> record;
+            while ((record = readRecord(reader)) != null) {
+                rowNumber++;
+                if (headers == null) {
+                    headers = new ArrayList<>();
+                    for (String header : record) {
+                        headers.add(CatalogFileParser.normalizeHeader(header));
+                    }
+                    continue;
+                }
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < headers.size() && i < record.size(); i++) {
+                    values.put(headers.get(i), record.get(i).trim());
+                }
+                handler.handle(rowNumber, values);
+            }
+        }
+    }
+
+    private List<String> readRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n') {
+                break;
+            } else if (ch != '\r') {
+                field.append(ch);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,100 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.AttributeDTO;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Danh sách bất biến các lô còn hàng sắp hết hạn, sắp theo hạn sử dụng tăng dần.
+ * Dựng từ một truy vấn trên chỉ mục expiry_date cho một khoảng nhìn trước cố định;
+ * truy vấn "hết hạn trong N ngày" chỉ là tìm nhị phân rồi cắt đầu danh sách.
+ */
+public final class ExpiringLotIndex {
+
+    private static final ExpiringLotIndex EMPTY = new ExpiringLotIndex(LocalDate.MIN, LocalDate.MIN, new ArrayList<>());
+
+    private final LocalDate builtOn;
+    private final LocalDate horizon;
+    private final List<AttributeDTO.ExpiringLotDTO> lots;
+    private final Set<Long> attributeIds;
+
+    private ExpiringLotIndex(LocalDate builtOn, LocalDate horizon, List<AttributeDTO.ExpiringLotDTO> lots) {
+        this.builtOn = builtOn;
+        this.horizon = horizon;
+        this.lots = lots;
+        this.attributeIds = new HashSet<>();
+        for (AttributeDTO.ExpiringLotDTO lot : lots) {
+            attributeIds.add(lot.getAttributeId());
+        }
+    }
+
+    public static ExpiringLotIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param rows Mỗi phần tử gồm attributeId, medicineId, medicineName, name, stock, expiryDate, đã sắp theo expiryDate
+     * @param today Ngày dựng, dùng để tính số ngày còn lại
+     * @param horizon Ngày hết hạn muộn nhất đã được nạp
+     */
+    public static ExpiringLotIndex of(List<Object[]> rows, LocalDate today, LocalDate horizon) {
+        List<AttributeDTO.ExpiringLotDTO> lots = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            LocalDate expiryDate = (LocalDate) row[5];
+            lots.add(AttributeDTO.ExpiringLotDTO.builder()
+                    .attributeId(((Number) row[0]).longValue())
+                    .medicineId(((Number) row[1]).longValue())
+                    .medicineName((String) row[2])
+                    .name((String) row[3])
+                    .stock(((Number) row[4]).intValue())
+                    .expiryDate(expiryDate)
+                    .daysUntilExpiry(ChronoUnit.DAYS.between(today, expiryDate))
+                    .isExpired(today.isAfter(expiryDate))
+                    .build());
+        }
+        lots.sort(Comparator.comparing(AttributeDTO.ExpiringLotDTO::getExpiryDate)
+                .thenComparing(AttributeDTO.ExpiringLotDTO::getAttributeId));
+        return new ExpiringLotIndex(today, horizon, Collections.unmodifiableList(lots));
+    }
+
+    public LocalDate getBuiltOn() {
+        return builtOn;
+    }
+
+    /**
+     * Chỉ mục chỉ trả lời được các truy vấn không vượt quá khoảng đã nạp
+     */
+    public boolean covers(LocalDate until) {
+        return !until.isAfter(horizon);
+    }
+
+    /**
+     * Lô có nằm trong chỉ mục hay không, tức là còn hàng và hết hạn trong khoảng đã nạp
+     */
+    public boolean contains(Long attributeId) {
+        return attributeIds.contains(attributeId);
+    }
+
+    public List<AttributeDTO.ExpiringLotDTO> all() {
+        return lots;
+    }
+
+    /**
+     * Các lô có hạn sử dụng đến hết ngày until, kể cả lô đã hết hạn
+     */
+    public List<AttributeDTO.ExpiringLotDTO> expiringBy(LocalDate until) {
+        int low = 0;
+        int high = lots.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lots.get(mid).getExpiryDate().isAfter(until)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return new ArrayList<>(lots.subList(0, low));
+    }
+}
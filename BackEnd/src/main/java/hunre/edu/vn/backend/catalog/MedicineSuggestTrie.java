@@ -0,0 +1,235 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import hunre.edu.vn.backend.utils.VietnameseTextNormalizer;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cây tiền tố nén (radix tree) bất biến phục vụ gợi ý khi gõ tìm kiếm.
+ * Khóa gồm từng từ trong tên thuốc, cả tên thuốc, mã thuốc và tên brand, đã bỏ dấu và cắt ở độ dài tối đa.
+ * Mỗi cạnh mang cả một đoạn ký tự nên số nút không vượt quá hai lần số khóa.
+ * Mỗi nút lưu sẵn top-K thuốc theo số lượng bán nên một lần gợi ý chỉ cần đi theo tiền tố,
+ * không phải duyệt cây con.
+ */
+public final class MedicineSuggestTrie {
+
+    private static final MedicineSuggestTrie EMPTY =
+            new MedicineSuggestTrie(new Node(new char[0], new String[0], new Node[0], new long[0]));
+    private static final int MAX_WORD_LENGTH = 24;
+    private static final int MAX_KEY_LENGTH = 40;
+
+    private final Node root;
+
+    private MedicineSuggestTrie(Node root) {
+        this.root = root;
+    }
+
+    public static MedicineSuggestTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Dựng trie từ danh sách thuốc
+     * @param medicines Danh sách thuốc đang hoạt động
+     * @param popularity Số lượng bán theo ID thuốc, dùng để xếp hạng gợi ý
+     * @param topK Số gợi ý tối đa lưu tại mỗi nút
+     */
+    public static MedicineSuggestTrie build(Collection<MedicineDTO.GetMedicineDTO> medicines,
+                                            ToLongFunction<Long> popularity, int topK) {
+        Map<Long, Long> scores = new HashMap<>();
+        List<Entry> entries = new ArrayList<>();
+
+        for (MedicineDTO.GetMedicineDTO medicine : medicines) {
+            Long id = medicine.getId();
+            scores.put(id, popularity.applyAsLong(id));
+
+            List<String> nameTokens = VietnameseTextNormalizer.tokenize(medicine.getName());
+            for (String token : new HashSet<>(nameTokens)) {
+                addEntry(entries, token, MAX_WORD_LENGTH, id);
+            }
+            addEntry(entries, String.join(" ", nameTokens), MAX_KEY_LENGTH, id);
+            addEntry(entries, String.join(" ", VietnameseTextNormalizer.tokenize(medicine.getCode())), MAX_KEY_LENGTH, id);
+            if (medicine.getBrand() != null) {
+                addEntry(entries, String.join(" ", VietnameseTextNormalizer.tokenize(medicine.getBrand().getName())),
+                        MAX_KEY_LENGTH, id);
+            }
+        }
+
+        // Bán nhiều hơn đứng trước, cùng số lượng thì ID nhỏ hơn đứng trước
+        Comparator<Long> ranking = Comparator.<Long>comparingLong(id -> scores.getOrDefault(id, 0L)).reversed()
+                .thenComparing(Comparator.naturalOrder());
+        entries.sort(Comparator.comparing(Entry::key));
+        return new MedicineSuggestTrie(buildNode(entries, 0, entries.size(), 0, ranking, topK));
+    }
+
+    /**
+     * Gợi ý thuốc theo tiền tố.
+     * Chuỗi nhiều từ khớp với đầu tên, mã hoặc brand; nếu chưa đủ kết quả thì lấy thêm các thuốc
+     * nằm trong gợi ý của mọi từ (từ cuối được coi là đang gõ dở)
+     * @param prefix Chuỗi người dùng đang gõ (có dấu hoặc không dấu)
+     * @param limit Số gợi ý tối đa
+     * @return Danh sách ID thuốc theo độ phổ biến giảm dần
+     */
+    public List<Long> suggest(String prefix, int limit) {
+        List<String> tokens = VietnameseTextNormalizer.tokenize(prefix);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> result = new LinkedHashSet<>();
+        Node whole = find(String.join(" ", tokens));
+        if (whole != null) {
+            for (int i = 0; i < whole.top.length && result.size() < limit; i++) {
+                result.add(whole.top[i]);
+            }
+        }
+
+        if (tokens.size() > 1 && result.size() < limit) {
+            List<Set<Long>> others = new ArrayList<>();
+            for (String token : tokens.subList(0, tokens.size() - 1)) {
+                Node node = find(token);
+                if (node == null) {
+                    return new ArrayList<>(result);
+                }
+                Set<Long> ids = new HashSet<>();
+                for (long id : node.top) {
+                    ids.add(id);
+                }
+                others.add(ids);
+            }
+
+            Node last = find(tokens.get(tokens.size() - 1));
+            if (last != null) {
+                for (int i = 0; i < last.top.length && result.size() < limit; i++) {
+                    long id = last.top[i];
+                    if (others.stream().allMatch(ids -> ids.contains(id))) {
+                        result.add(id);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Số nút của cây, dùng để theo dõi bộ nhớ
+     */
+    public int nodeCount() {
+        return root.count();
+    }
+
+    private static void addEntry(List<Entry> entries, String key, int maxLength, Long id) {
+        if (!key.isEmpty()) {
+            entries.add(new Entry(key.length() > maxLength ? key.substring(0, maxLength) : key, id));
+        }
+    }
+
+    /**
+     * Dựng nút cho đoạn [from, to) của danh sách khóa đã sắp xếp, các khóa trong đoạn có chung depth ký tự đầu
+     */
+    private static Node buildNode(List<Entry> entries, int from, int to, int depth,
+                                  Comparator<Long> ranking, int topK) {
+        Set<Long> candidates = new HashSet<>();
+        int start = from;
+        // Các khóa kết thúc đúng tại nút này đứng đầu đoạn do đã sắp xếp
+        while (start < to && entries.get(start).key().length() == depth) {
+            candidates.add(entries.get(start).id());
+            start++;
+        }
+
+        List<Character> labels = new ArrayList<>();
+        List<String> edges = new ArrayList<>();
+        List<Node> children = new ArrayList<>();
+        while (start < to) {
+            char label = entries.get(start).key().charAt(depth);
+            int end = start + 1;
+            while (end < to && entries.get(end).key().charAt(depth) == label) {
+                end++;
+            }
+
+            // Cạnh dài đến hết phần chung của nhóm: tiền tố chung của khóa đầu và khóa cuối
+            String first = entries.get(start).key();
+            String last = entries.get(end - 1).key();
+            int common = depth + 1;
+            while (common < first.length() && common < last.length() && first.charAt(common) == last.charAt(common)) {
+                common++;
+            }
+
+            Node child = buildNode(entries, start, end, common, ranking, topK);
+            labels.add(label);
+            edges.add(first.substring(depth, common));
+            children.add(child);
+            for (long id : child.top) {
+                candidates.add(id);
+            }
+            start = end;
+        }
+
+        char[] labelArray = new char[labels.size()];
+        for (int i = 0; i < labelArray.length; i++) {
+            labelArray[i] = labels.get(i);
+        }
+        long[] top = candidates.stream()
+                .sorted(ranking)
+                .limit(topK)
+                .mapToLong(Long::longValue)
+                .toArray();
+        return new Node(labelArray, edges.toArray(new String[0]), children.toArray(new Node[0]), top);
+    }
+
+    // Nút có tiền tố trùng với key, hoặc null nếu không có khóa nào bắt đầu bằng key
+    private Node find(String key) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            key = key.substring(0, MAX_KEY_LENGTH);
+        }
+
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = Arrays.binarySearch(node.labels, key.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            String edge = node.edges[index];
+            int remaining = key.length() - position;
+            if (remaining <= edge.length()) {
+                // Key kết thúc giữa cạnh: mọi khóa của nút con đều bắt đầu bằng key nếu phần còn lại khớp
+                return edge.startsWith(key.substring(position)) ? node.children[index] : null;
+            }
+            if (!key.startsWith(edge, position)) {
+                return null;
+            }
+            position += edge.length();
+            node = node.children[index];
+        }
+        return node;
+    }
+
+    private record Entry(String key, Long id) {
+    }
+
+    // Con được lưu theo ký tự đầu của cạnh, mảng đã sắp xếp để tìm nhị phân
+    private static final class Node {
+        private final char[] labels;
+        private final String[] edges;
+        private final Node[] children;
+        private final long[] top;
+
+        private Node(char[] labels, String[] edges, Node[] children, long[] top) {
+            this.labels = labels;
+            this.edges = edges;
+            this.children = children;
+            this.top = top;
+        }
+
+        private int count() {
+            int count = 1;
+            for (Node child : children) {
+                count += child.count();
+            }
+            return count;
+        }
+    }
+}
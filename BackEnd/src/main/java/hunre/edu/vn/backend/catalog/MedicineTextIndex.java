@@ -0,0 +1,199 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import hunre.edu.vn.backend.utils.VietnameseTextNormalizer;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Chỉ mục đảo (inverted index) trong bộ nhớ trên tên, mã, mô tả và hướng dẫn sử dụng của thuốc.
+ * Văn bản được bỏ dấu tiếng Việt trước khi tách từ; tên và mã còn được đánh chỉ mục theo tiền tố
+ * (edge n-gram) để hỗ trợ gõ dở. Kết quả được xếp hạng bằng BM25 có trọng số theo trường.
+ */
+public final class MedicineTextIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CODE_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float USAGE_WEIGHT = 0.5f;
+
+    // Term tiền tố được đánh dấu để không trùng với từ đầy đủ
+    private static final String PREFIX_MARK = "^";
+    private static final int MIN_PREFIX = 2;
+    private static final int MAX_PREFIX = 12;
+    private static final double PREFIX_QUERY_WEIGHT = 0.5;
+
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    private final Map<Long, Set<String>> termsByDoc = new HashMap<>();
+    private final Map<Long, Float> docLengths = new HashMap<>();
+    private double totalLength = 0;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void rebuild(Collection<MedicineDTO.GetMedicineDTO> medicines) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsByDoc.clear();
+            docLengths.clear();
+            totalLength = 0;
+            medicines.forEach(this::addDocument);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsert(MedicineDTO.GetMedicineDTO medicine) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(medicine.getId());
+            addDocument(medicine);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long medicineId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(medicineId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm kiếm và xếp hạng theo BM25
+     * @param query Chuỗi tìm kiếm (có dấu hoặc không dấu)
+     * @param limit Số kết quả tối đa
+     * @param accept Điều kiện lọc thêm trên ID thuốc (brand, danh mục, giá...)
+     * @return Danh sách ID thuốc theo điểm giảm dần
+     */
+    public List<Long> search(String query, int limit, LongPredicate accept) {
+        List<String> tokens = VietnameseTextNormalizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = docLengths.size();
+            if (documentCount == 0) {
+                return Collections.emptyList();
+            }
+            double averageLength = totalLength / documentCount;
+
+            for (String token : new LinkedHashSet<>(tokens)) {
+                accumulate(scores, token, 1.0, documentCount, averageLength);
+                if (token.length() >= MIN_PREFIX) {
+                    accumulate(scores, PREFIX_MARK + truncate(token), PREFIX_QUERY_WEIGHT, documentCount, averageLength);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            if (!accept.test(entry.getKey())) {
+                continue;
+            }
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Long> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void accumulate(Map<Long, Double> scores, String term, double queryWeight,
+                            int documentCount, double averageLength) {
+        Map<Long, Float> termPostings = postings.get(term);
+        if (termPostings == null) {
+            return;
+        }
+
+        int documentFrequency = termPostings.size();
+        double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        for (Map.Entry<Long, Float> posting : termPostings.entrySet()) {
+            double tf = posting.getValue();
+            double length = docLengths.getOrDefault(posting.getKey(), 0f);
+            double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+            scores.merge(posting.getKey(), queryWeight * score, Double::sum);
+        }
+    }
+
+    private void addDocument(MedicineDTO.GetMedicineDTO medicine) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        length += addField(frequencies, medicine.getName(), NAME_WEIGHT, true);
+        length += addField(frequencies, medicine.getCode(), CODE_WEIGHT, true);
+        length += addField(frequencies, medicine.getDescription(), DESCRIPTION_WEIGHT, false);
+        length += addField(frequencies, medicine.getUsageInstruction(), USAGE_WEIGHT, false);
+
+        Long id = medicine.getId();
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, frequency));
+        termsByDoc.put(id, frequencies.keySet());
+        docLengths.put(id, length);
+        totalLength += length;
+    }
+
+    private float addField(Map<String, Float> frequencies, String text, float weight, boolean withPrefixes) {
+        List<String> tokens = VietnameseTextNormalizer.tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, weight, Float::sum);
+            if (withPrefixes) {
+                for (int length = MIN_PREFIX; length <= Math.min(token.length(), MAX_PREFIX); length++) {
+                    frequencies.merge(PREFIX_MARK + token.substring(0, length), weight, Float::sum);
+                }
+            }
+        }
+        return tokens.size() * weight;
+    }
+
+    private void removeDocument(Long medicineId) {
+        Set<String> terms = termsByDoc.remove(medicineId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms) {
+            Map<Long, Float> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(medicineId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Float length = docLengths.remove(medicineId);
+        totalLength -= length != null ? length : 0;
+    }
+
+    private String truncate(String token) {
+        return token.length() > MAX_PREFIX ? token.substring(0, MAX_PREFIX) : token;
+    }
+}
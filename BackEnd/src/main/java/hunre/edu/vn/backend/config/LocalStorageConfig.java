@@ -0,0 +1,32 @@
+package hunre.edu.vn.backend.config;
+
+import hunre.edu.vn.backend.storage.LocalObjectStorage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Phục vụ tĩnh các file media khi lưu trên thư mục cục bộ (app.storage.type=local).
+ * Khóa là hash nội dung nên file không bao giờ thay đổi, có thể cho trình duyệt lưu lâu.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+public class LocalStorageConfig implements WebMvcConfigurer {
+
+    private final LocalObjectStorage localObjectStorage;
+
+    public LocalStorageConfig(LocalObjectStorage localObjectStorage) {
+        this.localObjectStorage = localObjectStorage;
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/media/**")
+                .addResourceLocations(localObjectStorage.getRoot().toUri().toString())
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic());
+    }
+}
@@ -0,0 +1,34 @@
+package hunre.edu.vn.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class MailConfig {
+
+    @Value("${app.mail.threads:2}")
+    private int mailThreads;
+
+    @Value("${app.mail.queue-capacity:20}")
+    private int mailQueueCapacity;
+
+    /**
+     * Pool worker gửi email từ outbox, mỗi tác vụ là một lô email. Khi hàng đợi đầy, lô bị từ chối
+     * được trả lại outbox và nhận lại ở lần quét sau, email không bị mất.
+     */
+    @Bean(name = "mailExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor mailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mailThreads);
+        executor.setMaxPoolSize(mailThreads);
+        executor.setQueueCapacity(mailQueueCapacity);
+        executor.setThreadNamePrefix("mail-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,56 @@
+package hunre.edu.vn.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class MediaConfig {
+
+    @Value("${app.media.upload-threads:4}")
+    private int uploadThreads;
+
+    @Value("${app.media.upload-queue-capacity:64}")
+    private int uploadQueueCapacity;
+
+    @Value("${app.media.derivative-threads:2}")
+    private int derivativeThreads;
+
+    @Value("${app.media.derivative-queue-capacity:200}")
+    private int derivativeQueueCapacity;
+
+    /**
+     * Pool giới hạn cho việc tải ảnh lên kho lưu trữ song song.
+     * Khi hàng đợi đầy, luồng gọi tự tải lên để tạo áp lực ngược thay vì từ chối yêu cầu.
+     */
+    @Bean(name = "mediaUploadExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor mediaUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(uploadThreads);
+        executor.setMaxPoolSize(uploadThreads);
+        executor.setQueueCapacity(uploadQueueCapacity);
+        executor.setThreadNamePrefix("media-upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool nền cho việc tạo ảnh thu nhỏ. Khi hàng đợi đầy, tác vụ bị từ chối và sẽ được
+     * lần quét định kỳ của ImageDerivativeService nhặt lại, không chiếm luồng request.
+     */
+    @Bean(name = "imageDerivativeExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor imageDerivativeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(derivativeThreads);
+        executor.setMaxPoolSize(derivativeThreads);
+        executor.setQueueCapacity(derivativeQueueCapacity);
+        executor.setThreadNamePrefix("image-derivative-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,22 @@
+package hunre.edu.vn.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ValidationConfig {
+
+    @Value("${app.validation.entity-mode:none}")
+    private String entityValidationMode;
+
+    /**
+     * Bean Validation chỉ dùng cho request có @Valid. Các ràng buộc trên entity trước đây chưa từng được kiểm tra,
+     * bật kiểm tra lúc persist sẽ làm hỏng các luồng ghi đang chạy nên mặc định tắt (đặt "auto" để bật)
+     */
+    @Bean
+    public HibernatePropertiesCustomizer entityValidationCustomizer() {
+        return properties -> properties.put("jakarta.persistence.validation.mode", entityValidationMode);
+    }
+}
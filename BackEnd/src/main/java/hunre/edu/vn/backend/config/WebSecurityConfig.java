@@ -3,6 +3,7 @@ package hunre.edu.vn.backend.config;
 import hunre.edu.vn.backend.serviceImpl.CustomUserDetailsService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -77,6 +78,7 @@ public class WebSecurityConfig {
                             .requestMatchers("/swagger-ui/**").permitAll()
                             .requestMatchers("/swagger-resources/**").permitAll()
                             .requestMatchers("/webjars/**").permitAll()
+                            .requestMatchers(HttpMethod.GET, "/media/**").permitAll()
 
                             .anyRequest().authenticated();
 
@@ -1,7 +1,9 @@
 package hunre.edu.vn.backend.controller;
 
+import hunre.edu.vn.backend.annotation.RequireAuthentication;
 import hunre.edu.vn.backend.dto.AttributeDTO;
 import hunre.edu.vn.backend.service.AttributeService;
+import hunre.edu.vn.backend.service.InventoryExpiryService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,9 +14,11 @@ import java.util.List;
 public class AttributeController {
 
     private final AttributeService attributeService;
+    private final InventoryExpiryService inventoryExpiryService;
 
-    public AttributeController(AttributeService attributeService) {
+    public AttributeController(AttributeService attributeService, InventoryExpiryService inventoryExpiryService) {
         this.attributeService = attributeService;
+        this.inventoryExpiryService = inventoryExpiryService;
     }
 
     @GetMapping
@@ -23,6 +27,15 @@ public class AttributeController {
         return ResponseEntity.ok(attributes);
     }
 
+    @GetMapping("/expiring")
+    @RequireAuthentication(roles = {"ADMIN"}, enforceOnGet = true)
+    public ResponseEntity<List<AttributeDTO.ExpiringLotDTO>> getExpiringLots(@RequestParam(defaultValue = "30") int days) {
+        if (days < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(inventoryExpiryService.findExpiring(days));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<AttributeDTO.GetAttributeDTO> getAttributeById(@PathVariable Long id) {
         return attributeService.findById(id)
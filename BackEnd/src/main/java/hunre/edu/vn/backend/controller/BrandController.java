@@ -1,7 +1,9 @@
 package hunre.edu.vn.backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import hunre.edu.vn.backend.annotation.ConditionalGet;
 import hunre.edu.vn.backend.dto.BrandDTO;
+import hunre.edu.vn.backend.entity.Brand;
 import hunre.edu.vn.backend.service.BrandService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -14,6 +16,7 @@ import java.util.List;
 import java.util.Optional;
 
 
+@ConditionalGet(Brand.class)
 @RestController
 @RequestMapping("/api/brands")
 public class BrandController {
@@ -0,0 +1,44 @@
+package hunre.edu.vn.backend.controller;
+
+import hunre.edu.vn.backend.annotation.RequireAuthentication;
+import hunre.edu.vn.backend.service.CatalogExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+@RestController
+@RequestMapping("/api/medicines/export")
+public class CatalogExportController {
+
+    private final CatalogExportService catalogExportService;
+
+    public CatalogExportController(CatalogExportService catalogExportService) {
+        this.catalogExportService = catalogExportService;
+    }
+
+    @GetMapping
+    @RequireAuthentication(roles = {"ADMIN"}, enforceOnGet = true)
+    @Operation(summary = "Export catalog as CSV", description = "Streams medicines with attributes, prices, stock and categories as CSV, optionally gzip-compressed")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        String fileName = "catalog-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + (gzip ? ".csv.gz" : ".csv");
+        StreamingResponseBody body = output -> catalogExportService.writeCsv(output, gzip);
+
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                        : new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,56 @@
+package hunre.edu.vn.backend.controller;
+
+import hunre.edu.vn.backend.annotation.RequireAuthentication;
+import hunre.edu.vn.backend.dto.CatalogImportDTO;
+import hunre.edu.vn.backend.service.CatalogImportService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/medicines/import")
+public class CatalogImportController {
+
+    private final CatalogImportService catalogImportService;
+
+    public CatalogImportController(CatalogImportService catalogImportService) {
+        this.catalogImportService = catalogImportService;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @RequireAuthentication(roles = {"ADMIN"})
+    public ResponseEntity<?> importCatalog(@RequestParam("file") MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body(error("File nhập không được để trống"));
+        }
+
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(catalogImportService.startImport(file));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(error("Lỗi khi đọc file: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    @RequireAuthentication(roles = {"ADMIN"}, enforceOnGet = true)
+    public ResponseEntity<CatalogImportDTO.ImportJobDTO> getImportJob(@PathVariable String jobId) {
+        return catalogImportService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private Map<String, String> error(String message) {
+        Map<String, String> body = new HashMap<>();
+        body.put("message", message);
+        return body;
+    }
+}
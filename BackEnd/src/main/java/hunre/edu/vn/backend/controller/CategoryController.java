@@ -1,7 +1,9 @@
 package hunre.edu.vn.backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import hunre.edu.vn.backend.annotation.ConditionalGet;
 import hunre.edu.vn.backend.dto.CategoryDTO;
+import hunre.edu.vn.backend.entity.Category;
 import hunre.edu.vn.backend.service.CategoryService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -13,6 +15,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+@ConditionalGet(Category.class)
 @RestController
 @RequestMapping("/api/categories")
 public class CategoryController {
@@ -29,6 +32,11 @@ public class CategoryController {
         return ResponseEntity.ok(categories);
     }
 
+    @GetMapping("/tree")
+    public ResponseEntity<List<CategoryDTO.CategoryTreeDTO>> getCategoryTree() {
+        return ResponseEntity.ok(categoryService.getTree());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CategoryDTO.GetCategoryDTO> getCategoryById(@PathVariable Long id) {
         return categoryService.findById(id)
@@ -1,6 +1,11 @@
 package hunre.edu.vn.backend.controller;
 
+import hunre.edu.vn.backend.annotation.ConditionalGet;
 import hunre.edu.vn.backend.dto.DoctorProfileDTO;
+import hunre.edu.vn.backend.entity.Consultation;
+import hunre.edu.vn.backend.entity.DoctorProfile;
+import hunre.edu.vn.backend.entity.Review;
+import hunre.edu.vn.backend.entity.User;
 import hunre.edu.vn.backend.service.DoctorProfileService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -8,6 +13,8 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Optional;
 
+// Hồ sơ bác sĩ gồm thông tin người dùng, số ca tư vấn và điểm đánh giá
+@ConditionalGet({DoctorProfile.class, User.class, Consultation.class, Review.class})
 @RestController
 @RequestMapping("/api/doctor-profiles")
 public class DoctorProfileController {
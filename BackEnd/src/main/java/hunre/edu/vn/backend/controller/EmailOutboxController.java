@@ -0,0 +1,26 @@
+package hunre.edu.vn.backend.controller;
+
+import hunre.edu.vn.backend.annotation.RequireAuthentication;
+import hunre.edu.vn.backend.dto.EmailOutboxDTO;
+import hunre.edu.vn.backend.service.EmailOutboxService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/email-outbox")
+public class EmailOutboxController {
+
+    private final EmailOutboxService emailOutboxService;
+
+    public EmailOutboxController(EmailOutboxService emailOutboxService) {
+        this.emailOutboxService = emailOutboxService;
+    }
+
+    @GetMapping("/stats")
+    @RequireAuthentication(roles = {"ADMIN"}, enforceOnGet = true)
+    public ResponseEntity<EmailOutboxDTO.StatsDTO> getStats() {
+        return ResponseEntity.ok(emailOutboxService.getStats());
+    }
+}
@@ -1,12 +1,23 @@
 package hunre.edu.vn.backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import hunre.edu.vn.backend.annotation.ConditionalGet;
 import hunre.edu.vn.backend.annotation.RequireAuthentication;
 import hunre.edu.vn.backend.dto.MedicineDTO;
 import hunre.edu.vn.backend.dto.MedicineMediaDTO;
+import hunre.edu.vn.backend.entity.Attribute;
+import hunre.edu.vn.backend.entity.Brand;
+import hunre.edu.vn.backend.entity.Category;
+import hunre.edu.vn.backend.entity.Discount;
+import hunre.edu.vn.backend.entity.Medicine;
+import hunre.edu.vn.backend.entity.MedicineCategory;
+import hunre.edu.vn.backend.entity.MedicineMedia;
+import hunre.edu.vn.backend.entity.MedicineSalesCounter;
 import hunre.edu.vn.backend.service.MedicineCategoryService;
 import hunre.edu.vn.backend.service.MedicineMediaService;
 import hunre.edu.vn.backend.service.MedicineService;
+import hunre.edu.vn.backend.utils.JsonArrayStreamer;
+import jakarta.servlet.http.HttpServletResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -19,11 +30,15 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.ion.Decimal;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/medicines")
+@ConditionalGet({Medicine.class, Attribute.class, Brand.class, Category.class, MedicineCategory.class, MedicineMedia.class,
+        Discount.class})
 @RequiredArgsConstructor
 @Tag(name = "Medicine Management", description = "API to manage medicines")
 public class MedicineController {
@@ -32,13 +47,22 @@ public class MedicineController {
     private final MedicineMediaService medicineMediaService;
     private final MedicineCategoryService medicineCategoryService;
     private final ObjectMapper objectMapper;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
     @GetMapping
+    @ConditionalGet(value = {Medicine.class, Attribute.class, Brand.class, Category.class, MedicineCategory.class,
+            MedicineMedia.class, Discount.class}, catalog = true)
     @Operation(summary = "Get all medicines", description = "Returns a list of all medicines")
     public ResponseEntity<List<MedicineDTO.GetMedicineDTO>> getAllMedicines() {
         return ResponseEntity.ok(medicineService.findAll());
     }
 
+    @GetMapping("/stream")
+    @Operation(summary = "Stream all medicines", description = "Writes all medicines as a JSON array row by row, for large exports")
+    public void streamAllMedicines(HttpServletResponse response) throws IOException {
+        jsonArrayStreamer.write(response, medicineService::streamAll);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get medicine by ID", description = "Returns a medicine by ID")
     @ApiResponses(value = {
@@ -119,32 +143,82 @@ public class MedicineController {
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search medicines", description = "Search medicines by various criteria")
-    public ResponseEntity<List<MedicineDTO.GetMedicineDTO>> searchMedicines(
+    @ConditionalGet(value = {Medicine.class, Attribute.class, Brand.class, Category.class, MedicineCategory.class,
+            MedicineMedia.class, Discount.class}, catalog = true)
+    @Operation(summary = "Search medicines",
+            description = "Search medicines by various criteria. Supports offset paging (page/size) and keyset paging (cursor). "
+                    + "mode=ranked searches name, code, description and usage instruction ignoring diacritics, ordered by relevance. "
+                    + "facets=true adds brand, category and price range counts for the whole result set. "
+                    + "categoryId matches the category and all its subcategories unless includeSubcategories=false. "
+                    + "minPrice/maxPrice match medicines with any variant priced in the range (rangePrice is a legacy alias of maxPrice)")
+    public ResponseEntity<MedicineDTO.MedicineSliceDTO> searchMedicines(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String code,
             @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false, defaultValue = "true") Boolean includeSubcategories,
             @RequestParam(required = false) Long brandId,
             @RequestParam(required = false) Decimal rangePrice,
-            @RequestParam(required = false) String sortBy) {
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false, defaultValue = "0") Integer page,
+            @RequestParam(required = false, defaultValue = "20") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String mode,
+            @RequestParam(required = false, defaultValue = "false") Boolean facets) {
 
         // Nếu truyền code, ưu tiên tìm theo code
         if (code != null && !code.trim().isEmpty()) {
-            return medicineService.findByCode(code)
-                    .map(medicine -> ResponseEntity.ok(List.of(medicine)))
-                    .orElseGet(() -> ResponseEntity.ok(List.of()));
+            List<MedicineDTO.GetMedicineDTO> content = medicineService.findByCode(code)
+                    .map(List::of)
+                    .orElseGet(List::of);
+            return ResponseEntity.ok(MedicineDTO.MedicineSliceDTO.builder()
+                    .content(content)
+                    .page(0)
+                    .size(content.size())
+                    .hasNext(false)
+                    .build());
         }
 
-        // Nếu truyền tên, ưu tiên tìm theo tên
-        if (name != null && !name.trim().isEmpty()) {
-            return ResponseEntity.ok(medicineService.findByName(name));
+        MedicineDTO.SearchMedicineDTO criteria = MedicineDTO.SearchMedicineDTO.builder()
+                .name(name)
+                .categoryId(categoryId)
+                .includeSubcategories(includeSubcategories)
+                .brandId(brandId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice != null ? maxPrice : rangePrice)
+                .inStock(inStock)
+                .sortBy(sortBy)
+                .page(page)
+                .size(size)
+                .cursor(cursor)
+                .includeFacets(facets)
+                .build();
+
+        try {
+            if ("ranked".equalsIgnoreCase(mode)) {
+                return ResponseEntity.ok(medicineService.searchRanked(criteria));
+            }
+            return ResponseEntity.ok(medicineService.search(criteria));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
+    }
 
-        // Tìm kiếm theo các tiêu chí khác
-        return ResponseEntity.ok(medicineService.seach(name, categoryId, brandId, rangePrice, sortBy));
+    @GetMapping("/suggest")
+    @ConditionalGet(value = {Medicine.class, Attribute.class, Brand.class, MedicineSalesCounter.class}, catalog = true)
+    @Operation(summary = "Suggest medicines",
+            description = "Typeahead suggestions by name, code or brand prefix (diacritics ignored), ordered by sales")
+    public ResponseEntity<List<MedicineDTO.MedicineSuggestionDTO>> suggestMedicines(
+            @RequestParam String q,
+            @RequestParam(required = false, defaultValue = "10") Integer limit) {
+        return ResponseEntity.ok(medicineService.suggest(q, limit));
     }
 
     @GetMapping("/best-selling")
+    @ConditionalGet({Medicine.class, Attribute.class, Brand.class, Category.class, MedicineCategory.class,
+            MedicineMedia.class, MedicineSalesCounter.class, Discount.class})
     @Operation(summary = "Get best-selling medicines", description = "Returns the top 10 best-selling medicines")
     public ResponseEntity<List<MedicineDTO.GetMedicineDTO>> getBestSellingMedicines() {
         return ResponseEntity.ok(medicineService.getBestSaling());
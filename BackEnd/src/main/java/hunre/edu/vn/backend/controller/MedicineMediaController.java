@@ -1,7 +1,9 @@
 package hunre.edu.vn.backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import hunre.edu.vn.backend.annotation.RequireAuthentication;
 import hunre.edu.vn.backend.dto.MedicineMediaDTO;
+import hunre.edu.vn.backend.dto.StorageDTO;
 import hunre.edu.vn.backend.service.MedicineMediaService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -95,4 +97,10 @@ public class MedicineMediaController {
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    @GetMapping("/storage/cache-stats")
+    @RequireAuthentication(roles = {"ADMIN"}, enforceOnGet = true)
+    public ResponseEntity<StorageDTO.CacheStatsDTO> getStorageCacheStats() {
+        return ResponseEntity.ok(medicineMediaService.getStorageCacheStats());
+    }
+}
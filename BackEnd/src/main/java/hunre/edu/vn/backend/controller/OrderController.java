@@ -1,14 +1,20 @@
 package hunre.edu.vn.backend.controller;
 
+import hunre.edu.vn.backend.annotation.RequireAuthentication;
 import hunre.edu.vn.backend.dto.OrderDTO;
 import hunre.edu.vn.backend.entity.Order;
 import hunre.edu.vn.backend.entity.OrderStatus;
 import hunre.edu.vn.backend.entity.PaymentMethod;
+import hunre.edu.vn.backend.exception.ResourceNotFoundException;
 import hunre.edu.vn.backend.repository.OrderRepository;
 import hunre.edu.vn.backend.service.OrderService;
+import hunre.edu.vn.backend.utils.JsonArrayStreamer;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -21,11 +27,13 @@ public class OrderController {
 
     private final OrderService orderService;
     private final OrderRepository orderRepository;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
 
-    public OrderController(OrderService orderService, OrderRepository orderRepository) {
+    public OrderController(OrderService orderService, OrderRepository orderRepository, JsonArrayStreamer jsonArrayStreamer) {
         this.orderService = orderService;
         this.orderRepository = orderRepository;
+        this.jsonArrayStreamer = jsonArrayStreamer;
     }
 
     @GetMapping
@@ -33,6 +41,13 @@ public class OrderController {
         List<OrderDTO.GetOrderDTO> orders = orderService.findAll();
         return ResponseEntity.ok(orders);
     }
+
+    // Xuất toàn bộ đơn hàng, ghi từng đơn ra response ngay khi đọc từ database
+    @RequireAuthentication(roles = {"ADMIN"}, enforceOnGet = true)
+    @GetMapping("/stream")
+    public void streamAllOrders(HttpServletResponse response) throws IOException {
+        jsonArrayStreamer.write(response, orderService::streamAll);
+    }
     @GetMapping("/summary")
     public ResponseEntity<?> getOrderSummary() {
         BigDecimal totalRevenue = orderService.getTotalRevenue();
@@ -51,12 +66,36 @@ public class OrderController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // API cũ: /save không gửi email xác nhận vì lúc này đơn chưa có dòng nào.
+    // Client còn dùng /save gọi POST /{id}/confirmation-email sau khi thêm xong các dòng đơn, hoặc chuyển sang /checkout
     @PostMapping("/save")
     public ResponseEntity<OrderDTO.GetOrderDTO> saveOrUpdateOrder(@RequestBody OrderDTO.SaveOrderDTO orderDTO) {
         OrderDTO.GetOrderDTO savedOrder = orderService.saveOrUpdate(orderDTO);
         return ResponseEntity.ok(savedOrder);
     }
 
+    // Đặt hàng cả giỏ trong một request thay cho /save và một request /api/order-details cho mỗi dòng
+    @PostMapping("/checkout")
+    public ResponseEntity<OrderDTO.GetOrderDTO> checkout(@Valid @RequestBody OrderDTO.CheckoutDTO checkoutDTO) {
+        try {
+            return ResponseEntity.ok(orderService.checkout(checkoutDTO));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Email xác nhận cho đơn tạo qua /save, gọi sau khi đã thêm các dòng đơn; gọi lại không gửi thêm email
+    @PostMapping("/{id}/confirmation-email")
+    public ResponseEntity<String> sendConfirmationEmail(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(orderService.enqueueConfirmationEmail(id));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/{id}")
     public String deleteOrder(@RequestBody List<Long> ids) {
         return orderService.deleteByList(ids);
@@ -1,5 +1,6 @@
 package hunre.edu.vn.backend.controller;
 
+import hunre.edu.vn.backend.annotation.RequireAuthentication;
 import hunre.edu.vn.backend.dto.ServiceBookingDTO;
 import hunre.edu.vn.backend.dto.UserDTO;
 import hunre.edu.vn.backend.entity.BookingStatus;
@@ -7,6 +8,8 @@ import hunre.edu.vn.backend.service.DoctorProfileService;
 import hunre.edu.vn.backend.service.PatientProfileService;
 import hunre.edu.vn.backend.service.ServiceBookingService;
 import hunre.edu.vn.backend.service.UserService;
+import hunre.edu.vn.backend.utils.JsonArrayStreamer;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -14,6 +17,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -28,12 +32,15 @@ public class ServiceBookingController {
     private final UserService userService;
     private final DoctorProfileService doctorProfileService;
     private final PatientProfileService patientProfileService;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
-    public ServiceBookingController(ServiceBookingService serviceBookingService, UserService userService, DoctorProfileService doctorProfileService, PatientProfileService patientProfileService) {
+    public ServiceBookingController(ServiceBookingService serviceBookingService, UserService userService, DoctorProfileService doctorProfileService, PatientProfileService patientProfileService,
+                                    JsonArrayStreamer jsonArrayStreamer) {
         this.serviceBookingService = serviceBookingService;
         this.userService = userService;
         this.doctorProfileService = doctorProfileService;
         this.patientProfileService = patientProfileService;
+        this.jsonArrayStreamer = jsonArrayStreamer;
     }
 
     @GetMapping
@@ -42,6 +49,13 @@ public class ServiceBookingController {
         return ResponseEntity.ok(bookings);
     }
 
+    // Xuất toàn bộ lịch đặt dịch vụ, ghi từng bản ghi ra response ngay khi đọc từ database
+    @RequireAuthentication(roles = {"ADMIN"}, enforceOnGet = true)
+    @GetMapping("/stream")
+    public void streamAllServiceBookings(HttpServletResponse response) throws IOException {
+        jsonArrayStreamer.write(response, serviceBookingService::streamAll);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ServiceBookingDTO.GetServiceBookingDTO> getServiceBookingById(@PathVariable Long id) {
         return serviceBookingService.findById(id)
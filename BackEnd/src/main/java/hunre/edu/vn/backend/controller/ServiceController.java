@@ -1,7 +1,13 @@
 package hunre.edu.vn.backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import hunre.edu.vn.backend.annotation.ConditionalGet;
 import hunre.edu.vn.backend.dto.ServiceDTO;
+import hunre.edu.vn.backend.entity.Consultation;
+import hunre.edu.vn.backend.entity.DoctorProfile;
+import hunre.edu.vn.backend.entity.DoctorService;
+import hunre.edu.vn.backend.entity.Review;
+import hunre.edu.vn.backend.entity.User;
 import hunre.edu.vn.backend.repository.DoctorServiceRepository;
 import hunre.edu.vn.backend.service.ServiceService;
 import org.springframework.http.HttpStatus;
@@ -15,6 +21,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+// Dịch vụ trả kèm hồ sơ bác sĩ (thông tin người dùng, số ca tư vấn, đánh giá)
+@ConditionalGet({hunre.edu.vn.backend.entity.Service.class, DoctorService.class, DoctorProfile.class,
+        User.class, Consultation.class, Review.class})
 @RestController
 @RequestMapping("/api/services")
 public class ServiceController {
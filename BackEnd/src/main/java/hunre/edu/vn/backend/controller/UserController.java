@@ -1,8 +1,11 @@
 package hunre.edu.vn.backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import hunre.edu.vn.backend.annotation.RequireAuthentication;
 import hunre.edu.vn.backend.dto.UserDTO;
 import hunre.edu.vn.backend.service.UserService;
+import hunre.edu.vn.backend.utils.JsonArrayStreamer;
+import jakarta.servlet.http.HttpServletResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -23,9 +26,11 @@ import java.util.Optional;
 public class UserController {
 
     private final UserService userService;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, JsonArrayStreamer jsonArrayStreamer) {
         this.userService = userService;
+        this.jsonArrayStreamer = jsonArrayStreamer;
     }
 
     @Operation(summary = "Get all users", description = "Returns a list of all users")
@@ -38,6 +43,13 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @Operation(summary = "Stream all users", description = "Writes all users as a JSON array row by row, for large exports")
+    @RequireAuthentication(roles = {"ADMIN"}, enforceOnGet = true)
+    @GetMapping("/stream")
+    public void streamAllUsers(HttpServletResponse response) throws IOException {
+        jsonArrayStreamer.write(response, userService::streamAll);
+    }
+
     @Operation(summary = "Get user by ID", description = "Returns a user by ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved user"),
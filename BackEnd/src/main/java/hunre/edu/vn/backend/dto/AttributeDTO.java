@@ -27,6 +27,8 @@ public class AttributeDTO {
         private String name;
         private BigDecimal priceIn;
         private BigDecimal priceOut;
+        private BigDecimal effectivePrice; // Giá bán sau discount đang hiệu lực, chỉ có trong danh mục
+        private Double discountPercentage;
         private Integer stock;
         private LocalDate expiryDate;
         private Boolean isExpired;
@@ -80,6 +82,21 @@ public class AttributeDTO {
         private Boolean isNearExpiry;
     }
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ExpiringLotDTO {
+        private Long attributeId;
+        private Long medicineId;
+        private String medicineName;
+        private String name;
+        private Integer stock;
+        private LocalDate expiryDate;
+        private Long daysUntilExpiry;
+        private Boolean isExpired;
+    }
+
     public static GetAttributeDTO fromEntity(Attribute attribute) {
         if (attribute == null) return null;
 
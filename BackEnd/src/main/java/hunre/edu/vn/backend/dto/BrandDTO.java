@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -24,6 +25,7 @@ public class BrandDTO {
         private Long id;
         private String name;
         private String image;
+        private Map<Integer, String> imageVariants;
         private Integer medicineCount;
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
@@ -64,6 +66,7 @@ public class BrandDTO {
                 .id(brand.getId())
                 .name(brand.getName())
                 .image(brand.getImage())
+                .imageVariants(brand.getImageVariants())
                 .createdAt(brand.getCreatedAt())
                 .updatedAt(brand.getUpdatedAt())
                 .build();
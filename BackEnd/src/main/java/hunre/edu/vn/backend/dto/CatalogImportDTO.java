@@ -0,0 +1,36 @@
+package hunre.edu.vn.backend.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class CatalogImportDTO {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ImportJobDTO {
+        private String jobId;
+        private String fileName;
+        private String status;
+        private Integer processedRows;
+        private Integer importedMedicines;
+        private Integer importedAttributes;
+        private Integer failedRows;
+        private List<RowErrorDTO> errors;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class RowErrorDTO {
+        private Integer rowNumber;
+        private String code;
+        private String message;
+    }
+}
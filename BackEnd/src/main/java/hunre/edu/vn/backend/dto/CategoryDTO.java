@@ -6,6 +6,7 @@ import lombok.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -25,6 +26,7 @@ public class CategoryDTO {
         private Long parentId;
         private String name;
         private String image;
+        private Map<Integer, String> imageVariants;
         private Integer childrenCount;
         private Boolean isParent;
         private Boolean isLeaf;
@@ -51,6 +53,18 @@ public class CategoryDTO {
         private LocalDateTime updatedAt;
     }
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class CategoryTreeDTO {
+        private Long id;
+        private Long parentId;
+        private String name;
+        private String image;
+        private List<CategoryTreeDTO> children;
+    }
+
     public static GetCategoryDTO fromEntity(Category category) {
         if (category == null) return null;
 
@@ -60,6 +74,7 @@ public class CategoryDTO {
                 .updatedAt(category.getUpdatedAt())
                 .name(category.getName())
                 .image(category.getImage())
+                .imageVariants(category.getImageVariants())
                 .isParent(category.isParent())
                 .isLeaf(category.isLeaf())
                 .build();
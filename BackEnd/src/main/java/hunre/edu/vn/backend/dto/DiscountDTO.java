@@ -63,6 +63,24 @@ public class DiscountDTO {
         private Integer usageLimit;
     }
 
+    /**
+     * Giá của một dòng hàng sau khi áp discount tốt nhất đang hiệu lực cho thuốc
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class PricedLineDTO {
+        private Long medicineId;
+        private BigDecimal unitPrice;
+        private Integer quantity;
+        private BigDecimal lineTotal;
+        private Long discountId; // null nếu không có discount nào áp dụng được
+        private Double discountPercentage;
+        private BigDecimal discountAmount;
+        private BigDecimal finalTotal;
+    }
+
     // Static method to convert Entity to DTO
     public static GetDiscountDTO fromEntity(Discount discount) {
         if (discount == null) {
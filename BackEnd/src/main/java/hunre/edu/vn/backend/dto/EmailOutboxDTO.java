@@ -0,0 +1,25 @@
+package hunre.edu.vn.backend.dto;
+
+import lombok.*;
+
+public class EmailOutboxDTO {
+
+    /**
+     * Độ sâu hàng đợi email và tình trạng pool worker
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class StatsDTO {
+        private Long pending;
+        private Long sending;
+        private Long sent;
+        private Long failed;
+        private Long oldestQueuedAgeSeconds; // Tuổi của email chờ lâu nhất, 0 nếu hàng đợi trống
+        private Integer activeWorkers;
+        private Integer queuedBatches;
+        private Long sentSinceStartup;
+        private Long failedAttemptsSinceStartup;
+    }
+}
@@ -35,6 +35,7 @@ public class MedicineDTO {
         private Integer totalStock;
         private BigDecimal minPrice;
         private BigDecimal maxPrice;
+        private BigDecimal minEffectivePrice; // Giá thấp nhất sau discount
         private String origin;
         private BrandBasicDTO brand;
         private List<AttributeDTO.GetAttributeDTO> attributes;
@@ -76,6 +77,74 @@ public class MedicineDTO {
 
     }
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class SearchMedicineDTO {
+        private String name;
+        private Long categoryId;
+        // Mặc định (null) lọc cả các danh mục con của categoryId
+        private Boolean includeSubcategories;
+        private Long brandId;
+        // Thuốc phù hợp khi có ít nhất một thuộc tính với giá bán trong [minPrice, maxPrice]
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private Boolean inStock;
+        private String sortBy;
+        private Integer page;
+        private Integer size;
+        private String cursor;
+        private Boolean includeFacets;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class MedicineSliceDTO {
+        private List<GetMedicineDTO> content;
+        private Integer page;
+        private Integer size;
+        private Boolean hasNext;
+        private String nextCursor;
+        private FacetCountsDTO facets;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class FacetCountsDTO {
+        private List<FacetValueDTO> brands;
+        private List<FacetValueDTO> categories;
+        private List<FacetValueDTO> priceRanges;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class FacetValueDTO {
+        private Long id;
+        private String label;
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private Integer count;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class MedicineSuggestionDTO {
+        private Long id;
+        private String code;
+        private String name;
+        private String brandName;
+        private BigDecimal minPrice;
+    }
+
     public static GetMedicineDTO fromEntity(Medicine medicine) {
         if (medicine == null) return null;
 
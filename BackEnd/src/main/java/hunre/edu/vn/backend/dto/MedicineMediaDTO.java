@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -22,6 +23,7 @@ public class MedicineMediaDTO {
         private Long id;
         private Long medicineId;
         private String mediaUrl;
+        private Map<Integer, String> mediaVariants;
         private Boolean mainImage;
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
@@ -51,6 +53,7 @@ public class MedicineMediaDTO {
                 .createdAt(medicineMedia.getCreatedAt())
                 .updatedAt(medicineMedia.getUpdatedAt())
                 .mediaUrl(medicineMedia.getMediaUrl())
+                .mediaVariants(medicineMedia.getMediaVariants())
                 .mainImage(medicineMedia.getMainImage())
                 .build();
     }
@@ -4,6 +4,9 @@ import hunre.edu.vn.backend.entity.Order;
 import hunre.edu.vn.backend.entity.OrderStatus;
 import hunre.edu.vn.backend.entity.PaymentMethod;
 import hunre.edu.vn.backend.entity.PaymentStatus;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -68,6 +71,46 @@ public class OrderDTO {
         private BigDecimal totalPrice;
     }
 
+    /**
+     * Toàn bộ giỏ hàng gửi lên trong một lần đặt hàng.
+     * Giá do client gửi chỉ dùng để đối chiếu, giá thật được tính lại trên server
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class CheckoutDTO {
+        @NotNull(message = "ID bệnh nhân không được trống")
+        private Long patientId;
+
+        @NotNull(message = "Phương thức thanh toán không được trống")
+        private PaymentMethod paymentMethod;
+
+        private String voucherCode;
+        private String note;
+
+        @NotEmpty(message = "Giỏ hàng không được trống")
+        private List<CheckoutItemDTO> items;
+
+        private BigDecimal expectedTotal; // Tổng tiền client hiển thị, lệch với giá server thì từ chối
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class CheckoutItemDTO {
+        @NotNull(message = "ID thuộc tính không được trống")
+        private Long attributeId;
+
+        @NotNull(message = "Số lượng không được trống")
+        @Min(value = 1, message = "Số lượng phải lớn hơn 0")
+        @Max(value = 1000, message = "Số lượng không được vượt quá 1000")
+        private Integer quantity;
+
+        private BigDecimal unitPrice; // Đơn giá client hiển thị, khác giá bán hiện tại thì từ chối
+    }
+
     // Static method to convert Entity to DTO
     public static GetOrderDTO fromEntity(Order order) {
         if (order == null) {
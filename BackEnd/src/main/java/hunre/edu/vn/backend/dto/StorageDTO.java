@@ -0,0 +1,22 @@
+package hunre.edu.vn.backend.dto;
+
+import lombok.*;
+
+public class StorageDTO {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class CacheStatsDTO {
+        private String storageType;
+        private Boolean enabled;
+        private Long hits;
+        private Long misses;
+        private Double hitRatio;
+        private Long evictions;
+        private Integer entries;
+        private Long sizeBytes;
+        private Long maxBytes;
+    }
+}
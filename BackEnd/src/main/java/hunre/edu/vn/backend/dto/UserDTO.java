@@ -11,6 +11,7 @@ import lombok.NoArgsConstructor;
 import javax.annotation.Nullable;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -32,6 +33,7 @@ public class UserDTO {
         private Boolean enabled;
         private Boolean locked;
         private String avatar;
+        private Map<Integer, String> avatarVariants;
         private Integer countLock;
         private List<RoleDTO.GetRoleDTO> roles;
         private List<SocialAccountDTO.GetSocialAccountDTO> socialAccounts;
@@ -92,6 +94,7 @@ public class UserDTO {
                 .enabled(user.getEnabled())
                 .locked(user.getLocked())
                 .avatar(user.getAvatar())
+                .avatarVariants(user.getAvatarVariants())
                 .countLock(user.getCountLock())
                 .createdAt(user.getCreatedAt())
                 .updatedAt(user.getUpdatedAt())
@@ -71,6 +71,20 @@ public class VoucherDTO {
         private BigDecimal minimumOrderValue;
     }
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class RedemptionDTO {
+        private Long id;
+        private Long voucherId;
+        private String voucherCode;
+        private Long orderId;
+        private BigDecimal orderValue;
+        private BigDecimal discountAmount;
+        private LocalDateTime redeemedAt;
+    }
+
     public static GetVoucherDTO fromEntity(Voucher voucher) {
         if (voucher == null) {
             return null;
@@ -8,7 +8,11 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "attributes")
+@Table(name = "attributes", indexes = {
+        @Index(name = "idx_attribute_medicine_price", columnList = "medicine_id,price_out"),
+        @Index(name = "idx_attribute_price_out", columnList = "price_out,medicine_id"),
+        @Index(name = "idx_attribute_expiry_date", columnList = "expiry_date,stock")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,7 +20,7 @@ import java.time.LocalDate;
 @EqualsAndHashCode(callSuper = true)
 public class Attribute extends BaseEntity {
     @NotNull(message = "Thuốc không được trống")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @ToString.Exclude
     @JoinColumn(name = "medicine_id", nullable = false)
     private Medicine medicine;
@@ -1,18 +1,23 @@
 package hunre.edu.vn.backend.entity;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import hunre.edu.vn.backend.utils.ImageVariantsConverter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Entity
 @Table(name = "brands", indexes = {
         @Index(name = "idx_brand_name", columnList = "name", unique = true)
 })
+@BatchSize(size = 100)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,9 +32,22 @@ public class Brand extends BaseEntity {
     @Column(name = "image", nullable = false)
     private String image;
 
+    // Ảnh thu nhỏ theo chiều rộng, do ImageDerivativeService ghi sau khi tải ảnh lên
+    @Convert(converter = ImageVariantsConverter.class)
+    @Column(name = "image_variants", columnDefinition = "nvarchar(2000)")
+    private Map<Integer, String> imageVariants;
+
     @OneToMany(mappedBy = "brand", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JsonManagedReference
     @ToString.Exclude
     @Builder.Default
     private List<Medicine> medicines = new ArrayList<>();
+
+    // Đổi ảnh thì các ảnh thu nhỏ cũ không còn đúng
+    public void setImage(String image) {
+        if (!Objects.equals(this.image, image)) {
+            this.imageVariants = null;
+        }
+        this.image = image;
+    }
 }
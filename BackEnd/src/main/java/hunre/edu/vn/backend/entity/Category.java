@@ -1,5 +1,6 @@
 package hunre.edu.vn.backend.entity;
 
+import hunre.edu.vn.backend.utils.ImageVariantsConverter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -7,6 +8,8 @@ import lombok.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Entity
 @Table(name = "categories", indexes = {
@@ -26,6 +29,10 @@ public class Category extends BaseEntity {
     @Column(name = "image", nullable = true)
     private String image;
 
+    @Convert(converter = ImageVariantsConverter.class)
+    @Column(name = "image_variants", columnDefinition = "nvarchar(2000)")
+    private Map<Integer, String> imageVariants;
+
     @ManyToOne(fetch = FetchType.EAGER)
     @ToString.Exclude
     @JoinColumn(name = "parent_id", nullable = true)
@@ -51,6 +58,13 @@ public class Category extends BaseEntity {
         child.setParent(null);
     }
 
+    public void setImage(String image) {
+        if (!Objects.equals(this.image, image)) {
+            this.imageVariants = null;
+        }
+        this.image = image;
+    }
+
     public boolean isParent() {
         return this.parent == null;
     }
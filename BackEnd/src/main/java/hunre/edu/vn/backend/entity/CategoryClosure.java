@@ -0,0 +1,42 @@
+package hunre.edu.vn.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Bảng bao đóng (closure table) của cây danh mục: mỗi cặp tổ tiên - hậu duệ một dòng,
+ * kể cả chính nó với depth = 0. Lọc "danh mục X và mọi danh mục con" chỉ cần một phép join
+ * theo ancestor_id thay vì đi từng cấp của parent_id.
+ * Bảng là dữ liệu dẫn xuất từ categories.parent_id nên không có xóa mềm.
+ */
+@Entity
+@Table(name = "category_closures", indexes = {
+        @Index(name = "idx_category_closure_descendant", columnList = "descendant_id,depth")
+})
+@IdClass(CategoryClosure.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CategoryClosure {
+    @Id
+    @Column(name = "ancestor_id", nullable = false)
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id", nullable = false)
+    private Long descendantId;
+
+    @Column(name = "depth", nullable = false)
+    private Integer depth;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long ancestorId;
+        private Long descendantId;
+    }
+}
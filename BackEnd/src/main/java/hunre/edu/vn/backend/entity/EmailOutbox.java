@@ -0,0 +1,60 @@
+package hunre.edu.vn.backend.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hàng đợi email gửi đi (transactional outbox).
+ * Bản ghi được ghi cùng transaction với nghiệp vụ phát sinh email (đặt hàng, đặt dịch vụ) nên email chỉ được gửi
+ * khi nghiệp vụ commit và không bị mất khi ứng dụng dừng giữa chừng. Nội dung được dựng lúc gửi từ reference_id.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_due", columnList = "status,next_attempt_at"),
+        @Index(name = "idx_email_outbox_reference", columnList = "type,reference_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+public class EmailOutbox extends BaseEntity {
+    @NotNull(message = "Loại email không được trống")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private EmailType type;
+
+    @NotNull(message = "Đối tượng liên quan không được trống")
+    @Column(name = "reference_id", nullable = false)
+    private Long referenceId;
+
+    @NotBlank(message = "Người nhận không được trống")
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+
+    @Column(name = "recipient_name", columnDefinition = "nvarchar(255)")
+    private String recipientName;
+
+    @NotNull(message = "Trạng thái không được trống")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private EmailOutboxStatus status;
+
+    @Builder.Default
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @NotNull
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", columnDefinition = "nvarchar(1000)")
+    private String lastError;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
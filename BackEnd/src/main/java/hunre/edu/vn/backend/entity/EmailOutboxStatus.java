@@ -0,0 +1,17 @@
+package hunre.edu.vn.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum EmailOutboxStatus {
+    // Chờ gửi hoặc chờ thử lại đến next_attempt_at
+    PENDING,
+    // Đã được một worker nhận, hết hạn nhận (next_attempt_at) thì được nhận lại
+    SENDING,
+    // Đã gửi thành công
+    SENT,
+    // Đã hết số lần thử
+    FAILED
+}
@@ -0,0 +1,13 @@
+package hunre.edu.vn.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum EmailType {
+    // reference_id là ID đơn hàng
+    ORDER_CONFIRMATION,
+    // reference_id là ID đặt dịch vụ
+    SERVICE_BOOKING_CONFIRMATION
+}
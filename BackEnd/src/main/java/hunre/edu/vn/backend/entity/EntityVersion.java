@@ -0,0 +1,29 @@
+package hunre.edu.vn.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phiên bản theo loại entity dùng làm validator cho ETag/Last-Modified.
+ * Bảng dùng chung cho mọi tiến trình nên ETag không phụ thuộc vào instance hay lần khởi động.
+ * Mỗi dòng chỉ được tăng, không có xóa mềm.
+ */
+@Entity
+@Table(name = "entity_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EntityVersion {
+    @Id
+    @Column(name = "entity_name", length = 100, nullable = false)
+    private String entityName;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "modified_at", nullable = false)
+    private LocalDateTime modifiedAt;
+}
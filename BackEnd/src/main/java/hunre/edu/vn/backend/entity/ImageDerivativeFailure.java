@@ -0,0 +1,35 @@
+package hunre.edu.vn.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Đánh dấu ảnh gốc tạo ảnh thu nhỏ bị lỗi: số lần đã thử và thời điểm được thử lại.
+ * Lần quét định kỳ bỏ qua ảnh chưa đến hạn thử lại hoặc đã hết số lần thử; dòng bị xóa khi tạo thành công.
+ * Bảng chỉ phục vụ hàng đợi xử lý nền nên không có xóa mềm.
+ */
+@Entity
+@Table(name = "image_derivative_failures", indexes = {
+        @Index(name = "idx_image_derivative_failure_next", columnList = "next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageDerivativeFailure {
+    // nvarchar(450) là độ dài tối đa của khóa chính trên SQL Server (900 byte)
+    @Id
+    @Column(name = "original_url", length = 450, nullable = false)
+    private String originalUrl;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+}
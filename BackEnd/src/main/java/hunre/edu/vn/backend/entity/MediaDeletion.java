@@ -0,0 +1,32 @@
+package hunre.edu.vn.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Yêu cầu xóa object media đang chờ (tombstone).
+ * Object chỉ bị xóa khi đến hạn và không còn bản ghi nào tham chiếu; một lần tải lên dùng lại
+ * cùng nội dung sẽ hủy yêu cầu. Bảng chỉ phục vụ hàng đợi xử lý nền nên không có xóa mềm.
+ */
+@Entity
+@Table(name = "media_deletions", indexes = {
+        @Index(name = "idx_media_deletion_due", columnList = "delete_after")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaDeletion {
+    // nvarchar(450) là độ dài tối đa của khóa chính trên SQL Server (900 byte)
+    @Id
+    @Column(name = "object_key", length = 450, nullable = false)
+    private String objectKey;
+
+    @Column(name = "url", length = 1000, nullable = false)
+    private String url;
+
+    @Column(name = "delete_after", nullable = false)
+    private LocalDateTime deleteAfter;
+}
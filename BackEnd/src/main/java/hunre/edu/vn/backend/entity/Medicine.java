@@ -7,7 +7,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.*;
-import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -17,7 +17,20 @@ import java.util.List;
 @Table(name = "medicines", indexes = {
         @Index(name = "idx_medicine_code", columnList = "code", unique = true),
         @Index(name = "idx_medicine_name", columnList = "name"),
-        @Index(name = "idx_medicine_brand", columnList = "brand_id")
+        @Index(name = "idx_medicine_brand", columnList = "brand_id"),
+        @Index(name = "idx_medicine_min_price", columnList = "min_price"),
+        @Index(name = "idx_medicine_total_stock", columnList = "total_stock")
+})
+@NamedEntityGraphs({
+        // Thẻ sản phẩm trong danh sách: chỉ join brand, các collection được tải theo lô (@BatchSize)
+        @NamedEntityGraph(name = "Medicine.card", attributeNodes = {
+                @NamedAttributeNode("brand")
+        }),
+        // Trang chi tiết: thêm danh sách thuộc tính (giá, tồn kho)
+        @NamedEntityGraph(name = "Medicine.detail", attributeNodes = {
+                @NamedAttributeNode("brand"),
+                @NamedAttributeNode("attributes")
+        })
 })
 @Data
 @NoArgsConstructor
@@ -48,31 +61,36 @@ public class Medicine extends BaseEntity {
     @Column(name = "is_prescription_required", nullable = true)
     private Boolean isPrescriptionRequired = false;
 
-    @Formula("(SELECT COALESCE(SUM(a.stock), 0) FROM attributes a WHERE a.medicine_id = id AND a.is_deleted = false)")
+    // Tổng hợp từ các thuộc tính chưa xóa, chỉ được ghi bởi MedicineInventoryService (UPDATE hàng loạt)
+    // nên việc lưu entity Medicine không bao giờ ghi đè giá trị đã tính
+    @Column(name = "total_stock", insertable = false, updatable = false)
     private Integer totalStock;
 
-    @Formula("(SELECT MIN(a.price_out) FROM attributes a WHERE a.medicine_id = id AND a.is_deleted = false)")
+    @Column(name = "min_price", precision = 19, scale = 2, insertable = false, updatable = false)
     private BigDecimal minPrice;
 
-    @Formula("(SELECT MAX(a.price_out) FROM attributes a WHERE a.medicine_id = id AND a.is_deleted = false)")
+    @Column(name = "max_price", precision = 19, scale = 2, insertable = false, updatable = false)
     private BigDecimal maxPrice;
 
-    @OneToMany(mappedBy = "medicine", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "medicine", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @ToString.Exclude
     @Builder.Default
     private List<Attribute> attributes = new ArrayList<>();
 
-    @OneToMany(mappedBy = "medicine", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "medicine", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @ToString.Exclude
     @Builder.Default
     private List<MedicineCategory> medicineCategories = new ArrayList<>();
 
-    @OneToMany(mappedBy = "medicine", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "medicine", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @ToString.Exclude
     @Builder.Default
     private List<MedicineMedia> medicineMedias = new ArrayList<>();
 
-    @ManyToOne(fetch = FetchType.EAGER, cascade = CascadeType.MERGE)
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.MERGE)
     @ToString.Exclude
     @JoinColumn(name = "brand_id", referencedColumnName = "id", nullable = false)
     private Brand brand;
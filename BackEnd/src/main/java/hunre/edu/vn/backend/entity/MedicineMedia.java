@@ -1,9 +1,13 @@
 package hunre.edu.vn.backend.entity;
 
+import hunre.edu.vn.backend.utils.ImageVariantsConverter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
 
+import java.util.Map;
+import java.util.Objects;
+
 @Entity
 @Table(name = "medicine_medias", indexes = {
         @Index(name = "idx_medicine_media_medicine", columnList = "medicine_id"),
@@ -26,10 +30,21 @@ public class MedicineMedia extends BaseEntity {
     @Column(name = "media_url", nullable = false)
     private String mediaUrl;
 
+    @Convert(converter = ImageVariantsConverter.class)
+    @Column(name = "media_variants", columnDefinition = "nvarchar(2000)")
+    private Map<Integer, String> mediaVariants;
+
     @NotNull(message = "Trạng thái hình ảnh chính không được trống")
     @Column(name = "main_image", nullable = false)
     private Boolean mainImage = false;
 
+    public void setMediaUrl(String mediaUrl) {
+        if (!Objects.equals(this.mediaUrl, mediaUrl)) {
+            this.mediaVariants = null;
+        }
+        this.mediaUrl = mediaUrl;
+    }
+
     public void setAsMainImage() {
         // Đảm bảo chỉ có một ảnh chính
         if (this.medicine != null) {
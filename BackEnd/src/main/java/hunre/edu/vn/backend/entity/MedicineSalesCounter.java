@@ -0,0 +1,26 @@
+package hunre.edu.vn.backend.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@Entity
+@Table(name = "medicine_sales_counters", indexes = {
+        @Index(name = "idx_sales_counter_medicine", columnList = "medicine_id", unique = true),
+        @Index(name = "idx_sales_counter_quantity", columnList = "quantity_sold")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+public class MedicineSalesCounter extends BaseEntity {
+    @NotNull(message = "Thuốc không được trống")
+    @Column(name = "medicine_id", nullable = false, unique = true)
+    private Long medicineId;
+
+    @NotNull(message = "Số lượng đã bán không được trống")
+    @Column(name = "quantity_sold", nullable = false)
+    @Builder.Default
+    private Long quantitySold = 0L;
+}
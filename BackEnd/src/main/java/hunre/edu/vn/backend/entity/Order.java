@@ -6,6 +6,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Formula;
 
 import java.math.BigDecimal;
@@ -19,6 +20,15 @@ import java.util.List;
         @Index(name = "idx_order_patient", columnList = "patient_id"),
         @Index(name = "idx_order_status", columnList = "status")
 })
+@NamedEntityGraph(name = "Order.detail", attributeNodes = {
+        @NamedAttributeNode(value = "orderDetails", subgraph = "orderLine")
+}, subgraphs = {
+        @NamedSubgraph(name = "orderLine", attributeNodes = {
+                @NamedAttributeNode(value = "medicine", subgraph = "medicine"),
+                @NamedAttributeNode("attribute")
+        }),
+        @NamedSubgraph(name = "medicine", attributeNodes = @NamedAttributeNode("brand"))
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -76,7 +86,9 @@ public class Order extends BaseEntity {
     @Formula("(SELECT COUNT(od.id) FROM order_details od WHERE od.order_id = id)")
     private Integer itemCount;
 
-    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
+    @ToString.Exclude
     @Builder.Default
     private List<OrderDetail> orderDetails = new ArrayList<>();
 
@@ -13,6 +13,12 @@ import java.math.RoundingMode;
         @Index(name = "idx_order_detail_medicine", columnList = "medicine_id"),
         @Index(name = "idx_order_detail_attribute", columnList = "attribute_id")
 })
+@NamedEntityGraph(name = "OrderDetail.orderLine", attributeNodes = {
+        @NamedAttributeNode(value = "medicine", subgraph = "medicine"),
+        @NamedAttributeNode("attribute")
+}, subgraphs = {
+        @NamedSubgraph(name = "medicine", attributeNodes = @NamedAttributeNode("brand"))
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,13 +32,13 @@ public class OrderDetail extends BaseEntity {
     private Order order;
 
     @NotNull(message = "Thuốc không được trống")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @ToString.Exclude
     @JoinColumn(name = "medicine_id", nullable = false)
     private Medicine medicine;
 
     @NotNull(message = "Thuộc tính thuốc không được trống")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @ToString.Exclude
     @JoinColumn(name = "attribute_id", nullable = false)
     private Attribute attribute;
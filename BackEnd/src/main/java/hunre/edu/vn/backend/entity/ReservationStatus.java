@@ -0,0 +1,15 @@
+package hunre.edu.vn.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum ReservationStatus {
+    // Đang giữ hàng, có thể hết hạn nếu đơn chưa thanh toán
+    RESERVED,
+    // Đơn đã thanh toán hoặc đã xác nhận, giữ hàng không còn hạn
+    COMMITTED,
+    // Đã hoàn lại tồn kho
+    RELEASED
+}
@@ -10,6 +10,9 @@ import lombok.*;
         @Index(name = "idx_review_doctor", columnList = "doctor_id"),
         @Index(name = "idx_review_medicine", columnList = "medicine_id")
 })
+@NamedEntityGraph(name = "Review.card", attributeNodes = {
+        @NamedAttributeNode("user")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,7 +20,7 @@ import lombok.*;
 @EqualsAndHashCode(callSuper = true)
 public class Review extends BaseEntity {
     @NotNull(message = "Người dùng không được trống")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @ToString.Exclude
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -32,12 +35,12 @@ public class Review extends BaseEntity {
     @Column(name = "comment", columnDefinition = "nvarchar(MAX)")
     private String comment;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @ToString.Exclude
     @JoinColumn(name = "doctor_id", nullable = true)
     private DoctorProfile doctor;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @ToString.Exclude
     @JoinColumn(name = "medicine_id", nullable = true)
     private Medicine medicine;
@@ -0,0 +1,55 @@
+package hunre.edu.vn.backend.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sổ giữ hàng: mỗi dòng đơn có một bản ghi ghi lại số lượng đã trừ khỏi tồn kho của lô (Attribute).
+ * Tồn kho được hoàn lại đúng một lần khi bản ghi chuyển sang RELEASED.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservation_detail", columnList = "order_detail_id", unique = true),
+        @Index(name = "idx_stock_reservation_order", columnList = "order_id"),
+        @Index(name = "idx_stock_reservation_expiry", columnList = "status,expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+public class StockReservation extends BaseEntity {
+    @NotNull(message = "Đơn hàng không được trống")
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @NotNull(message = "Chi tiết đơn hàng không được trống")
+    @Column(name = "order_detail_id", nullable = false, unique = true)
+    private Long orderDetailId;
+
+    @NotNull(message = "Thuộc tính thuốc không được trống")
+    @Column(name = "attribute_id", nullable = false)
+    private Long attributeId;
+
+    @NotNull(message = "Thuốc không được trống")
+    @Column(name = "medicine_id", nullable = false)
+    private Long medicineId;
+
+    @NotNull(message = "Số lượng không được trống")
+    @Min(value = 1, message = "Số lượng phải lớn hơn hoặc bằng 1")
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @NotNull(message = "Trạng thái không được trống")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private ReservationStatus status;
+
+    // Null khi giữ hàng không có hạn (đơn đã thanh toán/xác nhận hoặc đơn COD không giới hạn thời gian)
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+}
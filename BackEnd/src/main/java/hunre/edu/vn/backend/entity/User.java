@@ -1,5 +1,6 @@
 package hunre.edu.vn.backend.entity;
 
+import hunre.edu.vn.backend.utils.ImageVariantsConverter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
@@ -12,6 +13,8 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -67,6 +70,10 @@ public class User extends BaseEntity {
     @Column(name = "avatar", nullable = true, columnDefinition = "varchar(255) default 'default-avatar.png'")
     private String avatar;
 
+    @Convert(converter = ImageVariantsConverter.class)
+    @Column(name = "avatar_variants", columnDefinition = "nvarchar(2000)")
+    private Map<Integer, String> avatarVariants;
+
     @Column(name = "reset_password_token", nullable = true)
     private String resetPasswordToken;
 
@@ -150,4 +157,11 @@ public class User extends BaseEntity {
     public void updateLastLogin() {
         this.lastLogin = LocalDateTime.now();
     }
+
+    public void setAvatar(String avatar) {
+        if (!Objects.equals(this.avatar, avatar)) {
+            this.avatarVariants = null;
+        }
+        this.avatar = avatar;
+    }
 }
@@ -0,0 +1,45 @@
+package hunre.edu.vn.backend.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Mỗi đơn hàng dùng voucher có đúng một bản ghi; lượt dùng được trả lại đúng một lần khi released_at được đặt.
+ */
+@Entity
+@Table(name = "voucher_redemptions", indexes = {
+        @Index(name = "idx_voucher_redemption_order", columnList = "order_id", unique = true),
+        @Index(name = "idx_voucher_redemption_voucher", columnList = "voucher_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+public class VoucherRedemption extends BaseEntity {
+    @NotNull(message = "Voucher không được trống")
+    @Column(name = "voucher_id", nullable = false)
+    private Long voucherId;
+
+    @NotNull(message = "Mã voucher không được trống")
+    @Column(name = "voucher_code", nullable = false, length = 50)
+    private String voucherCode;
+
+    @NotNull(message = "Đơn hàng không được trống")
+    @Column(name = "order_id", nullable = false, unique = true)
+    private Long orderId;
+
+    @Column(name = "order_value", precision = 19, scale = 2)
+    private BigDecimal orderValue;
+
+    @Column(name = "discount_amount", precision = 19, scale = 2)
+    private BigDecimal discountAmount;
+
+    // Null khi lượt dùng còn hiệu lực
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+}
@@ -0,0 +1,22 @@
+package hunre.edu.vn.backend.event;
+
+import hunre.edu.vn.backend.dto.AttributeDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi bộ quét hạn sử dụng phát hiện một lô còn hàng sắp hết hạn hoặc vừa hết hạn.
+ * Mỗi lô chỉ phát một lần cho mỗi giai đoạn (trừ khi hạn sử dụng của lô bị sửa).
+ */
+@Getter
+@AllArgsConstructor
+public class LotExpiryEvent {
+
+    public enum Stage {
+        NEAR_EXPIRY,
+        EXPIRED
+    }
+
+    private final Stage stage;
+    private final AttributeDTO.ExpiringLotDTO lot;
+}
@@ -0,0 +1,14 @@
+package hunre.edu.vn.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra sau khi một file được tải lên kho lưu trữ
+ */
+@Getter
+@AllArgsConstructor
+public class MediaUploadedEvent {
+    private final String url;
+    private final String contentType;
+}
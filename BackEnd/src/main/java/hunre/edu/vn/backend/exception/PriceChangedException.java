@@ -0,0 +1,11 @@
+package hunre.edu.vn.backend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class PriceChangedException extends RuntimeException {
+    public PriceChangedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package hunre.edu.vn.backend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class VoucherNotApplicableException extends RuntimeException {
+    public VoucherNotApplicableException(String message) {
+        super(message);
+    }
+}
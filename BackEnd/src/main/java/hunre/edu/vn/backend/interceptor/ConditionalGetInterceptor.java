@@ -0,0 +1,57 @@
+package hunre.edu.vn.backend.interceptor;
+
+import hunre.edu.vn.backend.annotation.ConditionalGet;
+import hunre.edu.vn.backend.service.CatalogService;
+import hunre.edu.vn.backend.utils.EntityVersionRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Xử lý If-None-Match/If-Modified-Since cho các endpoint có @ConditionalGet.
+ * Khi validator còn khớp, trả 304 trước khi controller và service được gọi.
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    private final EntityVersionRegistry entityVersionRegistry;
+    private final CatalogService catalogService;
+
+    public ConditionalGetInterceptor(EntityVersionRegistry entityVersionRegistry, CatalogService catalogService) {
+        this.entityVersionRegistry = entityVersionRegistry;
+        this.catalogService = catalogService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod) || !"GET".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+
+        ConditionalGet conditionalGet = handlerMethod.getMethodAnnotation(ConditionalGet.class);
+        if (conditionalGet == null) {
+            conditionalGet = handlerMethod.getBeanType().getAnnotation(ConditionalGet.class);
+        }
+        if (conditionalGet == null) {
+            return true;
+        }
+
+        // Cho phép trình duyệt lưu cache nhưng luôn phải hỏi lại server trước khi dùng
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+
+        // Snapshot làm mới sau khi phiên bản entity đã tăng, nên ETag phải lấy từ chính snapshot tạo ra dữ liệu.
+        // Thời điểm làm mới khác nhau giữa các instance nên không dùng Last-Modified
+        if (conditionalGet.catalog() && catalogService.isReady()) {
+            return !webRequest.checkNotModified("W/\"c" + catalogService.getVersion() + "\"");
+        }
+
+        String etag = entityVersionRegistry.etagOf(conditionalGet.value());
+        long lastModified = entityVersionRegistry.lastModifiedOf(conditionalGet.value());
+        return !webRequest.checkNotModified(etag, lastModified);
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -34,6 +35,21 @@ public abstract class MedicineMapper {
     @Mapping(target = "medias", expression = "java(mapMediaSafely(medicine))")
     public abstract MedicineDTO.GetMedicineDTO toGetMedicineDTO(Medicine medicine);
 
+    /**
+     * Chuyển đổi danh sách thuốc, lấy thuộc tính từ map đã được tải sẵn theo medicineId
+     */
+    public List<MedicineDTO.GetMedicineDTO> toGetMedicineDTOs(
+            List<Medicine> medicines,
+            Map<Long, List<AttributeDTO.GetAttributeDTO>> attributesByMedicineId) {
+        return medicines.stream()
+                .map(medicine -> {
+                    MedicineDTO.GetMedicineDTO dto = toGetMedicineDTO(medicine);
+                    dto.setAttributes(attributesByMedicineId.getOrDefault(medicine.getId(), Collections.emptyList()));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
     public MedicineDTO.BrandBasicDTO mapBrandSafely(Brand brand) {
         if (brand == null) return null;
         return MedicineDTO.BrandBasicDTO.builder()
@@ -108,6 +124,7 @@ public abstract class MedicineMapper {
         return MedicineMediaDTO.GetMedicineMediaDTO.builder()
                 .id(medicineMedia.getId())
                 .mediaUrl(medicineMedia.getMediaUrl())
+                .mediaVariants(medicineMedia.getMediaVariants())
                 .mainImage(medicineMedia.getMainImage())
                 .medicineId(medicineMedia.getMedicine() != null ? medicineMedia.getMedicine().getId() : null)
                 .createdAt(medicineMedia.getCreatedAt())
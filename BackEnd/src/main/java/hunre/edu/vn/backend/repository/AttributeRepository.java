@@ -1,10 +1,13 @@
 package hunre.edu.vn.backend.repository;
 
 import hunre.edu.vn.backend.entity.Attribute;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,6 +20,14 @@ public interface AttributeRepository extends BaseRepository<Attribute> {
     @Query("SELECT a FROM Attribute a WHERE a.medicine.id = :medicineId AND a.isDeleted = false")
     List<Attribute> findByMedicineId(@Param("medicineId") Long medicineId);
 
+    /**
+     * Tìm tất cả thuộc tính của nhiều thuốc trong một truy vấn
+     * @param medicineIds Danh sách ID của các thuốc
+     * @return Danh sách các thuộc tính chưa bị xóa mềm
+     */
+    @Query("SELECT a FROM Attribute a WHERE a.medicine.id IN :medicineIds AND a.isDeleted = false")
+    List<Attribute> findByMedicineIdIn(@Param("medicineIds") Collection<Long> medicineIds);
+
     /**
      * Đếm số lượng thuộc tính của một thuốc
      * @param medicineId ID của thuốc
@@ -25,10 +36,42 @@ public interface AttributeRepository extends BaseRepository<Attribute> {
     @Query("SELECT COUNT(a) FROM Attribute a WHERE a.medicine.id = :medicineId AND a.isDeleted = false")
     long countByMedicineId(@Param("medicineId") Long medicineId);
 
+    /**
+     * Trừ tồn kho của lô nếu còn đủ hàng, kiểm tra và trừ trong cùng một câu UPDATE nên không thể bán quá số lượng
+     * @param id ID thuộc tính (lô)
+     * @param quantity Số lượng cần giữ
+     * @return 1 nếu đã trừ, 0 nếu không đủ hàng hoặc lô đã bị xóa
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Attribute a SET a.stock = a.stock - :quantity " +
+            "WHERE a.id = :id AND a.stock >= :quantity AND a.isDeleted = false")
+    int reserveStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Cộng lại tồn kho đã giữ cho lô
+     * @param id ID thuộc tính (lô)
+     * @param quantity Số lượng hoàn lại
+     * @return Số dòng được cập nhật
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Attribute a SET a.stock = a.stock + :quantity WHERE a.id = :id")
+    int releaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Các lô còn hàng có hạn sử dụng đến hết ngày cho trước (kể cả lô đã hết hạn), dùng chỉ mục theo expiry_date
+     * @param until Ngày hết hạn muộn nhất
+     * @return Mỗi phần tử gồm attributeId, medicineId, medicineName, name, stock, expiryDate; sắp theo hạn sử dụng
+     */
+    @Query("SELECT a.id, m.id, m.name, a.name, a.stock, a.expiryDate FROM Attribute a JOIN a.medicine m " +
+            "WHERE a.expiryDate <= :until AND a.stock > 0 AND a.isDeleted = false AND m.isDeleted = false " +
+            "ORDER BY a.expiryDate, a.id")
+    List<Object[]> findStockedLotsExpiringBy(@Param("until") LocalDate until);
+
     /**
      * Xóa mềm tất cả thuộc tính của một thuốc
      * @param medicineId ID của thuốc
      */
+    @Modifying
     @Query("UPDATE Attribute a SET a.isDeleted = true WHERE a.medicine.id = :medicineId")
     void softDeleteByMedicineId(@Param("medicineId") Long medicineId);
 }
\ No newline at end of file
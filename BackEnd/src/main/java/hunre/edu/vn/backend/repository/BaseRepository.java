@@ -3,12 +3,16 @@ package hunre.edu.vn.backend.repository;
 import hunre.edu.vn.backend.entity.BaseEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @NoRepositoryBean
 public interface BaseRepository<T extends BaseEntity> extends JpaRepository<T, Long> {
@@ -16,6 +20,17 @@ public interface BaseRepository<T extends BaseEntity> extends JpaRepository<T, L
     @Query("SELECT e FROM #{#entityName} e WHERE e.isDeleted = false")
     List<T> findAllActive();
 
+    /**
+     * Đọc tuần tự các bản ghi chưa xóa theo từng lô từ JDBC, dùng cho xuất dữ liệu lớn.
+     * Phải gọi trong transaction và đóng stream sau khi dùng.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM #{#entityName} e WHERE e.isDeleted = false ORDER BY e.id")
+    Stream<T> streamAllActive();
+
     @Query("SELECT e FROM #{#entityName} e WHERE e.id = ?1 AND e.isDeleted = false")
     Optional<T> findActiveById(Long id);
 
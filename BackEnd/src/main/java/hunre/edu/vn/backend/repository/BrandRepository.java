@@ -1,13 +1,30 @@
 package hunre.edu.vn.backend.repository;
 
 import hunre.edu.vn.backend.entity.Brand;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public interface BrandRepository extends BaseRepository<Brand> {
     Optional<Brand> findByNameAndIsDeletedFalse(String name);
-}
\ No newline at end of file
+
+    // Chỉ ghi vào các dòng vẫn đang dùng đúng ảnh gốc này
+    @Modifying
+    @Query("UPDATE Brand b SET b.imageVariants = :variants WHERE b.image = :url")
+    int updateImageVariantsByUrl(@Param("url") String url, @Param("variants") Map<Integer, String> variants);
+
+    @Query("SELECT DISTINCT b.image FROM Brand b WHERE b.imageVariants IS NULL " +
+            "AND b.image LIKE 'http%' AND b.isDeleted = false " +
+            "AND NOT EXISTS (SELECT f FROM ImageDerivativeFailure f WHERE f.originalUrl = b.image " +
+            "AND (f.nextAttemptAt > :now OR f.attempts >= :maxAttempts))")
+    List<String> findImagesWithoutImageVariants(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts,
+                                                Pageable pageable);
+}
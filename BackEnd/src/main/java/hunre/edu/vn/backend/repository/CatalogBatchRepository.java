@@ -0,0 +1,125 @@
+package hunre.edu.vn.backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Ghi danh mục thuốc hàng loạt bằng JDBC batch.
+ * Hibernate không gom được lệnh INSERT với khóa IDENTITY, nên nhập file lớn đi thẳng qua JDBC:
+ * chèn thuốc theo lô, đọc lại ID theo mã thuốc, rồi chèn các bảng con theo lô.
+ */
+@Repository
+public class CatalogBatchRepository {
+
+    private static final int IN_CLAUSE_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public CatalogBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public Set<String> findAllMedicineCodes() {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT code FROM medicines", String.class));
+    }
+
+    public void insertMedicines(List<MedicineRow> rows, int batchSize) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO medicines (code, name, description, usage_instruction, dosage_instruction, " +
+                        "is_prescription_required, origin, brand_id, created_at, updated_at, is_deleted) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)",
+                rows, batchSize, (ps, row) -> {
+                    ps.setString(1, row.code());
+                    ps.setString(2, row.name());
+                    ps.setString(3, row.description());
+                    ps.setString(4, row.usageInstruction());
+                    ps.setString(5, row.dosageInstruction());
+                    ps.setBoolean(6, row.prescriptionRequired());
+                    ps.setString(7, row.origin());
+                    ps.setLong(8, row.brandId());
+                    ps.setTimestamp(9, now);
+                    ps.setTimestamp(10, now);
+                });
+    }
+
+    public Map<String, Long> findMedicineIdsByCodes(Collection<String> codes) {
+        Map<String, Long> result = new HashMap<>();
+        List<String> list = new ArrayList<>(codes);
+        for (int from = 0; from < list.size(); from += IN_CLAUSE_BATCH_SIZE) {
+            List<String> batch = list.subList(from, Math.min(from + IN_CLAUSE_BATCH_SIZE, list.size()));
+            namedJdbcTemplate.query("SELECT id, code FROM medicines WHERE code IN (:codes)",
+                    new MapSqlParameterSource("codes", batch),
+                    rs -> {
+                        result.put(rs.getString("code"), rs.getLong("id"));
+                    });
+        }
+        return result;
+    }
+
+    public void insertAttributes(List<AttributeRow> rows, int batchSize) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO attributes (medicine_id, name, price_in, price_out, stock, expiry_date, " +
+                        "created_at, updated_at, is_deleted) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)",
+                rows, batchSize, (ps, row) -> {
+                    ps.setLong(1, row.medicineId());
+                    ps.setString(2, row.name());
+                    ps.setBigDecimal(3, row.priceIn());
+                    ps.setBigDecimal(4, row.priceOut());
+                    ps.setInt(5, row.stock());
+                    ps.setDate(6, Date.valueOf(row.expiryDate()));
+                    ps.setTimestamp(7, now);
+                    ps.setTimestamp(8, now);
+                });
+    }
+
+    public void insertMedicineCategories(List<long[]> medicineCategoryPairs, int batchSize) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO medicine_categories (medicine_id, category_id, created_at, updated_at, is_deleted) " +
+                        "VALUES (?, ?, ?, ?, 0)",
+                medicineCategoryPairs, batchSize, (ps, pair) -> {
+                    ps.setLong(1, pair[0]);
+                    ps.setLong(2, pair[1]);
+                    ps.setTimestamp(3, now);
+                    ps.setTimestamp(4, now);
+                });
+    }
+
+    public void insertMedicineMedias(List<MediaRow> rows, int batchSize) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO medicine_medias (medicine_id, media_url, main_image, created_at, updated_at, is_deleted) " +
+                        "VALUES (?, ?, ?, ?, ?, 0)",
+                rows, batchSize, (ps, row) -> {
+                    ps.setLong(1, row.medicineId());
+                    ps.setString(2, row.mediaUrl());
+                    ps.setBoolean(3, row.mainImage());
+                    ps.setTimestamp(4, now);
+                    ps.setTimestamp(5, now);
+                });
+    }
+
+    public record MedicineRow(String code, String name, String description, String usageInstruction,
+                              String dosageInstruction, boolean prescriptionRequired, String origin, long brandId) {
+    }
+
+    public record AttributeRow(long medicineId, String name, BigDecimal priceIn, BigDecimal priceOut,
+                               int stock, LocalDate expiryDate) {
+    }
+
+    public record MediaRow(long medicineId, String mediaUrl, boolean mainImage) {
+    }
+}
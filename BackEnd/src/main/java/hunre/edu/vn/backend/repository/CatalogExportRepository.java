@@ -0,0 +1,80 @@
+package hunre.edu.vn.backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * Đọc toàn bộ danh mục (thuốc nối với thuộc tính) bằng một con trỏ phía server.
+ * Mỗi dòng kết quả được chuyển cho consumer ngay khi đọc, không gom vào danh sách,
+ * nên bộ nhớ không phụ thuộc vào kích thước danh mục.
+ */
+@Repository
+public class CatalogExportRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    // Danh mục và ảnh được gộp thành chuỗi '|' giống định dạng file nhập, để file xuất nhập lại được
+    private static final String EXPORT_QUERY =
+            "SELECT m.id, m.code, m.name, m.description, m.usage_instruction, m.dosage_instruction, " +
+            "       m.is_prescription_required, m.origin, b.name AS brand_name, " +
+            "       (SELECT STRING_AGG(c.name, '|') FROM medicine_categories mc " +
+            "          JOIN categories c ON c.id = mc.category_id " +
+            "         WHERE mc.medicine_id = m.id AND mc.is_deleted = 0 AND c.is_deleted = 0) AS category_names, " +
+            "       (SELECT STRING_AGG(mm.media_url, '|') WITHIN GROUP (ORDER BY mm.main_image DESC, mm.id) " +
+            "          FROM medicine_medias mm WHERE mm.medicine_id = m.id AND mm.is_deleted = 0) AS media_urls, " +
+            "       a.name AS attribute_name, a.price_in, a.price_out, a.stock, a.expiry_date " +
+            "  FROM medicines m " +
+            "  LEFT JOIN brands b ON b.id = m.brand_id " +
+            "  LEFT JOIN attributes a ON a.medicine_id = m.id AND a.is_deleted = 0 " +
+            " WHERE m.is_deleted = 0 " +
+            " ORDER BY m.id, a.id";
+
+    private final JdbcTemplate cursorJdbcTemplate;
+
+    public CatalogExportRepository(JdbcTemplate jdbcTemplate) {
+        // JdbcTemplate riêng với fetch size lớn, không ảnh hưởng cấu hình dùng chung
+        this.cursorJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.cursorJdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    public void forEachRow(Consumer<ExportRow> consumer) {
+        cursorJdbcTemplate.query(EXPORT_QUERY, rs -> {
+            // Đọc cột theo đúng thứ tự SELECT: driver SQL Server ở chế độ adaptive buffering
+            // không giữ lại các cột đã đi qua
+            long medicineId = rs.getLong("id");
+            String code = rs.getString("code");
+            String name = rs.getString("name");
+            String description = rs.getString("description");
+            String usageInstruction = rs.getString("usage_instruction");
+            String dosageInstruction = rs.getString("dosage_instruction");
+            boolean prescriptionRequired = rs.getBoolean("is_prescription_required");
+            String origin = rs.getString("origin");
+            String brandName = rs.getString("brand_name");
+            String categoryNames = rs.getString("category_names");
+            String mediaUrls = rs.getString("media_urls");
+            // Thuốc chưa có thuộc tính vẫn được xuất một dòng với các cột thuộc tính để trống
+            String attributeName = rs.getString("attribute_name");
+            BigDecimal priceIn = rs.getBigDecimal("price_in");
+            BigDecimal priceOut = rs.getBigDecimal("price_out");
+            int stock = rs.getInt("stock");
+            Date expiryDate = rs.getDate("expiry_date");
+
+            consumer.accept(new ExportRow(medicineId, code, name, description, usageInstruction, dosageInstruction,
+                    prescriptionRequired, origin, brandName, categoryNames, attributeName, priceIn, priceOut,
+                    attributeName != null ? stock : null,
+                    expiryDate != null ? expiryDate.toLocalDate() : null,
+                    mediaUrls));
+        });
+    }
+
+    public record ExportRow(long medicineId, String code, String name, String description, String usageInstruction,
+                            String dosageInstruction, boolean prescriptionRequired, String origin, String brandName,
+                            String categoryNames, String attributeName, BigDecimal priceIn, BigDecimal priceOut,
+                            Integer stock, LocalDate expiryDate, String mediaUrls) {
+    }
+}
@@ -0,0 +1,61 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.entity.CategoryClosure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CategoryClosureRepository extends JpaRepository<CategoryClosure, CategoryClosure.Key> {
+
+    @Query("SELECT cc.descendantId FROM CategoryClosure cc WHERE cc.ancestorId = :ancestorId")
+    List<Long> findDescendantIds(@Param("ancestorId") Long ancestorId);
+
+    @Query("SELECT cc.ancestorId, cc.descendantId, cc.depth FROM CategoryClosure cc")
+    List<Object[]> findAllLinks();
+
+    @Query("SELECT CASE WHEN COUNT(cc) > 0 THEN true ELSE false END FROM CategoryClosure cc WHERE cc.ancestorId = :ancestorId AND cc.descendantId = :descendantId")
+    boolean isAncestor(@Param("ancestorId") Long ancestorId, @Param("descendantId") Long descendantId);
+
+    /**
+     * Thêm nút mới làm con của parentId: nút kế thừa mọi tổ tiên của cha, cộng với chính nó
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO category_closures (ancestor_id, descendant_id, depth) " +
+            "SELECT cc.ancestor_id, :categoryId, cc.depth + 1 FROM category_closures cc WHERE cc.descendant_id = :parentId " +
+            "UNION ALL SELECT :categoryId, :categoryId, 0", nativeQuery = true)
+    int insertUnderParent(@Param("categoryId") Long categoryId, @Param("parentId") Long parentId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO category_closures (ancestor_id, descendant_id, depth) VALUES (:categoryId, :categoryId, 0)",
+            nativeQuery = true)
+    int insertRoot(@Param("categoryId") Long categoryId);
+
+    /**
+     * Tách cây con của categoryId khỏi các tổ tiên hiện tại (giữ nguyên liên kết bên trong cây con)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM category_closures " +
+            "WHERE descendant_id IN (SELECT descendant_id FROM category_closures WHERE ancestor_id = :categoryId) " +
+            "AND ancestor_id NOT IN (SELECT descendant_id FROM category_closures WHERE ancestor_id = :categoryId)",
+            nativeQuery = true)
+    int detachSubtree(@Param("categoryId") Long categoryId);
+
+    /**
+     * Gắn cây con của categoryId vào dưới parentId: tích Descartes giữa tổ tiên của cha và các nút của cây con
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO category_closures (ancestor_id, descendant_id, depth) " +
+            "SELECT anc.ancestor_id, sub.descendant_id, anc.depth + sub.depth + 1 " +
+            "FROM category_closures anc CROSS JOIN category_closures sub " +
+            "WHERE anc.descendant_id = :parentId AND sub.ancestor_id = :categoryId", nativeQuery = true)
+    int attachSubtree(@Param("categoryId") Long categoryId, @Param("parentId") Long parentId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CategoryClosure cc WHERE cc.ancestorId = :categoryId OR cc.descendantId = :categoryId")
+    int deleteByCategoryId(@Param("categoryId") Long categoryId);
+}
@@ -1,14 +1,39 @@
 package hunre.edu.vn.backend.repository;
 
 import hunre.edu.vn.backend.entity.Category;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public interface CategoryRepository extends BaseRepository<Category> {
 
     Optional<Category> findByNameAndIsDeletedFalse(String name);
-}
\ No newline at end of file
+
+    // Dạng phẳng (id, parentId, name, image) để dựng cây trong một truy vấn, không kéo theo parent EAGER
+    @Query("SELECT c.id, p.id, c.name, c.image FROM Category c LEFT JOIN c.parent p " +
+            "WHERE c.isDeleted = false ORDER BY c.name")
+    List<Object[]> findActiveTreeRows();
+
+    @Query("SELECT c.id, p.id, c.isDeleted FROM Category c LEFT JOIN c.parent p")
+    List<Object[]> findAllParentLinks();
+
+    // Chỉ ghi vào các dòng vẫn đang dùng đúng ảnh gốc này
+    @Modifying
+    @Query("UPDATE Category c SET c.imageVariants = :variants WHERE c.image = :url")
+    int updateImageVariantsByUrl(@Param("url") String url, @Param("variants") Map<Integer, String> variants);
+
+    @Query("SELECT DISTINCT c.image FROM Category c WHERE c.imageVariants IS NULL " +
+            "AND c.image LIKE 'http%' AND c.isDeleted = false " +
+            "AND NOT EXISTS (SELECT f FROM ImageDerivativeFailure f WHERE f.originalUrl = c.image " +
+            "AND (f.nextAttemptAt > :now OR f.attempts >= :maxAttempts))")
+    List<String> findImagesWithoutImageVariants(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts,
+                                                Pageable pageable);
+}
@@ -2,7 +2,9 @@ package hunre.edu.vn.backend.repository;
 
 import hunre.edu.vn.backend.entity.Discount;
 import hunre.edu.vn.backend.entity.Medicine;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -15,4 +17,28 @@ public interface DiscountRepository extends BaseRepository<Discount> {
     Optional<Discount> findByCode(String code);
     @Query("SELECT d FROM Discount as d WHERE d.medicine.id = :medicineId AND d.isDeleted = false")
     List<Discount> findByMedicine_Id(Long medicineId);
+
+    /**
+     * Các discount chưa kết thúc (đang chạy hoặc sắp bắt đầu), dùng để dựng chỉ mục giá
+     * @param now Thời điểm dựng chỉ mục
+     * @return Mỗi dòng gồm: id, medicineId, discountPercentage, maxDiscountAmount, minPurchaseAmount,
+     * usageLimit, currentUsageCount, startDate, endDate
+     */
+    @Query("SELECT d.id, d.medicine.id, d.discountPercentage, d.maxDiscountAmount, d.minPurchaseAmount, " +
+            "d.usageLimit, d.currentUsageCount, d.startDate, d.endDate FROM Discount d " +
+            "WHERE d.isDeleted = false AND (d.endDate IS NULL OR d.endDate > :now)")
+    List<Object[]> findPricingRulesNotEndedBy(@Param("now") LocalDateTime now);
+
+    /**
+     * Tăng số lần sử dụng nếu discount còn hiệu lực và chưa chạm giới hạn
+     * @param id ID discount
+     * @param now Thời điểm áp dụng
+     * @return 1 nếu tăng được, 0 nếu discount đã hết lượt, hết hạn hoặc bị xóa
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Discount d SET d.currentUsageCount = COALESCE(d.currentUsageCount, 0) + 1 " +
+            "WHERE d.id = :id AND d.isDeleted = false AND d.startDate <= :now " +
+            "AND (d.endDate IS NULL OR d.endDate > :now) " +
+            "AND (d.usageLimit IS NULL OR COALESCE(d.currentUsageCount, 0) < d.usageLimit)")
+    int incrementUsage(@Param("id") Long id, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,87 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.entity.EmailOutbox;
+import hunre.edu.vn.backend.entity.EmailType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends BaseRepository<EmailOutbox> {
+
+    boolean existsByTypeAndReferenceIdAndIsDeletedFalse(EmailType type, Long referenceId);
+
+    /**
+     * ID các email đến hạn gửi: đang chờ, hoặc đã được nhận nhưng worker không hoàn tất trước khi hết hạn nhận
+     * @param now Thời điểm hiện tại
+     * @param pageable Giới hạn số bản ghi
+     * @return Danh sách ID theo thời điểm đến hạn tăng dần
+     */
+    @Query("SELECT e.id FROM EmailOutbox e WHERE e.isDeleted = false AND e.nextAttemptAt <= :now " +
+            "AND e.status IN (hunre.edu.vn.backend.entity.EmailOutboxStatus.PENDING, " +
+            "hunre.edu.vn.backend.entity.EmailOutboxStatus.SENDING) ORDER BY e.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Nhận một email để gửi; chỉ một worker (kể cả ở instance khác) nhận được cùng một bản ghi.
+     * Mỗi lần nhận được tính là một lần thử, nên email làm worker dừng giữa chừng cũng không được nhận lại mãi
+     * @param id ID bản ghi
+     * @param now Thời điểm hiện tại
+     * @param leaseUntil Hết thời điểm này mà chưa gửi xong thì bản ghi được nhận lại
+     * @return 1 nếu nhận được, 0 nếu đã bị worker khác nhận
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE EmailOutbox e SET e.status = hunre.edu.vn.backend.entity.EmailOutboxStatus.SENDING, " +
+            "e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil, e.updatedAt = :now " +
+            "WHERE e.id = :id AND e.nextAttemptAt <= :now " +
+            "AND e.status IN (hunre.edu.vn.backend.entity.EmailOutboxStatus.PENDING, " +
+            "hunre.edu.vn.backend.entity.EmailOutboxStatus.SENDING)")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE EmailOutbox e SET e.status = hunre.edu.vn.backend.entity.EmailOutboxStatus.SENT, " +
+            "e.sentAt = :now, e.updatedAt = :now, e.lastError = NULL " +
+            "WHERE e.id IN :ids AND e.status = hunre.edu.vn.backend.entity.EmailOutboxStatus.SENDING")
+    int markSent(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE EmailOutbox e SET e.status = hunre.edu.vn.backend.entity.EmailOutboxStatus.PENDING, " +
+            "e.nextAttemptAt = :nextAttemptAt, e.updatedAt = CURRENT_TIMESTAMP, " +
+            "e.lastError = :error WHERE e.id = :id AND e.status = hunre.edu.vn.backend.entity.EmailOutboxStatus.SENDING")
+    int markRetry(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE EmailOutbox e SET e.status = hunre.edu.vn.backend.entity.EmailOutboxStatus.FAILED, " +
+            "e.updatedAt = CURRENT_TIMESTAMP, e.lastError = :error " +
+            "WHERE e.id = :id AND e.status = hunre.edu.vn.backend.entity.EmailOutboxStatus.SENDING")
+    int markFailed(@Param("id") Long id, @Param("error") String error);
+
+    /**
+     * Trả bản ghi đã nhận về hàng đợi mà không tính là một lần thử (khi pool worker đã đầy)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE EmailOutbox e SET e.status = hunre.edu.vn.backend.entity.EmailOutboxStatus.PENDING, " +
+            "e.attempts = e.attempts - 1, e.nextAttemptAt = :now WHERE e.id IN :ids " +
+            "AND e.status = hunre.edu.vn.backend.entity.EmailOutboxStatus.SENDING")
+    int unclaim(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Số bản ghi theo trạng thái
+     * @return Mỗi dòng gồm: status, số bản ghi
+     */
+    @Query("SELECT e.status, COUNT(e) FROM EmailOutbox e WHERE e.isDeleted = false GROUP BY e.status")
+    List<Object[]> countByStatus();
+
+    /**
+     * Thời điểm tạo của email chờ lâu nhất, null nếu hàng đợi trống
+     */
+    @Query("SELECT MIN(e.createdAt) FROM EmailOutbox e WHERE e.isDeleted = false " +
+            "AND e.status IN (hunre.edu.vn.backend.entity.EmailOutboxStatus.PENDING, " +
+            "hunre.edu.vn.backend.entity.EmailOutboxStatus.SENDING)")
+    LocalDateTime findOldestQueuedCreatedAt();
+}
@@ -0,0 +1,29 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.entity.EntityVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Không kế thừa BaseRepository để thao tác tăng phiên bản không tự kích hoạt EntityVersionAspect
+ */
+@Repository
+public interface EntityVersionRepository extends JpaRepository<EntityVersion, String> {
+
+    /**
+     * Tăng phiên bản của một loại entity, tạo dòng mới nếu chưa có.
+     * HOLDLOCK giữ khóa khoảng trên khóa chính để hai tiến trình cùng tạo dòng mới không vi phạm khóa chính
+     */
+    @Modifying
+    @Query(value = "MERGE entity_versions WITH (HOLDLOCK) AS target " +
+            "USING (SELECT :entityName AS entity_name) AS source ON target.entity_name = source.entity_name " +
+            "WHEN MATCHED THEN UPDATE SET version = target.version + 1, modified_at = :modifiedAt " +
+            "WHEN NOT MATCHED THEN INSERT (entity_name, version, modified_at) VALUES (:entityName, 1, :modifiedAt);",
+            nativeQuery = true)
+    int increment(@Param("entityName") String entityName, @Param("modifiedAt") LocalDateTime modifiedAt);
+}
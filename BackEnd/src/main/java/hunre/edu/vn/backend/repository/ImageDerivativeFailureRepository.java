@@ -0,0 +1,16 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.entity.ImageDerivativeFailure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImageDerivativeFailureRepository extends JpaRepository<ImageDerivativeFailure, String> {
+
+    @Modifying
+    @Query("DELETE FROM ImageDerivativeFailure f WHERE f.originalUrl = :url")
+    int deleteByOriginalUrl(@Param("url") String url);
+}
@@ -0,0 +1,46 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.entity.MediaDeletion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MediaDeletionRepository extends JpaRepository<MediaDeletion, String> {
+
+    /**
+     * Tạo hoặc lùi hạn yêu cầu xóa; HOLDLOCK để hai yêu cầu đồng thời không cùng chèn một khóa
+     */
+    @Modifying
+    @Query(value = "MERGE media_deletions WITH (HOLDLOCK) AS target " +
+            "USING (SELECT :objectKey AS object_key) AS source ON target.object_key = source.object_key " +
+            "WHEN MATCHED THEN UPDATE SET url = :url, delete_after = :deleteAfter " +
+            "WHEN NOT MATCHED THEN INSERT (object_key, url, delete_after) VALUES (:objectKey, :url, :deleteAfter);",
+            nativeQuery = true)
+    int schedule(@Param("objectKey") String objectKey, @Param("url") String url,
+                 @Param("deleteAfter") LocalDateTime deleteAfter);
+
+    /**
+     * Hủy yêu cầu xóa khi nội dung được dùng lại. Chờ khóa dòng nếu lượt quét đang xóa đúng khóa này
+     */
+    @Modifying
+    @Query("DELETE FROM MediaDeletion d WHERE d.objectKey = :objectKey")
+    int cancel(@Param("objectKey") String objectKey);
+
+    /**
+     * Nhận yêu cầu đã đến hạn để xử lý; khóa dòng được giữ đến cuối transaction
+     * nên lượt tải lên dùng lại cùng khóa phải chờ việc xóa object hoàn tất
+     */
+    @Modifying
+    @Query("DELETE FROM MediaDeletion d WHERE d.objectKey = :objectKey AND d.deleteAfter <= :now")
+    int claim(@Param("objectKey") String objectKey, @Param("now") LocalDateTime now);
+
+    @Query("SELECT d FROM MediaDeletion d WHERE d.deleteAfter <= :now ORDER BY d.deleteAfter")
+    List<MediaDeletion> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+}
@@ -0,0 +1,30 @@
+package hunre.edu.vn.backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Đếm số bản ghi đang trỏ tới một URL ảnh.
+ * Ảnh được lưu theo hash nội dung nên cùng một object có thể được nhiều thuốc, brand, danh mục,
+ * dịch vụ hoặc người dùng dùng chung; chỉ được xóa object khi không còn nơi nào khác tham chiếu.
+ */
+@Repository
+public class MediaReferenceRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MediaReferenceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long countReferences(String url) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT (SELECT COUNT(*) FROM medicine_medias WHERE media_url = ? AND (is_deleted = 0 OR is_deleted IS NULL))" +
+                        " + (SELECT COUNT(*) FROM brands WHERE image = ? AND (is_deleted = 0 OR is_deleted IS NULL))" +
+                        " + (SELECT COUNT(*) FROM categories WHERE image = ? AND (is_deleted = 0 OR is_deleted IS NULL))" +
+                        " + (SELECT COUNT(*) FROM services WHERE image = ? AND (is_deleted = 0 OR is_deleted IS NULL))" +
+                        " + (SELECT COUNT(*) FROM users WHERE avatar = ? AND (is_deleted = 0 OR is_deleted IS NULL))",
+                Long.class, url, url, url, url, url);
+        return count != null ? count : 0;
+    }
+}
@@ -4,8 +4,10 @@ import hunre.edu.vn.backend.entity.Category;
 import hunre.edu.vn.backend.entity.Medicine;
 import hunre.edu.vn.backend.entity.MedicineCategory;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +15,13 @@ import java.util.Optional;
 public interface MedicineCategoryRepository extends BaseRepository<MedicineCategory> {
     @Query("SELECT mc FROM MedicineCategory mc WHERE mc.medicine.id = ?1 AND mc.isDeleted = false")
     List<MedicineCategory> findByMedicineId(Long medicineId);
+
+    /**
+     * ID các thuốc chưa xóa được gắn với các danh mục
+     * @param categoryIds Danh sách ID danh mục
+     * @return Danh sách ID thuốc, không trùng lặp
+     */
+    @Query("SELECT DISTINCT mc.medicine.id FROM MedicineCategory mc " +
+            "WHERE mc.category.id IN :categoryIds AND mc.isDeleted = false AND mc.medicine.isDeleted = false")
+    List<Long> findActiveMedicineIdsByCategoryIds(@Param("categoryIds") Collection<Long> categoryIds);
 }
@@ -2,10 +2,15 @@ package hunre.edu.vn.backend.repository;
 
 import hunre.edu.vn.backend.entity.Medicine;
 import hunre.edu.vn.backend.entity.MedicineMedia;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
@@ -17,4 +22,23 @@ public interface MedicineMediaRepository extends BaseRepository<MedicineMedia> {
     @Query("SELECT mm FROM MedicineMedia mm WHERE mm.medicine.id = ?1 AND mm.mainImage = true AND mm.isDeleted = false")
     Optional<MedicineMedia> findMainImageByMedicineId(Long medicineId);
 
-}
\ No newline at end of file
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE MedicineMedia mm SET mm.mainImage = false, mm.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE mm.medicine.id = :medicineId AND mm.mainImage = true AND mm.isDeleted = false")
+    int clearMainImage(@Param("medicineId") Long medicineId);
+
+    @Query("SELECT DISTINCT mm.medicine.id FROM MedicineMedia mm WHERE mm.mediaUrl = :url AND mm.isDeleted = false")
+    List<Long> findMedicineIdsByMediaUrl(@Param("url") String url);
+
+    // Chỉ ghi vào các dòng vẫn đang dùng đúng ảnh gốc này
+    @Modifying
+    @Query("UPDATE MedicineMedia mm SET mm.mediaVariants = :variants WHERE mm.mediaUrl = :url")
+    int updateMediaVariantsByUrl(@Param("url") String url, @Param("variants") Map<Integer, String> variants);
+
+    @Query("SELECT DISTINCT mm.mediaUrl FROM MedicineMedia mm WHERE mm.mediaVariants IS NULL " +
+            "AND mm.mediaUrl LIKE 'http%' AND mm.isDeleted = false " +
+            "AND NOT EXISTS (SELECT f FROM ImageDerivativeFailure f WHERE f.originalUrl = mm.mediaUrl " +
+            "AND (f.nextAttemptAt > :now OR f.attempts >= :maxAttempts))")
+    List<String> findMediaUrlsWithoutMediaVariants(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts,
+                                                   Pageable pageable);
+}
@@ -4,16 +4,67 @@ import hunre.edu.vn.backend.entity.Brand;
 import hunre.edu.vn.backend.entity.Medicine;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MedicineRepository extends BaseRepository<Medicine> {
+public interface MedicineRepository extends BaseRepository<Medicine>, MedicineSearchRepository {
+    @EntityGraph(value = "Medicine.detail")
     @Query("SELECT m FROm Medicine as m WHERE m.code = :code AND m.isDeleted = false")
     Optional<Medicine> findByCode(String code);
+    @EntityGraph(value = "Medicine.card")
     @Query("SELECT m FROm Medicine as m WHERE m.name = :name AND m.isDeleted = false")
     List<Medicine> findByName(String name);
+
+    /**
+     * Danh sách thuốc cho trang danh mục, chỉ tải kèm brand
+     */
+    @EntityGraph(value = "Medicine.card")
+    @Query("SELECT m FROM Medicine m WHERE m.isDeleted = false")
+    List<Medicine> findAllActiveCards();
+
+    /**
+     * Chi tiết một thuốc, tải kèm brand và danh sách thuộc tính
+     */
+    @EntityGraph(value = "Medicine.detail")
+    @Query("SELECT m FROM Medicine m WHERE m.id = :id AND m.isDeleted = false")
+    Optional<Medicine> findActiveDetailById(@Param("id") Long id);
+
+    /**
+     * ID các thuốc chưa xóa thuộc các brand
+     * @param brandIds Danh sách ID brand
+     * @return Danh sách ID thuốc
+     */
+    @Query("SELECT m.id FROM Medicine m WHERE m.brand.id IN :brandIds AND m.isDeleted = false")
+    List<Long> findActiveIdsByBrandIds(@Param("brandIds") Collection<Long> brandIds);
+
+    /**
+     * Tính lại tồn kho, giá thấp nhất và cao nhất từ các thuộc tính chưa xóa của các thuốc
+     * @param medicineIds Danh sách ID thuốc cần tính lại
+     * @return Số thuốc đã cập nhật
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Medicine m SET " +
+            "m.totalStock = (SELECT COALESCE(SUM(a.stock), 0) FROM Attribute a WHERE a.medicine.id = m.id AND a.isDeleted = false), " +
+            "m.minPrice = (SELECT MIN(a.priceOut) FROM Attribute a WHERE a.medicine.id = m.id AND a.isDeleted = false), " +
+            "m.maxPrice = (SELECT MAX(a.priceOut) FROM Attribute a WHERE a.medicine.id = m.id AND a.isDeleted = false) " +
+            "WHERE m.id IN :medicineIds")
+    int refreshStockAndPrices(@Param("medicineIds") Collection<Long> medicineIds);
+
+    /**
+     * Tìm các thuốc có cột tổng hợp lệch với dữ liệu thuộc tính
+     * @return Danh sách ID thuốc bị lệch
+     */
+    @Query("SELECT m.id FROM Medicine m WHERE " +
+            "COALESCE(m.totalStock, -1) <> (SELECT COALESCE(SUM(a.stock), 0) FROM Attribute a WHERE a.medicine.id = m.id AND a.isDeleted = false) " +
+            "OR COALESCE(m.minPrice, -1) <> COALESCE((SELECT MIN(a.priceOut) FROM Attribute a WHERE a.medicine.id = m.id AND a.isDeleted = false), -1) " +
+            "OR COALESCE(m.maxPrice, -1) <> COALESCE((SELECT MAX(a.priceOut) FROM Attribute a WHERE a.medicine.id = m.id AND a.isDeleted = false), -1)")
+    List<Long> findIdsWithStaleStockOrPrices();
 }
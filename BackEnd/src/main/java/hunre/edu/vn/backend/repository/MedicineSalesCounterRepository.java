@@ -0,0 +1,44 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.entity.MedicineSalesCounter;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MedicineSalesCounterRepository extends BaseRepository<MedicineSalesCounter> {
+
+    /**
+     * Cộng dồn số lượng bán của một thuốc ngay trên database, tạo bộ đếm nếu thuốc chưa có.
+     * MERGE kèm HOLDLOCK giữ khóa khoảng trên medicine_id nên hai đơn đầu tiên của cùng một thuốc
+     * không thể cùng chèn bản ghi
+     * @param medicineId ID của thuốc
+     * @param delta Số lượng thay đổi (âm khi hủy đơn)
+     * @return Số bản ghi được cập nhật hoặc chèn
+     */
+    @Modifying
+    @Query(value = "MERGE medicine_sales_counters WITH (HOLDLOCK) AS c " +
+            "USING (SELECT :medicineId AS medicine_id) AS s ON c.medicine_id = s.medicine_id " +
+            "WHEN MATCHED THEN UPDATE SET c.quantity_sold = c.quantity_sold + :delta, c.updated_at = SYSDATETIME() " +
+            "WHEN NOT MATCHED THEN INSERT (medicine_id, quantity_sold, created_at, updated_at, is_deleted) " +
+            "VALUES (:medicineId, CASE WHEN :delta > 0 THEN :delta ELSE 0 END, SYSDATETIME(), SYSDATETIME(), 0);",
+            nativeQuery = true)
+    int upsertQuantity(@Param("medicineId") Long medicineId, @Param("delta") long delta);
+
+    /**
+     * Khóa độc quyền cả bảng đến hết transaction: chờ các đơn đang cộng dồn commit
+     * và chặn các lượt cộng dồn mới trong lúc tính lại bộ đếm
+     */
+    @Query(value = "SELECT COUNT(*) FROM medicine_sales_counters WITH (TABLOCKX, HOLDLOCK)", nativeQuery = true)
+    long lockTable();
+
+    @Modifying
+    @Query("UPDATE MedicineSalesCounter c SET c.quantitySold = :quantity, c.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE c.medicineId = :medicineId")
+    int setQuantity(@Param("medicineId") Long medicineId, @Param("quantity") long quantity);
+
+    @Modifying
+    @Query("UPDATE MedicineSalesCounter c SET c.quantitySold = 0, c.updatedAt = CURRENT_TIMESTAMP")
+    int resetAll();
+}
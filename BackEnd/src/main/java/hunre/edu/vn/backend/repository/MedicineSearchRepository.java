@@ -0,0 +1,86 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import hunre.edu.vn.backend.entity.Medicine;
+import hunre.edu.vn.backend.utils.SearchCursor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Truy vấn tìm kiếm thuốc được đẩy xuống database (lọc, sắp xếp, phân trang keyset)
+ */
+public interface MedicineSearchRepository {
+
+    /**
+     * Tìm kiếm thuốc theo tiêu chí
+     * @param criteria Tiêu chí lọc và kiểu sắp xếp
+     * @param cursor Con trỏ keyset của trang trước, null nếu dùng offset
+     * @param offset Vị trí bắt đầu (chỉ dùng khi không có cursor)
+     * @param limit Số bản ghi tối đa
+     * @return Danh sách thuốc đã lọc và sắp xếp
+     */
+    List<Medicine> search(MedicineDTO.SearchMedicineDTO criteria, SearchCursor cursor, int offset, int limit);
+
+    enum SortOption {
+        DEFAULT, NAME_ASC, NAME_DESC, PRICE_ASC, PRICE_DESC;
+
+        public static SortOption from(String sortBy) {
+            if (sortBy == null) {
+                return DEFAULT;
+            }
+            switch (sortBy.toLowerCase()) {
+                case "name_asc":
+                    return NAME_ASC;
+                case "name_desc":
+                    return NAME_DESC;
+                case "price_asc":
+                    return PRICE_ASC;
+                case "price_desc":
+                    return PRICE_DESC;
+                default:
+                    return DEFAULT;
+            }
+        }
+
+        public boolean isDescending() {
+            return this == NAME_DESC || this == PRICE_DESC;
+        }
+
+        /**
+         * Tạo cursor từ bản ghi cuối cùng của trang hiện tại
+         */
+        public SearchCursor cursorOf(Medicine medicine) {
+            switch (this) {
+                case NAME_ASC:
+                case NAME_DESC:
+                    return SearchCursor.of(medicine.getName(), medicine.getId());
+                case PRICE_ASC:
+                case PRICE_DESC:
+                    return SearchCursor.of(medicine.getMinPrice() != null ? medicine.getMinPrice() : BigDecimal.ZERO,
+                            medicine.getId());
+                default:
+                    return SearchCursor.of(null, medicine.getId());
+            }
+        }
+
+        /**
+         * Cursor của thẻ thuốc; snapshot sắp theo giá sau discount nên khóa giá ưu tiên minEffectivePrice
+         */
+        public SearchCursor cursorOf(MedicineDTO.GetMedicineDTO medicine) {
+            switch (this) {
+                case NAME_ASC:
+                case NAME_DESC:
+                    return SearchCursor.of(medicine.getName(), medicine.getId());
+                case PRICE_ASC:
+                case PRICE_DESC:
+                    BigDecimal price = medicine.getMinEffectivePrice() != null
+                            ? medicine.getMinEffectivePrice()
+                            : medicine.getMinPrice();
+                    return SearchCursor.of(price != null ? price : BigDecimal.ZERO, medicine.getId());
+                default:
+                    return SearchCursor.of(null, medicine.getId());
+            }
+        }
+    }
+}
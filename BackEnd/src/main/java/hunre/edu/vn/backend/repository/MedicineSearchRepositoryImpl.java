@@ -0,0 +1,164 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import hunre.edu.vn.backend.entity.Attribute;
+import hunre.edu.vn.backend.entity.CategoryClosure;
+import hunre.edu.vn.backend.entity.Medicine;
+import hunre.edu.vn.backend.entity.MedicineCategory;
+import hunre.edu.vn.backend.utils.LotVisibility;
+import hunre.edu.vn.backend.utils.SearchCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MedicineSearchRepositoryImpl implements MedicineSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final LotVisibility lotVisibility;
+
+    public MedicineSearchRepositoryImpl(LotVisibility lotVisibility) {
+        this.lotVisibility = lotVisibility;
+    }
+
+    @Override
+    public List<Medicine> search(MedicineDTO.SearchMedicineDTO criteria, SearchCursor cursor, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Medicine> query = cb.createQuery(Medicine.class);
+        Root<Medicine> root = query.from(Medicine.class);
+        SortOption sort = SortOption.from(criteria.getSortBy());
+
+        List<Predicate> predicates = buildFilters(cb, query, root, criteria);
+        if (cursor != null) {
+            predicates.add(keysetPredicate(cb, root, sort, cursor));
+        }
+
+        query.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(buildOrder(cb, root, sort));
+
+        // Chỉ join brand (không fetch collection) để phân trang vẫn được thực hiện trong SQL
+        TypedQuery<Medicine> typedQuery = entityManager.createQuery(query)
+                .setHint("jakarta.persistence.fetchgraph", entityManager.getEntityGraph("Medicine.card"))
+                .setMaxResults(limit);
+        if (cursor == null && offset > 0) {
+            typedQuery.setFirstResult(offset);
+        }
+        return typedQuery.getResultList();
+    }
+
+    private List<Predicate> buildFilters(CriteriaBuilder cb, CriteriaQuery<?> query, Root<Medicine> root,
+                                         MedicineDTO.SearchMedicineDTO criteria) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isFalse(root.get("isDeleted")));
+
+        if (criteria.getName() != null && !criteria.getName().isBlank()) {
+            predicates.add(cb.like(cb.lower(root.get("name")),
+                    "%" + criteria.getName().trim().toLowerCase() + "%"));
+        }
+
+        if (criteria.getBrandId() != null) {
+            predicates.add(cb.equal(root.get("brand").get("id"), criteria.getBrandId()));
+        }
+
+        // Dùng cột total_stock đã được đánh index thay vì cộng tồn kho của thuộc tính
+        if (Boolean.TRUE.equals(criteria.getInStock())) {
+            predicates.add(cb.greaterThan(root.get("totalStock"), 0));
+        }
+
+        if (criteria.getCategoryId() != null) {
+            Subquery<Long> categorySubquery = query.subquery(Long.class);
+            Root<MedicineCategory> mc = categorySubquery.from(MedicineCategory.class);
+            if (Boolean.FALSE.equals(criteria.getIncludeSubcategories())) {
+                categorySubquery.select(mc.get("id"))
+                        .where(cb.equal(mc.get("medicine"), root),
+                                cb.equal(mc.get("category").get("id"), criteria.getCategoryId()),
+                                cb.isFalse(mc.get("isDeleted")));
+            } else {
+                // Danh mục và mọi danh mục con: một phép join với bảng bao đóng theo khóa (ancestor_id, descendant_id)
+                Root<CategoryClosure> closure = categorySubquery.from(CategoryClosure.class);
+                categorySubquery.select(mc.get("id"))
+                        .where(cb.equal(mc.get("medicine"), root),
+                                cb.equal(closure.get("ancestorId"), criteria.getCategoryId()),
+                                cb.equal(closure.get("descendantId"), mc.get("category").get("id")),
+                                cb.isFalse(mc.get("isDeleted")));
+            }
+            predicates.add(cb.exists(categorySubquery));
+        }
+
+        // Thuốc phù hợp khi có ít nhất một thuộc tính đang hiển thị có giá bán trong khoảng [minPrice, maxPrice],
+        // dùng index (medicine_id, price_out) của bảng attributes; lô hiển thị theo cùng quy tắc với snapshot (LotVisibility).
+        // Nhánh này chỉ chạy khi snapshot chưa sẵn sàng nên lọc theo giá niêm yết, snapshot lọc theo giá sau discount
+        if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+            Subquery<Long> priceSubquery = query.subquery(Long.class);
+            Root<Attribute> attribute = priceSubquery.from(Attribute.class);
+            List<Predicate> priceConditions = new ArrayList<>();
+            priceConditions.add(cb.equal(attribute.get("medicine"), root));
+            priceConditions.add(lotVisibility.toPredicate(cb, attribute, LocalDate.now()));
+            if (criteria.getMinPrice() != null) {
+                priceConditions.add(cb.greaterThanOrEqualTo(attribute.get("priceOut"), criteria.getMinPrice()));
+            }
+            if (criteria.getMaxPrice() != null) {
+                priceConditions.add(cb.lessThanOrEqualTo(attribute.get("priceOut"), criteria.getMaxPrice()));
+            }
+            priceSubquery.select(attribute.get("id")).where(priceConditions.toArray(new Predicate[0]));
+            predicates.add(cb.exists(priceSubquery));
+        }
+
+        return predicates;
+    }
+
+    private Expression<BigDecimal> priceKey(CriteriaBuilder cb, Root<Medicine> root) {
+        return cb.coalesce(root.<BigDecimal>get("minPrice"), BigDecimal.ZERO);
+    }
+
+    private List<Order> buildOrder(CriteriaBuilder cb, Root<Medicine> root, SortOption sort) {
+        List<Order> orders = new ArrayList<>();
+        switch (sort) {
+            case NAME_ASC:
+            case NAME_DESC:
+                orders.add(sort.isDescending() ? cb.desc(root.get("name")) : cb.asc(root.get("name")));
+                break;
+            case PRICE_ASC:
+            case PRICE_DESC:
+                orders.add(sort.isDescending() ? cb.desc(priceKey(cb, root)) : cb.asc(priceKey(cb, root)));
+                break;
+            default:
+        }
+        // id luôn là khóa phụ để thứ tự ổn định cho phân trang keyset
+        orders.add(sort.isDescending() ? cb.desc(root.get("id")) : cb.asc(root.get("id")));
+        return orders;
+    }
+
+    private Predicate keysetPredicate(CriteriaBuilder cb, Root<Medicine> root, SortOption sort, SearchCursor cursor) {
+        Path<Long> id = root.get("id");
+        boolean desc = sort.isDescending();
+        Predicate idAfter = desc ? cb.lessThan(id, cursor.getId()) : cb.greaterThan(id, cursor.getId());
+
+        switch (sort) {
+            case NAME_ASC:
+            case NAME_DESC: {
+                Path<String> name = root.get("name");
+                String key = cursor.getKey() != null ? cursor.getKey() : "";
+                Predicate keyAfter = desc ? cb.lessThan(name, key) : cb.greaterThan(name, key);
+                return cb.or(keyAfter, cb.and(cb.equal(name, key), idAfter));
+            }
+            case PRICE_ASC:
+            case PRICE_DESC: {
+                Expression<BigDecimal> price = priceKey(cb, root);
+                BigDecimal key = cursor.getKey() != null ? new BigDecimal(cursor.getKey()) : BigDecimal.ZERO;
+                Predicate keyAfter = desc ? cb.lessThan(price, key) : cb.greaterThan(price, key);
+                return cb.or(keyAfter, cb.and(cb.equal(price, key), idAfter));
+            }
+            default:
+                return idAfter;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package hunre.edu.vn.backend.repository;
 import hunre.edu.vn.backend.entity.Medicine;
 import hunre.edu.vn.backend.entity.Order;
 import hunre.edu.vn.backend.entity.OrderDetail;
+import hunre.edu.vn.backend.entity.OrderStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,6 +16,11 @@ public interface OrderDetailRepository extends BaseRepository<OrderDetail> {
 
     @Query("SELECT COALESCE(SUM(od.quantity), 0) FROM OrderDetail od WHERE od.medicine.id = :medicineId AND od.isDeleted = false")
     long sumQuantityByMedicineId(@Param("medicineId") Long medicineId);
+
+    @Query("SELECT od.medicine.id, COALESCE(SUM(od.quantity), 0) FROM OrderDetail od " +
+            "WHERE od.isDeleted = false AND od.order.status <> :excludedStatus GROUP BY od.medicine.id")
+    List<Object[]> sumQuantityGroupByMedicine(@Param("excludedStatus") OrderStatus excludedStatus);
+    @EntityGraph(value = "OrderDetail.orderLine")
     @Query("SELECT od FROM OrderDetail od WHERE od.order.id = :orderId AND od.isDeleted = false")
     List<OrderDetail> findByOrder_Id(Long orderId);
 }
\ No newline at end of file
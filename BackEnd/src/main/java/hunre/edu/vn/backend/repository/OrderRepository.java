@@ -7,7 +7,11 @@ import hunre.edu.vn.backend.entity.PaymentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -15,16 +19,37 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends BaseRepository<Order> {
 
+    /**
+     * Chi tiết đơn hàng, tải kèm các dòng đơn hàng cùng thuốc, brand và thuộc tính trong một truy vấn
+     */
+    @EntityGraph(value = "Order.detail")
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findDetailById(@Param("id") Long id);
+
+    /**
+     * Đọc tuần tự toàn bộ đơn hàng kèm bệnh nhân và người dùng, tránh truy vấn thêm cho mỗi đơn
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.patient p LEFT JOIN FETCH p.user WHERE o.isDeleted = false ORDER BY o.id")
+    Stream<Order> streamAllWithPatient();
+
+    @EntityGraph(value = "Order.detail")
     @Query("SELECT o FROM Order o WHERE o.orderCode = :orderCode AND o.isDeleted = false")
     Optional<Order> findByOrderCode(@Param("orderCode") String orderCode);
 
+    @EntityGraph(value = "Order.detail")
     @Query("SELECT o FROM Order o WHERE o.patient.id = :patientId AND o.isDeleted = false")
     List<Order> findByPatient_Id(@Param("patientId") Long patientId);
 
+    @EntityGraph(value = "Order.detail")
     @Query("SELECT o FROM Order o WHERE o.status = :status AND o.isDeleted = false")
     List<Order> findByStatus(@Param("status") OrderStatus status);
 
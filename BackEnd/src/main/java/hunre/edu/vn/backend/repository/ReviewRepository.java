@@ -6,6 +6,7 @@ import hunre.edu.vn.backend.entity.Review;
 import hunre.edu.vn.backend.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -14,14 +15,22 @@ import java.util.Optional;
 
 @Repository
 public interface ReviewRepository extends BaseRepository<Review> {
+    @EntityGraph(value = "Review.card")
+    @Query("SELECT r FROM Review r WHERE r.isDeleted = false")
+    List<Review> findAllActiveCards();
+    @EntityGraph(value = "Review.card")
     @Query("SELECT r FROM Review r WHERE r.user.id = :userId AND r.isDeleted = false")
     List<Review> findByUser_Id(Long userId);
+    @EntityGraph(value = "Review.card")
     @Query("SELECT r FROM Review r WHERE r.rating = :rating AND r.isDeleted = false")
     List<Review> findByRating(Integer rating);
+    @EntityGraph(value = "Review.card")
     @Query("SELECT r FROM Review r WHERE r.doctor.id = :doctorId AND r.isDeleted = false")
     List<Review> findByDoctor_Id(Long doctorId);
+    @EntityGraph(value = "Review.card")
     @Query("SELECT r FROM Review r WHERE r.medicine.id = :medicineId AND r.isDeleted = false")
     List<Review> findByMedicine_Id(Long medicineId);
+    @EntityGraph(value = "Review.card")
     @Query("SELECT r FROM Review r WHERE r.user.id = :userId AND r.medicine.id = :medicineId AND r.isDeleted = false")
     List<Review> findByMedicine_IdAndUser_Id(Long medicineId, Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.entity.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends BaseRepository<StockReservation> {
+
+    Optional<StockReservation> findByOrderDetailId(Long orderDetailId);
+
+    /**
+     * Các bản ghi đang giữ hàng (RESERVED hoặc COMMITTED) của một đơn
+     * @param orderId ID đơn hàng
+     * @return Danh sách bản ghi giữ hàng
+     */
+    @Query("SELECT r FROM StockReservation r WHERE r.orderId = :orderId " +
+            "AND r.status <> hunre.edu.vn.backend.entity.ReservationStatus.RELEASED")
+    List<StockReservation> findHeldByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * Chuyển bản ghi sang RELEASED nếu chưa được hoàn; chỉ lời gọi nhận được 1 mới được cộng lại tồn kho
+     * @param id ID bản ghi giữ hàng
+     * @return Số dòng được cập nhật (0 nếu đã được hoàn bởi luồng khác)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StockReservation r SET r.status = hunre.edu.vn.backend.entity.ReservationStatus.RELEASED, " +
+            "r.expiresAt = NULL, r.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE r.id = :id AND r.status <> hunre.edu.vn.backend.entity.ReservationStatus.RELEASED")
+    int markReleased(@Param("id") Long id);
+
+    /**
+     * Bỏ thời hạn giữ hàng của một đơn sau khi đơn được thanh toán hoặc xác nhận
+     * @param orderId ID đơn hàng
+     * @return Số bản ghi được cập nhật
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StockReservation r SET r.status = hunre.edu.vn.backend.entity.ReservationStatus.COMMITTED, " +
+            "r.expiresAt = NULL, r.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE r.orderId = :orderId AND r.status = hunre.edu.vn.backend.entity.ReservationStatus.RESERVED")
+    int commitByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * Các đơn có bản ghi giữ hàng đã quá hạn
+     * @param now Thời điểm hiện tại
+     * @param pageable Giới hạn số đơn mỗi lần quét
+     * @return Danh sách ID đơn hàng
+     */
+    @Query("SELECT DISTINCT r.orderId FROM StockReservation r " +
+            "WHERE r.status = hunre.edu.vn.backend.entity.ReservationStatus.RESERVED AND r.expiresAt <= :now")
+    List<Long> findOrderIdsWithExpiredReservations(@Param("now") LocalDateTime now, Pageable pageable);
+}
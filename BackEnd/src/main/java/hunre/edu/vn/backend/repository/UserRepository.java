@@ -1,11 +1,15 @@
 package hunre.edu.vn.backend.repository;
 
 import hunre.edu.vn.backend.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
@@ -24,4 +28,16 @@ public interface UserRepository extends BaseRepository<User> {
     List<User> findByLocked(Boolean locked);
     @Query("SELECT u FROM User as u WHERE u.resetPasswordToken = :token AND u.isDeleted = false")
     Optional<User> findByResetPasswordToken(String token);
-}
\ No newline at end of file
+
+    // Chỉ ghi vào các dòng vẫn đang dùng đúng ảnh gốc này
+    @Modifying
+    @Query("UPDATE User u SET u.avatarVariants = :variants WHERE u.avatar = :url")
+    int updateAvatarVariantsByUrl(@Param("url") String url, @Param("variants") Map<Integer, String> variants);
+
+    @Query("SELECT DISTINCT u.avatar FROM User u WHERE u.avatarVariants IS NULL " +
+            "AND u.avatar LIKE 'http%' AND u.isDeleted = false " +
+            "AND NOT EXISTS (SELECT f FROM ImageDerivativeFailure f WHERE f.originalUrl = u.avatar " +
+            "AND (f.nextAttemptAt > :now OR f.attempts >= :maxAttempts))")
+    List<String> findAvatarsWithoutAvatarVariants(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts,
+                                                  Pageable pageable);
+}
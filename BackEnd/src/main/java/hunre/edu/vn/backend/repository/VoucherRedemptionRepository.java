@@ -0,0 +1,25 @@
+package hunre.edu.vn.backend.repository;
+
+import hunre.edu.vn.backend.entity.VoucherRedemption;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface VoucherRedemptionRepository extends BaseRepository<VoucherRedemption> {
+
+    Optional<VoucherRedemption> findByOrderId(Long orderId);
+
+    /**
+     * Đánh dấu lượt dùng đã được trả lại; chỉ lời gọi nhận được 1 mới được cộng lại lượt cho voucher
+     * @param id ID bản ghi
+     * @return Số dòng được cập nhật (0 nếu đã được trả lại trước đó)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE VoucherRedemption r SET r.releasedAt = CURRENT_TIMESTAMP, r.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE r.id = :id AND r.releasedAt IS NULL")
+    int markReleased(@Param("id") Long id);
+}
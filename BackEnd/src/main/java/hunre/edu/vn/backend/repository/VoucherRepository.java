@@ -1,7 +1,9 @@
 package hunre.edu.vn.backend.repository;
 
 import hunre.edu.vn.backend.entity.Voucher;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
@@ -26,4 +28,28 @@ public interface VoucherRepository extends BaseRepository<Voucher> {
     List<Voucher> findVouchersExpiringBetween(LocalDateTime startDate, LocalDateTime endDate);
 
     boolean existsByCodeAndIsDeletedFalse(String code);
+
+    /**
+     * Trừ một lượt dùng voucher nếu voucher còn hiệu lực với đơn hàng.
+     * Mọi điều kiện nằm trong cùng câu UPDATE nên các đơn đồng thời không thể dùng quá số lượng.
+     * @param id ID voucher
+     * @param now Thời điểm dùng
+     * @param orderValue Giá trị đơn hàng trước giảm giá
+     * @return 1 nếu đã trừ, 0 nếu voucher hết lượt, hết hạn, chưa bắt đầu, bị tắt hoặc đơn chưa đủ giá trị tối thiểu
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Voucher v SET v.stock = v.stock - 1 " +
+            "WHERE v.id = :id AND v.stock > 0 AND v.status = hunre.edu.vn.backend.entity.Voucher.VoucherStatus.ACTIVE " +
+            "AND v.isDeleted = false AND v.startDate <= :now AND (v.endDate IS NULL OR v.endDate >= :now) " +
+            "AND v.minimumOrderValue <= :orderValue")
+    int redeem(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("orderValue") BigDecimal orderValue);
+
+    /**
+     * Trả lại một lượt dùng voucher
+     * @param id ID voucher
+     * @return Số dòng được cập nhật
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Voucher v SET v.stock = v.stock + 1 WHERE v.id = :id")
+    int restoreRedemption(@Param("id") Long id);
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package hunre.edu.vn.backend.service;
 
 import hunre.edu.vn.backend.dto.AttributeDTO;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface AttributeService {
@@ -19,6 +21,8 @@ public interface AttributeService {
 
     List<AttributeDTO.GetAttributeDTO> findByMedicineId(Long id);
 
+    Map<Long, List<AttributeDTO.GetAttributeDTO>> findByMedicineIds(Collection<Long> medicineIds);
+
 
     List<AttributeDTO.GetAttributeDTO> saveOrUpdateAll(List<AttributeDTO.SaveAttributeDTO> attributeDTOs);
 
@@ -0,0 +1,15 @@
+package hunre.edu.vn.backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface CatalogExportService {
+
+    /**
+     * Ghi toàn bộ danh mục thuốc dạng CSV, mỗi thuộc tính (lô giá/tồn kho) một dòng.
+     * Cột giống định dạng nhập danh mục nên file xuất có thể nhập lại.
+     * @param output Luồng đích, không bị đóng sau khi ghi
+     * @param gzip Nén gzip nội dung
+     */
+    void writeCsv(OutputStream output, boolean gzip) throws IOException;
+}
@@ -0,0 +1,19 @@
+package hunre.edu.vn.backend.service;
+
+import hunre.edu.vn.backend.dto.CatalogImportDTO;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public interface CatalogImportService {
+
+    /**
+     * Nhận file CSV/Excel và bắt đầu nhập danh mục trên luồng nền
+     * @param file File .csv hoặc .xlsx, dòng đầu là tiêu đề cột
+     * @return Trạng thái ban đầu của job, dùng jobId để theo dõi tiến độ
+     */
+    CatalogImportDTO.ImportJobDTO startImport(MultipartFile file) throws IOException;
+
+    Optional<CatalogImportDTO.ImportJobDTO> getJob(String jobId);
+}
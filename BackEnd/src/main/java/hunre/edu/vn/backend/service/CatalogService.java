@@ -0,0 +1,41 @@
+package hunre.edu.vn.backend.service;
+
+import hunre.edu.vn.backend.catalog.CatalogSnapshot;
+import hunre.edu.vn.backend.catalog.MedicineSuggestTrie;
+import hunre.edu.vn.backend.catalog.MedicineTextIndex;
+
+import java.util.Collection;
+
+public interface CatalogService {
+
+    /**
+     * Snapshot hiện tại của danh mục thuốc
+     */
+    CatalogSnapshot getSnapshot();
+
+    /**
+     * Chỉ mục toàn văn (BM25) trên tên, mã, mô tả và hướng dẫn sử dụng, được làm mới cùng snapshot
+     */
+    MedicineTextIndex getTextIndex();
+
+    /**
+     * Cây tiền tố cho gợi ý tìm kiếm, được dựng lại trên luồng riêng và thay thế nguyên khối
+     */
+    MedicineSuggestTrie getSuggestTrie();
+
+    boolean isReady();
+
+    /**
+     * Phiên bản của read model (snapshot, chỉ mục toàn văn, cây gợi ý) đang phục vụ, đổi sau mỗi lần thay thế.
+     * Dùng làm ETag cho các endpoint đọc từ snapshot thay cho phiên bản entity trong DB, vì snapshot
+     * được làm mới bất đồng bộ sau khi dữ liệu commit. Giá trị gắn với tiến trình hiện tại.
+     */
+    String getVersion();
+
+    /**
+     * Đánh dấu các thuốc cần làm mới; việc làm mới diễn ra sau khi transaction hiện tại commit
+     */
+    void markDirty(Collection<Long> medicineIds);
+
+    void rebuild();
+}
@@ -6,6 +6,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface CategoryService {
     List<CategoryDTO.GetCategoryDTO> findAll();
@@ -15,4 +16,14 @@ public interface CategoryService {
     List<CategoryDTO.GetCategoryDTO> findByName(String name);
     String uploadCategoryImage(MultipartFile file) throws IOException;
     String deleteCategoryImage(String image);
+
+    /**
+     * Cây danh mục đang hoạt động, được cache trong bộ nhớ và làm mới sau mỗi lần thêm/sửa/xóa
+     */
+    List<CategoryDTO.CategoryTreeDTO> getTree();
+
+    /**
+     * ID của danh mục cùng mọi danh mục con cháu, lấy từ cây đã cache
+     */
+    Set<Long> findSelfAndDescendantIds(Long categoryId);
 }
\ No newline at end of file
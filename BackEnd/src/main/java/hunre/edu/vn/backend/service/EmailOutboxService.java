@@ -0,0 +1,23 @@
+package hunre.edu.vn.backend.service;
+
+import hunre.edu.vn.backend.dto.EmailOutboxDTO;
+
+public interface EmailOutboxService {
+
+    /**
+     * Xếp email xác nhận đơn hàng vào hàng đợi, trong transaction của thao tác đặt hàng
+     */
+    void enqueueOrderConfirmation(Long orderId, String recipient, String recipientName);
+
+    /**
+     * Xếp email xác nhận đặt dịch vụ vào hàng đợi, trong transaction của thao tác đặt dịch vụ
+     */
+    void enqueueServiceBookingConfirmation(Long serviceBookingId, String recipient, String recipientName);
+
+    /**
+     * Nhận các email đến hạn theo lô và giao cho pool worker gửi
+     */
+    void drain();
+
+    EmailOutboxDTO.StatsDTO getStats();
+}
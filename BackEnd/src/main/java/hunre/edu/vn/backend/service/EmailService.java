@@ -4,6 +4,7 @@ import hunre.edu.vn.backend.entity.Order;
 import hunre.edu.vn.backend.entity.ServiceBooking;
 import hunre.edu.vn.backend.entity.User;
 import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
 
 public interface EmailService {
     /**
@@ -12,6 +13,12 @@ public interface EmailService {
      */
     void sendOrderConfirmationEmail(Long orderId, String userEmail, String userName) throws MessagingException;
 
+    /**
+     * Dựng email xác nhận đơn hàng (kèm hóa đơn PDF) mà không gửi, dùng cho worker gửi theo lô
+     * @throws MessagingException Lỗi dựng email
+     */
+    MimeMessage buildOrderConfirmationMessage(Long orderId, String userEmail, String userName) throws MessagingException;
+
     /**
      * Gửi email xác nhận dịch vụ
      * @param user Thông tin người dùng
@@ -20,6 +27,14 @@ public interface EmailService {
      */
     void sendServiceBookingConfirmationEmail(User user, ServiceBooking serviceBooking) throws MessagingException;
 
+    /**
+     * Dựng email xác nhận dịch vụ (kèm PDF) mà không gửi, dùng cho worker gửi theo lô
+     * @param serviceBookingId ID đặt dịch vụ
+     * @param userEmail Địa chỉ nhận
+     * @throws MessagingException Lỗi dựng email
+     */
+    MimeMessage buildServiceBookingConfirmationMessage(Long serviceBookingId, String userEmail) throws MessagingException;
+
     /**
      * Gửi email đặt lại mật khẩu
      * @param user Người dùng
@@ -0,0 +1,10 @@
+package hunre.edu.vn.backend.service;
+
+public interface ImageDerivativeService {
+
+    /**
+     * Xếp hàng tạo các ảnh thu nhỏ cho ảnh gốc; kết quả được ghi vào mọi bản ghi đang dùng URL này
+     * (ảnh thuốc, brand, danh mục, avatar người dùng)
+     */
+    void requestDerivatives(String originalUrl);
+}
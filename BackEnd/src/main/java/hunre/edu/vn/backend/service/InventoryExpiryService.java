@@ -0,0 +1,34 @@
+package hunre.edu.vn.backend.service;
+
+import hunre.edu.vn.backend.dto.AttributeDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface InventoryExpiryService {
+
+    /**
+     * Các lô còn hàng hết hạn trong vòng số ngày cho trước, kể cả lô đã hết hạn
+     * @param days Số ngày tính từ hôm nay
+     * @return Danh sách lô theo hạn sử dụng tăng dần
+     */
+    List<AttributeDTO.ExpiringLotDTO> findExpiring(int days);
+
+    /**
+     * Đánh dấu chỉ mục cần dựng lại sau khi tập lô thay đổi (thêm/xóa lô, sửa hạn sử dụng hoặc sửa tồn kho trực tiếp);
+     * việc dựng lại diễn ra ở lần đọc hoặc lần quét sau
+     */
+    void invalidate();
+
+    /**
+     * Báo tồn kho của các lô vừa thay đổi do giữ hàng hoặc hoàn hàng.
+     * Chỉ lô đang nằm trong chỉ mục mới làm chỉ mục phải dựng lại; các lô khác được cập nhật ở lần quét định kỳ
+     * @param attributeIds ID các lô có tồn kho thay đổi
+     */
+    void stockChanged(Collection<Long> attributeIds);
+
+    /**
+     * Quét chỉ mục và phát sự kiện sắp hết hạn / đã hết hạn cho các lô đến hạn
+     */
+    void scan();
+}
@@ -0,0 +1,18 @@
+package hunre.edu.vn.backend.service;
+
+import java.util.Collection;
+
+public interface MedicineInventoryService {
+
+    /**
+     * Tính lại tồn kho, giá thấp nhất và cao nhất của các thuốc sau khi thuộc tính thay đổi.
+     * Phải được gọi trong cùng transaction với thay đổi thuộc tính.
+     */
+    void refreshStockAndPrices(Collection<Long> medicineIds);
+
+    /**
+     * Đối soát toàn bộ thuốc, sửa các cột tổng hợp bị lệch
+     * @return Số thuốc đã sửa
+     */
+    int rebuildStockAndPrices();
+}
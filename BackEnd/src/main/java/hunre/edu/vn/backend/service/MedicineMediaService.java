@@ -1,6 +1,7 @@
 package hunre.edu.vn.backend.service;
 
 import hunre.edu.vn.backend.dto.MedicineMediaDTO;
+import hunre.edu.vn.backend.dto.StorageDTO;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -15,6 +16,19 @@ public interface MedicineMediaService {
     List<MedicineMediaDTO.GetMedicineMediaDTO> findByMedicineId(Long medicineId);
     Optional<MedicineMediaDTO.GetMedicineMediaDTO> findMainImageByMedicineId(Long medicineId);
     String uploadMedicineImage(MultipartFile file) throws IOException;
+
+    /**
+     * Tải nhiều ảnh lên song song rồi lưu tất cả bản ghi ảnh trong một lô.
+     * Nếu transaction hiện tại rollback, các ảnh đã tải lên sẽ bị xóa khỏi kho lưu trữ.
+     * @param mainImageIndex Vị trí ảnh chính trong files, null nếu giữ nguyên ảnh chính hiện tại
+     */
+    List<MedicineMediaDTO.GetMedicineMediaDTO> uploadAndSaveAll(Long medicineId, MultipartFile[] files,
+                                                                Integer mainImageIndex) throws IOException;
     String updateMedicineImage(Long mediaId, MultipartFile file) throws IOException;
     String deleteAllMediaByMedicineId(Long medicineId);
+
+    /**
+     * Số lần trúng/trượt và dung lượng của bộ đệm đọc media trên đĩa
+     */
+    StorageDTO.CacheStatsDTO getStorageCacheStats();
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package hunre.edu.vn.backend.service;
+
+import java.util.List;
+
+public interface MedicineSalesService {
+
+    void adjustSales(Long medicineId, long delta);
+
+    long getQuantitySold(Long medicineId);
+
+    List<Long> findTopSellingMedicineIds(int limit);
+
+    void rebuildCounters();
+}
@@ -8,10 +8,16 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface MedicineService {
     List<MedicineDTO.GetMedicineDTO> findAll();
 
+    /**
+     * Duyệt toàn bộ bản ghi theo dạng stream, mỗi DTO được chuyển cho consumer ngay khi đọc xong
+     */
+    void streamAll(Consumer<MedicineDTO.GetMedicineDTO> consumer);
+
     Optional<MedicineDTO.GetMedicineDTO> findById(Long id);
 
     MedicineDTO.GetMedicineDTO saveOrUpdate(MedicineDTO.SaveMedicineDTO medicineDTO);
@@ -24,6 +30,18 @@ public interface MedicineService {
 
     List<MedicineDTO.GetMedicineDTO> seach(String name, Long categoryId, Long brandId, Decimal rangePrice, String sortBy);
 
+    MedicineDTO.MedicineSliceDTO search(MedicineDTO.SearchMedicineDTO criteria);
+
+    /**
+     * Tìm kiếm toàn văn không phân biệt dấu, xếp hạng theo độ liên quan (BM25)
+     */
+    MedicineDTO.MedicineSliceDTO searchRanked(MedicineDTO.SearchMedicineDTO criteria);
+
+    /**
+     * Gợi ý thuốc theo tiền tố tên, mã hoặc brand, ưu tiên thuốc bán chạy
+     */
+    List<MedicineDTO.MedicineSuggestionDTO> suggest(String query, int limit);
+
     List<MedicineDTO.GetMedicineDTO> getBestSaling();
 
     List<MedicineDTO.GetMedicineDTO> getMedicineNew();
@@ -6,11 +6,31 @@ import hunre.edu.vn.backend.entity.OrderStatus;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface OrderService {
     List<OrderDTO.GetOrderDTO> findAll();
+
+    /**
+     * Duyệt toàn bộ bản ghi theo dạng stream, mỗi DTO được chuyển cho consumer ngay khi đọc xong
+     */
+    void streamAll(Consumer<OrderDTO.GetOrderDTO> consumer);
     Optional<OrderDTO.GetOrderDTO> findById(Long id);
     OrderDTO.GetOrderDTO saveOrUpdate(OrderDTO.SaveOrderDTO orderDTO);
+
+    /**
+     * Đặt hàng cả giỏ trong một transaction: tính lại giá và discount, giữ hàng cho từng dòng, dùng voucher,
+     * và xếp email xác nhận vào outbox trong cùng transaction
+     * @throws hunre.edu.vn.backend.exception.InsufficientStockException nếu một lô không đủ hàng
+     * @throws hunre.edu.vn.backend.exception.PriceChangedException nếu giá client gửi lên không còn đúng
+     */
+    OrderDTO.GetOrderDTO checkout(OrderDTO.CheckoutDTO checkoutDTO);
+
+    /**
+     * Xếp email xác nhận của đơn tạo qua /save vào outbox, sau khi client đã thêm xong các dòng đơn.
+     * Mỗi đơn chỉ có một email xác nhận, gọi lại không xếp thêm
+     */
+    String enqueueConfirmationEmail(Long orderId);
     String deleteByList(List<Long> ids);
     Optional<OrderDTO.GetOrderDTO> findByOrderCode(String orderCode);
     List<OrderDTO.GetOrderDTO> findByPatientId(Long patientId);
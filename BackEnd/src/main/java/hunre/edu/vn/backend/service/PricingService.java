@@ -0,0 +1,37 @@
+package hunre.edu.vn.backend.service;
+
+import hunre.edu.vn.backend.dto.DiscountDTO;
+import hunre.edu.vn.backend.dto.MedicineDTO;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+public interface PricingService {
+
+    /**
+     * Gắn giá sau discount cho các thẻ thuốc: giá từng thuộc tính và giá thấp nhất của thuốc
+     * @param medicines Các thẻ thuốc, được sửa trực tiếp
+     */
+    void applyEffectivePrices(Collection<MedicineDTO.GetMedicineDTO> medicines);
+
+    /**
+     * Báo giá một dòng hàng theo discount đang hiệu lực, không trừ lượt sử dụng
+     */
+    DiscountDTO.PricedLineDTO quote(Long medicineId, BigDecimal unitPrice, int quantity);
+
+    /**
+     * Áp discount cho một dòng hàng lúc đặt hàng. Lượt sử dụng được tăng bằng câu UPDATE có điều kiện
+     * trong transaction hiện tại; discount vừa hết lượt thì thử discount tốt kế tiếp, không còn thì tính giá gốc
+     */
+    DiscountDTO.PricedLineDTO applyAtCheckout(Long medicineId, BigDecimal unitPrice, int quantity);
+
+    /**
+     * Đánh dấu chỉ mục discount cần dựng lại sau khi transaction hiện tại commit
+     */
+    void invalidate();
+
+    /**
+     * Dựng lại chỉ mục nếu đã bị đánh dấu hoặc đã qua mốc bắt đầu/kết thúc của một discount
+     */
+    void refresh();
+}
@@ -6,9 +6,15 @@ import hunre.edu.vn.backend.entity.BookingStatus;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ServiceBookingService {
     List<ServiceBookingDTO.GetServiceBookingDTO> findAll();
+
+    /**
+     * Duyệt toàn bộ bản ghi theo dạng stream, mỗi DTO được chuyển cho consumer ngay khi đọc xong
+     */
+    void streamAll(Consumer<ServiceBookingDTO.GetServiceBookingDTO> consumer);
     Optional<ServiceBookingDTO.GetServiceBookingDTO> findById(Long id);
     ServiceBookingDTO.GetServiceBookingDTO saveOrUpdate(Map<String, Object> bookingData);
     String deleteByList(List<Long> ids);
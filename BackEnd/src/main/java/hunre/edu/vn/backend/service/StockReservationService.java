@@ -0,0 +1,37 @@
+package hunre.edu.vn.backend.service;
+
+import hunre.edu.vn.backend.entity.OrderDetail;
+
+import java.util.List;
+
+public interface StockReservationService {
+
+    /**
+     * Giữ hàng cho một dòng đơn: trừ tồn kho của lô bằng một câu UPDATE có điều kiện và ghi vào sổ giữ hàng.
+     * Nếu dòng đơn đang giữ hàng thì phần đã giữ được hoàn lại trước.
+     * Phải được gọi trong transaction của thay đổi đơn hàng và sau khi dòng đơn đã có ID.
+     * @throws hunre.edu.vn.backend.exception.InsufficientStockException nếu lô không đủ hàng
+     */
+    void reserve(OrderDetail orderDetail);
+
+    /**
+     * Hoàn lại tồn kho đang giữ cho một dòng đơn, không làm gì nếu dòng đơn không giữ hàng
+     */
+    void release(Long orderDetailId);
+
+    /**
+     * Hoàn lại tồn kho đang giữ cho tất cả dòng của một đơn (khi hủy đơn)
+     */
+    void releaseOrder(Long orderId);
+
+    /**
+     * Bỏ thời hạn giữ hàng của đơn sau khi đơn được thanh toán hoặc xác nhận
+     */
+    void commitOrder(Long orderId);
+
+    /**
+     * Các đơn có hàng giữ đã quá hạn mà chưa thanh toán
+     * @param limit Số đơn tối đa
+     */
+    List<Long> findOrdersWithExpiredReservations(int limit);
+}
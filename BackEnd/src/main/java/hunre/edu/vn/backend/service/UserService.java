@@ -7,9 +7,15 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserService {
     List<UserDTO.GetUserDTO> findAll();
+
+    /**
+     * Duyệt toàn bộ bản ghi theo dạng stream, mỗi DTO được chuyển cho consumer ngay khi đọc xong
+     */
+    void streamAll(Consumer<UserDTO.GetUserDTO> consumer);
     Optional<UserDTO.GetUserDTO> findById(Long id);
     UserDTO.GetUserDTO saveOrUpdate(UserDTO.SaveUserDTO userDTO);
     String deleteByList(List<Long> ids);
@@ -0,0 +1,22 @@
+package hunre.edu.vn.backend.service;
+
+import hunre.edu.vn.backend.dto.VoucherDTO;
+
+import java.math.BigDecimal;
+
+public interface VoucherRedemptionService {
+
+    /**
+     * Dùng voucher cho một đơn hàng: trừ lượt bằng một câu UPDATE có điều kiện (trạng thái, thời gian,
+     * giá trị tối thiểu, số lượng) và ghi một bản ghi cho đơn. Gọi lại với cùng mã cho cùng đơn không trừ thêm lượt;
+     * đổi sang mã khác thì lượt của mã cũ được trả lại.
+     * @param orderValue Giá trị đơn hàng trước giảm giá
+     * @throws hunre.edu.vn.backend.exception.VoucherNotApplicableException nếu voucher không dùng được cho đơn
+     */
+    VoucherDTO.RedemptionDTO redeem(String code, Long orderId, BigDecimal orderValue);
+
+    /**
+     * Trả lại lượt dùng voucher của đơn (khi hủy đơn hoặc bỏ voucher), không làm gì nếu đơn không dùng voucher
+     */
+    void releaseForOrder(Long orderId);
+}
@@ -7,15 +7,14 @@ import hunre.edu.vn.backend.mapper.AttributeMapper;
 import hunre.edu.vn.backend.repository.AttributeRepository;
 import hunre.edu.vn.backend.repository.MedicineRepository;
 import hunre.edu.vn.backend.service.AttributeService;
+import hunre.edu.vn.backend.service.InventoryExpiryService;
+import hunre.edu.vn.backend.service.MedicineInventoryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,6 +24,10 @@ public class AttributeServiceImpl implements AttributeService {
     private final AttributeRepository attributeRepository;
     private final MedicineRepository medicineRepository;
     private final AttributeMapper attributeMapper;
+    private final MedicineInventoryService medicineInventoryService;
+    private final InventoryExpiryService inventoryExpiryService;
+
+    private static final int MEDICINE_ID_BATCH_SIZE = 1000;
 
     @Override
     public List<AttributeDTO.GetAttributeDTO> findAll() {
@@ -43,6 +46,8 @@ public class AttributeServiceImpl implements AttributeService {
     @Transactional
     public AttributeDTO.GetAttributeDTO saveOrUpdate(AttributeDTO.SaveAttributeDTO attributeDTO) {
         Attribute attribute;
+        Long previousMedicineId = null;
+        boolean lotChanged = true;
 
         if (attributeDTO.getId() == null || attributeDTO.getId() == 0) {
             // INSERT case
@@ -57,6 +62,12 @@ public class AttributeServiceImpl implements AttributeService {
             }
             attribute = existingAttribute.get();
             attribute.setUpdatedAt(LocalDateTime.now());
+            previousMedicineId = attribute.getMedicine() != null ? attribute.getMedicine().getId() : null;
+            // Chỉ sửa giá thì danh sách lô sắp hết hạn không đổi
+            lotChanged = !Objects.equals(attribute.getExpiryDate(), attributeDTO.getExpiryDate())
+                    || !Objects.equals(attribute.getStock(), attributeDTO.getStock())
+                    || !Objects.equals(attribute.getName(), attributeDTO.getName())
+                    || (attributeDTO.getMedicineId() != null && !attributeDTO.getMedicineId().equals(previousMedicineId));
         }
 
         if (attributeDTO.getMedicineId() != null) {
@@ -72,6 +83,14 @@ public class AttributeServiceImpl implements AttributeService {
         attribute.setPriceOut(attributeDTO.getPriceOut());
 
         Attribute savedAttribute = attributeRepository.save(attribute);
+        // Thuộc tính có thể được chuyển sang thuốc khác, tính lại cho cả thuốc cũ
+        Set<Long> affectedMedicineIds = new HashSet<>();
+        affectedMedicineIds.add(savedAttribute.getMedicine().getId());
+        affectedMedicineIds.add(previousMedicineId);
+        medicineInventoryService.refreshStockAndPrices(affectedMedicineIds);
+        if (lotChanged) {
+            inventoryExpiryService.invalidate();
+        }
         return attributeMapper.toGetAttributeDTO(savedAttribute);
     }
 
@@ -91,12 +110,36 @@ public class AttributeServiceImpl implements AttributeService {
     }
 
     @Override
+    public Map<Long, List<AttributeDTO.GetAttributeDTO>> findByMedicineIds(Collection<Long> medicineIds) {
+        if (medicineIds == null || medicineIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Chia nhỏ danh sách ID để không vượt giới hạn tham số của SQL Server (2100)
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(medicineIds));
+        Map<Long, List<AttributeDTO.GetAttributeDTO>> result = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += MEDICINE_ID_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + MEDICINE_ID_BATCH_SIZE, ids.size()));
+            attributeRepository.findByMedicineIdIn(batch).stream()
+                    .map(attributeMapper::toGetAttributeDTO)
+                    .forEach(dto -> result.computeIfAbsent(dto.getMedicineId(), id -> new ArrayList<>()).add(dto));
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
     public String deleteByList(List<Long> ids) {
+        Set<Long> medicineIds = new HashSet<>();
         for (Long id : ids) {
-            if (attributeRepository.existsById(id)) {
+            Optional<Attribute> attribute = attributeRepository.findById(id);
+            if (attribute.isPresent()) {
+                medicineIds.add(attribute.get().getMedicine().getId());
                 attributeRepository.softDelete(id);
             }
         }
+        medicineInventoryService.refreshStockAndPrices(medicineIds);
+        inventoryExpiryService.invalidate();
         return "Đã xóa thành công " + ids.size() + " thuộc tính";
     }
 
@@ -133,6 +176,8 @@ public class AttributeServiceImpl implements AttributeService {
 
         // Thực hiện xóa mềm các thuộc tính
         attributeRepository.softDeleteByMedicineId(medicineId);
+        medicineInventoryService.refreshStockAndPrices(List.of(medicineId));
+        inventoryExpiryService.invalidate();
 
         return "Đã xóa thành công " + count + " thuộc tính của thuốc";
     }
@@ -4,9 +4,12 @@ import hunre.edu.vn.backend.dto.BrandDTO;
 import hunre.edu.vn.backend.entity.Brand;
 import hunre.edu.vn.backend.mapper.BrandMapper;
 import hunre.edu.vn.backend.repository.BrandRepository;
+import hunre.edu.vn.backend.repository.MedicineRepository;
 import hunre.edu.vn.backend.service.BrandService;
+import hunre.edu.vn.backend.service.CatalogService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -21,12 +24,17 @@ public class BrandServiceImpl implements BrandService {
     private final S3Service s3Service;
     private final BrandRepository brandRepository;
     private final BrandMapper brandMapper;
+    private final MedicineRepository medicineRepository;
+    private final CatalogService catalogService;
 
     @Autowired
-    public BrandServiceImpl(BrandRepository brandRepository, BrandMapper brandMapper, S3Service s3Service) {
+    public BrandServiceImpl(BrandRepository brandRepository, BrandMapper brandMapper, S3Service s3Service,
+                            MedicineRepository medicineRepository, CatalogService catalogService) {
         this.s3Service = s3Service;
         this.brandRepository = brandRepository;
         this.brandMapper = brandMapper;
+        this.medicineRepository = medicineRepository;
+        this.catalogService = catalogService;
     }
 
     @Override
@@ -43,6 +51,7 @@ public class BrandServiceImpl implements BrandService {
     }
 
     @Override
+    @Transactional
     public BrandDTO.GetBrandDTO saveOrUpdate(BrandDTO.SaveBrandDTO brandDTO) {
         Brand brand;
 
@@ -62,16 +71,24 @@ public class BrandServiceImpl implements BrandService {
         }
 
         Brand savedBrand = brandRepository.save(brand);
+        // Thẻ thuốc trong snapshot danh mục chứa tên brand
+        if (brandDTO.getId() != null && brandDTO.getId() != 0) {
+            catalogService.markDirty(medicineRepository.findActiveIdsByBrandIds(List.of(savedBrand.getId())));
+        }
         return brandMapper.toGetBrandDTO(savedBrand);
     }
 
     @Override
+    @Transactional
     public String deleteByList(List<Long> ids) {
         for (Long id : ids) {
             if (brandRepository.existsById(id)) {
                 brandRepository.softDelete(id);
             }
         }
+        if (!ids.isEmpty()) {
+            catalogService.markDirty(medicineRepository.findActiveIdsByBrandIds(ids));
+        }
         return "Đã xóa thành công " + ids.size() + " thương hiệu";
     }
 
@@ -0,0 +1,115 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.repository.CatalogExportRepository;
+import hunre.edu.vn.backend.service.CatalogExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class CatalogExportServiceImpl implements CatalogExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogExportServiceImpl.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String[] HEADER = {
+            "code", "name", "description", "usage_instruction", "dosage_instruction", "prescription_required",
+            "origin", "brand", "categories", "attribute_name", "price_in", "price_out", "stock", "expiry_date", "images"
+    };
+
+    private final CatalogExportRepository catalogExportRepository;
+
+    public CatalogExportServiceImpl(CatalogExportRepository catalogExportRepository) {
+        this.catalogExportRepository = catalogExportRepository;
+    }
+
+    @Override
+    public void writeCsv(OutputStream output, boolean gzip) throws IOException {
+        OutputStream target = new FilterOutputStream(output) {
+            @Override
+            public void close() throws IOException {
+                // Không đóng luồng của response, container tự quản lý
+                flush();
+            }
+        };
+        if (gzip) {
+            target = new GZIPOutputStream(target, BUFFER_SIZE);
+        }
+
+        long startedAt = System.currentTimeMillis();
+        long[] rowCount = {0};
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            // BOM để Excel đọc đúng tiếng Việt
+            writer.write('\uFEFF');
+            writeLine(writer, HEADER);
+
+            catalogExportRepository.forEachRow(row -> {
+                try {
+                    writeLine(writer,
+                            row.code(),
+                            row.name(),
+                            row.description(),
+                            row.usageInstruction(),
+                            row.dosageInstruction(),
+                            String.valueOf(row.prescriptionRequired()),
+                            row.origin(),
+                            row.brandName(),
+                            row.categoryNames(),
+                            row.attributeName(),
+                            toPlainString(row.priceIn()),
+                            toPlainString(row.priceOut()),
+                            row.stock() != null ? String.valueOf(row.stock()) : null,
+                            row.expiryDate() != null ? row.expiryDate().toString() : null,
+                            row.mediaUrls());
+                    rowCount[0]++;
+                } catch (IOException e) {
+                    // Client ngắt kết nối giữa chừng: dừng đọc con trỏ
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        logger.info("Đã xuất {} dòng danh mục trong {} ms", rowCount[0], System.currentTimeMillis() - startedAt);
+    }
+
+    private void writeLine(Writer writer, String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(writer, values[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    // Theo RFC 4180: bọc trong ngoặc kép khi có dấu phẩy, ngoặc kép hoặc xuống dòng
+    private void writeField(Writer writer, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private String toPlainString(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : null;
+    }
+}
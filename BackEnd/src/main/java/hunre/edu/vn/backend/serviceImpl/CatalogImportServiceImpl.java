@@ -0,0 +1,451 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.catalog.CatalogFileParser;
+import hunre.edu.vn.backend.catalog.CsvCatalogFileParser;
+import hunre.edu.vn.backend.catalog.XlsxCatalogFileParser;
+import hunre.edu.vn.backend.dto.CatalogImportDTO;
+import hunre.edu.vn.backend.entity.*;
+import hunre.edu.vn.backend.repository.BrandRepository;
+import hunre.edu.vn.backend.repository.CatalogBatchRepository;
+import hunre.edu.vn.backend.repository.CategoryRepository;
+import hunre.edu.vn.backend.service.CatalogImportService;
+import hunre.edu.vn.backend.service.InventoryExpiryService;
+import hunre.edu.vn.backend.service.MedicineInventoryService;
+import hunre.edu.vn.backend.utils.EntityVersionRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Nhập danh mục thuốc từ CSV/Excel.
+ * Mỗi dòng là một thuốc kèm một thuộc tính (giá, tồn kho, hạn dùng); nhiều dòng cùng mã thuốc
+ * được gộp thành nhiều thuộc tính. Brand và danh mục được tra trong bộ nhớ theo tên,
+ * dữ liệu được ghi theo lô bằng JDBC batch, mỗi lô một transaction.
+ */
+@Service
+public class CatalogImportServiceImpl implements CatalogImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportServiceImpl.class);
+
+    private static final Pattern CODE_PATTERN = Pattern.compile("^[A-Z0-9]{3,10}$");
+    private static final String LIST_SEPARATOR = "\\|";
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_RETAINED_JOBS = 50;
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("d/M/yyyy"),
+            DateTimeFormatter.ofPattern("M/d/yy"));
+
+    private final CatalogBatchRepository catalogBatchRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final MedicineInventoryService medicineInventoryService;
+    private final InventoryExpiryService inventoryExpiryService;
+    private final EntityVersionRegistry entityVersionRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CatalogImportServiceImpl(CatalogBatchRepository catalogBatchRepository,
+                                    BrandRepository brandRepository,
+                                    CategoryRepository categoryRepository,
+                                    MedicineInventoryService medicineInventoryService,
+                                    InventoryExpiryService inventoryExpiryService,
+                                    EntityVersionRegistry entityVersionRegistry,
+                                    PlatformTransactionManager transactionManager) {
+        this.catalogBatchRepository = catalogBatchRepository;
+        this.brandRepository = brandRepository;
+        this.categoryRepository = categoryRepository;
+        this.medicineInventoryService = medicineInventoryService;
+        this.inventoryExpiryService = inventoryExpiryService;
+        this.entityVersionRegistry = entityVersionRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    @Override
+    public CatalogImportDTO.ImportJobDTO startImport(MultipartFile file) throws IOException {
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "catalog";
+        CatalogFileParser parser;
+        String lowerName = fileName.toLowerCase();
+        if (lowerName.endsWith(".csv")) {
+            parser = new CsvCatalogFileParser();
+        } else if (lowerName.endsWith(".xlsx")) {
+            parser = new XlsxCatalogFileParser();
+        } else {
+            throw new IllegalArgumentException("Chỉ hỗ trợ file .csv hoặc .xlsx");
+        }
+
+        // File multipart bị xóa khi request kết thúc, chuyển sang file tạm để job nền đọc
+        Path temp = Files.createTempFile("catalog-import-", lowerName.endsWith(".csv") ? ".csv" : ".xlsx");
+        file.transferTo(temp);
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName);
+        registerJob(job);
+        importExecutor.submit(() -> runImport(job, parser, temp));
+        return job.toDTO();
+    }
+
+    @Override
+    public Optional<CatalogImportDTO.ImportJobDTO> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ImportJob::toDTO);
+    }
+
+    private void registerJob(ImportJob job) {
+        jobs.put(job.jobId, job);
+        if (jobs.size() > MAX_RETAINED_JOBS) {
+            jobs.values().stream()
+                    .filter(existing -> existing.finishedAt != null)
+                    .min(Comparator.comparing(existing -> existing.finishedAt))
+                    .ifPresent(oldest -> jobs.remove(oldest.jobId));
+        }
+    }
+
+    private void runImport(ImportJob job, CatalogFileParser parser, Path file) {
+        job.status = "RUNNING";
+        try {
+            ImportContext context = new ImportContext(job);
+            parser.parse(file, context::accept);
+            context.flush();
+            job.status = "COMPLETED";
+            logger.info("Nhập danh mục {} xong: {} thuốc, {} thuộc tính, {} dòng lỗi",
+                    job.fileName, job.importedMedicines, job.importedAttributes, job.failedRows);
+        } catch (Exception e) {
+            job.status = "FAILED";
+            job.addError(0, null, "Lỗi khi đọc file: " + e.getMessage());
+            logger.error("Lỗi khi nhập danh mục {}: {}", job.fileName, e.getMessage(), e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Không xóa được file tạm {}", file);
+            }
+        }
+    }
+
+    /**
+     * Trạng thái của một lần nhập, được đọc từ luồng request khi client hỏi tiến độ
+     */
+    private static class ImportJob {
+        private final String jobId;
+        private final String fileName;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile String status = "PENDING";
+        private volatile LocalDateTime finishedAt;
+        private final AtomicInteger processedRows = new AtomicInteger();
+        private final AtomicInteger importedMedicines = new AtomicInteger();
+        private final AtomicInteger importedAttributes = new AtomicInteger();
+        private final AtomicInteger failedRows = new AtomicInteger();
+        private final List<CatalogImportDTO.RowErrorDTO> errors = Collections.synchronizedList(new ArrayList<>());
+
+        private ImportJob(String jobId, String fileName) {
+            this.jobId = jobId;
+            this.fileName = fileName;
+        }
+
+        private void addError(int rowNumber, String code, String message) {
+            failedRows.incrementAndGet();
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new CatalogImportDTO.RowErrorDTO(rowNumber, code, message));
+            }
+        }
+
+        private CatalogImportDTO.ImportJobDTO toDTO() {
+            List<CatalogImportDTO.RowErrorDTO> errorCopy;
+            synchronized (errors) {
+                errorCopy = new ArrayList<>(errors);
+            }
+            return CatalogImportDTO.ImportJobDTO.builder()
+                    .jobId(jobId)
+                    .fileName(fileName)
+                    .status(status)
+                    .processedRows(processedRows.get())
+                    .importedMedicines(importedMedicines.get())
+                    .importedAttributes(importedAttributes.get())
+                    .failedRows(failedRows.get())
+                    .errors(errorCopy)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+
+    // Thuốc đang chờ ghi trong lô hiện tại
+    private static class PendingMedicine {
+        private final String code;
+        private CatalogBatchRepository.MedicineRow medicine;
+        private final List<Long> categoryIds = new ArrayList<>();
+        private final List<String> mediaUrls = new ArrayList<>();
+        private final List<PendingAttribute> attributes = new ArrayList<>();
+        private final List<Integer> rowNumbers = new ArrayList<>();
+
+        private PendingMedicine(String code) {
+            this.code = code;
+        }
+    }
+
+    private record PendingAttribute(String name, BigDecimal priceIn, BigDecimal priceOut, int stock,
+                                    LocalDate expiryDate) {
+    }
+
+    /**
+     * Ngữ cảnh của một lần nhập: bảng tra brand/danh mục, tập mã đã có và lô đang gom
+     */
+    private class ImportContext {
+        private final ImportJob job;
+        private final Map<String, Long> brandIdsByName = new HashMap<>();
+        private final Map<String, Long> categoryIdsByName = new HashMap<>();
+        private final Set<String> existingCodes;
+        private final Map<String, Long> importedIds = new HashMap<>();
+        private final Map<String, PendingMedicine> pending = new LinkedHashMap<>();
+
+        private ImportContext(ImportJob job) {
+            this.job = job;
+            for (Brand brand : brandRepository.findAllActive()) {
+                brandIdsByName.put(brand.getName().trim().toLowerCase(), brand.getId());
+            }
+            for (Category category : categoryRepository.findAllActive()) {
+                categoryIdsByName.putIfAbsent(category.getName().trim().toLowerCase(), category.getId());
+            }
+            this.existingCodes = catalogBatchRepository.findAllMedicineCodes();
+        }
+
+        private void accept(int rowNumber, Map<String, String> values) {
+            job.processedRows.incrementAndGet();
+            String code = value(values, "code");
+            try {
+                addRow(rowNumber, code, values);
+            } catch (IllegalArgumentException e) {
+                job.addError(rowNumber, code, e.getMessage());
+            }
+
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void addRow(int rowNumber, String code, Map<String, String> values) {
+            if (code == null || !CODE_PATTERN.matcher(code).matches()) {
+                throw new IllegalArgumentException("Mã thuốc phải từ 3-10 ký tự và chỉ gồm chữ hoa và số");
+            }
+            PendingAttribute attribute = parseAttribute(values);
+
+            PendingMedicine medicine = pending.get(code);
+            if (medicine == null) {
+                boolean knownMedicine = importedIds.containsKey(code);
+                if (existingCodes.contains(code) && !knownMedicine) {
+                    throw new IllegalArgumentException("Mã thuốc đã tồn tại");
+                }
+
+                medicine = new PendingMedicine(code);
+                // Dòng đầu tiên của một mã thuốc mới mang thông tin thuốc, các dòng sau chỉ thêm thuộc tính
+                if (!knownMedicine) {
+                    parseMedicine(medicine, values);
+                }
+                pending.put(code, medicine);
+            }
+            medicine.attributes.add(attribute);
+            medicine.rowNumbers.add(rowNumber);
+        }
+
+        private void parseMedicine(PendingMedicine medicine, Map<String, String> values) {
+            String name = required(values, "name", "Tên thuốc");
+            if (name.length() < 3 || name.length() > 255) {
+                throw new IllegalArgumentException("Tên thuốc phải từ 3-255 ký tự");
+            }
+            String brandName = required(values, "brand", "Brand");
+            Long brandId = brandIdsByName.get(brandName.toLowerCase());
+            if (brandId == null) {
+                throw new IllegalArgumentException("Không tìm thấy brand: " + brandName);
+            }
+
+            for (String categoryName : split(value(values, "categories"))) {
+                Long categoryId = categoryIdsByName.get(categoryName.toLowerCase());
+                if (categoryId == null) {
+                    throw new IllegalArgumentException("Không tìm thấy danh mục: " + categoryName);
+                }
+                if (!medicine.categoryIds.contains(categoryId)) {
+                    medicine.categoryIds.add(categoryId);
+                }
+            }
+            medicine.mediaUrls.addAll(split(value(values, "images")));
+
+            String prescription = value(values, "prescription_required");
+            medicine.medicine = new CatalogBatchRepository.MedicineRow(
+                    medicine.code,
+                    name,
+                    required(values, "description", "Mô tả"),
+                    value(values, "usage_instruction"),
+                    value(values, "dosage_instruction"),
+                    prescription != null && (prescription.equalsIgnoreCase("true") || prescription.equals("1")),
+                    required(values, "origin", "Xuất xứ"),
+                    brandId);
+        }
+
+        private PendingAttribute parseAttribute(Map<String, String> values) {
+            String name = required(values, "attribute_name", "Tên thuộc tính");
+            BigDecimal priceIn = decimal(required(values, "price_in", "Giá nhập"), "Giá nhập");
+            BigDecimal priceOut = decimal(required(values, "price_out", "Giá bán"), "Giá bán");
+            int stock;
+            try {
+                stock = Integer.parseInt(required(values, "stock", "Tồn kho"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Tồn kho không hợp lệ");
+            }
+            if (stock < 0 || priceIn.signum() < 0 || priceOut.signum() < 0) {
+                throw new IllegalArgumentException("Giá và tồn kho không được âm");
+            }
+            return new PendingAttribute(name, priceIn, priceOut, stock,
+                    date(required(values, "expiry_date", "Hạn sử dụng")));
+        }
+
+        /**
+         * Ghi lô hiện tại trong một transaction. Nếu lô lỗi, mọi dòng trong lô được báo lỗi
+         * và việc nhập tiếp tục với lô sau.
+         */
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            List<PendingMedicine> batch = new ArrayList<>(pending.values());
+            pending.clear();
+            try {
+                Map<String, Long> newIds = transactionTemplate.execute(status -> writeBatch(batch));
+                importedIds.putAll(newIds);
+                existingCodes.addAll(newIds.keySet());
+                job.importedMedicines.addAndGet(newIds.size());
+                job.importedAttributes.addAndGet(batch.stream().mapToInt(medicine -> medicine.attributes.size()).sum());
+
+                entityVersionRegistry.bump(Medicine.class);
+                entityVersionRegistry.bump(Attribute.class);
+                entityVersionRegistry.bump(MedicineCategory.class);
+                entityVersionRegistry.bump(MedicineMedia.class);
+            } catch (Exception e) {
+                logger.warn("Lỗi khi ghi lô {} thuốc: {}", batch.size(), e.getMessage());
+                for (PendingMedicine medicine : batch) {
+                    for (Integer rowNumber : medicine.rowNumbers) {
+                        job.addError(rowNumber, medicine.code, "Lỗi khi ghi dữ liệu: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        private Map<String, Long> writeBatch(List<PendingMedicine> batch) {
+            List<CatalogBatchRepository.MedicineRow> newMedicines = new ArrayList<>();
+            for (PendingMedicine medicine : batch) {
+                if (medicine.medicine != null) {
+                    newMedicines.add(medicine.medicine);
+                }
+            }
+            catalogBatchRepository.insertMedicines(newMedicines, batchSize);
+
+            Map<String, Long> newIds = catalogBatchRepository.findMedicineIdsByCodes(
+                    newMedicines.stream().map(CatalogBatchRepository.MedicineRow::code).collect(Collectors.toList()));
+
+            List<CatalogBatchRepository.AttributeRow> attributes = new ArrayList<>();
+            List<long[]> categories = new ArrayList<>();
+            List<CatalogBatchRepository.MediaRow> medias = new ArrayList<>();
+            Set<Long> medicineIds = new HashSet<>();
+            for (PendingMedicine medicine : batch) {
+                Long medicineId = newIds.containsKey(medicine.code) ? newIds.get(medicine.code) : importedIds.get(medicine.code);
+                medicineIds.add(medicineId);
+                for (PendingAttribute attribute : medicine.attributes) {
+                    attributes.add(new CatalogBatchRepository.AttributeRow(medicineId, attribute.name(),
+                            attribute.priceIn(), attribute.priceOut(), attribute.stock(), attribute.expiryDate()));
+                }
+                for (Long categoryId : medicine.categoryIds) {
+                    categories.add(new long[]{medicineId, categoryId});
+                }
+                for (int i = 0; i < medicine.mediaUrls.size(); i++) {
+                    medias.add(new CatalogBatchRepository.MediaRow(medicineId, medicine.mediaUrls.get(i), i == 0));
+                }
+            }
+
+            catalogBatchRepository.insertAttributes(attributes, batchSize);
+            catalogBatchRepository.insertMedicineCategories(categories, batchSize);
+            catalogBatchRepository.insertMedicineMedias(medias, batchSize);
+
+            // Cập nhật tồn kho/giá tổng hợp và làm mới snapshot danh mục sau khi commit
+            medicineInventoryService.refreshStockAndPrices(medicineIds);
+            inventoryExpiryService.invalidate();
+            return newIds;
+        }
+    }
+
+    private static String value(Map<String, String> values, String column) {
+        String value = values.get(column);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static String required(Map<String, String> values, String column, String label) {
+        String value = value(values, column);
+        if (value == null) {
+            throw new IllegalArgumentException(label + " không được để trống");
+        }
+        return value;
+    }
+
+    private static List<String> split(String value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(value.split(LIST_SEPARATOR))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private static BigDecimal decimal(String value, String label) {
+        try {
+            return new BigDecimal(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(label + " không hợp lệ");
+        }
+    }
+
+    private static LocalDate date(String value) {
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException ignored) {
+                // thử định dạng tiếp theo
+            }
+        }
+        throw new IllegalArgumentException("Hạn sử dụng không hợp lệ: " + value);
+    }
+}
@@ -0,0 +1,246 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.catalog.CatalogSnapshot;
+import hunre.edu.vn.backend.catalog.MedicineSuggestTrie;
+import hunre.edu.vn.backend.catalog.MedicineTextIndex;
+import hunre.edu.vn.backend.dto.AttributeDTO;
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import hunre.edu.vn.backend.entity.Medicine;
+import hunre.edu.vn.backend.mapper.AttributeMapper;
+import hunre.edu.vn.backend.mapper.MedicineMapper;
+import hunre.edu.vn.backend.repository.AttributeRepository;
+import hunre.edu.vn.backend.repository.MedicineRepository;
+import hunre.edu.vn.backend.service.CatalogService;
+import hunre.edu.vn.backend.service.MedicineSalesService;
+import hunre.edu.vn.backend.service.PricingService;
+import hunre.edu.vn.backend.utils.LotVisibility;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Read model trong bộ nhớ cho danh mục thuốc.
+ * Snapshot được dựng khi ứng dụng khởi động và được làm mới từng phần trên một luồng riêng
+ * sau khi các transaction ghi thuốc/thuộc tính commit.
+ */
+@Service
+public class CatalogServiceImpl implements CatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogServiceImpl.class);
+    private static final int MEDICINE_ID_BATCH_SIZE = 1000;
+
+    private final MedicineRepository medicineRepository;
+    private final AttributeRepository attributeRepository;
+    private final MedicineMapper medicineMapper;
+    private final AttributeMapper attributeMapper;
+    private final MedicineSalesService medicineSalesService;
+    private final PricingService pricingService;
+    private final LotVisibility lotVisibility;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${app.catalog.suggest-top-k:10}")
+    private int suggestTopK;
+
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MedicineTextIndex textIndex = new MedicineTextIndex();
+    private volatile CatalogSnapshot snapshot = CatalogSnapshot.empty();
+    private volatile MedicineSuggestTrie suggestTrie = MedicineSuggestTrie.empty();
+    private final AtomicBoolean suggestRebuildQueued = new AtomicBoolean(false);
+    private volatile boolean ready = false;
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong generation = new AtomicLong();
+
+    public CatalogServiceImpl(MedicineRepository medicineRepository,
+                              AttributeRepository attributeRepository,
+                              MedicineMapper medicineMapper,
+                              AttributeMapper attributeMapper,
+                              MedicineSalesService medicineSalesService,
+                              PricingService pricingService,
+                              LotVisibility lotVisibility,
+                              PlatformTransactionManager transactionManager) {
+        this.medicineRepository = medicineRepository;
+        this.attributeRepository = attributeRepository;
+        this.medicineMapper = medicineMapper;
+        this.attributeMapper = attributeMapper;
+        this.medicineSalesService = medicineSalesService;
+        this.pricingService = pricingService;
+        this.lotVisibility = lotVisibility;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refreshExecutor.submit(this::rebuild);
+    }
+
+    // Số lượng bán thay đổi liên tục, dựng lại trie định kỳ để thứ hạng gợi ý không bị cũ
+    @Scheduled(initialDelayString = "${app.catalog.suggest-refresh-ms:300000}",
+            fixedDelayString = "${app.catalog.suggest-refresh-ms:300000}")
+    public void refreshSuggestions() {
+        requestSuggestRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    @Override
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public MedicineTextIndex getTextIndex() {
+        return textIndex;
+    }
+
+    @Override
+    public MedicineSuggestTrie getSuggestTrie() {
+        return suggestTrie;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public String getVersion() {
+        return Long.toString(startedAt, 36) + "-" + generation.get();
+    }
+
+    @Override
+    public void markDirty(Collection<Long> medicineIds) {
+        if (medicineIds == null || medicineIds.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = medicineIds.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scheduleRefresh(ids);
+                }
+            });
+        } else {
+            scheduleRefresh(ids);
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        try {
+            List<MedicineDTO.GetMedicineDTO> cards = readOnlyTransaction.execute(status ->
+                    toCards(medicineRepository.findAllActiveCards()));
+            snapshot = CatalogSnapshot.of(cards);
+            textIndex.rebuild(cards);
+            // Tăng phiên bản sau khi thay thế xong để ETag mới luôn đi kèm dữ liệu mới
+            generation.incrementAndGet();
+            ready = true;
+            requestSuggestRebuild();
+            logger.info("Đã dựng snapshot danh mục với {} thuốc", snapshot.size());
+        } catch (Exception e) {
+            logger.error("Lỗi khi dựng snapshot danh mục: {}", e.getMessage(), e);
+        }
+    }
+
+    private void scheduleRefresh(Collection<Long> medicineIds) {
+        pendingIds.addAll(medicineIds);
+        refreshExecutor.submit(this::drainPending);
+    }
+
+    // Gom tất cả ID đang chờ để làm mới một lần, các lần submit sau có thể không còn gì để làm
+    private void drainPending() {
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+
+        Set<Long> ids = new HashSet<>(pendingIds);
+        pendingIds.removeAll(ids);
+
+        try {
+            List<MedicineDTO.GetMedicineDTO> upserts = readOnlyTransaction.execute(status ->
+                    toCards(medicineRepository.findAllById(ids).stream()
+                            .filter(medicine -> !Boolean.TRUE.equals(medicine.getIsDeleted()))
+                            .collect(Collectors.toList())));
+
+            Set<Long> found = upserts.stream().map(MedicineDTO.GetMedicineDTO::getId).collect(Collectors.toSet());
+            List<Long> removed = ids.stream().filter(id -> !found.contains(id)).collect(Collectors.toList());
+
+            snapshot = snapshot.withChanges(upserts, removed);
+            upserts.forEach(textIndex::upsert);
+            removed.forEach(textIndex::remove);
+            generation.incrementAndGet();
+            requestSuggestRebuild();
+        } catch (Exception e) {
+            logger.error("Lỗi khi làm mới snapshot danh mục cho {}: {}", ids, e.getMessage(), e);
+            pendingIds.addAll(ids);
+        }
+    }
+
+    // Gộp các yêu cầu dựng lại liên tiếp thành một lần dựng trên luồng làm mới
+    private void requestSuggestRebuild() {
+        if (suggestRebuildQueued.compareAndSet(false, true)) {
+            refreshExecutor.submit(this::rebuildSuggestions);
+        }
+    }
+
+    private void rebuildSuggestions() {
+        suggestRebuildQueued.set(false);
+        try {
+            CatalogSnapshot current = snapshot;
+            suggestTrie = MedicineSuggestTrie.build(current.all(), medicineSalesService::getQuantitySold, suggestTopK);
+            generation.incrementAndGet();
+        } catch (Exception e) {
+            logger.error("Lỗi khi dựng cây gợi ý tìm kiếm: {}", e.getMessage(), e);
+        }
+    }
+
+    private List<MedicineDTO.GetMedicineDTO> toCards(List<Medicine> medicines) {
+        if (medicines.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = medicines.stream().map(Medicine::getId).collect(Collectors.toList());
+        Map<Long, List<AttributeDTO.GetAttributeDTO>> attributes = new HashMap<>();
+        LocalDate today = LocalDate.now();
+        for (int from = 0; from < ids.size(); from += MEDICINE_ID_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + MEDICINE_ID_BATCH_SIZE, ids.size()));
+            attributeRepository.findByMedicineIdIn(batch).stream()
+                    .map(attributeMapper::toGetAttributeDTO)
+                    // Bộ quét hạn sử dụng đánh dấu thuốc cần làm mới khi có lô vừa hết hạn
+                    .filter(dto -> lotVisibility.isVisible(dto.getExpiryDate(), today))
+                    .forEach(dto -> attributes.computeIfAbsent(dto.getMedicineId(), id -> new ArrayList<>()).add(dto));
+        }
+        List<MedicineDTO.GetMedicineDTO> cards = medicineMapper.toGetMedicineDTOs(medicines, attributes);
+        pricingService.applyEffectivePrices(cards);
+        return cards;
+    }
+}
@@ -1,32 +1,104 @@
 package hunre.edu.vn.backend.serviceImpl;
 
+import hunre.edu.vn.backend.catalog.CategoryTree;
 import hunre.edu.vn.backend.dto.CategoryDTO;
 import hunre.edu.vn.backend.entity.Category;
+import hunre.edu.vn.backend.entity.CategoryClosure;
 import hunre.edu.vn.backend.mapper.CategoryMapper;
+import hunre.edu.vn.backend.repository.CategoryClosureRepository;
 import hunre.edu.vn.backend.repository.CategoryRepository;
+import hunre.edu.vn.backend.repository.MedicineCategoryRepository;
+import hunre.edu.vn.backend.service.CatalogService;
 import hunre.edu.vn.backend.service.CategoryService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
 public class CategoryServiceImpl implements CategoryService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CategoryServiceImpl.class);
+
     private final CategoryRepository categoryRepository;
+    private final CategoryClosureRepository categoryClosureRepository;
     private final CategoryMapper categoryMapper;
     private final S3Service s3Service;
+    private final MedicineCategoryRepository medicineCategoryRepository;
+    private final CatalogService catalogService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Cây được dựng lại khi cần sau khi bị xóa cache; generation tránh ghi đè cache bằng cây dựng từ dữ liệu cũ
+    private volatile CategoryTree tree;
+    private final AtomicLong treeGeneration = new AtomicLong();
 
     @Autowired
-    public CategoryServiceImpl(CategoryRepository categoryRepository, CategoryMapper categoryMapper, S3Service s3Service) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository, CategoryClosureRepository categoryClosureRepository,
+                               CategoryMapper categoryMapper, S3Service s3Service,
+                               MedicineCategoryRepository medicineCategoryRepository, CatalogService catalogService) {
         this.categoryRepository = categoryRepository;
+        this.categoryClosureRepository = categoryClosureRepository;
         this.categoryMapper = categoryMapper;
         this.s3Service = s3Service;
+        this.medicineCategoryRepository = medicineCategoryRepository;
+        this.catalogService = catalogService;
+    }
+
+    /**
+     * Đồng bộ bảng bao đóng với parent_id khi khởi động, phòng trường hợp dữ liệu cũ
+     * hoặc danh mục được sửa trực tiếp trong cơ sở dữ liệu
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void reconcileClosure() {
+        Map<Long, Long> parents = new HashMap<>();
+        Set<Long> activeIds = new HashSet<>();
+        for (Object[] row : categoryRepository.findAllParentLinks()) {
+            Long id = (Long) row[0];
+            parents.put(id, (Long) row[1]);
+            if (!Boolean.TRUE.equals(row[2])) {
+                activeIds.add(id);
+            }
+        }
+
+        // Đi ngược parent_id qua cả danh mục đã xóa, giống cách deleteByList giữ liên kết của danh mục con
+        Set<CategoryClosure> expected = new HashSet<>();
+        for (Long id : activeIds) {
+            Set<Long> visited = new HashSet<>();
+            Long ancestor = id;
+            int depth = 0;
+            while (ancestor != null && visited.add(ancestor)) {
+                if (activeIds.contains(ancestor)) {
+                    expected.add(new CategoryClosure(ancestor, id, depth));
+                }
+                ancestor = parents.get(ancestor);
+                depth++;
+            }
+        }
+
+        if (new HashSet<>(categoryClosureRepository.findAll()).equals(expected)) {
+            return;
+        }
+        categoryClosureRepository.deleteAllInBatch();
+        expected.forEach(entityManager::persist);
+        logger.info("Đã dựng lại bảng bao đóng danh mục với {} dòng", expected.size());
+        invalidateTree();
     }
 
     @Override
@@ -43,8 +115,11 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Transactional
     public CategoryDTO.GetCategoryDTO saveOrUpdate(CategoryDTO.SaveCategoryDTO categoryDTO) {
         Category category;
+        boolean isNew = categoryDTO.getId() == null || categoryDTO.getId() == 0;
+        Long oldParentId = null;
 
         if (categoryDTO.getId() == null || categoryDTO.getId() == 0) {
             category = categoryMapper.toEntity(categoryDTO);
@@ -52,7 +127,7 @@ public class CategoryServiceImpl implements CategoryService {
             category.setUpdatedAt(LocalDateTime.now());
 
             if (categoryDTO.getParentId() != null && categoryDTO.getParentId() > 0) {
-                Category parent = categoryRepository.findById(categoryDTO.getParentId())
+                Category parent = categoryRepository.findActiveById(categoryDTO.getParentId())
                         .orElseThrow(() -> new RuntimeException("Parent category not found with ID: " + categoryDTO.getParentId()));
                 category.setParent(parent);
             }
@@ -63,11 +138,16 @@ public class CategoryServiceImpl implements CategoryService {
             }
 
             category = existingCategory.get();
+            oldParentId = category.getParent() != null ? category.getParent().getId() : null;
             category.setName(categoryDTO.getName());
             category.setImage(categoryDTO.getImage());
 
             if (categoryDTO.getParentId() != null) {
                 if (categoryDTO.getParentId() > 0) {
+                    if (categoryDTO.getParentId().equals(category.getId())
+                            || categoryClosureRepository.isAncestor(category.getId(), categoryDTO.getParentId())) {
+                        throw new RuntimeException("Cannot move category under itself or its subcategory");
+                    }
                     Category parent = categoryRepository.findActiveById(categoryDTO.getParentId())
                             .orElseThrow(() -> new RuntimeException("Parent category not found with ID: " + categoryDTO.getParentId()));
                     category.setParent(parent);
@@ -80,16 +160,45 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category savedCategory = categoryRepository.save(category);
+
+        Long newParentId = savedCategory.getParent() != null ? savedCategory.getParent().getId() : null;
+        if (isNew) {
+            if (newParentId != null) {
+                categoryClosureRepository.insertUnderParent(savedCategory.getId(), newParentId);
+            } else {
+                categoryClosureRepository.insertRoot(savedCategory.getId());
+            }
+        } else if (!Objects.equals(oldParentId, newParentId)) {
+            // Chuyển cả cây con sang cha mới
+            categoryClosureRepository.detachSubtree(savedCategory.getId());
+            if (newParentId != null) {
+                categoryClosureRepository.attachSubtree(savedCategory.getId(), newParentId);
+            }
+        }
+        invalidateTree();
+        // Thẻ thuốc trong snapshot danh mục chứa tên các danh mục của thuốc
+        if (!isNew) {
+            catalogService.markDirty(medicineCategoryRepository.findActiveMedicineIdsByCategoryIds(
+                    List.of(savedCategory.getId())));
+        }
+
         return categoryMapper.toGetCategoryDTO(savedCategory);
     }
 
     @Override
+    @Transactional
     public String deleteByList(List<Long> ids) {
         for (Long id : ids) {
             if (categoryRepository.existsById(id)) {
                 categoryRepository.softDelete(id);
+                // Danh mục con vẫn giữ liên kết với các tổ tiên phía trên danh mục bị xóa
+                categoryClosureRepository.deleteByCategoryId(id);
             }
         }
+        invalidateTree();
+        if (!ids.isEmpty()) {
+            catalogService.markDirty(medicineCategoryRepository.findActiveMedicineIdsByCategoryIds(ids));
+        }
         return "Đã xóa thành công " + ids.size() + " danh mục.";
     }
 
@@ -117,4 +226,47 @@ public class CategoryServiceImpl implements CategoryService {
     public String uploadCategoryImage(MultipartFile file) throws IOException {
         return s3Service.uploadFile(file);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<CategoryDTO.CategoryTreeDTO> getTree() {
+        return currentTree().getRoots();
+    }
+
+    @Override
+    public Set<Long> findSelfAndDescendantIds(Long categoryId) {
+        return currentTree().selfAndDescendants(categoryId);
+    }
+
+    private CategoryTree currentTree() {
+        CategoryTree current = tree;
+        if (current == null) {
+            long generation = treeGeneration.get();
+            current = CategoryTree.of(categoryRepository.findActiveTreeRows(), categoryClosureRepository.findAllLinks());
+            synchronized (this) {
+                if (treeGeneration.get() == generation) {
+                    tree = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Xóa cache sau khi transaction commit để lần đọc kế tiếp thấy dữ liệu mới
+    private void invalidateTree() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearTree();
+                }
+            });
+        } else {
+            clearTree();
+        }
+    }
+
+    private synchronized void clearTree() {
+        treeGeneration.incrementAndGet();
+        tree = null;
+    }
+}
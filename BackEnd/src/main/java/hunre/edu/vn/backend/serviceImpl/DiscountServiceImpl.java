@@ -6,14 +6,18 @@ import hunre.edu.vn.backend.entity.Medicine;
 import hunre.edu.vn.backend.mapper.DiscountMapper;
 import hunre.edu.vn.backend.repository.DiscountRepository;
 import hunre.edu.vn.backend.repository.MedicineRepository;
+import hunre.edu.vn.backend.service.CatalogService;
 import hunre.edu.vn.backend.service.DiscountService;
+import hunre.edu.vn.backend.service.PricingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,14 +26,20 @@ public class DiscountServiceImpl implements DiscountService {
     private final DiscountRepository discountRepository;
     private final MedicineRepository medicineRepository;
     private final DiscountMapper discountMapper;
+    private final PricingService pricingService;
+    private final CatalogService catalogService;
 
     @Autowired
     public DiscountServiceImpl(DiscountRepository discountRepository,
                                MedicineRepository medicineRepository,
-                               DiscountMapper discountMapper) {
+                               DiscountMapper discountMapper,
+                               PricingService pricingService,
+                               CatalogService catalogService) {
         this.discountRepository = discountRepository;
         this.medicineRepository = medicineRepository;
         this.discountMapper = discountMapper;
+        this.pricingService = pricingService;
+        this.catalogService = catalogService;
     }
 
     @Override
@@ -65,6 +75,12 @@ public class DiscountServiceImpl implements DiscountService {
             discount.setUpdatedAt(LocalDateTime.now());
         }
 
+        // Giá của cả thuốc cũ lẫn thuốc mới đều có thể thay đổi khi discount được chuyển sang thuốc khác
+        Set<Long> affectedMedicineIds = new HashSet<>();
+        if (discount.getMedicine() != null) {
+            affectedMedicineIds.add(discount.getMedicine().getId());
+        }
+
         // Xử lý medicine relationship
         if (discountDTO.getMedicineId() != null) {
             Medicine medicine = medicineRepository.findActiveById(discountDTO.getMedicineId())
@@ -78,18 +94,38 @@ public class DiscountServiceImpl implements DiscountService {
         discount.setDiscountPercentage(discountDTO.getDiscountPercentage());
         discount.setStartDate(discountDTO.getStartDate());
         discount.setEndDate(discountDTO.getEndDate());
+        discount.setDescription(discountDTO.getDescription());
+        discount.setMaxDiscountAmount(discountDTO.getMaxDiscountAmount());
+        discount.setMinPurchaseAmount(discountDTO.getMinPurchaseAmount());
+        discount.setUsageLimit(discountDTO.getUsageLimit());
+        if (discount.getCurrentUsageCount() == null) {
+            discount.setCurrentUsageCount(0);
+        }
 
         Discount savedDiscount = discountRepository.save(discount);
+        if (savedDiscount.getMedicine() != null) {
+            affectedMedicineIds.add(savedDiscount.getMedicine().getId());
+        }
+        pricingService.invalidate();
+        catalogService.markDirty(affectedMedicineIds);
         return discountMapper.toGetDiscountDTO(savedDiscount);
     }
 
     @Override
+    @Transactional
     public String deleteByList(List<Long> ids) {
+        Set<Long> affectedMedicineIds = new HashSet<>();
         for (Long id : ids) {
-            if (discountRepository.existsById(id)) {
+            Optional<Discount> discount = discountRepository.findActiveById(id);
+            if (discount.isPresent()) {
+                if (discount.get().getMedicine() != null) {
+                    affectedMedicineIds.add(discount.get().getMedicine().getId());
+                }
                 discountRepository.softDelete(id);
             }
         }
+        pricingService.invalidate();
+        catalogService.markDirty(affectedMedicineIds);
         return "Đã xóa thành công " + ids.size() + " discount";
     }
 
@@ -0,0 +1,313 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.dto.EmailOutboxDTO;
+import hunre.edu.vn.backend.entity.EmailOutbox;
+import hunre.edu.vn.backend.entity.EmailOutboxStatus;
+import hunre.edu.vn.backend.entity.EmailType;
+import hunre.edu.vn.backend.exception.ServiceException;
+import hunre.edu.vn.backend.repository.EmailOutboxRepository;
+import hunre.edu.vn.backend.service.EmailOutboxService;
+import hunre.edu.vn.backend.service.EmailService;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gửi email qua bảng outbox.
+ * Nghiệp vụ chỉ ghi một dòng vào email_outbox trong transaction của mình; bộ quét định kỳ nhận các dòng đến hạn
+ * bằng UPDATE có điều kiện (an toàn khi chạy nhiều instance) và giao từng lô cho pool worker.
+ * Mỗi lô được dựng xong rồi gửi qua một kết nối SMTP; email lỗi được thử lại với thời gian chờ tăng theo cấp số nhân.
+ */
+@Service
+public class EmailOutboxServiceImpl implements EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxServiceImpl.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final JavaMailSender mailSender;
+    private final ThreadPoolTaskExecutor mailExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${app.mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-batches-per-poll:10}")
+    private int maxBatchesPerPoll;
+
+    // Worker không xong trong thời gian này (ví dụ ứng dụng dừng giữa chừng) thì lô được nhận lại
+    @Value("${app.mail.outbox.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.backoff-base-ms:30000}")
+    private long backoffBaseMs;
+
+    @Value("${app.mail.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    private final AtomicLong sentSinceStartup = new AtomicLong();
+    private final AtomicLong failedAttemptsSinceStartup = new AtomicLong();
+
+    public EmailOutboxServiceImpl(EmailOutboxRepository emailOutboxRepository,
+                                  EmailService emailService,
+                                  JavaMailSender mailSender,
+                                  @Qualifier("mailExecutor") ThreadPoolTaskExecutor mailExecutor,
+                                  PlatformTransactionManager transactionManager) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailService = emailService;
+        this.mailSender = mailSender;
+        this.mailExecutor = mailExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    @Transactional
+    public void enqueueOrderConfirmation(Long orderId, String recipient, String recipientName) {
+        enqueue(EmailType.ORDER_CONFIRMATION, orderId, recipient, recipientName);
+    }
+
+    @Override
+    @Transactional
+    public void enqueueServiceBookingConfirmation(Long serviceBookingId, String recipient, String recipientName) {
+        enqueue(EmailType.SERVICE_BOOKING_CONFIRMATION, serviceBookingId, recipient, recipientName);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.mail.outbox.poll-ms:2000}",
+            fixedDelayString = "${app.mail.outbox.poll-ms:2000}")
+    public void drain() {
+        try {
+            ThreadPoolExecutor pool = mailExecutor.getThreadPoolExecutor();
+            for (int batch = 0; batch < maxBatchesPerPoll; batch++) {
+                // Hàng đợi của pool đầy thì để lại cho lần quét sau, không nhận thêm
+                if (pool.getQueue().remainingCapacity() == 0) {
+                    return;
+                }
+
+                List<Long> claimed = transactionTemplate.execute(status -> claimBatch());
+                if (claimed == null || claimed.isEmpty()) {
+                    return;
+                }
+
+                try {
+                    mailExecutor.execute(() -> sendBatch(claimed));
+                } catch (RejectedExecutionException e) {
+                    transactionTemplate.executeWithoutResult(status ->
+                            emailOutboxRepository.unclaim(claimed, LocalDateTime.now()));
+                    return;
+                }
+
+                if (claimed.size() < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Lỗi khi quét hàng đợi email: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public EmailOutboxDTO.StatsDTO getStats() {
+        Map<EmailOutboxStatus, Long> counts = new EnumMap<>(EmailOutboxStatus.class);
+        for (Object[] row : emailOutboxRepository.countByStatus()) {
+            counts.put((EmailOutboxStatus) row[0], ((Number) row[1]).longValue());
+        }
+
+        LocalDateTime oldestQueued = emailOutboxRepository.findOldestQueuedCreatedAt();
+        ThreadPoolExecutor pool = mailExecutor.getThreadPoolExecutor();
+        return EmailOutboxDTO.StatsDTO.builder()
+                .pending(counts.getOrDefault(EmailOutboxStatus.PENDING, 0L))
+                .sending(counts.getOrDefault(EmailOutboxStatus.SENDING, 0L))
+                .sent(counts.getOrDefault(EmailOutboxStatus.SENT, 0L))
+                .failed(counts.getOrDefault(EmailOutboxStatus.FAILED, 0L))
+                .oldestQueuedAgeSeconds(oldestQueued != null
+                        ? Math.max(0, Duration.between(oldestQueued, LocalDateTime.now()).getSeconds()) : 0L)
+                .activeWorkers(pool.getActiveCount())
+                .queuedBatches(pool.getQueue().size())
+                .sentSinceStartup(sentSinceStartup.get())
+                .failedAttemptsSinceStartup(failedAttemptsSinceStartup.get())
+                .build();
+    }
+
+    private void enqueue(EmailType type, Long referenceId, String recipient, String recipientName) {
+        if (recipient == null || recipient.isBlank()) {
+            logger.warn("Bỏ qua email {} cho {} vì không có địa chỉ nhận", type, referenceId);
+            return;
+        }
+        // Mỗi đơn/lượt đặt chỉ có một email xác nhận, kể cả khi client gọi lại
+        if (emailOutboxRepository.existsByTypeAndReferenceIdAndIsDeletedFalse(type, referenceId)) {
+            logger.debug("Email {} cho {} đã có trong hàng đợi", type, referenceId);
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutbox email = new EmailOutbox();
+        email.setCreatedAt(now);
+        email.setUpdatedAt(now);
+        email.setType(type);
+        email.setReferenceId(referenceId);
+        email.setRecipient(recipient);
+        email.setRecipientName(recipientName);
+        email.setStatus(EmailOutboxStatus.PENDING);
+        email.setAttempts(0);
+        email.setNextAttemptAt(now);
+        emailOutboxRepository.save(email);
+    }
+
+    private List<Long> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plus(Duration.ofMillis(leaseMs));
+        List<Long> claimed = new ArrayList<>();
+        for (Long id : emailOutboxRepository.findDueIds(now, PageRequest.of(0, batchSize))) {
+            if (emailOutboxRepository.claim(id, now, leaseUntil) == 1) {
+                claimed.add(id);
+            }
+        }
+        return claimed;
+    }
+
+    private void sendBatch(List<Long> ids) {
+        // MimeMessage không định nghĩa equals nên map theo định danh đối tượng
+        Map<MimeMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : emailOutboxRepository.findAllById(ids)) {
+            // Các lần nhận lại sau khi hết hạn nhận cũng được tính, email vượt số lần thử thì dừng hẳn
+            if (attemptsOf(email) > maxAttempts) {
+                markFailed(email, "Vượt quá " + maxAttempts + " lần thử");
+                continue;
+            }
+            try {
+                messages.put(readOnlyTransaction.execute(status -> buildMessage(email)), email);
+            } catch (Exception e) {
+                handleFailure(email, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Set<MimeMessage> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            // JavaMailSender mở một kết nối SMTP cho cả mảng thư
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            e.getFailedMessages().forEach((message, cause) -> {
+                EmailOutbox email = messages.get(message);
+                if (email != null) {
+                    failed.add((MimeMessage) message);
+                    handleFailure(email, cause);
+                }
+            });
+            if (failed.isEmpty()) {
+                messages.values().forEach(email -> handleFailure(email, e));
+                return;
+            }
+        } catch (MailException e) {
+            // Lỗi kết nối hoặc xác thực: không thư nào trong lô được gửi
+            messages.values().forEach(email -> handleFailure(email, e));
+            return;
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        messages.forEach((message, email) -> {
+            if (!failed.contains(message)) {
+                sentIds.add(email.getId());
+            }
+        });
+        if (!sentIds.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    emailOutboxRepository.markSent(sentIds, LocalDateTime.now()));
+            sentSinceStartup.addAndGet(sentIds.size());
+        }
+    }
+
+    private MimeMessage buildMessage(EmailOutbox email) {
+        try {
+            switch (email.getType()) {
+                case ORDER_CONFIRMATION:
+                    return emailService.buildOrderConfirmationMessage(
+                            email.getReferenceId(), email.getRecipient(), email.getRecipientName());
+                case SERVICE_BOOKING_CONFIRMATION:
+                    return emailService.buildServiceBookingConfirmationMessage(
+                            email.getReferenceId(), email.getRecipient());
+                default:
+                    throw new ServiceException("Loại email không được hỗ trợ: " + email.getType());
+            }
+        } catch (MessagingException e) {
+            throw new ServiceException("Không thể dựng email " + email.getType() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void handleFailure(EmailOutbox email, Exception cause) {
+        failedAttemptsSinceStartup.incrementAndGet();
+        // Lần nhận đã tăng attempts nên bản ghi đọc sau khi nhận đã tính cả lần thử này
+        int attempt = attemptsOf(email);
+        String error = truncate(cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName());
+
+        try {
+            if (attempt >= maxAttempts) {
+                markFailed(email, error);
+            } else {
+                LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(attempt));
+                transactionTemplate.executeWithoutResult(status ->
+                        emailOutboxRepository.markRetry(email.getId(), nextAttemptAt, error));
+                logger.warn("Email {} cho {} lỗi lần {}, thử lại lúc {}: {}",
+                        email.getType(), email.getReferenceId(), attempt, nextAttemptAt, error);
+            }
+        } catch (Exception e) {
+            // Không ghi được trạng thái thì bản ghi sẽ được nhận lại khi hết hạn nhận
+            logger.error("Lỗi khi cập nhật trạng thái email {}: {}", email.getId(), e.getMessage(), e);
+        }
+    }
+
+    private void markFailed(EmailOutbox email, String error) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.markFailed(email.getId(), error));
+            logger.error("Email {} cho {} ({}) thất bại sau {} lần: {}",
+                    email.getType(), email.getReferenceId(), email.getRecipient(), attemptsOf(email), error);
+        } catch (Exception e) {
+            logger.error("Lỗi khi cập nhật trạng thái email {}: {}", email.getId(), e.getMessage(), e);
+        }
+    }
+
+    private static int attemptsOf(EmailOutbox email) {
+        return email.getAttempts() != null ? email.getAttempts() : 0;
+    }
+
+    // Chờ gấp đôi sau mỗi lần lỗi, có trần và thêm tối đa 20% ngẫu nhiên để các email lỗi cùng lúc không thử lại cùng lúc
+    private Duration backoff(int attempt) {
+        long delay = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1));
+    }
+
+    private String truncate(String message) {
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -106,6 +106,17 @@ public class EmailServiceImpl implements EmailService {
 
     @Override
     public void sendOrderConfirmationEmail(Long orderId, String userEmail, String userName) throws MessagingException {
+        try {
+            mailSender.send(buildOrderConfirmationMessage(orderId, userEmail, userName));
+            logger.info("Đã gửi email xác nhận đơn hàng {} cho {}", orderId, userEmail);
+        } catch (Exception e) {
+            logger.error("Lỗi khi gửi email xác nhận đơn hàng: {}", e.getMessage(), e);
+            throw new ServiceException("Không thể gửi email xác nhận đơn hàng: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public MimeMessage buildOrderConfirmationMessage(Long orderId, String userEmail, String userName) throws MessagingException {
         try {
             Order order = orderRepository.findById(orderId)
                     .orElseThrow(() -> new RuntimeException("Order not found"));
@@ -133,8 +144,7 @@ public class EmailServiceImpl implements EmailService {
                 throw new ServiceException("Template email không khớp với dữ liệu: " + e.getMessage(), e);
             }
 
-            // Chuẩn bị và gửi email
-            sendEmailWithAttachment(
+            return buildEmailWithAttachment(
                     userEmail,
                     "Xác nhận đơn hàng #" + order.getOrderCode(),
                     "order-confirmation-template",
@@ -142,31 +152,17 @@ public class EmailServiceImpl implements EmailService {
                     "HoaDon_" + order.getOrderCode() + ".pdf",
                     () -> generateOrderInvoicePdf(orderDTO, userName, userEmail)
             );
-
-            logger.info("Đã gửi email xác nhận đơn hàng #{} cho {}", order.getOrderCode(), userEmail);
+        } catch (ServiceException | ResourceNotFoundException e) {
+            throw e;
         } catch (Exception e) {
-            logger.error("Lỗi khi gửi email xác nhận đơn hàng: {}", e.getMessage(), e);
-            throw new ServiceException("Không thể gửi email xác nhận đơn hàng: " + e.getMessage(), e);
+            throw new ServiceException("Không thể tạo email xác nhận đơn hàng: " + e.getMessage(), e);
         }
     }
 
     @Override
     public void sendServiceBookingConfirmationEmail(User user, ServiceBooking serviceBooking) throws MessagingException {
         try {
-            // Tải lại service booking để đảm bảo có đầy đủ thông tin
-            ServiceBooking fullServiceBooking = serviceBookingRepository.findById(serviceBooking.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đặt dịch vụ với ID: " + serviceBooking.getId()));
-
-            // Chuẩn bị và gửi email
-            sendEmailWithAttachment(
-                    user.getEmail(),
-                    "Xác nhận đặt dịch vụ",
-                    "service-booking-confirmation-template",
-                    prepareServiceBookingContext(user, fullServiceBooking),
-                    "XacNhanDichVu_" + serviceBooking.getId() + ".pdf",
-                    () -> generateServiceBookingPdf(fullServiceBooking)
-            );
-
+            mailSender.send(buildServiceBookingConfirmationMessage(serviceBooking.getId(), user.getEmail()));
             logger.info("Đã gửi email xác nhận dịch vụ #{} cho {}", serviceBooking.getId(), user.getEmail());
         } catch (Exception e) {
             logger.error("Lỗi khi gửi email xác nhận dịch vụ: {}", e.getMessage(), e);
@@ -174,6 +170,22 @@ public class EmailServiceImpl implements EmailService {
         }
     }
 
+    @Override
+    public MimeMessage buildServiceBookingConfirmationMessage(Long serviceBookingId, String userEmail) throws MessagingException {
+        // Tải lại service booking để đảm bảo có đầy đủ thông tin
+        ServiceBooking serviceBooking = serviceBookingRepository.findById(serviceBookingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đặt dịch vụ với ID: " + serviceBookingId));
+
+        return buildEmailWithAttachment(
+                userEmail,
+                "Xác nhận đặt dịch vụ",
+                "service-booking-confirmation-template",
+                prepareServiceBookingContext(serviceBooking.getPatient().getUser(), serviceBooking),
+                "XacNhanDichVu_" + serviceBookingId + ".pdf",
+                () -> generateServiceBookingPdf(serviceBooking)
+        );
+    }
+
     @Override
     public void sendPasswordResetEmail(User user, String resetToken) throws MessagingException {
         try {
@@ -228,9 +240,9 @@ public class EmailServiceImpl implements EmailService {
     }
 
     /**
-     * Gửi email với tập tin đính kèm được tạo bởi pdfGenerator
+     * Dựng email với tập tin đính kèm được tạo bởi pdfGenerator
      */
-    private void sendEmailWithAttachment(
+    private MimeMessage buildEmailWithAttachment(
             String toEmail,
             String subject,
             String templateName,
@@ -268,13 +280,7 @@ public class EmailServiceImpl implements EmailService {
             throw new ServiceException("Không thể tạo PDF đính kèm", e);
         }
 
-        // Gửi email
-        try {
-            mailSender.send(message);
-        } catch (Exception e) {
-            logger.error("Lỗi gửi email: {}", e.getMessage(), e);
-            throw new MessagingException("Không thể gửi email", e);
-        }
+        return message;
     }
 
     /**
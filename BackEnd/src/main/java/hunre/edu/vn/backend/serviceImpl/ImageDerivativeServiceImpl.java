@@ -0,0 +1,253 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.entity.ImageDerivativeFailure;
+import hunre.edu.vn.backend.event.MediaUploadedEvent;
+import hunre.edu.vn.backend.repository.BrandRepository;
+import hunre.edu.vn.backend.repository.CategoryRepository;
+import hunre.edu.vn.backend.repository.ImageDerivativeFailureRepository;
+import hunre.edu.vn.backend.repository.MedicineMediaRepository;
+import hunre.edu.vn.backend.repository.UserRepository;
+import hunre.edu.vn.backend.service.CatalogService;
+import hunre.edu.vn.backend.service.ImageDerivativeService;
+import jakarta.annotation.PreDestroy;
+import net.coobird.thumbnailator.Thumbnails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tạo ảnh thu nhỏ theo các chiều rộng cấu hình cho ảnh vừa tải lên, trên một pool nền.
+ * Ảnh thu nhỏ được lưu cạnh ảnh gốc (cùng khóa, thêm hậu tố _w{width}) và danh sách URL
+ * được ghi vào các bản ghi đang dùng ảnh gốc đó.
+ */
+@Service
+public class ImageDerivativeServiceImpl implements ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeServiceImpl.class);
+
+    // Bản ghi có thể chưa commit khi ảnh xử lý xong (ảnh tải lên trước khi lưu), thử ghi lại sau các khoảng này
+    private static final long[] RECORD_RETRY_DELAYS_SECONDS = {2, 10, 30};
+    private static final int SWEEP_BATCH_SIZE = 50;
+
+    private final S3Service s3Service;
+    private final MedicineMediaRepository medicineMediaRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final UserRepository userRepository;
+    private final CatalogService catalogService;
+    private final ImageDerivativeFailureRepository imageDerivativeFailureRepository;
+    private final Executor imageDerivativeExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.media.derivative-widths:200,400,800}")
+    private int[] widths;
+
+    // webp chỉ được dùng khi có ImageIO writer cho webp trên classpath, ngược lại dùng jpg/png
+    @Value("${app.media.derivative-format:webp}")
+    private String preferredFormat;
+
+    @Value("${app.media.derivative-quality:0.8}")
+    private double quality;
+
+    // Ảnh lỗi (tải/ghi S3 thất bại) được thử lại với thời gian chờ tăng gấp đôi sau mỗi lần
+    @Value("${app.media.derivative-max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.media.derivative-retry-base-ms:300000}")
+    private long retryBaseMillis;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-derivative-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ImageDerivativeServiceImpl(S3Service s3Service,
+                                      MedicineMediaRepository medicineMediaRepository,
+                                      BrandRepository brandRepository,
+                                      CategoryRepository categoryRepository,
+                                      UserRepository userRepository,
+                                      CatalogService catalogService,
+                                      ImageDerivativeFailureRepository imageDerivativeFailureRepository,
+                                      @Qualifier("imageDerivativeExecutor") Executor imageDerivativeExecutor,
+                                      PlatformTransactionManager transactionManager) {
+        this.s3Service = s3Service;
+        this.medicineMediaRepository = medicineMediaRepository;
+        this.brandRepository = brandRepository;
+        this.categoryRepository = categoryRepository;
+        this.userRepository = userRepository;
+        this.catalogService = catalogService;
+        this.imageDerivativeFailureRepository = imageDerivativeFailureRepository;
+        this.imageDerivativeExecutor = imageDerivativeExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+
+    // Trong transaction thì chờ commit; tải lên ngoài transaction thì xử lý ngay
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMediaUploaded(MediaUploadedEvent event) {
+        if (event.getContentType() != null && event.getContentType().startsWith("image/")) {
+            requestDerivatives(event.getUrl());
+        }
+    }
+
+    @Override
+    public void requestDerivatives(String originalUrl) {
+        if (originalUrl == null || !inFlight.add(originalUrl)) {
+            return;
+        }
+
+        try {
+            imageDerivativeExecutor.execute(() -> process(originalUrl));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(originalUrl);
+            logger.warn("Hàng đợi tạo ảnh thu nhỏ đã đầy, {} sẽ được xử lý ở lần quét sau", originalUrl);
+        }
+    }
+
+    /**
+     * Nhặt lại các ảnh chưa có ảnh thu nhỏ: ảnh cũ, tác vụ bị từ chối, bản ghi commit quá muộn
+     * và ảnh lỗi đã đến hạn thử lại
+     */
+    @Scheduled(initialDelayString = "${app.media.derivative-sweep-ms:300000}",
+            fixedDelayString = "${app.media.derivative-sweep-ms:300000}")
+    public void sweep() {
+        Pageable batch = PageRequest.of(0, SWEEP_BATCH_SIZE);
+        LocalDateTime now = LocalDateTime.now();
+        List<String> pending = new ArrayList<>();
+        pending.addAll(medicineMediaRepository.findMediaUrlsWithoutMediaVariants(now, maxAttempts, batch));
+        pending.addAll(brandRepository.findImagesWithoutImageVariants(now, maxAttempts, batch));
+        pending.addAll(categoryRepository.findImagesWithoutImageVariants(now, maxAttempts, batch));
+        pending.addAll(userRepository.findAvatarsWithoutAvatarVariants(now, maxAttempts, batch));
+        pending.forEach(this::requestDerivatives);
+    }
+
+    private void process(String originalUrl) {
+        Map<Integer, String> variants;
+        try {
+            variants = generate(originalUrl);
+        } catch (Exception e) {
+            // Lỗi có thể chỉ tạm thời: giữ cột variants là NULL và hẹn lần thử kế tiếp
+            recordFailure(originalUrl, e);
+            inFlight.remove(originalUrl);
+            return;
+        }
+        record(originalUrl, variants, 0);
+    }
+
+    private void recordFailure(String originalUrl, Exception error) {
+        try {
+            ImageDerivativeFailure failure = transactionTemplate.execute(status -> {
+                ImageDerivativeFailure marker = imageDerivativeFailureRepository.findById(originalUrl)
+                        .orElseGet(() -> ImageDerivativeFailure.builder().originalUrl(originalUrl).attempts(0).build());
+                marker.setAttempts(marker.getAttempts() + 1);
+                long delay = retryBaseMillis << Math.min(marker.getAttempts() - 1, 16);
+                marker.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+                String message = String.valueOf(error.getMessage());
+                marker.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+                return imageDerivativeFailureRepository.save(marker);
+            });
+
+            if (failure.getAttempts() >= maxAttempts) {
+                logger.error("Bỏ qua tạo ảnh thu nhỏ cho {} sau {} lần lỗi: {}",
+                        originalUrl, failure.getAttempts(), error.getMessage());
+            } else {
+                logger.warn("Không tạo được ảnh thu nhỏ cho {} (lần {}), thử lại lúc {}: {}",
+                        originalUrl, failure.getAttempts(), failure.getNextAttemptAt(), error.getMessage());
+            }
+        } catch (Exception e) {
+            logger.error("Lỗi khi ghi nhận lỗi tạo ảnh thu nhỏ cho {}: {}", originalUrl, e.getMessage(), e);
+        }
+    }
+
+    private Map<Integer, String> generate(String originalUrl) throws IOException {
+        BufferedImage image;
+        try (InputStream input = s3Service.openFile(originalUrl)) {
+            image = ImageIO.read(input);
+        }
+        if (image == null) {
+            return Collections.emptyMap();
+        }
+
+        String format = outputFormat(image);
+        String key = s3Service.keyOf(originalUrl);
+
+        Map<Integer, String> variants = new TreeMap<>();
+        for (int width : widths) {
+            // Không phóng to ảnh nhỏ hơn kích thước yêu cầu
+            if (width <= 0 || width >= image.getWidth()) {
+                continue;
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Thumbnails.of(image)
+                    .width(width)
+                    .outputFormat(format)
+                    .outputQuality(quality)
+                    .toOutputStream(output);
+            String url = s3Service.uploadBytes(S3Service.derivativeKey(key, width, format), output.toByteArray(),
+                    "image/" + ("jpg".equals(format) ? "jpeg" : format));
+            variants.put(width, url);
+        }
+        return variants;
+    }
+
+    private String outputFormat(BufferedImage image) {
+        if ("webp".equalsIgnoreCase(preferredFormat) && ImageIO.getImageWritersByFormatName("webp").hasNext()) {
+            return "webp";
+        }
+        // JPEG không có kênh alpha, ảnh trong suốt giữ PNG
+        if ("png".equalsIgnoreCase(preferredFormat) || image.getColorModel().hasAlpha()) {
+            return "png";
+        }
+        return "jpg";
+    }
+
+    private void record(String originalUrl, Map<Integer, String> variants, int attempt) {
+        try {
+            Integer updated = transactionTemplate.execute(status -> {
+                int mediaRows = medicineMediaRepository.updateMediaVariantsByUrl(originalUrl, variants);
+                if (mediaRows > 0) {
+                    // Ảnh thuốc nằm trong snapshot danh mục, cần làm mới để trả về URL thu nhỏ
+                    catalogService.markDirty(medicineMediaRepository.findMedicineIdsByMediaUrl(originalUrl));
+                }
+                imageDerivativeFailureRepository.deleteByOriginalUrl(originalUrl);
+                return mediaRows
+                        + brandRepository.updateImageVariantsByUrl(originalUrl, variants)
+                        + categoryRepository.updateImageVariantsByUrl(originalUrl, variants)
+                        + userRepository.updateAvatarVariantsByUrl(originalUrl, variants);
+            });
+
+            if ((updated == null || updated == 0) && attempt < RECORD_RETRY_DELAYS_SECONDS.length) {
+                retryScheduler.schedule(() -> record(originalUrl, variants, attempt + 1),
+                        RECORD_RETRY_DELAYS_SECONDS[attempt], TimeUnit.SECONDS);
+                return;
+            }
+        } catch (Exception e) {
+            logger.error("Lỗi khi ghi ảnh thu nhỏ cho {}: {}", originalUrl, e.getMessage(), e);
+        }
+        inFlight.remove(originalUrl);
+    }
+}
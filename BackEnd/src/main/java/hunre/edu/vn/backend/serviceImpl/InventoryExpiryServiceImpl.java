@@ -0,0 +1,202 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.catalog.ExpiringLotIndex;
+import hunre.edu.vn.backend.dto.AttributeDTO;
+import hunre.edu.vn.backend.entity.Attribute;
+import hunre.edu.vn.backend.event.LotExpiryEvent;
+import hunre.edu.vn.backend.repository.AttributeRepository;
+import hunre.edu.vn.backend.service.CatalogService;
+import hunre.edu.vn.backend.service.InventoryExpiryService;
+import hunre.edu.vn.backend.utils.EntityVersionRegistry;
+import hunre.edu.vn.backend.utils.LotVisibility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Theo dõi hạn sử dụng của các lô thuốc (Attribute) còn hàng.
+ * Các lô hết hạn trong khoảng nhìn trước được nạp vào chỉ mục trong bộ nhớ bằng một truy vấn trên expiry_date;
+ * một hàng đợi ưu tiên theo ngày đến hạn quyết định khi nào phát sự kiện sắp hết hạn và đã hết hạn.
+ * Trạng thái đã thông báo chỉ nằm trong bộ nhớ, khởi động lại có thể phát lại sự kiện cho các lô đang đến hạn.
+ */
+@Service
+public class InventoryExpiryServiceImpl implements InventoryExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryExpiryServiceImpl.class);
+
+    private final AttributeRepository attributeRepository;
+    private final CatalogService catalogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityVersionRegistry entityVersionRegistry;
+    private final LotVisibility lotVisibility;
+
+    @Value("${app.inventory.expiry-horizon-days:90}")
+    private int horizonDays;
+
+    @Value("${app.inventory.near-expiry-days:30}")
+    private int nearExpiryDays;
+
+    private volatile ExpiringLotIndex index = ExpiringLotIndex.empty();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    // Các thông báo chưa phát, thông báo đến hạn sớm nhất nằm ở đầu hàng đợi
+    private final PriorityQueue<PendingNotice> pending = new PriorityQueue<>(
+            Comparator.comparing(PendingNotice::dueDate).thenComparing(notice -> notice.lot().getAttributeId()));
+    // Giai đoạn đã thông báo của từng lô, kèm hạn sử dụng lúc thông báo để nhận ra lô bị sửa hạn
+    private final Map<Long, Announced> announced = new HashMap<>();
+
+    private record PendingNotice(LocalDate dueDate, LotExpiryEvent.Stage stage, AttributeDTO.ExpiringLotDTO lot) {
+    }
+
+    private record Announced(LocalDate expiryDate, LotExpiryEvent.Stage stage) {
+    }
+
+    public InventoryExpiryServiceImpl(AttributeRepository attributeRepository,
+                                      CatalogService catalogService,
+                                      ApplicationEventPublisher eventPublisher,
+                                      EntityVersionRegistry entityVersionRegistry,
+                                      LotVisibility lotVisibility) {
+        this.attributeRepository = attributeRepository;
+        this.catalogService = catalogService;
+        this.eventPublisher = eventPublisher;
+        this.entityVersionRegistry = entityVersionRegistry;
+        this.lotVisibility = lotVisibility;
+    }
+
+    @Override
+    public List<AttributeDTO.ExpiringLotDTO> findExpiring(int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Số ngày phải lớn hơn hoặc bằng 0");
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate until = today.plusDays(days);
+        ExpiringLotIndex current = currentIndex();
+        if (current.covers(until)) {
+            return current.expiringBy(until);
+        }
+
+        // Vượt khoảng nhìn trước của chỉ mục thì truy vấn thẳng, vẫn đi qua chỉ mục expiry_date trong DB
+        return new ArrayList<>(ExpiringLotIndex.of(attributeRepository.findStockedLotsExpiringBy(until), today, until).all());
+    }
+
+    @Override
+    public void invalidate() {
+        markDirtyAfterCommit();
+    }
+
+    @Override
+    public void stockChanged(Collection<Long> attributeIds) {
+        // Lô ngoài chỉ mục không ảnh hưởng tới danh sách sắp hết hạn; lô bán hết rồi được hoàn hàng sẽ trở lại ở lần quét sau
+        ExpiringLotIndex current = index;
+        if (attributeIds.stream().anyMatch(current::contains)) {
+            markDirtyAfterCommit();
+        }
+    }
+
+    private void markDirtyAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.set(true);
+                }
+            });
+        } else {
+            dirty.set(true);
+        }
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.inventory.expiry-scan-initial-delay-ms:60000}",
+            fixedDelayString = "${app.inventory.expiry-scan-ms:3600000}")
+    public synchronized void scan() {
+        try {
+            LocalDate today = LocalDate.now();
+            // Mỗi lần quét dựng lại chỉ mục để cập nhật tồn kho đã thay đổi mà không làm chỉ mục mất hiệu lực
+            dirty.set(true);
+            currentIndex();
+
+            Set<Long> expiredMedicineIds = new HashSet<>();
+            int nearExpiry = 0;
+            while (!pending.isEmpty() && !pending.peek().dueDate().isAfter(today)) {
+                PendingNotice notice = pending.poll();
+                eventPublisher.publishEvent(new LotExpiryEvent(notice.stage(), notice.lot()));
+                announced.put(notice.lot().getAttributeId(), new Announced(notice.lot().getExpiryDate(), notice.stage()));
+                if (notice.stage() == LotExpiryEvent.Stage.EXPIRED) {
+                    expiredMedicineIds.add(notice.lot().getMedicineId());
+                } else {
+                    nearExpiry++;
+                }
+            }
+
+            // Lô vừa hết hạn bị ẩn khỏi danh mục bán hàng, snapshot cần lọc lại thuộc tính của thuốc
+            if (lotVisibility.isHidingExpiredLots() && !expiredMedicineIds.isEmpty()) {
+                // Không có lệnh ghi nào nên ETag danh mục phải được đổi thủ công
+                catalogService.markDirty(expiredMedicineIds);
+                entityVersionRegistry.bump(Attribute.class);
+            }
+            if (nearExpiry > 0 || !expiredMedicineIds.isEmpty()) {
+                logger.info("Quét hạn sử dụng: {} lô sắp hết hạn, {} thuốc có lô vừa hết hạn",
+                        nearExpiry, expiredMedicineIds.size());
+            }
+        } catch (Exception e) {
+            logger.error("Lỗi khi quét hạn sử dụng lô thuốc: {}", e.getMessage(), e);
+        }
+    }
+
+    // Dựng lại chỉ mục khi tập lô thay đổi, ở mỗi lần quét hoặc khi sang ngày mới (số ngày còn lại thay đổi)
+    private synchronized ExpiringLotIndex currentIndex() {
+        LocalDate today = LocalDate.now();
+        if (!dirty.get() && index.getBuiltOn().equals(today)) {
+            return index;
+        }
+
+        dirty.set(false);
+        try {
+            LocalDate horizon = today.plusDays(Math.max(horizonDays, nearExpiryDays));
+            index = ExpiringLotIndex.of(attributeRepository.findStockedLotsExpiringBy(horizon), today, horizon);
+            rebuildPending(index);
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+        return index;
+    }
+
+    private void rebuildPending(ExpiringLotIndex current) {
+        pending.clear();
+        Map<Long, Announced> retained = new HashMap<>();
+
+        for (AttributeDTO.ExpiringLotDTO lot : current.all()) {
+            Announced previous = announced.get(lot.getAttributeId());
+            // Lô bị sửa hạn sử dụng thì thông báo lại từ đầu
+            if (previous != null && !previous.expiryDate().equals(lot.getExpiryDate())) {
+                previous = null;
+            }
+            if (previous != null) {
+                retained.put(lot.getAttributeId(), previous);
+            }
+
+            if (previous == null && !Boolean.TRUE.equals(lot.getIsExpired())) {
+                pending.add(new PendingNotice(lot.getExpiryDate().minusDays(nearExpiryDays), LotExpiryEvent.Stage.NEAR_EXPIRY, lot));
+            }
+            if (previous == null || previous.stage() == LotExpiryEvent.Stage.NEAR_EXPIRY) {
+                pending.add(new PendingNotice(lot.getExpiryDate().plusDays(1), LotExpiryEvent.Stage.EXPIRED, lot));
+            }
+        }
+
+        // Lô đã bán hết hoặc bị xóa không còn trong chỉ mục, bỏ trạng thái của chúng
+        announced.clear();
+        announced.putAll(retained);
+    }
+}
@@ -10,6 +10,7 @@ import hunre.edu.vn.backend.mapper.MedicineCategoryMapper;
 import hunre.edu.vn.backend.repository.CategoryRepository;
 import hunre.edu.vn.backend.repository.MedicineCategoryRepository;
 import hunre.edu.vn.backend.repository.MedicineRepository;
+import hunre.edu.vn.backend.service.CatalogService;
 import hunre.edu.vn.backend.service.MedicineCategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -28,18 +29,21 @@ public class MedicineCategoryServiceImpl implements MedicineCategoryService {
     private final CategoryRepository categoryRepository;
     private final MedicineCategoryMapper medicineCategoryMapper;
     private final CategoryMapper categoryMapper;
+    private final CatalogService catalogService;
 
     @Autowired
     public MedicineCategoryServiceImpl(
             MedicineCategoryRepository medicineCategoryRepository,
             MedicineRepository medicineRepository,
             CategoryRepository categoryRepository,
-            MedicineCategoryMapper medicineCategoryMapper, CategoryMapper categoryMapper) {
+            MedicineCategoryMapper medicineCategoryMapper, CategoryMapper categoryMapper,
+            CatalogService catalogService) {
         this.medicineCategoryRepository = medicineCategoryRepository;
         this.medicineRepository = medicineRepository;
         this.categoryRepository = categoryRepository;
         this.medicineCategoryMapper = medicineCategoryMapper;
         this.categoryMapper = categoryMapper;
+        this.catalogService = catalogService;
     }
 
     @Override
@@ -89,6 +93,7 @@ public class MedicineCategoryServiceImpl implements MedicineCategoryService {
         medicineCategory.setCategory(category);
 
         MedicineCategory savedMedicineCategory = medicineCategoryRepository.save(medicineCategory);
+        catalogService.markDirty(List.of(medicine.getId()));
         return medicineCategoryMapper.toGetMedicineCategoryDTO(savedMedicineCategory);
     }
 
@@ -0,0 +1,94 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.entity.Medicine;
+import hunre.edu.vn.backend.repository.MedicineRepository;
+import hunre.edu.vn.backend.service.CatalogService;
+import hunre.edu.vn.backend.service.MedicineInventoryService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Duy trì các cột tổng hợp total_stock, min_price, max_price trên bảng medicines
+ * thay cho các subquery @Formula chạy lại mỗi lần tải thuốc.
+ */
+@Service
+public class MedicineInventoryServiceImpl implements MedicineInventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MedicineInventoryServiceImpl.class);
+    private static final int MEDICINE_ID_BATCH_SIZE = 1000;
+
+    private final MedicineRepository medicineRepository;
+    private final CatalogService catalogService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public MedicineInventoryServiceImpl(MedicineRepository medicineRepository, CatalogService catalogService) {
+        this.medicineRepository = medicineRepository;
+        this.catalogService = catalogService;
+    }
+
+    @Override
+    @Transactional
+    public void refreshStockAndPrices(Collection<Long> medicineIds) {
+        List<Long> ids = medicineIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        for (int from = 0; from < ids.size(); from += MEDICINE_ID_BATCH_SIZE) {
+            medicineRepository.refreshStockAndPrices(ids.subList(from, Math.min(from + MEDICINE_ID_BATCH_SIZE, ids.size())));
+        }
+        reloadManagedMedicines(ids);
+        catalogService.markDirty(ids);
+    }
+
+    /**
+     * Câu UPDATE hàng loạt không đi qua persistence context, nên các thuốc đã được tải trong transaction hiện tại
+     * vẫn giữ tồn kho/giá cũ. Chỉ đọc lại những thuốc đó thay vì xóa cả persistence context,
+     * để các entity khác mà nơi gọi đang sửa (đơn hàng, thuộc tính) vẫn được quản lý
+     */
+    private void reloadManagedMedicines(List<Long> ids) {
+        for (Long id : ids) {
+            Medicine medicine = entityManager.getReference(Medicine.class, id);
+            if (Hibernate.isInitialized(medicine)) {
+                entityManager.refresh(medicine);
+            }
+        }
+    }
+
+    // Chạy khi khởi động để điền giá trị cho dữ liệu cũ, sau đó đối soát hằng đêm
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.inventory.rebuild-cron:0 30 3 * * *}")
+    @Transactional
+    public void reconcile() {
+        rebuildStockAndPrices();
+    }
+
+    @Override
+    @Transactional
+    public int rebuildStockAndPrices() {
+        List<Long> staleIds = medicineRepository.findIdsWithStaleStockOrPrices();
+        if (staleIds.isEmpty()) {
+            return 0;
+        }
+
+        logger.warn("Phát hiện {} thuốc có tồn kho/giá tổng hợp bị lệch, đang tính lại", staleIds.size());
+        refreshStockAndPrices(staleIds);
+        return staleIds.size();
+    }
+}
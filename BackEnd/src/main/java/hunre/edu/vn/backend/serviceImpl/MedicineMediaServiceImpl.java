@@ -1,40 +1,60 @@
 package hunre.edu.vn.backend.serviceImpl;
 
 import hunre.edu.vn.backend.dto.MedicineMediaDTO;
+import hunre.edu.vn.backend.dto.StorageDTO;
 import hunre.edu.vn.backend.entity.Medicine;
 import hunre.edu.vn.backend.entity.MedicineMedia;
 import hunre.edu.vn.backend.mapper.MedicineMediaMapper;
 import hunre.edu.vn.backend.repository.MedicineMediaRepository;
 import hunre.edu.vn.backend.repository.MedicineRepository;
+import hunre.edu.vn.backend.service.CatalogService;
 import hunre.edu.vn.backend.service.MedicineMediaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 @Service
 public class MedicineMediaServiceImpl implements MedicineMediaService {
 
+    private static final Logger logger = LoggerFactory.getLogger(MedicineMediaServiceImpl.class);
+
     private final MedicineMediaRepository medicineMediaRepository;
     private final MedicineRepository medicineRepository;
     private final MedicineMediaMapper medicineMediaMapper;
     private final S3Service s3Service;
+    private final CatalogService catalogService;
+    private final Executor mediaUploadExecutor;
 
     @Autowired
     public MedicineMediaServiceImpl(
             MedicineMediaRepository medicineMediaRepository,
             MedicineRepository medicineRepository,
-            MedicineMediaMapper medicineMediaMapper, S3Service s3Service) {
+            MedicineMediaMapper medicineMediaMapper, S3Service s3Service,
+            CatalogService catalogService,
+            @Qualifier("mediaUploadExecutor") Executor mediaUploadExecutor) {
         this.medicineMediaRepository = medicineMediaRepository;
         this.medicineRepository = medicineRepository;
         this.s3Service = s3Service;
         this.medicineMediaMapper = medicineMediaMapper;
+        this.catalogService = catalogService;
+        this.mediaUploadExecutor = mediaUploadExecutor;
     }
 
     @Override
@@ -90,6 +110,7 @@ public class MedicineMediaServiceImpl implements MedicineMediaService {
         }
 
         MedicineMedia savedMedia = medicineMediaRepository.save(medicineMedia);
+        catalogService.markDirty(List.of(medicine.getId()));
         return medicineMediaMapper.toGetMedicineMediaDTO(savedMedia);
     }
 
@@ -124,6 +145,108 @@ public class MedicineMediaServiceImpl implements MedicineMediaService {
         }
     }
 
+    @Override
+    @Transactional
+    public List<MedicineMediaDTO.GetMedicineMediaDTO> uploadAndSaveAll(Long medicineId, MultipartFile[] files,
+                                                                       Integer mainImageIndex) throws IOException {
+        if (files == null || files.length == 0) {
+            return new ArrayList<>();
+        }
+
+        // Tải lên song song, giữ thứ tự theo vị trí file để mainImageIndex vẫn đúng
+        List<Integer> positions = new ArrayList<>();
+        List<CompletableFuture<S3Service.UploadResult>> uploads = new ArrayList<>();
+        for (int i = 0; i < files.length; i++) {
+            MultipartFile file = files[i];
+            if (file == null || file.isEmpty()) {
+                continue;
+            }
+            positions.add(i);
+            uploads.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return s3Service.upload(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, mediaUploadExecutor));
+        }
+
+        // Chờ tất cả hoàn tất; nếu có file lỗi thì xóa những file vừa tải lên thành công
+        List<S3Service.UploadResult> results = new ArrayList<>(uploads.size());
+        Throwable failure = null;
+        for (CompletableFuture<S3Service.UploadResult> upload : uploads) {
+            try {
+                results.add(upload.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() != null ? e.getCause() : e;
+                }
+            }
+        }
+        if (failure != null) {
+            deleteQuietly(results);
+            if (failure instanceof UncheckedIOException) {
+                throw new IOException("Không thể tải lên hình ảnh thuốc: " + failure.getCause().getMessage(), failure.getCause());
+            }
+            throw new IOException("Không thể tải lên hình ảnh thuốc: " + failure.getMessage(), failure);
+        }
+        deleteOnRollback(results);
+        List<String> urls = results.stream().map(S3Service.UploadResult::url).collect(Collectors.toList());
+
+        boolean hasNewMainImage = mainImageIndex != null && positions.contains(mainImageIndex);
+        if (hasNewMainImage) {
+            // Một câu UPDATE thay cho việc tìm và lưu lại ảnh chính cũ
+            medicineMediaRepository.clearMainImage(medicineId);
+        }
+
+        Medicine medicine = medicineRepository.findActiveById(medicineId)
+                .orElseThrow(() -> new RuntimeException("Medicine not found with ID: " + medicineId));
+        LocalDateTime now = LocalDateTime.now();
+        List<MedicineMedia> medias = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            MedicineMedia media = new MedicineMedia();
+            media.setMedicine(medicine);
+            media.setMediaUrl(urls.get(i));
+            media.setMainImage(hasNewMainImage && positions.get(i).equals(mainImageIndex));
+            media.setCreatedAt(now);
+            media.setUpdatedAt(now);
+            medias.add(media);
+        }
+
+        List<MedicineMedia> savedMedias = medicineMediaRepository.saveAll(medias);
+        catalogService.markDirty(List.of(medicineId));
+        return savedMedias.stream()
+                .map(medicineMediaMapper::toGetMedicineMediaDTO)
+                .collect(Collectors.toList());
+    }
+
+    // Ảnh đã nằm trên kho lưu trữ nhưng bản ghi không được commit thì phải xóa để không bị mồ côi
+    private void deleteOnRollback(List<S3Service.UploadResult> results) {
+        if (results.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    deleteQuietly(results);
+                }
+            }
+        });
+    }
+
+    // Chỉ xóa object do lần tải này tạo ra, ảnh trùng nội dung đã có sẵn thì vẫn thuộc về bản ghi cũ
+    private void deleteQuietly(List<S3Service.UploadResult> results) {
+        for (S3Service.UploadResult result : results) {
+            try {
+                s3Service.deleteUploaded(result);
+            } catch (Exception e) {
+                logger.warn("Không xóa được ảnh {} sau khi lưu thất bại: {}", result.url(), e.getMessage());
+            }
+        }
+    }
+
     @Override
     @Transactional
     public String deleteAllMediaByMedicineId(Long medicineId) {
@@ -172,4 +295,9 @@ public class MedicineMediaServiceImpl implements MedicineMediaService {
         return medicineMediaRepository.findMainImageByMedicineId(medicineId)
                 .map(medicineMediaMapper::toGetMedicineMediaDTO);
     }
-}
\ No newline at end of file
+
+    @Override
+    public StorageDTO.CacheStatsDTO getStorageCacheStats() {
+        return s3Service.getCacheStats();
+    }
+}
@@ -0,0 +1,263 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.entity.MedicineSalesCounter;
+import hunre.edu.vn.backend.entity.OrderStatus;
+import hunre.edu.vn.backend.repository.MedicineSalesCounterRepository;
+import hunre.edu.vn.backend.repository.OrderDetailRepository;
+import hunre.edu.vn.backend.service.MedicineSalesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bộ đếm số lượng bán theo thuốc.
+ * Bảng medicine_sales_counters được cập nhật trong cùng transaction với chi tiết đơn hàng,
+ * bản sao trong bộ nhớ chỉ được cập nhật sau khi transaction commit và giữ sẵn top-K
+ * để trả về danh sách bán chạy mà không cần truy vấn SUM.
+ * Mỗi lần tính lại tăng thế hệ của bản sao; delta thuộc thế hệ cũ đã nằm trong kết quả tính lại nên bị bỏ qua.
+ * Kết quả tính lại chỉ được đưa vào bộ nhớ sau khi transaction commit; trong lúc chờ, delta của thế hệ mới được giữ lại
+ * và cộng vào sau khi thay bản sao (hoặc cộng vào bản sao cũ nếu lần tính lại bị rollback).
+ */
+@Service
+public class MedicineSalesServiceImpl implements MedicineSalesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MedicineSalesServiceImpl.class);
+
+    private final MedicineSalesCounterRepository counterRepository;
+    private final OrderDetailRepository orderDetailRepository;
+
+    @Value("${app.sales.top-k:50}")
+    private int topK;
+
+    private final Map<Long, Long> quantities = new ConcurrentHashMap<>();
+    private final Object topLock = new Object();
+    private volatile List<Long> topMedicineIds = Collections.emptyList();
+    // Thế hệ gắn cho delta mới, tăng trong transaction tính lại (trước khi commit)
+    private volatile long generation = 0;
+    // Thế hệ của bản sao đang nằm trong bộ nhớ: delta thuộc thế hệ nhỏ hơn đã nằm trong bản sao
+    private long snapshotGeneration = 0;
+    // Thế hệ của lần tính lại chưa commit, 0 nếu không có
+    private long pendingGeneration = 0;
+    private final List<PendingDelta> pendingDeltas = new ArrayList<>();
+
+    public MedicineSalesServiceImpl(MedicineSalesCounterRepository counterRepository,
+                                    OrderDetailRepository orderDetailRepository) {
+        this.counterRepository = counterRepository;
+        this.orderDetailRepository = orderDetailRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void loadCounters() {
+        List<MedicineSalesCounter> counters = counterRepository.findAllActive();
+        if (counters.isEmpty()) {
+            rebuildCounters();
+            return;
+        }
+
+        Map<Long, Long> snapshot = new HashMap<>();
+        counters.forEach(counter -> snapshot.put(counter.getMedicineId(), counter.getQuantitySold()));
+        replaceSnapshot(snapshot);
+    }
+
+    @Override
+    @Transactional
+    public void adjustSales(Long medicineId, long delta) {
+        if (medicineId == null || delta == 0) {
+            return;
+        }
+
+        counterRepository.upsertQuantity(medicineId, delta);
+        // Đọc thế hệ sau khi câu MERGE trả về: nếu đang tính lại, câu MERGE chờ đến khi lần tính lại commit
+        long deltaGeneration = generation;
+
+        // Chỉ cập nhật bộ nhớ khi transaction đã commit, tránh lệch dữ liệu khi rollback
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyDelta(medicineId, delta, deltaGeneration);
+                }
+            });
+        } else {
+            applyDelta(medicineId, delta, deltaGeneration);
+        }
+    }
+
+    @Override
+    public long getQuantitySold(Long medicineId) {
+        return quantities.getOrDefault(medicineId, 0L);
+    }
+
+    @Override
+    public List<Long> findTopSellingMedicineIds(int limit) {
+        List<Long> top = topMedicineIds;
+        return top.size() <= limit ? top : top.subList(0, limit);
+    }
+
+    /**
+     * Tính lại toàn bộ bộ đếm từ order_details để sửa sai lệch (bỏ qua đơn đã hủy).
+     * Bảng bộ đếm bị khóa trong suốt lần tính lại nên delta đã cộng trên database trước đó nằm sẵn trong kết quả,
+     * delta sau đó mang thế hệ mới. Bản sao trong bộ nhớ chỉ được thay sau khi commit,
+     * rollback thì giữ nguyên bản sao cũ
+     */
+    @Override
+    @Transactional
+    @Scheduled(cron = "${app.sales.rebuild-cron:0 0 3 * * *}")
+    public void rebuildCounters() {
+        counterRepository.lockTable();
+
+        long rebuildGeneration;
+        synchronized (topLock) {
+            rebuildGeneration = ++generation;
+            pendingGeneration = rebuildGeneration;
+        }
+
+        Map<Long, Long> snapshot = new HashMap<>();
+        for (Object[] row : orderDetailRepository.sumQuantityGroupByMedicine(OrderStatus.CANCELLED)) {
+            snapshot.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        counterRepository.resetAll();
+        snapshot.forEach((medicineId, quantity) -> {
+            if (counterRepository.setQuantity(medicineId, quantity) == 0) {
+                counterRepository.save(MedicineSalesCounter.builder()
+                        .medicineId(medicineId)
+                        .quantitySold(quantity)
+                        .build());
+            }
+        });
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishRebuild(rebuildGeneration, snapshot);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        abandonRebuild(rebuildGeneration);
+                    }
+                }
+            });
+        } else {
+            publishRebuild(rebuildGeneration, snapshot);
+        }
+    }
+
+    private void publishRebuild(long rebuildGeneration, Map<Long, Long> snapshot) {
+        synchronized (topLock) {
+            snapshotGeneration = rebuildGeneration;
+            replaceSnapshot(snapshot);
+            flushPendingDeltas(rebuildGeneration);
+        }
+        logger.info("Đã tính lại bộ đếm bán hàng cho {} thuốc", snapshot.size());
+    }
+
+    private void abandonRebuild(long rebuildGeneration) {
+        synchronized (topLock) {
+            flushPendingDeltas(rebuildGeneration);
+        }
+        logger.warn("Tính lại bộ đếm bán hàng bị rollback, giữ nguyên bộ đếm trong bộ nhớ");
+    }
+
+    // Gọi khi đang giữ topLock
+    private void flushPendingDeltas(long rebuildGeneration) {
+        if (pendingGeneration != rebuildGeneration) {
+            return;
+        }
+        pendingGeneration = 0;
+        List<PendingDelta> deltas = new ArrayList<>(pendingDeltas);
+        pendingDeltas.clear();
+        deltas.forEach(pending -> applyDelta(pending.medicineId(), pending.delta(), pending.generation()));
+    }
+
+    private void replaceSnapshot(Map<Long, Long> snapshot) {
+        synchronized (topLock) {
+            quantities.clear();
+            quantities.putAll(snapshot);
+            recomputeTop();
+        }
+    }
+
+    private void applyDelta(Long medicineId, long delta, long deltaGeneration) {
+        synchronized (topLock) {
+            if (deltaGeneration < snapshotGeneration) {
+                return;
+            }
+            if (pendingGeneration != 0 && deltaGeneration >= pendingGeneration) {
+                // Lần tính lại đã commit trên database nhưng chưa thay bản sao: chờ thay xong mới cộng
+                pendingDeltas.add(new PendingDelta(medicineId, delta, deltaGeneration));
+                return;
+            }
+            long updated = quantities.merge(medicineId, delta, Long::sum);
+            List<Long> current = topMedicineIds;
+
+            if (delta < 0) {
+                // Giảm số lượng của thuốc trong top có thể đẩy thuốc khác lên, cần tính lại
+                if (current.contains(medicineId)) {
+                    recomputeTop();
+                }
+                return;
+            }
+
+            boolean inTop = current.contains(medicineId);
+            if (!inTop && updated <= 0) {
+                return;
+            }
+            boolean beatsLast = current.size() < topK
+                    || updated > quantities.getOrDefault(current.get(current.size() - 1), 0L);
+            if (!inTop && !beatsLast) {
+                return;
+            }
+
+            List<Long> next = new ArrayList<>(current);
+            if (!inTop) {
+                next.add(medicineId);
+            }
+            next.sort(byQuantityDesc());
+            if (next.size() > topK) {
+                next = next.subList(0, topK);
+            }
+            topMedicineIds = List.copyOf(next);
+        }
+    }
+
+    private void recomputeTop() {
+        // Min-heap kích thước K: O(n log K)
+        PriorityQueue<Long> heap = new PriorityQueue<>(byQuantityDesc().reversed());
+        for (Map.Entry<Long, Long> entry : quantities.entrySet()) {
+            if (entry.getValue() <= 0) {
+                continue;
+            }
+            heap.offer(entry.getKey());
+            if (heap.size() > topK) {
+                heap.poll();
+            }
+        }
+
+        List<Long> next = new ArrayList<>(heap);
+        next.sort(byQuantityDesc());
+        topMedicineIds = List.copyOf(next);
+    }
+
+    private Comparator<Long> byQuantityDesc() {
+        return Comparator.<Long>comparingLong(id -> quantities.getOrDefault(id, 0L)).reversed()
+                .thenComparing(Comparator.naturalOrder());
+    }
+
+    private record PendingDelta(Long medicineId, long delta, long generation) {
+    }
+}
@@ -1,5 +1,6 @@
 package hunre.edu.vn.backend.serviceImpl;
 
+import hunre.edu.vn.backend.catalog.CatalogSnapshot;
 import hunre.edu.vn.backend.dto.AttributeDTO;
 import hunre.edu.vn.backend.dto.CategoryDTO;
 import hunre.edu.vn.backend.dto.MedicineCategoryDTO;
@@ -10,11 +11,19 @@ import hunre.edu.vn.backend.entity.Medicine;
 import hunre.edu.vn.backend.mapper.MedicineMapper;
 import hunre.edu.vn.backend.repository.BrandRepository;
 import hunre.edu.vn.backend.repository.MedicineRepository;
+import hunre.edu.vn.backend.repository.MedicineSearchRepository;
 import hunre.edu.vn.backend.repository.OrderDetailRepository;
 import hunre.edu.vn.backend.service.AttributeService;
+import hunre.edu.vn.backend.service.CatalogService;
+import hunre.edu.vn.backend.service.CategoryService;
 import hunre.edu.vn.backend.service.MedicineCategoryService;
 import hunre.edu.vn.backend.service.MedicineMediaService;
+import hunre.edu.vn.backend.service.MedicineSalesService;
 import hunre.edu.vn.backend.service.MedicineService;
+import hunre.edu.vn.backend.utils.EntityStreams;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import hunre.edu.vn.backend.utils.SearchCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,9 +31,9 @@ import org.springframework.web.multipart.MultipartFile;
 import software.amazon.ion.Decimal;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,6 +46,18 @@ public class MedicineServiceImpl implements MedicineService {
     private final MedicineMediaService medicineMediaService;
     private final MedicineCategoryService medicineCategoryService;
     private final AttributeService attributeService;
+    private final MedicineSalesService medicineSalesService;
+    private final CatalogService catalogService;
+    private final CategoryService categoryService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_RANKED_RESULTS = 1000;
+    private static final int BEST_SELLING_LIMIT = 10;
+    private static final int BEST_SELLING_CANDIDATES = 50;
 
     @Autowired
     public MedicineServiceImpl(
@@ -46,7 +67,10 @@ public class MedicineServiceImpl implements MedicineService {
             OrderDetailRepository orderDetailRepository,
             MedicineMediaService medicineMediaService,
             MedicineCategoryService medicineCategoryService,
-            AttributeService attributeService) {
+            AttributeService attributeService,
+            MedicineSalesService medicineSalesService,
+            CatalogService catalogService,
+            CategoryService categoryService) {
         this.medicineRepository = medicineRepository;
         this.brandRepository = brandRepository;
         this.medicineMapper = medicineMapper;
@@ -54,6 +78,9 @@ public class MedicineServiceImpl implements MedicineService {
         this.medicineMediaService = medicineMediaService;
         this.medicineCategoryService = medicineCategoryService;
         this.attributeService = attributeService;
+        this.medicineSalesService = medicineSalesService;
+        this.catalogService = catalogService;
+        this.categoryService = categoryService;
     }
 
     @Override
@@ -108,45 +135,9 @@ public class MedicineServiceImpl implements MedicineService {
                 savedCategories = medicineCategoryService.findMedicineCategoryDtoByMedicineId(medicineId);
             }
 
-            // Step 4: Process and save images
+            // Step 4: Upload images in parallel and save all media records in one batch
             if (files != null && files.length > 0) {
-                // First, clear existing main image flag if we're setting a new main image
-                if (mainImageIndex != null && mainImageIndex >= 0 && mainImageIndex < files.length) {
-                    Optional<MedicineMediaDTO.GetMedicineMediaDTO> existingMainImage =
-                            medicineMediaService.findMainImageByMedicineId(medicineId);
-
-                    existingMainImage.ifPresent(mainImg -> {
-                        MedicineMediaDTO.SaveMedicineMediaDTO updateDTO = new MedicineMediaDTO.SaveMedicineMediaDTO();
-                        updateDTO.setId(mainImg.getId());
-                        updateDTO.setMedicineId(medicineId);
-                        updateDTO.setMediaUrl(mainImg.getMediaUrl());
-                        updateDTO.setMainImage(false);
-                        medicineMediaService.saveOrUpdate(updateDTO);
-                    });
-                }
-
-                // Process and save new images
-                for (int i = 0; i < files.length; i++) {
-                    MultipartFile file = files[i];
-                    if (!file.isEmpty()) {
-                        // Upload image
-                        String mediaUrl = medicineMediaService.uploadMedicineImage(file);
-
-                        // Create MedicineMedia object
-                        MedicineMediaDTO.SaveMedicineMediaDTO mediaDTO = new MedicineMediaDTO.SaveMedicineMediaDTO();
-                        mediaDTO.setMedicineId(medicineId);
-                        mediaDTO.setMediaUrl(mediaUrl);
-
-                        // Set main image flag
-                        boolean isMainImage = (mainImageIndex != null && i == mainImageIndex);
-                        mediaDTO.setMainImage(isMainImage);
-
-                        // Save to DB
-                        MedicineMediaDTO.GetMedicineMediaDTO savedMedia =
-                                medicineMediaService.saveOrUpdate(mediaDTO);
-                        savedMedias.add(savedMedia);
-                    }
-                }
+                savedMedias = medicineMediaService.uploadAndSaveAll(medicineId, files, mainImageIndex);
             }
 
             // Get the updated medicine after all related records are saved
@@ -169,29 +160,31 @@ public class MedicineServiceImpl implements MedicineService {
 
     @Override
     public List<MedicineDTO.GetMedicineDTO> findAll() {
-        // Lấy danh sách thuốc từ repository
-        List<Medicine> medicines = medicineRepository.findAllActive();
-
-        // Chuyển đổi thành DTO và đảm bảo mỗi DTO có danh sách thuộc tính
-        return medicines.stream()
-                .map(medicine -> {
-                    // Sử dụng mapper để chuyển đổi đối tượng medicine thành DTO
-                    MedicineDTO.GetMedicineDTO dto = medicineMapper.toGetMedicineDTO(medicine);
+        // Đọc từ snapshot trong bộ nhớ khi đã sẵn sàng
+        if (catalogService.isReady()) {
+            return new ArrayList<>(catalogService.getSnapshot().all());
+        }
 
-                    // Lấy danh sách thuộc tính theo medicineId
-                    List<AttributeDTO.GetAttributeDTO> attributes = attributeService.findByMedicineId(medicine.getId());
+        // Lấy danh sách thuốc từ repository, thuộc tính được tải theo lô trong một truy vấn
+        return toGetMedicineDTOs(medicineRepository.findAllActiveCards());
+    }
 
-                    // Đặt danh sách thuộc tính vào DTO
-                    dto.setAttributes(attributes);
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<MedicineDTO.GetMedicineDTO> consumer) {
+        // Snapshot đã nằm sẵn trong bộ nhớ, ghi trực tiếp không cần sao chép danh sách
+        if (catalogService.isReady()) {
+            catalogService.getSnapshot().all().forEach(consumer);
+            return;
+        }
 
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        EntityStreams.forEach(medicineRepository.streamAllActive(), entityManager,
+                medicineMapper::toGetMedicineDTO, consumer);
     }
 
     @Override
     public Optional<MedicineDTO.GetMedicineDTO> findById(Long id) {
-        return medicineRepository.findActiveById(id)
+        return medicineRepository.findActiveDetailById(id)
                 .map(medicine -> {
                     // Chuyển đổi thành DTO
                     MedicineDTO.GetMedicineDTO dto = medicineMapper.toGetMedicineDTO(medicine);
@@ -249,6 +242,7 @@ public class MedicineServiceImpl implements MedicineService {
         medicine.setDosageInstruction(medicineDTO.getDosageInstruction());
 
         Medicine savedMedicine = medicineRepository.save(medicine);
+        catalogService.markDirty(List.of(savedMedicine.getId()));
 
         // Lưu attributes nếu có
         if (medicineDTO.getAttributes() != null && !medicineDTO.getAttributes().isEmpty()) {
@@ -281,6 +275,7 @@ public class MedicineServiceImpl implements MedicineService {
                 medicineRepository.softDelete(id);
             }
         }
+        catalogService.markDirty(ids);
         return "Đã xóa thành công " + ids.size() + " thuốc";
     }
 
@@ -301,129 +296,205 @@ public class MedicineServiceImpl implements MedicineService {
 
     @Override
     public List<MedicineDTO.GetMedicineDTO> findByName(String name) {
-        return medicineRepository.findByName(name).stream()
-                .map(medicine -> {
-                    // Chuyển đổi đối tượng medicine thành DTO
-                    MedicineDTO.GetMedicineDTO dto = medicineMapper.toGetMedicineDTO(medicine);
+        return toGetMedicineDTOs(medicineRepository.findByName(name));
+    }
 
-                    // Lấy danh sách thuộc tính theo medicineId
-                    List<AttributeDTO.GetAttributeDTO> attributes = attributeService.findByMedicineId(medicine.getId());
-                    dto.setAttributes(attributes);
+    @Override
+    public List<MedicineDTO.GetMedicineDTO> seach(String name, Long categoryId, Long brandId, Decimal rangePrice, String sortBy) {
+        MedicineDTO.SearchMedicineDTO criteria = MedicineDTO.SearchMedicineDTO.builder()
+                .name(name)
+                .categoryId(categoryId)
+                .brandId(brandId)
+                .maxPrice(rangePrice)
+                .sortBy(sortBy)
+                .build();
+
+        if (catalogService.isReady()) {
+            CatalogSnapshot snapshot = catalogService.getSnapshot();
+            return snapshot.query(snapshot.filter(criteria, categoryScope(criteria)),
+                    MedicineSearchRepository.SortOption.from(sortBy), null, 0, Integer.MAX_VALUE);
+        }
+        return toGetMedicineDTOs(medicineRepository.search(criteria, null, 0, Integer.MAX_VALUE));
+    }
 
-                    return dto;
-                })
-                .collect(Collectors.toList());
+    @Override
+    public MedicineDTO.MedicineSliceDTO search(MedicineDTO.SearchMedicineDTO criteria) {
+        int size = criteria.getSize() == null || criteria.getSize() <= 0
+                ? DEFAULT_PAGE_SIZE
+                : Math.min(criteria.getSize(), MAX_PAGE_SIZE);
+        int page = criteria.getPage() == null || criteria.getPage() < 0 ? 0 : criteria.getPage();
+        SearchCursor cursor = SearchCursor.decode(criteria.getCursor());
+
+        // Lấy thêm một bản ghi để biết còn trang tiếp theo hay không
+        List<MedicineDTO.GetMedicineDTO> content;
+        MedicineDTO.FacetCountsDTO facets = null;
+        if (catalogService.isReady()) {
+            CatalogSnapshot snapshot = catalogService.getSnapshot();
+            BitSet rows = snapshot.filter(criteria, categoryScope(criteria));
+            content = snapshot.query(rows, MedicineSearchRepository.SortOption.from(criteria.getSortBy()),
+                    cursor, page * size, size + 1);
+            if (Boolean.TRUE.equals(criteria.getIncludeFacets())) {
+                facets = snapshot.facets(rows);
+            }
+        } else {
+            content = toGetMedicineDTOs(medicineRepository.search(criteria, cursor, page * size, size + 1));
+        }
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            MedicineDTO.GetMedicineDTO last = content.get(content.size() - 1);
+            nextCursor = MedicineSearchRepository.SortOption.from(criteria.getSortBy()).cursorOf(last).encode();
+        }
+
+        return MedicineDTO.MedicineSliceDTO.builder()
+                .content(content)
+                .page(cursor == null ? page : null)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .facets(facets)
+                .build();
     }
 
     @Override
-    public List<MedicineDTO.GetMedicineDTO> seach(String name, Long categoryId, Long brandId, Decimal rangePrice, String sortBy) {
-        List<Medicine> medicines = medicineRepository.findAll().stream()
-                .filter(medicine -> name == null || medicine.getName().toLowerCase().contains(name.toLowerCase()))
-                .filter(medicine -> categoryId == null ||
-                        medicine.getMedicineCategories().stream()
-                                .anyMatch(mc -> mc.getCategory().getId().equals(categoryId)))
-                .filter(medicine -> brandId == null || (medicine.getBrand() != null && medicine.getBrand().getId().equals(brandId)))
+    public MedicineDTO.MedicineSliceDTO searchRanked(MedicineDTO.SearchMedicineDTO criteria) {
+        // Chỉ mục chưa sẵn sàng hoặc không có từ khóa: dùng tìm kiếm thông thường
+        if (!catalogService.isReady() || criteria.getName() == null || criteria.getName().isBlank()) {
+            return search(criteria);
+        }
+
+        int size = criteria.getSize() == null || criteria.getSize() <= 0
+                ? DEFAULT_PAGE_SIZE
+                : Math.min(criteria.getSize(), MAX_PAGE_SIZE);
+        int page = criteria.getPage() == null || criteria.getPage() < 0 ? 0 : criteria.getPage();
+        int offset = page * size;
+
+        // Các bộ lọc còn lại (brand, danh mục, giá) được áp dụng trên snapshot, từ khóa do chỉ mục xử lý
+        CatalogSnapshot snapshot = catalogService.getSnapshot();
+        MedicineDTO.SearchMedicineDTO filters = MedicineDTO.SearchMedicineDTO.builder()
+                .categoryId(criteria.getCategoryId())
+                .brandId(criteria.getBrandId())
+                .minPrice(criteria.getMinPrice())
+                .maxPrice(criteria.getMaxPrice())
+                .inStock(criteria.getInStock())
+                .build();
+        BitSet rows = snapshot.filter(filters, categoryScope(criteria));
+
+        List<Long> rankedIds = catalogService.getTextIndex().search(criteria.getName(),
+                Math.min(offset + size + 1, MAX_RANKED_RESULTS), id -> snapshot.matches(rows, id));
+        List<MedicineDTO.GetMedicineDTO> content = rankedIds.stream()
+                .skip(offset)
+                .map(snapshot::findById)
+                .flatMap(Optional::stream)
                 .collect(Collectors.toList());
 
-        // Lấy và kiểm tra dữ liệu thuộc tính
-        List<MedicineDTO.GetMedicineDTO> dtos = new ArrayList<>();
-        for (Medicine medicine : medicines) {
-            List<AttributeDTO.GetAttributeDTO> attributes = attributeService.findByMedicineId(medicine.getId());
-
-            // Kiểm tra giá từ thuộc tính (attribute)
-            if (rangePrice != null) {
-                if (attributes.isEmpty() || attributes.stream()
-                        .noneMatch(attr -> attr.getPriceOut().compareTo(
-                                BigDecimal.valueOf(rangePrice.doubleValue())) <= 0)) {
-                    continue; // Bỏ qua thuốc này nếu không có thuộc tính phù hợp với giá
-                }
-            }
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+
+        return MedicineDTO.MedicineSliceDTO.builder()
+                .content(content)
+                .page(page)
+                .size(size)
+                .hasNext(hasNext)
+                .build();
+    }
 
-            // Tạo DTO và thêm thuộc tính
-            MedicineDTO.GetMedicineDTO dto = medicineMapper.toGetMedicineDTO(medicine);
-            dto.setAttributes(attributes);
-            dtos.add(dto);
+    @Override
+    public List<MedicineDTO.MedicineSuggestionDTO> suggest(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return new ArrayList<>();
         }
 
-        // Sắp xếp kết quả nếu cần
-        if (sortBy != null) {
-            switch (sortBy.toLowerCase()) {
-                case "price_asc":
-                    dtos.sort((m1, m2) -> {
-                        BigDecimal price1 = getLowestPrice(m1.getAttributes());
-                        BigDecimal price2 = getLowestPrice(m2.getAttributes());
-                        return price1.compareTo(price2);
-                    });
-                    break;
-                case "price_desc":
-                    dtos.sort((m1, m2) -> {
-                        BigDecimal price1 = getLowestPrice(m1.getAttributes());
-                        BigDecimal price2 = getLowestPrice(m2.getAttributes());
-                        return price2.compareTo(price1);
-                    });
-                    break;
-                case "name_asc":
-                    dtos.sort(Comparator.comparing(MedicineDTO.GetMedicineDTO::getName));
-                    break;
-                case "name_desc":
-                    dtos.sort(Comparator.comparing(MedicineDTO.GetMedicineDTO::getName).reversed());
-                    break;
-                default:
-            }
+        List<MedicineDTO.GetMedicineDTO> medicines;
+        if (catalogService.isReady()) {
+            CatalogSnapshot snapshot = catalogService.getSnapshot();
+            medicines = catalogService.getSuggestTrie().suggest(query, limit).stream()
+                    .map(snapshot::findById)
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.toList());
+        } else {
+            // Trie chưa được dựng: tìm theo tên trên database như các API đọc khác
+            MedicineDTO.SearchMedicineDTO criteria = MedicineDTO.SearchMedicineDTO.builder()
+                    .name(query.trim())
+                    .build();
+            medicines = toGetMedicineDTOs(medicineRepository.search(criteria, null, 0, limit));
         }
 
-        return dtos;
+        return medicines.stream()
+                .map(medicine -> MedicineDTO.MedicineSuggestionDTO.builder()
+                        .id(medicine.getId())
+                        .code(medicine.getCode())
+                        .name(medicine.getName())
+                        .brandName(medicine.getBrand() != null ? medicine.getBrand().getName() : null)
+                        // Cùng giá hiển thị trên thẻ thuốc: giá sau discount, nếu chưa tính thì giá niêm yết
+                        .minPrice(medicine.getMinEffectivePrice() != null
+                                ? medicine.getMinEffectivePrice()
+                                : medicine.getMinPrice())
+                        .build())
+                .collect(Collectors.toList());
     }
 
-    // Helper method để lấy giá thấp nhất từ các attributes của thuốc
-    private BigDecimal getLowestPrice(List<AttributeDTO.GetAttributeDTO> attributes) {
-        if (attributes == null || attributes.isEmpty()) {
-            return BigDecimal.ZERO;
+    // Danh mục được chọn cùng các danh mục con (lấy từ cây đã cache); null khi không lọc theo danh mục
+    private Set<Long> categoryScope(MedicineDTO.SearchMedicineDTO criteria) {
+        if (criteria.getCategoryId() == null) {
+            return null;
+        }
+        if (Boolean.FALSE.equals(criteria.getIncludeSubcategories())) {
+            return Collections.singleton(criteria.getCategoryId());
+        }
+        return categoryService.findSelfAndDescendantIds(criteria.getCategoryId());
+    }
+
+    // Tải thuộc tính của cả danh sách bằng một truy vấn IN thay vì một truy vấn cho mỗi thuốc
+    private List<MedicineDTO.GetMedicineDTO> toGetMedicineDTOs(List<Medicine> medicines) {
+        if (medicines.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        return attributes.stream()
-                .map(AttributeDTO.GetAttributeDTO::getPriceOut)
-                .min(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
+        List<Long> medicineIds = medicines.stream()
+                .map(Medicine::getId)
+                .collect(Collectors.toList());
+        return medicineMapper.toGetMedicineDTOs(medicines, attributeService.findByMedicineIds(medicineIds));
     }
 
     @Override
     public List<MedicineDTO.GetMedicineDTO> getBestSaling() {
-        return medicineRepository.findAll().stream()
-                .sorted((m1, m2) -> {
-                    long salesCountM1 = orderDetailRepository.sumQuantityByMedicineId(m1.getId());
-                    long salesCountM2 = orderDetailRepository.sumQuantityByMedicineId(m2.getId());
-                    return Long.compare(salesCountM2, salesCountM1);
-                })
-                .limit(10)
-                .map(medicine -> {
-                    // Tạo DTO
-                    MedicineDTO.GetMedicineDTO dto = medicineMapper.toGetMedicineDTO(medicine);
-
-                    // Lấy danh sách thuộc tính theo medicineId
-                    List<AttributeDTO.GetAttributeDTO> attributes = attributeService.findByMedicineId(medicine.getId());
-                    dto.setAttributes(attributes);
+        List<Long> topIds = medicineSalesService.findTopSellingMedicineIds(BEST_SELLING_CANDIDATES);
+        Map<Long, Medicine> medicinesById = medicineRepository.findAllById(topIds).stream()
+                .filter(medicine -> !Boolean.TRUE.equals(medicine.getIsDeleted()))
+                .collect(Collectors.toMap(Medicine::getId, medicine -> medicine));
+
+        // Giữ nguyên thứ tự theo số lượng bán
+        List<Medicine> bestSelling = topIds.stream()
+                .map(medicinesById::get)
+                .filter(Objects::nonNull)
+                .limit(BEST_SELLING_LIMIT)
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        // Bổ sung thuốc chưa có lượt bán để luôn đủ số lượng hiển thị
+        if (bestSelling.size() < BEST_SELLING_LIMIT) {
+            medicineRepository.search(new MedicineDTO.SearchMedicineDTO(), null, 0, BEST_SELLING_CANDIDATES).stream()
+                    .filter(medicine -> !medicinesById.containsKey(medicine.getId()))
+                    .limit(BEST_SELLING_LIMIT - bestSelling.size())
+                    .forEach(bestSelling::add);
+        }
 
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return toGetMedicineDTOs(bestSelling);
     }
 
     @Override
     public List<MedicineDTO.GetMedicineDTO> getMedicineNew() {
-        return medicineRepository.findAll().stream()
+        List<Medicine> newest = medicineRepository.findAll().stream()
                 .sorted(Comparator.comparing(Medicine::getCreatedAt).reversed())
                 .limit(10) // Top 10 newest medicines
-                .map(medicine -> {
-                    // Tạo DTO
-                    MedicineDTO.GetMedicineDTO dto = medicineMapper.toGetMedicineDTO(medicine);
-
-                    // Lấy danh sách thuộc tính theo medicineId
-                    List<AttributeDTO.GetAttributeDTO> attributes = attributeService.findByMedicineId(medicine.getId());
-                    dto.setAttributes(attributes);
-
-                    return dto;
-                })
                 .collect(Collectors.toList());
+
+        return toGetMedicineDTOs(newest);
     }
 }
\ No newline at end of file
@@ -4,7 +4,9 @@ import hunre.edu.vn.backend.dto.OrderDetailDTO;
 import hunre.edu.vn.backend.entity.*;
 import hunre.edu.vn.backend.mapper.OrderDetailMapper;
 import hunre.edu.vn.backend.repository.*;
+import hunre.edu.vn.backend.service.MedicineSalesService;
 import hunre.edu.vn.backend.service.OrderDetailService;
+import hunre.edu.vn.backend.service.StockReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,19 +25,25 @@ public class OrderDetailServiceImpl implements OrderDetailService {
     private final OrderDetailMapper orderDetailMapper;
     private final AttributeRepository attributeRepository;
     private final MedicineMediaRepository medicineMediaRepository;
+    private final MedicineSalesService medicineSalesService;
+    private final StockReservationService stockReservationService;
 
     @Autowired
     public OrderDetailServiceImpl(
             OrderDetailRepository orderDetailRepository,
             OrderRepository orderRepository,
             MedicineRepository medicineRepository,
-            OrderDetailMapper orderDetailMapper, AttributeRepository attributeRepository, MedicineMediaRepository medicineMediaRepository) {
+            OrderDetailMapper orderDetailMapper, AttributeRepository attributeRepository, MedicineMediaRepository medicineMediaRepository,
+            MedicineSalesService medicineSalesService,
+            StockReservationService stockReservationService) {
         this.orderDetailRepository = orderDetailRepository;
         this.orderRepository = orderRepository;
         this.medicineRepository = medicineRepository;
         this.orderDetailMapper = orderDetailMapper;
         this.attributeRepository = attributeRepository;
         this.medicineMediaRepository = medicineMediaRepository;
+        this.medicineSalesService = medicineSalesService;
+        this.stockReservationService = stockReservationService;
     }
 
     @Override
@@ -70,6 +78,11 @@ public class OrderDetailServiceImpl implements OrderDetailService {
             }
             orderDetail = existingOrderDetail.get();
             orderDetail.setUpdatedAt(LocalDateTime.now());
+
+            // Hoàn lại số lượng cũ trước khi ghi nhận số lượng mới
+            if (orderDetail.getOrder().getStatus() != OrderStatus.CANCELLED) {
+                medicineSalesService.adjustSales(orderDetail.getMedicine().getId(), -orderDetail.getQuantity());
+            }
         }
 
         // Xử lý order relationship
@@ -85,21 +98,32 @@ public class OrderDetailServiceImpl implements OrderDetailService {
         Attribute attribute = attributeRepository.findActiveById(orderDetailDTO.getAttributeId())
                 .orElseThrow(() -> new RuntimeException("Attribute not found with ID: " + orderDetailDTO.getAttributeId()));
         orderDetail.setAttribute(attribute);
-        int stock = attribute.getStock();
-        stock -= orderDetailDTO.getQuantity();
-        orderDetail.setQuantity(stock);
         // Cập nhật các trường khác
         orderDetail.setQuantity(orderDetailDTO.getQuantity());
         orderDetail.setUnitPrice(orderDetailDTO.getUnitPrice());
-        attributeRepository.save(attribute);
         OrderDetail savedOrderDetail = orderDetailRepository.save(orderDetail);
+
+        // Trừ tồn kho bằng UPDATE có điều kiện; phần đã giữ trước đó (nếu có) được hoàn lại trong cùng transaction
+        if (order.getStatus() != OrderStatus.CANCELLED) {
+            stockReservationService.reserve(savedOrderDetail);
+            medicineSalesService.adjustSales(medicine.getId(), savedOrderDetail.getQuantity());
+        } else {
+            stockReservationService.release(savedOrderDetail.getId());
+        }
         return orderDetailMapper.toGetOrderDetailDTO(savedOrderDetail);
     }
 
     @Override
+    @Transactional
     public String deleteByList(List<Long> ids) {
         for(Long id : ids) {
-            if (orderDetailRepository.existsById(id)) {
+            Optional<OrderDetail> orderDetail = orderDetailRepository.findActiveById(id);
+            if (orderDetail.isPresent()) {
+                if (orderDetail.get().getOrder().getStatus() != OrderStatus.CANCELLED) {
+                    medicineSalesService.adjustSales(orderDetail.get().getMedicine().getId(),
+                            -orderDetail.get().getQuantity());
+                }
+                stockReservationService.release(id);
                 orderDetailRepository.softDelete(id);
             }
         }
@@ -1,30 +1,49 @@
 package hunre.edu.vn.backend.serviceImpl;
 
+import hunre.edu.vn.backend.dto.DiscountDTO;
 import hunre.edu.vn.backend.dto.OrderDTO;
 import hunre.edu.vn.backend.dto.OrderDetailDTO;
+import hunre.edu.vn.backend.dto.VoucherDTO;
 import hunre.edu.vn.backend.entity.*;
+import hunre.edu.vn.backend.exception.PriceChangedException;
+import hunre.edu.vn.backend.exception.ResourceNotFoundException;
 import hunre.edu.vn.backend.mapper.OrderDetailMapper;
 import hunre.edu.vn.backend.mapper.OrderMapper;
 import hunre.edu.vn.backend.repository.*;
-import hunre.edu.vn.backend.service.EmailService;
+import hunre.edu.vn.backend.service.EmailOutboxService;
+import hunre.edu.vn.backend.service.MedicineSalesService;
 import hunre.edu.vn.backend.service.OrderService;
-import jakarta.mail.MessagingException;
+import hunre.edu.vn.backend.service.PricingService;
+import hunre.edu.vn.backend.service.StockReservationService;
+import hunre.edu.vn.backend.service.VoucherRedemptionService;
+import hunre.edu.vn.backend.utils.EntityStreams;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderServiceImpl implements OrderService {
 
+    private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
+
     private final OrderRepository orderRepository;
     private final PatientProfileRepository patientRepository;
     private final OrderMapper orderMapper;
@@ -32,13 +51,31 @@ public class OrderServiceImpl implements OrderService {
     private final OrderDetailMapper orderDetailMapper;
     private final MedicineRepository medicineRepository;
     private final VoucherRepository voucherRepository;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final MedicineSalesService medicineSalesService;
+    private final StockReservationService stockReservationService;
+    private final VoucherRedemptionService voucherRedemptionService;
+    private final AttributeRepository attributeRepository;
+    private final PricingService pricingService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.orders.reservation-sweep-batch:100}")
+    private int reservationSweepBatch;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
 
     public OrderServiceImpl(
             OrderRepository orderRepository,
             PatientProfileRepository patientRepository,
-            OrderMapper orderMapper, UserRepository userRepository, OrderDetailMapper orderDetailMapper, MedicineRepository medicineRepository, VoucherRepository voucherRepository, VoucherRepository voucherRepository1, EmailService emailService) {
+            OrderMapper orderMapper, UserRepository userRepository, OrderDetailMapper orderDetailMapper, MedicineRepository medicineRepository, VoucherRepository voucherRepository, VoucherRepository voucherRepository1, EmailOutboxService emailOutboxService,
+            MedicineSalesService medicineSalesService,
+            StockReservationService stockReservationService,
+            VoucherRedemptionService voucherRedemptionService,
+            AttributeRepository attributeRepository,
+            PricingService pricingService,
+            PlatformTransactionManager transactionManager) {
         this.orderRepository = orderRepository;
         this.patientRepository = patientRepository;
         this.orderMapper = orderMapper;
@@ -46,7 +83,13 @@ public class OrderServiceImpl implements OrderService {
         this.orderDetailMapper = orderDetailMapper;
         this.medicineRepository = medicineRepository;
         this.voucherRepository = voucherRepository1;
-        this.emailService = emailService;
+        this.emailOutboxService = emailOutboxService;
+        this.medicineSalesService = medicineSalesService;
+        this.stockReservationService = stockReservationService;
+        this.voucherRedemptionService = voucherRedemptionService;
+        this.attributeRepository = attributeRepository;
+        this.pricingService = pricingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     @Override
     public BigDecimal getTotalRevenue() {
@@ -73,9 +116,22 @@ public class OrderServiceImpl implements OrderService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<OrderDTO.GetOrderDTO> consumer) {
+        // Bệnh nhân và người dùng đã được join fetch, không cần truy vấn thêm cho mỗi đơn
+        EntityStreams.forEach(orderRepository.streamAllWithPatient(), entityManager, order -> {
+            OrderDTO.GetOrderDTO orderDto = orderMapper.toGetOrderDTO(order);
+            if (order.getPatient() != null && order.getPatient().getUser() != null) {
+                orderDto.setPatientName(order.getPatient().getUser().getFullName());
+            }
+            return orderDto;
+        }, consumer);
+    }
+
     @Override
     public Optional<OrderDTO.GetOrderDTO> findById(Long id) {
-        return orderRepository.findById(id)
+        return orderRepository.findDetailById(id)
                 .map(order -> {
                     OrderDTO.GetOrderDTO orderDto = orderMapper.toGetOrderDTO(order);
                     List<OrderDetailDTO.GetOrderDetailDTO> orderDetailDtos = order.getOrderDetails().stream()
@@ -124,12 +180,6 @@ public class OrderServiceImpl implements OrderService {
                     .orElseThrow(() -> new RuntimeException("Patient not found with ID: " + orderDTO.getPatientId()));
             order.setPatient(patient);
         }
-        if (orderDTO.getOrderCode() != null) {
-            Voucher voucher = voucherRepository.findByCodeAndIsDeletedFalse(orderDTO.getVoucherCode())
-                    .orElseThrow(() -> new RuntimeException("Voucher not found with code: " + orderDTO.getVoucherCode()));
-            voucher.setStock(voucher.getStock() - 1);
-            voucherRepository.save(voucher);
-        }
         // Cập nhật các trường khác
         order.setTotalPrice(orderDTO.getTotalPrice());
         order.setPaymentMethod(orderDTO.getPaymentMethod());
@@ -144,41 +194,149 @@ public class OrderServiceImpl implements OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        syncVoucherRedemption(savedOrder);
 
-        final Long orderId = savedOrder.getId();
-        final String userEmail = savedOrder.getPatient().getUser().getEmail();
-        final String userName = savedOrder.getPatient().getUser().getFullName();
-        CompletableFuture.runAsync(() -> {
-            try {
-                // Thử tối đa 3 lần để lấy chi tiết đơn hàng
-                for (int attempt = 1; attempt <= 3; attempt++) {
-                    // Chờ giữa các lần thử (5s, 10s, 15s)
-                    Thread.sleep(attempt * 5000);
-
-                    // Tải lại đơn hàng từ database
-                    Order refreshedOrder = orderRepository.findById(orderId)
-                            .orElseThrow(() -> new RuntimeException("Order not found"));
-
-                    // Kiểm tra xem đơn hàng đã có chi tiết chưa
-                    if (refreshedOrder.getOrderDetails() != null && !refreshedOrder.getOrderDetails().isEmpty()) {
-                        User user = refreshedOrder.getPatient().getUser();
-                        emailService.sendOrderConfirmationEmail(orderId, userEmail, userName);
-
-                        // Log thành công và thoát khỏi vòng lặp
-                        System.out.println("Email xác nhận đã được gửi sau " + attempt + " lần thử, với "
-                                + refreshedOrder.getOrderDetails().size() + " chi tiết đơn hàng");
-                        return;
-                    }
+        return orderMapper.toGetOrderDTO(savedOrder);
+    }
 
-                    System.out.println("Lần thử " + attempt + ": Đơn hàng vẫn chưa có chi tiết, đợi thêm...");
-                }
-            } catch (Exception e) {
-                System.out.println("Lỗi khi gửi email xác nhận đơn hàng: " + e);
-                e.printStackTrace();
+    @Override
+    public OrderDTO.GetOrderDTO checkout(OrderDTO.CheckoutDTO checkoutDTO) {
+        validateCheckout(checkoutDTO);
+
+        PatientProfile patient = patientRepository.findActiveById(checkoutDTO.getPatientId())
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bệnh nhân với ID: " + checkoutDTO.getPatientId()));
+
+        // Gộp các dòng cùng lô; duyệt theo ID lô để các đơn đồng thời khóa dòng tồn kho theo cùng thứ tự
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, BigDecimal> quotedPrices = new HashMap<>();
+        for (OrderDTO.CheckoutItemDTO item : checkoutDTO.getItems()) {
+            quantities.merge(item.getAttributeId(), item.getQuantity(), Integer::sum);
+            if (item.getUnitPrice() != null) {
+                quotedPrices.put(item.getAttributeId(), item.getUnitPrice());
             }
-        });
+        }
 
-        return orderMapper.toGetOrderDTO(savedOrder);
+        Map<Long, Attribute> attributes = attributeRepository.findAllById(quantities.keySet()).stream()
+                .filter(attribute -> !Boolean.TRUE.equals(attribute.getIsDeleted()))
+                .collect(Collectors.toMap(Attribute::getId, attribute -> attribute));
+
+        LocalDateTime now = LocalDateTime.now();
+        Order order = new Order();
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        order.setOrderCode(generateOrderCode());
+        order.setPatient(patient);
+        order.setPaymentMethod(checkoutDTO.getPaymentMethod());
+        order.setPaymentStatus(checkoutDTO.getPaymentMethod() == PaymentMethod.CASH
+                ? PaymentStatus.PENDING : PaymentStatus.COMPLETED);
+        order.setStatus(OrderStatus.PENDING);
+        order.setNote(checkoutDTO.getNote());
+        order.setDiscountAmount(BigDecimal.ZERO);
+        if (checkoutDTO.getVoucherCode() != null && !checkoutDTO.getVoucherCode().isBlank()) {
+            order.setVoucherCode(checkoutDTO.getVoucherCode().trim());
+        }
+
+        // Giá lấy từ lô hiện tại và discount đang hiệu lực, không tin giá client gửi lên
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Attribute attribute = attributes.get(entry.getKey());
+            if (attribute == null) {
+                throw new ResourceNotFoundException("Không tìm thấy thuộc tính thuốc với ID: " + entry.getKey());
+            }
+            if (attribute.getExpiryDate() != null && attribute.getExpiryDate().isBefore(LocalDate.now())) {
+                throw new IllegalArgumentException("Lô " + attribute.getName() + " đã hết hạn sử dụng");
+            }
+
+            BigDecimal unitPrice = attribute.getPriceOut();
+            BigDecimal quotedPrice = quotedPrices.get(attribute.getId());
+            if (quotedPrice != null && quotedPrice.compareTo(unitPrice) != 0) {
+                throw new PriceChangedException("Giá của " + attribute.getName() + " đã thay đổi thành " + unitPrice);
+            }
+
+            Medicine medicine = attribute.getMedicine();
+            if (medicine == null || Boolean.TRUE.equals(medicine.getIsDeleted())) {
+                throw new IllegalArgumentException("Thuốc của lô " + attribute.getName() + " không còn được bán");
+            }
+            DiscountDTO.PricedLineDTO priced = pricingService.applyAtCheckout(medicine.getId(), unitPrice, entry.getValue());
+
+            OrderDetail detail = new OrderDetail();
+            detail.setCreatedAt(now);
+            detail.setUpdatedAt(now);
+            detail.setOrder(order);
+            detail.setMedicine(medicine);
+            detail.setAttribute(attribute);
+            detail.setQuantity(entry.getValue());
+            detail.setUnitPrice(unitPrice);
+            detail.setDiscountAmount(priced.getDiscountAmount());
+            subtotal = subtotal.add(detail.calculateTotalPrice());
+            order.getOrderDetails().add(detail);
+        }
+        order.setTotalPrice(subtotal);
+
+        // Đơn và các dòng đơn được ghi cùng lúc nhờ cascade, các dòng có ID ngay sau khi lưu
+        Order savedOrder = orderRepository.save(order);
+        for (OrderDetail detail : savedOrder.getOrderDetails()) {
+            stockReservationService.reserve(detail);
+            medicineSalesService.adjustSales(detail.getMedicine().getId(), detail.getQuantity());
+        }
+
+        if (savedOrder.getVoucherCode() != null) {
+            VoucherDTO.RedemptionDTO redemption = voucherRedemptionService.redeem(
+                    savedOrder.getVoucherCode(), savedOrder.getId(), subtotal);
+            savedOrder.setDiscountAmount(redemption.getDiscountAmount());
+            savedOrder.setTotalPrice(subtotal.subtract(redemption.getDiscountAmount()).max(BigDecimal.ZERO));
+        }
+
+        if (checkoutDTO.getExpectedTotal() != null
+                && checkoutDTO.getExpectedTotal().compareTo(savedOrder.getTotalPrice()) != 0) {
+            throw new PriceChangedException("Tổng tiền đơn hàng đã thay đổi thành " + savedOrder.getTotalPrice());
+        }
+
+        // Email xác nhận nằm trong outbox cùng transaction, chỉ được gửi khi đơn và các dòng đơn đã commit
+        User user = patient.getUser();
+        emailOutboxService.enqueueOrderConfirmation(savedOrder.getId(), user.getEmail(), user.getFullName());
+
+        OrderDTO.GetOrderDTO orderDto = orderMapper.toGetOrderDTO(savedOrder);
+        orderDto.setOrderDetails(savedOrder.getOrderDetails().stream()
+                .map(orderDetailMapper::toGetOrderDetailDTO)
+                .collect(Collectors.toList()));
+        orderDto.setPatientName(user.getFullName());
+        return orderDto;
+    }
+
+    @Override
+    public String enqueueConfirmationEmail(Long orderId) {
+        Order order = orderRepository.findActiveById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng với ID: " + orderId));
+        boolean hasLines = order.getOrderDetails().stream()
+                .anyMatch(detail -> !Boolean.TRUE.equals(detail.getIsDeleted()));
+        if (!hasLines) {
+            throw new IllegalArgumentException("Đơn hàng chưa có sản phẩm");
+        }
+
+        User user = order.getPatient().getUser();
+        emailOutboxService.enqueueOrderConfirmation(order.getId(), user.getEmail(), user.getFullName());
+        return "Đã xếp email xác nhận đơn hàng";
+    }
+
+    private void validateCheckout(OrderDTO.CheckoutDTO checkoutDTO) {
+        if (checkoutDTO.getPatientId() == null) {
+            throw new IllegalArgumentException("ID bệnh nhân không được trống");
+        }
+        if (checkoutDTO.getPaymentMethod() == null) {
+            throw new IllegalArgumentException("Phương thức thanh toán không được trống");
+        }
+        if (checkoutDTO.getItems() == null || checkoutDTO.getItems().isEmpty()) {
+            throw new IllegalArgumentException("Giỏ hàng không được trống");
+        }
+        for (OrderDTO.CheckoutItemDTO item : checkoutDTO.getItems()) {
+            if (item.getAttributeId() == null) {
+                throw new IllegalArgumentException("ID thuộc tính không được trống");
+            }
+            if (item.getQuantity() == null || item.getQuantity() < 1 || item.getQuantity() > 1000) {
+                throw new IllegalArgumentException("Số lượng phải từ 1 đến 1000");
+            }
+        }
     }
 
     @Override
@@ -211,12 +369,48 @@ public class OrderServiceImpl implements OrderService {
         Optional<Order> orderOptional = orderRepository.findById(id);
         if (orderOptional.isPresent()) {
             Order order = orderOptional.get();
+            OrderStatus previousStatus = order.getStatus();
             order.cancel(reason);
             orderRepository.save(order);
+            syncSalesCounters(order, previousStatus);
+            syncStockReservations(order, previousStatus);
         }
         return "Đã hủy đơn thành công";
     }
 
+    /**
+     * Hủy các đơn chưa thanh toán đã hết thời gian giữ hàng để trả hàng về kho.
+     * Mỗi đơn chạy trong transaction riêng: một đơn lỗi chỉ rollback chính nó và được thử lại ở lượt quét sau.
+     * Việc tự hủy là tùy chọn: đơn trực tuyến được ghi nhận đã thanh toán ngay khi tạo nên không bao giờ hết hạn,
+     * còn đơn COD chỉ hết hạn khi cấu hình app.orders.cod-reservation-ttl-minutes lớn hơn 0 (mặc định 0)
+     */
+    @Scheduled(fixedDelayString = "${app.orders.reservation-sweep-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void cancelExpiredReservations() {
+        List<Long> orderIds = stockReservationService.findOrdersWithExpiredReservations(reservationSweepBatch);
+        int processed = 0;
+        for (Long orderId : orderIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> cancelExpiredOrder(orderId));
+                processed++;
+            } catch (Exception e) {
+                logger.error("Lỗi khi hủy đơn {} hết thời gian giữ hàng: {}", orderId, e.getMessage(), e);
+            }
+        }
+        if (!orderIds.isEmpty()) {
+            logger.info("Đã xử lý {}/{} đơn có thời gian giữ hàng hết hạn", processed, orderIds.size());
+        }
+    }
+
+    private void cancelExpiredOrder(Long orderId) {
+        orderRepository.findById(orderId)
+                .filter(order -> order.getStatus() == OrderStatus.PENDING)
+                .filter(order -> order.getPaymentStatus() != PaymentStatus.COMPLETED)
+                .ifPresentOrElse(
+                        order -> cancelOrder(orderId, "Hết thời gian giữ hàng do đơn chưa được thanh toán"),
+                        () -> stockReservationService.commitOrder(orderId));
+    }
+
     @Override
     public List<OrderDTO.GetOrderDTO> findByStatus(OrderStatus status) {
         return orderRepository.findByStatus(status)
@@ -231,14 +425,70 @@ public class OrderServiceImpl implements OrderService {
         Order existingOrder = orderRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Order not found with ID: " + id));
 
+        OrderStatus previousStatus = existingOrder.getStatus();
         existingOrder.setStatus(status);
-        System.out.println(existingOrder);
+        logger.debug("Cập nhật trạng thái đơn {}: {} -> {}", id, previousStatus, status);
 
         Order savedOrder = orderRepository.save(existingOrder);
+        syncSalesCounters(savedOrder, previousStatus);
+        syncStockReservations(savedOrder, previousStatus);
 
         return orderMapper.toGetOrderDTO(savedOrder);
     }
 
+    // Hoàn lại hoặc ghi nhận lại số lượng bán khi đơn chuyển vào/ra trạng thái hủy
+    private void syncSalesCounters(Order order, OrderStatus previousStatus) {
+        boolean wasCancelled = previousStatus == OrderStatus.CANCELLED;
+        boolean isCancelled = order.getStatus() == OrderStatus.CANCELLED;
+        if (wasCancelled == isCancelled) {
+            return;
+        }
+
+        long sign = isCancelled ? -1 : 1;
+        order.getOrderDetails().stream()
+                .filter(detail -> !Boolean.TRUE.equals(detail.getIsDeleted()))
+                .forEach(detail -> medicineSalesService.adjustSales(
+                        detail.getMedicine().getId(), sign * detail.getQuantity()));
+    }
+
+    // Giữ đúng một lượt voucher cho đơn đang hoạt động; bỏ hoặc đổi mã thì trả lại lượt cũ
+    private void syncVoucherRedemption(Order order) {
+        if (order.getStatus() == OrderStatus.CANCELLED
+                || order.getVoucherCode() == null || order.getVoucherCode().isBlank()) {
+            voucherRedemptionService.releaseForOrder(order.getId());
+            return;
+        }
+
+        // Giá trị tối thiểu được so với giá trị đơn trước giảm giá
+        BigDecimal orderValue = order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO;
+        if (order.getDiscountAmount() != null) {
+            orderValue = orderValue.add(order.getDiscountAmount());
+        }
+        voucherRedemptionService.redeem(order.getVoucherCode(), order.getId(), orderValue);
+    }
+
+    // Hủy đơn trả hàng về kho, mở lại đơn đã hủy phải giữ hàng lại; đơn được xác nhận thì bỏ thời hạn giữ hàng
+    private void syncStockReservations(Order order, OrderStatus previousStatus) {
+        boolean wasCancelled = previousStatus == OrderStatus.CANCELLED;
+        boolean isCancelled = order.getStatus() == OrderStatus.CANCELLED;
+        if (isCancelled) {
+            if (!wasCancelled) {
+                stockReservationService.releaseOrder(order.getId());
+                voucherRedemptionService.releaseForOrder(order.getId());
+            }
+            return;
+        }
+
+        if (wasCancelled) {
+            order.getOrderDetails().stream()
+                    .filter(detail -> !Boolean.TRUE.equals(detail.getIsDeleted()))
+                    .forEach(stockReservationService::reserve);
+            syncVoucherRedemption(order);
+        } else if (order.getStatus() == OrderStatus.CONFIRMED || order.getStatus() == OrderStatus.COMPLETED) {
+            stockReservationService.commitOrder(order.getId());
+        }
+    }
+
     // Hàm tiện ích để tạo mã đơn hàng
     private String generateOrderCode() {
         String prefix = "ORD";
@@ -0,0 +1,240 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.catalog.ActiveDiscountIndex;
+import hunre.edu.vn.backend.dto.AttributeDTO;
+import hunre.edu.vn.backend.dto.DiscountDTO;
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import hunre.edu.vn.backend.entity.Discount;
+import hunre.edu.vn.backend.repository.DiscountRepository;
+import hunre.edu.vn.backend.service.CatalogService;
+import hunre.edu.vn.backend.service.PricingService;
+import hunre.edu.vn.backend.utils.EntityVersionRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tính giá bán sau discount.
+ * Các discount đang hiệu lực được nạp vào chỉ mục trong bộ nhớ theo ID thuốc; chỉ mục được dựng lại khi
+ * discount được lưu/xóa, khi một discount có giới hạn được dùng, và khi qua mốc bắt đầu/kết thúc gần nhất.
+ * Thuốc có giá thay đổi sau mỗi lần dựng lại được đánh dấu để snapshot danh mục làm mới.
+ * Việc dựng lại chạy trên một thread riêng; trong lúc đó các request vẫn dùng chỉ mục cũ,
+ * chỉ lần dựng đầu tiên (chưa có chỉ mục nào) mới chạy ngay trên thread gọi.
+ */
+@Service
+public class PricingServiceImpl implements PricingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PricingServiceImpl.class);
+
+    private final DiscountRepository discountRepository;
+    private final CatalogService catalogService;
+    private final EntityVersionRegistry entityVersionRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile ActiveDiscountIndex index = ActiveDiscountIndex.empty();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+    private volatile boolean built = false;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pricing-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Snapshot danh mục gọi ngược lại dịch vụ này khi dựng thẻ thuốc nên phải tiêm lười
+    public PricingServiceImpl(DiscountRepository discountRepository,
+                              @Lazy CatalogService catalogService,
+                              EntityVersionRegistry entityVersionRegistry,
+                              PlatformTransactionManager transactionManager) {
+        this.discountRepository = discountRepository;
+        this.catalogService = catalogService;
+        this.entityVersionRegistry = entityVersionRegistry;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    @Override
+    public void applyEffectivePrices(Collection<MedicineDTO.GetMedicineDTO> medicines) {
+        ActiveDiscountIndex current = currentIndex();
+        for (MedicineDTO.GetMedicineDTO medicine : medicines) {
+            BigDecimal minEffectivePrice = null;
+            if (medicine.getAttributes() != null) {
+                for (AttributeDTO.GetAttributeDTO attribute : medicine.getAttributes()) {
+                    BigDecimal price = attribute.getPriceOut();
+                    if (price == null) {
+                        continue;
+                    }
+
+                    Optional<ActiveDiscountIndex.Rule> rule = current.best(medicine.getId(), price);
+                    BigDecimal effectivePrice = rule.map(r -> price.subtract(r.discountFor(price))).orElse(price);
+                    attribute.setEffectivePrice(effectivePrice);
+                    attribute.setDiscountPercentage(rule.map(ActiveDiscountIndex.Rule::percentage).orElse(null));
+                    if (minEffectivePrice == null || effectivePrice.compareTo(minEffectivePrice) < 0) {
+                        minEffectivePrice = effectivePrice;
+                    }
+                }
+            }
+            medicine.setMinEffectivePrice(minEffectivePrice != null ? minEffectivePrice : medicine.getMinPrice());
+        }
+    }
+
+    @Override
+    public DiscountDTO.PricedLineDTO quote(Long medicineId, BigDecimal unitPrice, int quantity) {
+        BigDecimal lineTotal = lineTotal(unitPrice, quantity);
+        return priced(medicineId, unitPrice, quantity, lineTotal,
+                currentIndex().best(medicineId, lineTotal).orElse(null));
+    }
+
+    @Override
+    @Transactional
+    public DiscountDTO.PricedLineDTO applyAtCheckout(Long medicineId, BigDecimal unitPrice, int quantity) {
+        BigDecimal lineTotal = lineTotal(unitPrice, quantity);
+        List<ActiveDiscountIndex.Rule> candidates = currentIndex().candidates(medicineId, lineTotal);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (ActiveDiscountIndex.Rule rule : candidates) {
+            if (discountRepository.incrementUsage(rule.discountId(), now) == 1) {
+                if (rule.limited()) {
+                    // Lượt vừa dùng có thể là lượt cuối, dựng lại chỉ mục để giá niêm yết không còn giảm
+                    invalidate();
+                }
+                return priced(medicineId, unitPrice, quantity, lineTotal, rule);
+            }
+            // Discount đã hết lượt hoặc vừa kết thúc từ sau lần dựng chỉ mục
+            dirty.set(true);
+        }
+        return priced(medicineId, unitPrice, quantity, lineTotal, null);
+    }
+
+    @Override
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.set(true);
+                }
+            });
+        } else {
+            dirty.set(true);
+        }
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.pricing.boundary-check-ms:60000}",
+            fixedDelayString = "${app.pricing.boundary-check-ms:60000}")
+    public void refresh() {
+        if (dirty.get() || index.isStale(LocalDateTime.now())) {
+            rebuildIndex();
+        }
+    }
+
+    private ActiveDiscountIndex currentIndex() {
+        ActiveDiscountIndex current = index;
+        if (!dirty.get() && !current.isStale(LocalDateTime.now())) {
+            return current;
+        }
+        if (!built) {
+            return rebuildIndex();
+        }
+        // Giá có thể lệch trong thời gian dựng lại; lúc thanh toán lượt dùng vẫn được kiểm tra lại trong câu UPDATE
+        scheduleRebuild();
+        return current;
+    }
+
+    // Mỗi lúc chỉ có một lần dựng lại đang chờ; đánh dấu thay đổi trong lúc dựng sẽ xếp thêm một lần nữa
+    private void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildExecutor.execute(() -> {
+                rebuildScheduled.set(false);
+                rebuildIndex();
+            });
+        } catch (RejectedExecutionException e) {
+            rebuildScheduled.set(false);
+        }
+    }
+
+    private synchronized ActiveDiscountIndex rebuildIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        ActiveDiscountIndex previous = index;
+        if (!dirty.get() && !previous.isStale(now)) {
+            return previous;
+        }
+
+        dirty.set(false);
+        try {
+            ActiveDiscountIndex rebuilt = ActiveDiscountIndex.of(
+                    readOnlyTransaction.execute(status -> discountRepository.findPricingRulesNotEndedBy(now)), now);
+            index = rebuilt;
+
+            // Lần dựng đầu tiên diễn ra trong lúc dựng snapshot danh mục nên không cần báo thay đổi
+            if (built) {
+                Set<Long> changed = previous.changedMedicineIds(rebuilt);
+                if (!changed.isEmpty()) {
+                    catalogService.markDirty(changed);
+                    entityVersionRegistry.bump(Discount.class);
+                    logger.info("Giá sau discount thay đổi cho {} thuốc, mốc kế tiếp: {}",
+                            changed.size(), rebuilt.getNextBoundary());
+                }
+            }
+            built = true;
+            return rebuilt;
+        } catch (Exception e) {
+            dirty.set(true);
+            logger.error("Lỗi khi dựng chỉ mục discount: {}", e.getMessage(), e);
+            return previous;
+        }
+    }
+
+    private BigDecimal lineTotal(BigDecimal unitPrice, int quantity) {
+        if (unitPrice == null || unitPrice.signum() < 0) {
+            throw new IllegalArgumentException("Đơn giá không hợp lệ");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Số lượng phải lớn hơn 0");
+        }
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+
+    private DiscountDTO.PricedLineDTO priced(Long medicineId, BigDecimal unitPrice, int quantity,
+                                             BigDecimal lineTotal, ActiveDiscountIndex.Rule rule) {
+        BigDecimal discountAmount = rule != null ? rule.discountFor(lineTotal) : BigDecimal.ZERO;
+        return DiscountDTO.PricedLineDTO.builder()
+                .medicineId(medicineId)
+                .unitPrice(unitPrice)
+                .quantity(quantity)
+                .lineTotal(lineTotal)
+                .discountId(rule != null ? rule.discountId() : null)
+                .discountPercentage(rule != null ? rule.percentage() : null)
+                .discountAmount(discountAmount)
+                .finalTotal(lineTotal.subtract(discountAmount))
+                .build();
+    }
+}
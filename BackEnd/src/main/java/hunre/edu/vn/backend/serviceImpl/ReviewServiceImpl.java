@@ -41,7 +41,7 @@ public class ReviewServiceImpl implements ReviewService {
 
     @Override
     public List<ReviewDTO.GetReviewDTO> findAll() {
-        return reviewRepository.findAllActive()
+        return reviewRepository.findAllActiveCards()
                 .stream()
                 .map(reviewMapper::toGetReviewDTO)
                 .collect(Collectors.toList());
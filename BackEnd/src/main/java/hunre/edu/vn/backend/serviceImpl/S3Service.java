@@ -1,56 +1,278 @@
 package hunre.edu.vn.backend.serviceImpl;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.PutObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.services.s3.model.S3ObjectInputStream;
-import com.amazonaws.util.IOUtils;
+import hunre.edu.vn.backend.dto.StorageDTO;
+import hunre.edu.vn.backend.entity.MediaDeletion;
+import hunre.edu.vn.backend.event.MediaUploadedEvent;
+import hunre.edu.vn.backend.repository.MediaDeletionRepository;
+import hunre.edu.vn.backend.repository.MediaReferenceRepository;
+import hunre.edu.vn.backend.storage.DiskReadCache;
+import hunre.edu.vn.backend.storage.ObjectStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
+/**
+ * Tải lên, tải xuống và xóa media. Tên lớp giữ nguyên vì được dùng ở nhiều nơi,
+ * nhưng nơi lưu thực tế là ObjectStorage (S3 hoặc thư mục cục bộ, theo app.storage.type).
+ */
 @Service
 public class S3Service {
 
+    private static final Logger logger = LoggerFactory.getLogger(S3Service.class);
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    private static final int DELETE_SWEEP_BATCH_SIZE = 100;
+    // Mọi định dạng ImageDerivativeServiceImpl có thể dùng cho ảnh thu nhỏ
+    private static final String[] DERIVATIVE_FORMATS = {"webp", "png", "jpg"};
+
+    @Autowired
+    private ObjectStorage storage;
+
+    @Autowired
+    private DiskReadCache readCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
-    private AmazonS3 s3Client;
+    private MediaReferenceRepository mediaReferenceRepository;
 
-    @Value("${aws.s3.bucket}")
-    private String bucketName;
+    @Autowired
+    private MediaDeletionRepository mediaDeletionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.storage.type:s3}")
+    private String storageType;
+
+    // Khoảng chờ trước khi xóa object: bản ghi vừa tải ảnh lên (dùng lại nội dung cũ) kịp được lưu
+    @Value("${app.storage.delete-delay-ms:600000}")
+    private long deleteDelayMillis;
+
+    @Value("${app.media.derivative-widths:200,400,800}")
+    private int[] derivativeWidths;
+
+    /**
+     * Kết quả tải lên: created = false khi nội dung đã có sẵn trên kho và URL cũ được dùng lại
+     */
+    public record UploadResult(String url, boolean created) {
+    }
 
     public String uploadFile(MultipartFile file) throws IOException {
-        File fileObj = convertMultiPartFileToFile(file);
-        String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        s3Client.putObject(new PutObjectRequest(bucketName, fileName, fileObj));
-        fileObj.delete();
-        return s3Client.getUrl(bucketName, fileName).toString();
+        return upload(file).url();
     }
 
-    private File convertMultiPartFileToFile(MultipartFile file) throws IOException {
-        File convertedFile = new File(file.getOriginalFilename());
-        try (FileOutputStream fos = new FileOutputStream(convertedFile)) {
-            fos.write(file.getBytes());
+    /**
+     * Tải file lên với khóa là SHA-256 của nội dung, không ghi file tạm và không đọc toàn bộ file vào bộ nhớ.
+     * Luồng dữ liệu được đọc hai lần: lần đầu để tính hash, lần sau đẩy thẳng vào kho (multipart với file lớn).
+     * Nội dung trùng với object đã có thì trả lại URL cũ, không tải lên lại và không phát sự kiện.
+     */
+    public UploadResult upload(MultipartFile file) throws IOException {
+        String key = sha256(file) + extensionOf(file.getOriginalFilename());
+        String url = storage.urlOf(key);
+        // Hủy yêu cầu xóa đang chờ trước khi kiểm tra tồn tại: nếu lượt quét đang xóa khóa này thì chờ nó xong,
+        // khi đó object không còn và sẽ được tải lên lại
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> mediaDeletionRepository.cancel(key));
+        if (storage.exists(key)) {
+            logger.debug("Nội dung {} đã tồn tại, dùng lại {}", file.getOriginalFilename(), url);
+            return new UploadResult(url, false);
         }
-        return convertedFile;
+
+        try (InputStream inputStream = file.getInputStream()) {
+            storage.put(key, inputStream, file.getSize(), file.getContentType());
+        }
+
+        eventPublisher.publishEvent(new MediaUploadedEvent(url, file.getContentType()));
+        return new UploadResult(url, true);
+    }
+
+    /**
+     * Ghi nội dung đã có sẵn trong bộ nhớ với khóa cho trước (dùng cho ảnh thu nhỏ), không phát sự kiện tải lên
+     */
+    public String uploadBytes(String key, byte[] content, String contentType) {
+        try {
+            storage.put(key, new ByteArrayInputStream(content), content.length, contentType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        readCache.invalidate(key);
+        return storage.urlOf(key);
     }
 
+    /**
+     * Đọc object; với kho ở xa, lượt đọc đi qua bộ đệm đĩa cục bộ
+     */
     public byte[] downloadFile(String fileName) {
-        S3Object s3Object = s3Client.getObject(bucketName, fileName);
-        S3ObjectInputStream inputStream = s3Object.getObjectContent();
+        String key = keyOf(fileName);
         try {
-            return IOUtils.toByteArray(inputStream);
+            return storage.isRemote() ? readCache.get(key, () -> storage.read(key)) : storage.read(key);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Mở luồng đọc object; kho cục bộ đọc thẳng từ file, kho ở xa đi qua bộ đệm đĩa.
+     * Nơi gọi phải đóng luồng
+     */
+    public InputStream openFile(String fileName) throws IOException {
+        String key = keyOf(fileName);
+        if (storage.isRemote()) {
+            return new ByteArrayInputStream(readCache.get(key, () -> storage.read(key)));
+        }
+        return storage.open(key);
+    }
+
+    /**
+     * Yêu cầu xóa object. Nơi gọi đã (hoặc sắp) bỏ tham chiếu của mình; object chỉ bị xóa sau
+     * app.storage.delete-delay-ms nếu khi đó không còn bản ghi nào tham chiếu tới URL
+     */
     public String deleteFile(String fileName) {
-        s3Client.deleteObject(bucketName, fileName);
-        return fileName + " đã được xóa";
+        scheduleDeletion(fileName);
+        return fileName + " sẽ được xóa khi không còn nơi nào sử dụng";
+    }
+
+    /**
+     * Xóa object vừa tải lên khi bản ghi tương ứng không được lưu. Vẫn đi qua hàng đợi xóa vì
+     * một lượt tải lên đồng thời có thể đã dùng lại cùng nội dung
+     */
+    public void deleteUploaded(UploadResult result) {
+        if (result.created()) {
+            scheduleDeletion(result.url());
+        }
+    }
+
+    /**
+     * Xóa các object có yêu cầu đã đến hạn, mỗi object trong một transaction riêng
+     */
+    @Scheduled(initialDelayString = "${app.storage.delete-sweep-ms:300000}",
+            fixedDelayString = "${app.storage.delete-sweep-ms:300000}")
+    public void purgeDeleted() {
+        LocalDateTime now = LocalDateTime.now();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (MediaDeletion deletion : mediaDeletionRepository.findDue(now, PageRequest.of(0, DELETE_SWEEP_BATCH_SIZE))) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> purge(deletion, now));
+            } catch (Exception e) {
+                // Transaction rollback nên yêu cầu vẫn còn, lượt quét sau thử lại
+                logger.error("Lỗi khi xóa object {}: {}", deletion.getObjectKey(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void purge(MediaDeletion deletion, LocalDateTime now) {
+        // Yêu cầu đã bị hủy, lùi hạn hoặc instance khác đã xử lý
+        if (mediaDeletionRepository.claim(deletion.getObjectKey(), now) == 0) {
+            return;
+        }
+        // Đếm sau khi nơi gọi đã cập nhật bản ghi của mình: chỉ xóa khi không còn tham chiếu nào
+        if (mediaReferenceRepository.countReferences(deletion.getUrl()) > 0) {
+            logger.debug("{} vẫn đang được dùng, không xóa", deletion.getUrl());
+            return;
+        }
+        storage.delete(deletion.getObjectKey());
+        readCache.invalidate(deletion.getObjectKey());
+        // Ảnh thu nhỏ không có bản ghi tham chiếu riêng, xóa cùng ảnh gốc (khóa chưa từng tạo thì bỏ qua)
+        for (String derivativeKey : derivativeKeysOf(deletion.getObjectKey())) {
+            storage.delete(derivativeKey);
+            readCache.invalidate(derivativeKey);
+        }
+    }
+
+    /**
+     * Khóa của ảnh thu nhỏ: khóa ảnh gốc bỏ phần mở rộng, thêm hậu tố _w{width} và định dạng
+     */
+    public static String derivativeKey(String originalKey, int width, String format) {
+        int dot = originalKey.lastIndexOf('.');
+        String baseKey = dot > 0 ? originalKey.substring(0, dot) : originalKey;
+        return baseKey + "_w" + width + "." + format;
+    }
+
+    // Mọi khóa ảnh thu nhỏ có thể có theo các chiều rộng cấu hình
+    private List<String> derivativeKeysOf(String originalKey) {
+        List<String> keys = new ArrayList<>();
+        for (int width : derivativeWidths) {
+            for (String format : DERIVATIVE_FORMATS) {
+                keys.add(derivativeKey(originalKey, width, format));
+            }
+        }
+        return keys;
+    }
+
+    private void scheduleDeletion(String fileNameOrUrl) {
+        String key = keyOf(fileNameOrUrl);
+        // Bản ghi lưu nguyên URL đã nhận khi tải lên, đếm tham chiếu theo đúng chuỗi đó
+        String url = fileNameOrUrl.startsWith("http://") || fileNameOrUrl.startsWith("https://")
+                ? fileNameOrUrl : storage.urlOf(key);
+        LocalDateTime deleteAfter = LocalDateTime.now().plus(Duration.ofMillis(deleteDelayMillis));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                mediaDeletionRepository.schedule(key, url, deleteAfter));
+    }
+
+    public StorageDTO.CacheStatsDTO getCacheStats() {
+        StorageDTO.CacheStatsDTO stats = readCache.getStats();
+        stats.setStorageType(storageType);
+        return stats;
+    }
+
+    // Nơi gọi thường lưu URL đầy đủ trả về từ uploadFile, kho lưu trữ cần khóa của object
+    public String keyOf(String fileNameOrUrl) {
+        if (fileNameOrUrl.startsWith("http://") || fileNameOrUrl.startsWith("https://")) {
+            String key = fileNameOrUrl.substring(fileNameOrUrl.lastIndexOf('/') + 1);
+            return URLDecoder.decode(key, StandardCharsets.UTF_8);
+        }
+        return fileNameOrUrl;
+    }
+
+    private String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream inputStream = file.getInputStream()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Chỉ giữ phần mở rộng an toàn của tên file gốc, tên file do client gửi không đi vào khóa
+    private String extensionOf(String originalFilename) {
+        if (originalFilename == null || originalFilename.lastIndexOf('.') < 0) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return SAFE_EXTENSION.matcher(extension).matches() ? "." + extension : "";
     }
-}
\ No newline at end of file
+}
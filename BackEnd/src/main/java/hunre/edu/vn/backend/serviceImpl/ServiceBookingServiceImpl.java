@@ -4,8 +4,11 @@ import hunre.edu.vn.backend.dto.ServiceBookingDTO;
 import hunre.edu.vn.backend.entity.*;
 import hunre.edu.vn.backend.mapper.ServiceBookingMapper;
 import hunre.edu.vn.backend.repository.*;
-import hunre.edu.vn.backend.service.EmailService;
+import hunre.edu.vn.backend.service.EmailOutboxService;
 import hunre.edu.vn.backend.service.ServiceBookingService;
+import hunre.edu.vn.backend.utils.EntityStreams;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,6 +19,7 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,8 +32,11 @@ public class ServiceBookingServiceImpl implements ServiceBookingService {
     private final DoctorProfileRepository doctorProfileRepository;
     private final ConsultationRepository consultationRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
 
     public ServiceBookingServiceImpl(
             ServiceBookingRepository serviceBookingRepository,
@@ -102,6 +109,13 @@ public class ServiceBookingServiceImpl implements ServiceBookingService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<ServiceBookingDTO.GetServiceBookingDTO> consumer) {
+        EntityStreams.forEach(serviceBookingRepository.streamAllActive(), entityManager,
+                serviceBookingMapper::toGetServiceBookingDTO, consumer);
+    }
+
     @Override
     public Optional<ServiceBookingDTO.GetServiceBookingDTO> findById(Long id) {
         return serviceBookingRepository.findActiveById(id)
@@ -130,12 +144,9 @@ public class ServiceBookingServiceImpl implements ServiceBookingService {
             createRelatedRecords(serviceBooking, patientId, doctorId, appointmentDate, appointmentTime);
         }
 
-        try {
-            User user = serviceBooking.getPatient().getUser();
-            emailService.sendServiceBookingConfirmationEmail(user, serviceBooking);
-        } catch (Exception e) {
-            System.out.println("Lỗi khi gửi email xác nhận dịch vụ: " + e);
-        }
+        // Email (kèm PDF) được dựng và gửi bởi worker outbox sau khi đặt dịch vụ commit, không chặn request
+        User user = serviceBooking.getPatient().getUser();
+        emailOutboxService.enqueueServiceBookingConfirmation(serviceBooking.getId(), user.getEmail(), user.getFullName());
 
         return serviceBookingMapper.toGetServiceBookingDTO(serviceBooking);
     }
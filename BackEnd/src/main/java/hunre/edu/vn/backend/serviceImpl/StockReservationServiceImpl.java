@@ -0,0 +1,156 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.entity.*;
+import hunre.edu.vn.backend.exception.InsufficientStockException;
+import hunre.edu.vn.backend.repository.AttributeRepository;
+import hunre.edu.vn.backend.repository.StockReservationRepository;
+import hunre.edu.vn.backend.service.InventoryExpiryService;
+import hunre.edu.vn.backend.service.MedicineInventoryService;
+import hunre.edu.vn.backend.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Giữ hàng cho đơn hàng bằng cách trừ trực tiếp tồn kho của lô.
+ * Việc kiểm tra và trừ nằm trong một câu UPDATE có điều kiện nên nhiều đơn đồng thời không thể bán quá số lượng;
+ * việc hoàn lại đi qua một lần chuyển trạng thái có điều kiện trên sổ giữ hàng nên không bao giờ cộng lại hai lần.
+ */
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private final AttributeRepository attributeRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final MedicineInventoryService medicineInventoryService;
+    private final InventoryExpiryService inventoryExpiryService;
+
+    // Thời gian giữ hàng cho đơn thanh toán trực tuyến chưa thanh toán; hiện đơn trực tuyến được ghi nhận đã thanh toán
+    // ngay khi tạo nên giá trị này chỉ có tác dụng khi có cổng thanh toán để trạng thái thanh toán ở PENDING
+    @Value("${app.orders.reservation-ttl-minutes:30}")
+    private long reservationTtlMinutes;
+
+    // Thời gian giữ hàng cho đơn COD chưa xác nhận, 0 (mặc định) là giữ đến khi đơn bị hủy.
+    // Tự hủy đơn COD quá hạn là tùy chọn vì đơn chỉ chờ nhân viên xác nhận, không chờ khách thanh toán
+    @Value("${app.orders.cod-reservation-ttl-minutes:0}")
+    private long codReservationTtlMinutes;
+
+    public StockReservationServiceImpl(AttributeRepository attributeRepository,
+                                       StockReservationRepository stockReservationRepository,
+                                       MedicineInventoryService medicineInventoryService,
+                                       InventoryExpiryService inventoryExpiryService) {
+        this.attributeRepository = attributeRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.medicineInventoryService = medicineInventoryService;
+        this.inventoryExpiryService = inventoryExpiryService;
+    }
+
+    @Override
+    @Transactional
+    public void reserve(OrderDetail orderDetail) {
+        Attribute attribute = orderDetail.getAttribute();
+        int quantity = orderDetail.getQuantity();
+
+        Set<Long> affectedMedicineIds = new HashSet<>();
+        Set<Long> affectedAttributeIds = new HashSet<>();
+        StockReservation reservation = stockReservationRepository.findByOrderDetailId(orderDetail.getId())
+                .orElseGet(StockReservation::new);
+        if (reservation.getId() != null && releaseHeld(reservation)) {
+            affectedMedicineIds.add(reservation.getMedicineId());
+            affectedAttributeIds.add(reservation.getAttributeId());
+        }
+
+        if (attributeRepository.reserveStock(attribute.getId(), quantity) == 0) {
+            throw new InsufficientStockException("Không đủ tồn kho cho " + attribute.getName()
+                    + " (cần " + quantity + ")");
+        }
+
+        Order order = orderDetail.getOrder();
+        LocalDateTime now = LocalDateTime.now();
+        if (reservation.getId() == null) {
+            reservation.setCreatedAt(now);
+        }
+        reservation.setUpdatedAt(now);
+        reservation.setOrderId(order.getId());
+        reservation.setOrderDetailId(orderDetail.getId());
+        reservation.setAttributeId(attribute.getId());
+        reservation.setMedicineId(orderDetail.getMedicine().getId());
+        reservation.setQuantity(quantity);
+        applyHoldPolicy(reservation, order, now);
+        stockReservationRepository.save(reservation);
+
+        affectedMedicineIds.add(reservation.getMedicineId());
+        affectedAttributeIds.add(reservation.getAttributeId());
+        medicineInventoryService.refreshStockAndPrices(affectedMedicineIds);
+        inventoryExpiryService.stockChanged(affectedAttributeIds);
+    }
+
+    @Override
+    @Transactional
+    public void release(Long orderDetailId) {
+        stockReservationRepository.findByOrderDetailId(orderDetailId)
+                .filter(this::releaseHeld)
+                .ifPresent(reservation -> {
+                    medicineInventoryService.refreshStockAndPrices(List.of(reservation.getMedicineId()));
+                    inventoryExpiryService.stockChanged(List.of(reservation.getAttributeId()));
+                });
+    }
+
+    @Override
+    @Transactional
+    public void releaseOrder(Long orderId) {
+        Set<Long> affectedMedicineIds = new HashSet<>();
+        Set<Long> affectedAttributeIds = new HashSet<>();
+        for (StockReservation reservation : stockReservationRepository.findHeldByOrderId(orderId)) {
+            if (releaseHeld(reservation)) {
+                affectedMedicineIds.add(reservation.getMedicineId());
+                affectedAttributeIds.add(reservation.getAttributeId());
+            }
+        }
+        medicineInventoryService.refreshStockAndPrices(affectedMedicineIds);
+        inventoryExpiryService.stockChanged(affectedAttributeIds);
+    }
+
+    @Override
+    @Transactional
+    public void commitOrder(Long orderId) {
+        stockReservationRepository.commitByOrderId(orderId);
+    }
+
+    @Override
+    public List<Long> findOrdersWithExpiredReservations(int limit) {
+        return stockReservationRepository.findOrderIdsWithExpiredReservations(LocalDateTime.now(), PageRequest.of(0, limit));
+    }
+
+    // Chỉ luồng chuyển được bản ghi sang RELEASED mới cộng lại tồn kho
+    private boolean releaseHeld(StockReservation reservation) {
+        if (reservation.getStatus() == ReservationStatus.RELEASED
+                || stockReservationRepository.markReleased(reservation.getId()) == 0) {
+            return false;
+        }
+        attributeRepository.releaseStock(reservation.getAttributeId(), reservation.getQuantity());
+        reservation.setStatus(ReservationStatus.RELEASED);
+        reservation.setExpiresAt(null);
+        return true;
+    }
+
+    private void applyHoldPolicy(StockReservation reservation, Order order, LocalDateTime now) {
+        boolean settled = order.getPaymentStatus() == PaymentStatus.COMPLETED
+                || order.getStatus() == OrderStatus.CONFIRMED
+                || order.getStatus() == OrderStatus.COMPLETED;
+        if (settled) {
+            reservation.setStatus(ReservationStatus.COMMITTED);
+            reservation.setExpiresAt(null);
+            return;
+        }
+
+        long ttlMinutes = order.getPaymentMethod() == PaymentMethod.CASH ? codReservationTtlMinutes : reservationTtlMinutes;
+        reservation.setStatus(ReservationStatus.RESERVED);
+        reservation.setExpiresAt(ttlMinutes > 0 ? now.plusMinutes(ttlMinutes) : null);
+    }
+}
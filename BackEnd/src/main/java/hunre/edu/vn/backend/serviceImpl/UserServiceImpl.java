@@ -12,6 +12,9 @@ import hunre.edu.vn.backend.mapper.UserMapper;
 import hunre.edu.vn.backend.repository.*;
 import hunre.edu.vn.backend.service.EmailService;
 import hunre.edu.vn.backend.service.UserService;
+import hunre.edu.vn.backend.utils.EntityStreams;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import hunre.edu.vn.backend.utils.JwtTokenProvider;
 import jakarta.mail.MessagingException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +35,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,6 +45,9 @@ public class UserServiceImpl implements UserService {
     private final PasswordEncoder passwordEncoder;
     private final S3Service s3Service;
     private final AuthenticationManager authenticationManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
     @Value("${google.client-id}")
     private String googleClientId;
 
@@ -130,6 +137,12 @@ public class UserServiceImpl implements UserService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<UserDTO.GetUserDTO> consumer) {
+        EntityStreams.forEach(userRepository.streamAllActive(), entityManager, userMapper::toGetUserDTO, consumer);
+    }
+
     @Override
     public Optional<UserDTO.GetUserDTO> findById(Long id) {
         return userRepository.findActiveById(id)
@@ -0,0 +1,112 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.dto.VoucherDTO;
+import hunre.edu.vn.backend.entity.Voucher;
+import hunre.edu.vn.backend.entity.VoucherRedemption;
+import hunre.edu.vn.backend.exception.VoucherNotApplicableException;
+import hunre.edu.vn.backend.repository.VoucherRedemptionRepository;
+import hunre.edu.vn.backend.repository.VoucherRepository;
+import hunre.edu.vn.backend.service.VoucherRedemptionService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Dùng và trả lại lượt voucher cho đơn hàng.
+ * Lượt dùng được trừ bằng câu UPDATE có điều kiện thay vì đọc - sửa - ghi, nên không mất cập nhật khi nhiều đơn
+ * dùng cùng một mã; việc trả lại đi qua released_at có điều kiện nên không cộng lại hai lần.
+ */
+@Service
+public class VoucherRedemptionServiceImpl implements VoucherRedemptionService {
+
+    private final VoucherRepository voucherRepository;
+    private final VoucherRedemptionRepository voucherRedemptionRepository;
+
+    public VoucherRedemptionServiceImpl(VoucherRepository voucherRepository,
+                                        VoucherRedemptionRepository voucherRedemptionRepository) {
+        this.voucherRepository = voucherRepository;
+        this.voucherRedemptionRepository = voucherRedemptionRepository;
+    }
+
+    @Override
+    @Transactional
+    public VoucherDTO.RedemptionDTO redeem(String code, Long orderId, BigDecimal orderValue) {
+        Voucher voucher = voucherRepository.findByCodeAndIsDeletedFalse(code)
+                .orElseThrow(() -> new VoucherNotApplicableException("Không tìm thấy voucher với mã: " + code));
+        BigDecimal value = orderValue != null ? orderValue : BigDecimal.ZERO;
+
+        Optional<VoucherRedemption> existing = voucherRedemptionRepository.findByOrderId(orderId);
+        if (existing.isPresent() && existing.get().getReleasedAt() == null) {
+            if (existing.get().getVoucherId().equals(voucher.getId())) {
+                return toDTO(existing.get());
+            }
+            release(existing.get());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (voucherRepository.redeem(voucher.getId(), now, value) == 0) {
+            throw new VoucherNotApplicableException(rejectionReason(voucher, value, now));
+        }
+
+        VoucherRedemption redemption = existing.orElseGet(VoucherRedemption::new);
+        if (redemption.getId() == null) {
+            redemption.setCreatedAt(now);
+        }
+        redemption.setUpdatedAt(now);
+        redemption.setVoucherId(voucher.getId());
+        redemption.setVoucherCode(voucher.getCode());
+        redemption.setOrderId(orderId);
+        redemption.setOrderValue(value);
+        redemption.setDiscountAmount(voucher.calculateDiscountAmount(value));
+        redemption.setReleasedAt(null);
+        return toDTO(voucherRedemptionRepository.save(redemption));
+    }
+
+    @Override
+    @Transactional
+    public void releaseForOrder(Long orderId) {
+        voucherRedemptionRepository.findByOrderId(orderId)
+                .filter(redemption -> redemption.getReleasedAt() == null)
+                .ifPresent(this::release);
+    }
+
+    // Chỉ luồng đặt được released_at mới cộng lại lượt cho voucher
+    private void release(VoucherRedemption redemption) {
+        if (voucherRedemptionRepository.markReleased(redemption.getId()) == 1) {
+            voucherRepository.restoreRedemption(redemption.getVoucherId());
+            redemption.setReleasedAt(LocalDateTime.now());
+        }
+    }
+
+    // Câu UPDATE chỉ cho biết có trừ được hay không, đọc lại voucher để báo lý do cụ thể
+    private String rejectionReason(Voucher voucher, BigDecimal orderValue, LocalDateTime now) {
+        if (voucher.getStatus() != Voucher.VoucherStatus.ACTIVE) {
+            return "Voucher " + voucher.getCode() + " không còn hoạt động";
+        }
+        if (voucher.getStartDate() != null && now.isBefore(voucher.getStartDate())) {
+            return "Voucher " + voucher.getCode() + " chưa đến thời gian áp dụng";
+        }
+        if (voucher.getEndDate() != null && now.isAfter(voucher.getEndDate())) {
+            return "Voucher " + voucher.getCode() + " đã hết hạn";
+        }
+        if (voucher.getMinimumOrderValue() != null && orderValue.compareTo(voucher.getMinimumOrderValue()) < 0) {
+            return "Đơn hàng chưa đạt giá trị tối thiểu " + voucher.getMinimumOrderValue() + " để dùng voucher " + voucher.getCode();
+        }
+        return "Voucher " + voucher.getCode() + " đã hết lượt sử dụng";
+    }
+
+    private VoucherDTO.RedemptionDTO toDTO(VoucherRedemption redemption) {
+        return VoucherDTO.RedemptionDTO.builder()
+                .id(redemption.getId())
+                .voucherId(redemption.getVoucherId())
+                .voucherCode(redemption.getVoucherCode())
+                .orderId(redemption.getOrderId())
+                .orderValue(redemption.getOrderValue())
+                .discountAmount(redemption.getDiscountAmount())
+                .redeemedAt(redemption.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,199 @@
+package hunre.edu.vn.backend.storage;
+
+import hunre.edu.vn.backend.dto.StorageDTO;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bộ đệm đọc trên đĩa cục bộ cho object ở kho xa.
+ * Tổng dung lượng bị giới hạn, vượt ngưỡng thì loại bỏ file ít được đọc gần đây nhất (LRU).
+ * Chỉ mục được dựng lại từ thư mục khi khởi động nên bộ đệm còn giá trị sau khi khởi động lại.
+ */
+@Component
+public class DiskReadCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskReadCache.class);
+    private static final String ENTRY_SUFFIX = ".bin";
+
+    @Value("${app.storage.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.cache.dir:${java.io.tmpdir}/media-cache}")
+    private String directory;
+
+    @Value("${app.storage.cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    private Path root;
+
+    // Tên file -> kích thước, theo thứ tự truy cập để lấy phần tử cũ nhất khi loại bỏ
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @FunctionalInterface
+    public interface Loader {
+        byte[] load() throws IOException;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        root = Files.createDirectories(Paths.get(directory)).toAbsolutePath();
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(root)) {
+            files = stream.filter(path -> path.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                    .sorted(Comparator.comparingLong(this::lastModified))
+                    .collect(Collectors.toList());
+        }
+        synchronized (this) {
+            for (Path file : files) {
+                long size = Files.size(file);
+                entries.put(file.getFileName().toString(), size);
+                totalBytes += size;
+            }
+            evictIfNeeded();
+        }
+        logger.info("Bộ đệm media trên đĩa: {} file, {} byte tại {}", entries.size(), totalBytes, root);
+    }
+
+    /**
+     * Đọc object qua bộ đệm; chưa có thì tải từ kho bằng loader rồi ghi vào bộ đệm
+     */
+    public byte[] get(String key, Loader loader) throws IOException {
+        if (!enabled) {
+            return loader.load();
+        }
+
+        String name = fileName(key);
+        boolean cached;
+        synchronized (this) {
+            cached = entries.get(name) != null;
+        }
+        if (cached) {
+            try {
+                byte[] content = Files.readAllBytes(root.resolve(name));
+                hits.incrementAndGet();
+                return content;
+            } catch (NoSuchFileException e) {
+                // File bị xóa bên ngoài hoặc vừa bị loại bỏ, coi như trượt
+                remove(name);
+            }
+        }
+
+        misses.incrementAndGet();
+        byte[] content = loader.load();
+        store(name, content);
+        return content;
+    }
+
+    public void invalidate(String key) {
+        if (enabled) {
+            remove(fileName(key));
+        }
+    }
+
+    public StorageDTO.CacheStatsDTO getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        synchronized (this) {
+            return StorageDTO.CacheStatsDTO.builder()
+                    .enabled(enabled)
+                    .hits(hitCount)
+                    .misses(missCount)
+                    .hitRatio(hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount))
+                    .evictions(evictions.get())
+                    .entries(entries.size())
+                    .sizeBytes(totalBytes)
+                    .maxBytes(maxBytes)
+                    .build();
+        }
+    }
+
+    private void store(String name, byte[] content) {
+        // Object lớn hơn cả bộ đệm thì không giữ lại
+        if (content.length > maxBytes) {
+            return;
+        }
+
+        try {
+            Path temp = Files.createTempFile(root, ".entry-", ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, root.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Không ghi được bộ đệm media {}: {}", name, e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            Long previous = entries.put(name, (long) content.length);
+            totalBytes += content.length - (previous != null ? previous : 0);
+            evictIfNeeded();
+        }
+    }
+
+    private synchronized void remove(String name) {
+        Long size = entries.remove(name);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        deleteQuietly(name);
+    }
+
+    // Gọi khi đang giữ khóa
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            evictions.incrementAndGet();
+            deleteQuietly(eldest.getKey());
+        }
+    }
+
+    private void deleteQuietly(String name) {
+        try {
+            Files.deleteIfExists(root.resolve(name));
+        } catch (IOException e) {
+            logger.warn("Không xóa được file bộ đệm {}: {}", name, e.getMessage());
+        }
+    }
+
+    private long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Khóa có thể chứa ký tự không hợp lệ cho tên file, băm để có tên cố định độ dài
+    private String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + ENTRY_SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
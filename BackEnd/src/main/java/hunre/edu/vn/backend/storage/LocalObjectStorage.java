@@ -0,0 +1,140 @@
+package hunre.edu.vn.backend.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Lưu object trên hệ thống file cục bộ, dùng khi chạy offline hoặc đo hiệu năng không có S3.
+ * File được phục vụ tĩnh dưới app.storage.local.base-url; file lớn được đọc bằng memory-mapped I/O.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+public class LocalObjectStorage implements ObjectStorage {
+
+    private final Path root;
+    private final String baseUrl;
+    private final long mmapThreshold;
+
+    public LocalObjectStorage(@Value("${app.storage.local.root:./storage}") String root,
+                              @Value("${app.storage.local.base-url:http://localhost:8080/media}") String baseUrl,
+                              @Value("${app.storage.local.mmap-threshold-bytes:65536}") long mmapThreshold) throws IOException {
+        this.root = Files.createDirectories(Paths.get(root)).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.mmapThreshold = mmapThreshold;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public String urlOf(String key) {
+        return baseUrl + "/" + key;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    // Ghi ra file tạm cùng thư mục rồi đổi tên, người đọc không bao giờ thấy file ghi dở
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        Path target = resolve(key);
+        Path temp = Files.createTempFile(root, ".upload-", ".tmp");
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public byte[] read(String key) throws IOException {
+        return Files.readAllBytes(resolve(key));
+    }
+
+    // File lớn được đọc thẳng từ vùng nhớ ánh xạ, không chép sang heap; file nhỏ đọc qua luồng thường
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path path = resolve(key);
+        if (Files.size(path) < mmapThreshold) {
+            return Files.newInputStream(path);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Vùng ánh xạ vẫn hợp lệ sau khi đóng channel
+            return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    private static final class MappedInputStream extends InputStream {
+        private final MappedByteBuffer buffer;
+
+        private MappedInputStream(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    // Khóa chỉ là tên file phẳng, không cho phép thoát ra ngoài thư mục gốc
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.getParent().equals(root)) {
+            throw new IllegalArgumentException("Khóa object không hợp lệ: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,41 @@
+package hunre.edu.vn.backend.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Kho lưu trữ object (ảnh, file đính kèm) được S3Service dùng cho tải lên, tải xuống và xóa.
+ * Chọn triển khai bằng app.storage.type: "s3" (mặc định) hoặc "local" để chạy không cần AWS.
+ */
+public interface ObjectStorage {
+
+    /**
+     * URL công khai của object, là giá trị được lưu vào các bản ghi
+     */
+    String urlOf(String key);
+
+    boolean exists(String key);
+
+    /**
+     * Ghi object từ luồng dữ liệu, không đọc toàn bộ nội dung vào bộ nhớ
+     * @param contentLength Kích thước nội dung (byte)
+     */
+    void put(String key, InputStream content, long contentLength, String contentType) throws IOException;
+
+    byte[] read(String key) throws IOException;
+
+    /**
+     * Mở luồng đọc object để xử lý tuần tự mà không chép toàn bộ nội dung vào một mảng trên heap.
+     * Nơi gọi phải đóng luồng
+     */
+    InputStream open(String key) throws IOException;
+
+    void delete(String key);
+
+    /**
+     * Kho ở xa thì lượt đọc nên đi qua bộ đệm đĩa cục bộ
+     */
+    default boolean isRemote() {
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package hunre.edu.vn.backend.storage;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import com.amazonaws.util.IOUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Lưu object trên Amazon S3; file lớn hơn ngưỡng được tải lên theo từng phần (multipart upload)
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3", matchIfMissing = true)
+public class S3ObjectStorage implements ObjectStorage {
+
+    private final AmazonS3 s3Client;
+    private final String bucketName;
+    private final long multipartThreshold;
+    private final TransferManager transferManager;
+
+    public S3ObjectStorage(AmazonS3 s3Client,
+                           @Value("${aws.s3.bucket}") String bucketName,
+                           @Value("${app.media.multipart-threshold-bytes:8388608}") long multipartThreshold) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.multipartThreshold = multipartThreshold;
+        this.transferManager = TransferManagerBuilder.standard()
+                .withS3Client(s3Client)
+                .withMultipartUploadThreshold(multipartThreshold)
+                .withMinimumUploadPartSize(multipartThreshold)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Client S3 là bean dùng chung, không đóng theo TransferManager
+        transferManager.shutdownNow(false);
+    }
+
+    @Override
+    public String urlOf(String key) {
+        return s3Client.getUrl(bucketName, key).toString();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return s3Client.doesObjectExist(bucketName, key);
+    }
+
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(contentLength);
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+
+        if (contentLength > multipartThreshold) {
+            try {
+                transferManager.upload(bucketName, key, content, metadata).waitForCompletion();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Tải lên bị gián đoạn: " + key);
+            }
+        } else {
+            s3Client.putObject(new PutObjectRequest(bucketName, key, content, metadata));
+        }
+    }
+
+    @Override
+    public byte[] read(String key) throws IOException {
+        try (S3Object s3Object = s3Client.getObject(bucketName, key)) {
+            return IOUtils.toByteArray(s3Object.getObjectContent());
+        }
+    }
+
+    // Luồng của S3Object giữ kết nối HTTP đến khi được đóng
+    @Override
+    public InputStream open(String key) {
+        return s3Client.getObject(bucketName, key).getObjectContent();
+    }
+
+    @Override
+    public void delete(String key) {
+        s3Client.deleteObject(bucketName, key);
+    }
+}
@@ -0,0 +1,34 @@
+package hunre.edu.vn.backend.utils;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Duyệt stream entity từ repository, chuyển từng bản ghi sang DTO và giải phóng
+ * persistence context định kỳ để bộ nhớ không tăng theo số bản ghi.
+ */
+public final class EntityStreams {
+
+    private static final int CLEAR_INTERVAL = 200;
+
+    private EntityStreams() {
+    }
+
+    public static <E, D> void forEach(Stream<E> rows, EntityManager entityManager,
+                                      Function<E, D> mapper, Consumer<D> consumer) {
+        try (rows) {
+            Iterator<E> iterator = rows.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                consumer.accept(mapper.apply(iterator.next()));
+                if (++count % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+}
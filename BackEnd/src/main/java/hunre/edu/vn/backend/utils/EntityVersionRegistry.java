@@ -0,0 +1,124 @@
+package hunre.edu.vn.backend.utils;
+
+import hunre.edu.vn.backend.entity.BaseEntity;
+import hunre.edu.vn.backend.entity.EntityVersion;
+import hunre.edu.vn.backend.repository.EntityVersionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Phiên bản theo loại entity, tăng mỗi khi có thao tác ghi (lưu, xóa, cập nhật hàng loạt).
+ * Phiên bản lưu trong bảng entity_versions nên mọi instance và mọi lần khởi động đều thấy cùng một giá trị.
+ * Bảng chỉ có vài chục dòng, được đọc nguyên bảng và giữ trong bộ nhớ tối đa app.etag.version-cache-ms;
+ * bản cache cũ chỉ khiến ETag đổi chậm hơn dữ liệu (client tải lại), không bao giờ gắn ETag mới cho dữ liệu cũ.
+ */
+@Component
+public class EntityVersionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityVersionRegistry.class);
+
+    private final EntityVersionRepository entityVersionRepository;
+    private final TransactionTemplate newTransaction;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${app.etag.version-cache-ms:1000}")
+    private long cacheMillis;
+
+    private volatile Map<String, EntityVersion> cached = Collections.emptyMap();
+    private volatile long cachedAt = 0;
+
+    public EntityVersionRegistry(EntityVersionRepository entityVersionRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.entityVersionRepository = entityVersionRepository;
+        // Được gọi cả trong afterCommit của transaction khác nên luôn mở transaction mới
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void bump(Class<?> entityType) {
+        bumpAll(List.of(entityType));
+    }
+
+    /**
+     * Tăng phiên bản của các loại entity trong một transaction ngắn.
+     * Lỗi chỉ được ghi log: dữ liệu đã commit, ETag sẽ đổi ở lần ghi kế tiếp
+     */
+    public void bumpAll(Collection<? extends Class<?>> entityTypes) {
+        if (entityTypes.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            newTransaction.executeWithoutResult(status ->
+                    entityTypes.forEach(type -> entityVersionRepository.increment(type.getSimpleName(), now)));
+        } catch (Exception e) {
+            logger.error("Lỗi khi tăng phiên bản cho {}: {}", entityTypes, e.getMessage(), e);
+        }
+        // Instance vừa ghi đọc lại ngay để chính nó không trả 304 với dữ liệu cũ
+        cachedAt = 0;
+    }
+
+    /**
+     * ETag cho tập loại entity: tổng các phiên bản chỉ tăng nên thay đổi mỗi khi một loại bất kỳ thay đổi
+     */
+    public String etagOf(Class<? extends BaseEntity>[] entityTypes) {
+        Map<String, EntityVersion> versions = versions();
+        long sum = 0;
+        for (Class<? extends BaseEntity> type : entityTypes) {
+            EntityVersion version = versions.get(type.getSimpleName());
+            sum += version != null ? version.getVersion() : 0;
+        }
+        return "W/\"" + sum + "\"";
+    }
+
+    /**
+     * Thời điểm ghi gần nhất của tập loại entity, -1 nếu chưa từng ghi (không gửi Last-Modified)
+     */
+    public long lastModifiedOf(Class<? extends BaseEntity>[] entityTypes) {
+        Map<String, EntityVersion> versions = versions();
+        long result = -1;
+        for (Class<? extends BaseEntity> type : entityTypes) {
+            EntityVersion version = versions.get(type.getSimpleName());
+            if (version != null) {
+                result = Math.max(result, version.getModifiedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        }
+        return result;
+    }
+
+    private Map<String, EntityVersion> versions() {
+        long now = System.currentTimeMillis();
+        if (now - cachedAt < cacheMillis) {
+            return cached;
+        }
+
+        // Ghi nhận thời điểm trước khi đọc: một lần tăng xen giữa sẽ làm lần đọc sau nạp lại
+        try {
+            Map<String, EntityVersion> loaded = readOnlyTransaction.execute(status ->
+                    entityVersionRepository.findAll().stream()
+                            .collect(Collectors.toMap(EntityVersion::getEntityName, version -> version)));
+            cached = loaded;
+            cachedAt = now;
+        } catch (Exception e) {
+            logger.error("Lỗi khi đọc phiên bản entity: {}", e.getMessage(), e);
+        }
+        return cached;
+    }
+}
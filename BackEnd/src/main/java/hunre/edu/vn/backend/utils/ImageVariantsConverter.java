@@ -0,0 +1,57 @@
+package hunre.edu.vn.backend.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lưu các phiên bản thu nhỏ của ảnh (chiều rộng -> URL) dưới dạng JSON trong một cột.
+ * Map rỗng nghĩa là ảnh đã được xử lý nhưng không có phiên bản nào (ảnh nhỏ hoặc không đọc được).
+ */
+@Converter
+public class ImageVariantsConverter implements AttributeConverter<Map<Integer, String>, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<TreeMap<Integer, String>> TYPE = new TypeReference<>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(Map<Integer, String> variants) {
+        if (variants == null) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(new TreeMap<>(variants));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Không thể ghi danh sách ảnh thu nhỏ", e);
+        }
+    }
+
+    @Override
+    public Map<Integer, String> convertToEntityAttribute(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(json, TYPE);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Chọn URL nhỏ nhất có chiều rộng không nhỏ hơn width, nếu không có thì dùng ảnh gốc
+     */
+    public static String bestFor(String originalUrl, Map<Integer, String> variants, int width) {
+        if (variants == null || variants.isEmpty()) {
+            return originalUrl;
+        }
+        Map.Entry<Integer, String> match = new TreeMap<>(variants).ceilingEntry(width);
+        return match != null ? match.getValue() : originalUrl;
+    }
+}
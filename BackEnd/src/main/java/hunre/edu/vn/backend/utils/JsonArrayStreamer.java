@@ -0,0 +1,56 @@
+package hunre.edu.vn.backend.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Ghi một mảng JSON trực tiếp ra response bằng JsonGenerator, từng phần tử một,
+ * thay vì dựng toàn bộ danh sách rồi mới serialize.
+ */
+@Component
+public class JsonArrayStreamer {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter elementWriter;
+
+    public JsonArrayStreamer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Không flush sau mỗi phần tử, để bộ đệm của servlet quyết định thời điểm gửi
+        this.elementWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @param response Response cần ghi
+     * @param producer Hàm sinh dữ liệu, gọi consumer cho từng phần tử theo thứ tự
+     */
+    public <T> void write(HttpServletResponse response, Consumer<Consumer<T>> producer) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            try {
+                producer.accept(element -> {
+                    try {
+                        elementWriter.writeValue(generator, element);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
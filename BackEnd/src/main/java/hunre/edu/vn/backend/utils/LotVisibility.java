@@ -0,0 +1,45 @@
+package hunre.edu.vn.backend.utils;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Quy tắc duy nhất quyết định lô thuốc (thuộc tính) nào được bán và hiển thị giá:
+ * chưa bị xóa, và nếu bật app.inventory.hide-expired-lots thì chưa quá hạn sử dụng.
+ * Snapshot danh mục lọc thuộc tính của thẻ thuốc bằng isVisible, truy vấn SQL dùng toPredicate,
+ * nên bộ lọc theo giá cho cùng một kết quả dù đọc từ snapshot hay từ DB.
+ */
+@Component
+public class LotVisibility {
+
+    @Value("${app.inventory.hide-expired-lots:false}")
+    private boolean hideExpiredLots;
+
+    public boolean isHidingExpiredLots() {
+        return hideExpiredLots;
+    }
+
+    /**
+     * Lô chưa bị xóa còn hiển thị vào ngày today (hạn sử dụng là ngày cuối cùng còn bán)
+     */
+    public boolean isVisible(LocalDate expiryDate, LocalDate today) {
+        return !hideExpiredLots || expiryDate == null || !today.isAfter(expiryDate);
+    }
+
+    /**
+     * Điều kiện tương đương isVisible cho truy vấn Criteria trên entity Attribute, kể cả điều kiện chưa xóa
+     */
+    public Predicate toPredicate(CriteriaBuilder cb, Path<?> attribute, LocalDate today) {
+        Predicate notDeleted = cb.isFalse(attribute.get("isDeleted"));
+        if (!hideExpiredLots) {
+            return notDeleted;
+        }
+        Path<LocalDate> expiryDate = attribute.get("expiryDate");
+        return cb.and(notDeleted, cb.or(cb.isNull(expiryDate), cb.greaterThanOrEqualTo(expiryDate, today)));
+    }
+}
@@ -0,0 +1,44 @@
+package hunre.edu.vn.backend.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Con trỏ cho phân trang keyset: lưu giá trị khóa sắp xếp và id của bản ghi cuối cùng
+ * trong trang trước, được mã hóa Base64 (URL-safe) để trả về cho client.
+ */
+@Getter
+@AllArgsConstructor
+public class SearchCursor {
+    private final String key;
+    private final Long id;
+
+    public String encode() {
+        String raw = id + ":" + (key != null ? key : "");
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor of(Object key, Long id) {
+        return new SearchCursor(key != null ? key.toString() : null, id);
+    }
+
+    public static SearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            Long id = Long.parseLong(raw.substring(0, separator));
+            String key = raw.substring(separator + 1);
+            return new SearchCursor(key.isEmpty() ? null : key, id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package hunre.edu.vn.backend.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActiveDiscountIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 10, 12, 0);
+
+    // id, medicineId, discountPercentage, maxDiscountAmount, minPurchaseAmount, usageLimit, currentUsageCount, startDate, endDate
+    private static Object[] discount(long id, long medicineId, double percentage, Long maxDiscount, Long minPurchase,
+                                     Integer usageLimit, Integer usageCount, LocalDateTime start, LocalDateTime end) {
+        return new Object[]{id, medicineId, percentage,
+                maxDiscount != null ? BigDecimal.valueOf(maxDiscount) : null,
+                minPurchase != null ? BigDecimal.valueOf(minPurchase) : null,
+                usageLimit, usageCount, start, end};
+    }
+
+    private static Object[] open(long id, long medicineId, double percentage) {
+        return discount(id, medicineId, percentage, null, null, null, null, NOW.minusDays(1), null);
+    }
+
+    private static List<Long> ids(List<ActiveDiscountIndex.Rule> rules) {
+        return rules.stream().map(ActiveDiscountIndex.Rule::discountId).collect(Collectors.toList());
+    }
+
+    @Test
+    void bestRuleGivesLargestDiscountAfterCap() {
+        ActiveDiscountIndex index = ActiveDiscountIndex.of(List.of(
+                open(1, 5, 10),
+                // 50% nhưng giảm tối đa 20.000
+                discount(2, 5, 50, 20_000L, null, null, null, NOW.minusDays(1), null),
+                open(3, 6, 90)), NOW);
+
+        BigDecimal lineTotal = BigDecimal.valueOf(100_000);
+        assertEquals(List.of(2L, 1L), ids(index.candidates(5L, lineTotal)));
+        assertEquals(0, index.best(5L, lineTotal).orElseThrow().discountFor(lineTotal).compareTo(BigDecimal.valueOf(20_000)));
+
+        // Dòng hàng nhỏ: 50% của 30.000 = 15.000 vẫn dưới trần, lớn hơn 10%
+        BigDecimal small = BigDecimal.valueOf(30_000);
+        assertEquals(0, index.best(5L, small).orElseThrow().discountFor(small).compareTo(BigDecimal.valueOf(15_000)));
+        assertTrue(index.best(7L, lineTotal).isEmpty());
+        assertTrue(index.best(5L, BigDecimal.ZERO).isEmpty());
+    }
+
+    @Test
+    void minimumPurchaseIsRespected() {
+        ActiveDiscountIndex index = ActiveDiscountIndex.of(List.<Object[]>of(
+                discount(1, 5, 20, null, 200_000L, null, null, NOW.minusDays(1), null)), NOW);
+
+        assertTrue(index.best(5L, BigDecimal.valueOf(199_999)).isEmpty());
+        assertTrue(index.best(5L, BigDecimal.valueOf(200_000)).isPresent());
+    }
+
+    @Test
+    void exhaustedAndNotYetStartedDiscountsAreSkipped() {
+        ActiveDiscountIndex index = ActiveDiscountIndex.of(List.of(
+                discount(1, 5, 20, null, null, 10, 10, NOW.minusDays(1), null),
+                discount(2, 5, 30, null, null, null, null, NOW.plusHours(2), null),
+                discount(3, 5, 5, null, null, 10, 3, NOW.minusDays(1), null)), NOW);
+
+        List<ActiveDiscountIndex.Rule> rules = index.candidates(5L, BigDecimal.valueOf(100_000));
+        assertEquals(List.of(3L), ids(rules));
+        assertTrue(rules.get(0).limited());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void nextBoundaryIsEarliestStartOrEnd() {
+        ActiveDiscountIndex index = ActiveDiscountIndex.of(List.of(
+                discount(1, 5, 10, null, null, null, null, NOW.minusDays(1), NOW.plusDays(3)),
+                discount(2, 6, 10, null, null, null, null, NOW.plusHours(5), NOW.plusDays(10)),
+                open(3, 7, 10)), NOW);
+
+        assertEquals(NOW.plusHours(5), index.getNextBoundary());
+        assertFalse(index.isStale(NOW.plusHours(4)));
+        assertTrue(index.isStale(NOW.plusHours(5)));
+        assertFalse(ActiveDiscountIndex.empty().isStale(NOW));
+        assertNull(ActiveDiscountIndex.of(List.<Object[]>of(open(1, 5, 10)), NOW).getNextBoundary());
+    }
+
+    @Test
+    void changedMedicineIdsComparesRulesPerMedicine() {
+        ActiveDiscountIndex before = ActiveDiscountIndex.of(List.of(open(1, 5, 10), open(2, 6, 10), open(3, 7, 10)), NOW);
+        ActiveDiscountIndex after = ActiveDiscountIndex.of(List.of(open(1, 5, 10), open(2, 6, 15), open(4, 8, 10)), NOW);
+
+        assertEquals(Set.of(6L, 7L, 8L), before.changedMedicineIds(after));
+        assertTrue(before.changedMedicineIds(before).isEmpty());
+    }
+}
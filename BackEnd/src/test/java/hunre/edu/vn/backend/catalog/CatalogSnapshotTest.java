@@ -0,0 +1,159 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.AttributeDTO;
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import hunre.edu.vn.backend.repository.MedicineSearchRepository.SortOption;
+import hunre.edu.vn.backend.utils.SearchCursor;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CatalogSnapshotTest {
+
+    private static MedicineDTO.GetMedicineDTO medicine(long id, String name) {
+        return MedicineDTO.GetMedicineDTO.builder()
+                .id(id)
+                .code("M" + id)
+                .name(name)
+                .build();
+    }
+
+    // Thẻ thuốc đã tính giá sau discount: mỗi phần tử của prices là {giá niêm yết, giá sau discount}
+    private static MedicineDTO.GetMedicineDTO priced(long id, long[]... prices) {
+        List<AttributeDTO.GetAttributeDTO> attributes = Arrays.stream(prices)
+                .map(price -> AttributeDTO.GetAttributeDTO.builder()
+                        .priceOut(BigDecimal.valueOf(price[0]))
+                        .effectivePrice(BigDecimal.valueOf(price[1]))
+                        .build())
+                .collect(Collectors.toList());
+        return MedicineDTO.GetMedicineDTO.builder()
+                .id(id)
+                .code("M" + id)
+                .name("Thuốc " + id)
+                .minPrice(BigDecimal.valueOf(Arrays.stream(prices).mapToLong(price -> price[0]).min().orElseThrow()))
+                .minEffectivePrice(BigDecimal.valueOf(Arrays.stream(prices).mapToLong(price -> price[1]).min().orElseThrow()))
+                .attributes(attributes)
+                .build();
+    }
+
+    private static List<Long> ids(List<MedicineDTO.GetMedicineDTO> medicines) {
+        return medicines.stream().map(MedicineDTO.GetMedicineDTO::getId).collect(Collectors.toList());
+    }
+
+    private static BitSet all(CatalogSnapshot snapshot) {
+        BitSet rows = new BitSet();
+        rows.set(0, snapshot.size());
+        return rows;
+    }
+
+    @Test
+    void nameSortIgnoresCase() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+                medicine(1, "paracetamol"),
+                medicine(2, "Berberin"),
+                medicine(3, "amoxicillin"),
+                medicine(4, "Cefuroxim")));
+
+        assertEquals(List.of(3L, 2L, 4L, 1L),
+                ids(snapshot.query(all(snapshot), SortOption.NAME_ASC, null, 0, 10)));
+        assertEquals(List.of(1L, 4L, 2L, 3L),
+                ids(snapshot.query(all(snapshot), SortOption.NAME_DESC, null, 0, 10)));
+    }
+
+    @Test
+    void nameCursorFromDatabaseContinuesInSameOrder() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+                medicine(1, "paracetamol"),
+                medicine(2, "Berberin"),
+                medicine(3, "amoxicillin"),
+                medicine(4, "BERBERIN")));
+
+        // Cursor trỏ tới "Berberin" (id 2); "BERBERIN" bằng nhau theo collation nên xếp sau theo id
+        SearchCursor cursor = SearchCursor.of("Berberin", 2L);
+        assertEquals(List.of(4L, 1L),
+                ids(snapshot.query(all(snapshot), SortOption.NAME_ASC, cursor, 0, 10)));
+        assertEquals(List.of(3L),
+                ids(snapshot.query(all(snapshot), SortOption.NAME_DESC, cursor, 0, 10)));
+    }
+
+    @Test
+    void pageThroughNamesWithCursor() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+                medicine(1, "b"), medicine(2, "A"), medicine(3, "a"), medicine(4, "C"), medicine(5, "B")));
+
+        List<MedicineDTO.GetMedicineDTO> first = snapshot.query(all(snapshot), SortOption.NAME_ASC, null, 0, 2);
+        MedicineDTO.GetMedicineDTO last = first.get(first.size() - 1);
+        List<MedicineDTO.GetMedicineDTO> second = snapshot.query(all(snapshot), SortOption.NAME_ASC,
+                SearchCursor.of(last.getName(), last.getId()), 0, 2);
+
+        assertEquals(List.of(2L, 3L), ids(first));
+        assertEquals(List.of(1L, 5L), ids(second));
+    }
+
+    @Test
+    void priceSortUsesPriceAfterDiscount() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+                priced(1, new long[]{100_000, 100_000}),
+                // Niêm yết đắt nhất nhưng đang giảm 60%
+                priced(2, new long[]{150_000, 60_000}),
+                priced(3, new long[]{80_000, 80_000})));
+
+        assertEquals(List.of(2L, 3L, 1L),
+                ids(snapshot.query(all(snapshot), SortOption.PRICE_ASC, null, 0, 10)));
+        assertEquals(List.of(1L, 3L, 2L),
+                ids(snapshot.query(all(snapshot), SortOption.PRICE_DESC, null, 0, 10)));
+    }
+
+    @Test
+    void priceCursorContinuesFromEffectivePrice() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+                priced(1, new long[]{100_000, 100_000}),
+                priced(2, new long[]{150_000, 60_000}),
+                priced(3, new long[]{80_000, 80_000})));
+
+        List<MedicineDTO.GetMedicineDTO> first = snapshot.query(all(snapshot), SortOption.PRICE_ASC, null, 0, 1);
+        SearchCursor cursor = SortOption.PRICE_ASC.cursorOf(first.get(0));
+
+        assertEquals(List.of(2L), ids(first));
+        assertEquals(List.of(3L, 1L), ids(snapshot.query(all(snapshot), SortOption.PRICE_ASC, cursor, 0, 10)));
+    }
+
+    @Test
+    void priceFilterAndFacetsUseVariantPriceAfterDiscount() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+                priced(1, new long[]{120_000, 120_000}),
+                // Chỉ thuộc tính thứ hai được giảm xuống dưới 100.000
+                priced(2, new long[]{300_000, 300_000}, new long[]{110_000, 90_000}),
+                priced(3, new long[]{60_000, 45_000})));
+
+        BitSet under100k = snapshot.filter(MedicineDTO.SearchMedicineDTO.builder()
+                .minPrice(BigDecimal.valueOf(50_000))
+                .maxPrice(BigDecimal.valueOf(100_000))
+                .build());
+        assertEquals(List.of(2L), ids(snapshot.query(under100k, SortOption.DEFAULT, null, 0, 10)));
+
+        List<MedicineDTO.FacetValueDTO> ranges = snapshot.facets(all(snapshot)).getPriceRanges();
+        // 45.000 rơi vào khoảng dưới 50.000 chứ không phải 50.000 - 100.000 theo giá niêm yết 60.000
+        assertEquals(1, ranges.get(0).getCount());
+        assertEquals(0, ranges.get(0).getMaxPrice().compareTo(BigDecimal.valueOf(50_000)));
+    }
+
+    @Test
+    void cardsWithoutEffectivePriceFallBackToListPrice() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+                MedicineDTO.GetMedicineDTO.builder().id(1L).name("a").minPrice(BigDecimal.valueOf(70_000))
+                        .attributes(List.of(AttributeDTO.GetAttributeDTO.builder().priceOut(BigDecimal.valueOf(70_000)).build()))
+                        .build(),
+                priced(2, new long[]{90_000, 50_000})));
+
+        assertEquals(List.of(2L, 1L), ids(snapshot.query(all(snapshot), SortOption.PRICE_ASC, null, 0, 10)));
+        BitSet rows = snapshot.rowsWithPriceBetween(60_000, 80_000);
+        assertEquals(List.of(1L), ids(snapshot.query(rows, SortOption.DEFAULT, null, 0, 10)));
+    }
+}
@@ -0,0 +1,69 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.CategoryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CategoryTreeTest {
+
+    private static Object[] category(long id, Long parentId, String name) {
+        return new Object[]{id, parentId, name, null};
+    }
+
+    private static Object[] link(long ancestorId, long descendantId, int depth) {
+        return new Object[]{ancestorId, descendantId, depth};
+    }
+
+    private static List<Long> ids(List<CategoryDTO.CategoryTreeDTO> nodes) {
+        return nodes.stream().map(CategoryDTO.CategoryTreeDTO::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void buildsTreeAndDescendantsFromClosure() {
+        // 1 > 2 > 3, 4 là gốc riêng
+        CategoryTree tree = CategoryTree.of(
+                List.of(category(1, null, "Thuốc"), category(2, 1L, "Giảm đau"), category(3, 2L, "Hạ sốt"),
+                        category(4, null, "Vitamin")),
+                List.of(link(1, 1, 0), link(2, 2, 0), link(3, 3, 0), link(4, 4, 0),
+                        link(1, 2, 1), link(1, 3, 2), link(2, 3, 1)));
+
+        assertEquals(List.of(1L, 4L), ids(tree.getRoots()));
+        assertEquals(List.of(2L), ids(tree.getRoots().get(0).getChildren()));
+        assertEquals(List.of(3L), ids(tree.getRoots().get(0).getChildren().get(0).getChildren()));
+        assertEquals(Set.of(1L, 2L, 3L), tree.selfAndDescendants(1L));
+        assertEquals(Set.of(2L, 3L), tree.selfAndDescendants(2L));
+        assertEquals(Set.of(4L), tree.selfAndDescendants(4L));
+    }
+
+    @Test
+    void childOfDeletedCategoryHangsUnderNearestActiveAncestor() {
+        // 2 đã bị xóa mềm: bảng bao đóng vẫn giữ liên kết 1 -> 3 nên bộ lọc SQL coi 3 là con của 1
+        CategoryTree tree = CategoryTree.of(
+                List.of(category(1, null, "Thuốc"), category(3, 2L, "Hạ sốt")),
+                List.of(link(1, 1, 0), link(3, 3, 0), link(1, 3, 2)));
+
+        assertEquals(List.of(1L), ids(tree.getRoots()));
+        CategoryDTO.CategoryTreeDTO child = tree.getRoots().get(0).getChildren().get(0);
+        assertEquals(3L, child.getId());
+        assertEquals(1L, child.getParentId());
+        assertEquals(Set.of(1L, 3L), tree.selfAndDescendants(1L));
+    }
+
+    @Test
+    void linksToUnknownCategoriesAreIgnored() {
+        List<Object[]> links = new ArrayList<>(List.of(link(1, 1, 0), link(9, 1, 1), link(1, 9, 1)));
+        CategoryTree tree = CategoryTree.of(List.<Object[]>of(category(1, null, "Thuốc")), links);
+
+        assertEquals(List.of(1L), ids(tree.getRoots()));
+        assertNull(tree.getRoots().get(0).getParentId());
+        assertEquals(Set.of(1L), tree.selfAndDescendants(1L));
+        assertEquals(Set.of(42L), tree.selfAndDescendants(42L));
+    }
+}
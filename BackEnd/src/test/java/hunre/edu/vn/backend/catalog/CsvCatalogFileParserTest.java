@@ -0,0 +1,80 @@
+package hunre.edu.vn.backend.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvCatalogFileParserTest {
+
+    @TempDir
+    Path directory;
+
+    private List<Map<String, String>> rows;
+    private List<Integer> rowNumbers;
+
+    private void parse(String content) throws IOException {
+        Path file = directory.resolve("catalog.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        rows = new ArrayList<>();
+        rowNumbers = new ArrayList<>();
+        new CsvCatalogFileParser().parse(file, (rowNumber, values) -> {
+            rowNumbers.add(rowNumber);
+            rows.add(values);
+        });
+    }
+
+    @Test
+    void headersAreNormalizedAndValuesTrimmed() throws IOException {
+        parse("﻿ Code ,NAME,Price\r\nPARA500,  Paracetamol 500mg ,1500\r\n");
+
+        assertEquals(1, rows.size());
+        assertEquals("PARA500", rows.get(0).get("code"));
+        assertEquals("Paracetamol 500mg", rows.get(0).get("name"));
+        assertEquals("1500", rows.get(0).get("price"));
+        assertEquals(List.of(2), rowNumbers);
+    }
+
+    @Test
+    void quotedValuesKeepCommasQuotesAndNewlines() throws IOException {
+        parse("code,name,description\n"
+                + "A1,\"Thuốc ho, bổ phế\",\"Dùng \"\"sau ăn\"\"\nngày 2 lần\"\n"
+                + "A2,Vitamin C,\n");
+
+        assertEquals(2, rows.size());
+        assertEquals("Thuốc ho, bổ phế", rows.get(0).get("name"));
+        assertEquals("Dùng \"sau ăn\"\nngày 2 lần", rows.get(0).get("description"));
+        assertEquals("", rows.get(1).get("description"));
+        // Xuống dòng trong dấu nháy không tính là dòng mới
+        assertEquals(List.of(2, 3), rowNumbers);
+    }
+
+    @Test
+    void blankLinesAreSkippedAndMissingColumnsAreAbsent() throws IOException {
+        parse("code,name,price\n\nB1,Berberin\n\n");
+
+        assertEquals(1, rows.size());
+        assertEquals("Berberin", rows.get(0).get("name"));
+        assertFalse(rows.get(0).containsKey("price"));
+        assertNull(rows.get(0).get("price"));
+        assertEquals(List.of(3), rowNumbers);
+    }
+
+    @Test
+    void fileWithoutTrailingNewlineReadsLastRow() throws IOException {
+        parse("code,name\nC1,\"Cefuroxim\"");
+
+        assertEquals(1, rows.size());
+        assertEquals("Cefuroxim", rows.get(0).get("name"));
+    }
+}
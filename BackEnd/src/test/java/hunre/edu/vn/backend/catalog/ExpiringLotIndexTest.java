@@ -0,0 +1,77 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.AttributeDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringLotIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    private static Object[] lot(long attributeId, int stock, LocalDate expiryDate) {
+        return new Object[]{attributeId, attributeId * 10, "Thuốc " + attributeId, "Lô " + attributeId, stock, expiryDate};
+    }
+
+    private static List<Long> ids(List<AttributeDTO.ExpiringLotDTO> lots) {
+        return lots.stream().map(AttributeDTO.ExpiringLotDTO::getAttributeId).collect(Collectors.toList());
+    }
+
+    @Test
+    void lotsAreOrderedByExpiryThenId() {
+        ExpiringLotIndex index = ExpiringLotIndex.of(List.of(
+                lot(3, 5, TODAY.plusDays(20)),
+                lot(1, 5, TODAY.plusDays(5)),
+                lot(2, 5, TODAY.plusDays(20)),
+                lot(4, 5, TODAY.minusDays(1))), TODAY, TODAY.plusDays(90));
+
+        assertEquals(List.of(4L, 1L, 2L, 3L), ids(index.all()));
+    }
+
+    @Test
+    void expiringByIncludesLotsExpiringOnBoundaryAndExpiredLots() {
+        ExpiringLotIndex index = ExpiringLotIndex.of(List.of(
+                lot(1, 5, TODAY.minusDays(3)),
+                lot(2, 5, TODAY),
+                lot(3, 5, TODAY.plusDays(7)),
+                lot(4, 5, TODAY.plusDays(8))), TODAY, TODAY.plusDays(90));
+
+        assertEquals(List.of(1L, 2L), ids(index.expiringBy(TODAY)));
+        assertEquals(List.of(1L, 2L, 3L), ids(index.expiringBy(TODAY.plusDays(7))));
+        assertEquals(List.of(1L), ids(index.expiringBy(TODAY.minusDays(1))));
+        assertTrue(index.expiringBy(TODAY.minusDays(4)).isEmpty());
+    }
+
+    @Test
+    void daysUntilExpiryAndExpiredFlagAreRelativeToBuildDay() {
+        ExpiringLotIndex index = ExpiringLotIndex.of(List.of(
+                lot(1, 5, TODAY.minusDays(2)),
+                lot(2, 5, TODAY),
+                lot(3, 5, TODAY.plusDays(30))), TODAY, TODAY.plusDays(90));
+
+        List<AttributeDTO.ExpiringLotDTO> lots = index.all();
+        assertEquals(-2L, lots.get(0).getDaysUntilExpiry());
+        assertTrue(lots.get(0).getIsExpired());
+        // Hết hạn trong ngày hôm nay vẫn được bán đến hết ngày
+        assertEquals(0L, lots.get(1).getDaysUntilExpiry());
+        assertFalse(lots.get(1).getIsExpired());
+        assertEquals(30L, lots.get(2).getDaysUntilExpiry());
+        assertEquals(TODAY, index.getBuiltOn());
+    }
+
+    @Test
+    void coversOnlyUpToHorizonAndKnowsItsLots() {
+        ExpiringLotIndex index = ExpiringLotIndex.of(List.<Object[]>of(lot(7, 1, TODAY.plusDays(10))), TODAY, TODAY.plusDays(90));
+
+        assertTrue(index.covers(TODAY.plusDays(90)));
+        assertFalse(index.covers(TODAY.plusDays(91)));
+        assertTrue(index.contains(7L));
+        assertFalse(index.contains(8L));
+        assertFalse(ExpiringLotIndex.empty().contains(7L));
+        assertFalse(ExpiringLotIndex.empty().covers(TODAY));
+    }
+}
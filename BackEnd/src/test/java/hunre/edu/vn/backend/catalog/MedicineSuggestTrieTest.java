@@ -0,0 +1,98 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MedicineSuggestTrieTest {
+
+    private static MedicineDTO.GetMedicineDTO medicine(long id, String code, String name, String brand) {
+        return MedicineDTO.GetMedicineDTO.builder()
+                .id(id)
+                .code(code)
+                .name(name)
+                .brand(brand != null ? MedicineDTO.BrandBasicDTO.builder().id(id).name(brand).build() : null)
+                .build();
+    }
+
+    @Test
+    void suggestsByWordStartCodeAndBrand() {
+        MedicineSuggestTrie trie = MedicineSuggestTrie.build(List.of(
+                medicine(1, "PARA500", "Paracetamol 500mg", "Traphaco"),
+                medicine(2, "BPH01", "Thuốc ho bổ phế", "Nam Hà"),
+                medicine(3, "VITC", "Vitamin C sủi", "DHG")), id -> 0L, 10);
+
+        assertEquals(List.of(1L), trie.suggest("para", 10));
+        assertEquals(List.of(2L), trie.suggest("phe", 10));
+        assertEquals(List.of(2L), trie.suggest("Bổ", 10));
+        assertEquals(List.of(3L), trie.suggest("vitc", 10));
+        assertEquals(List.of(2L), trie.suggest("nam h", 10));
+        assertTrue(trie.suggest("mol", 10).isEmpty());
+        assertTrue(trie.suggest("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void multiWordQueryMatchesNameStartAndWordsInsideName() {
+        MedicineSuggestTrie trie = MedicineSuggestTrie.build(List.of(
+                medicine(1, "A", "Thuốc ho bổ phế", null),
+                medicine(2, "B", "Siro ho trẻ em", null),
+                medicine(3, "C", "Thuốc nhỏ mắt", null)), id -> 0L, 10);
+
+        assertEquals(List.of(1L), trie.suggest("thuoc ho", 10));
+        assertEquals(List.of(1L), trie.suggest("ho bo p", 10));
+        assertEquals(List.of(2L), trie.suggest("ho tre", 10));
+    }
+
+    @Test
+    void ranksByPopularityAndRespectsLimit() {
+        Map<Long, Long> sold = Map.of(1L, 5L, 2L, 50L, 3L, 20L);
+        MedicineSuggestTrie trie = MedicineSuggestTrie.build(List.of(
+                medicine(1, "V1", "Vitamin A", null),
+                medicine(2, "V2", "Vitamin B", null),
+                medicine(3, "V3", "Vitamin C", null)), id -> sold.getOrDefault(id, 0L), 10);
+
+        assertEquals(List.of(2L, 3L, 1L), trie.suggest("vit", 10));
+        assertEquals(List.of(2L, 3L), trie.suggest("vitamin", 2));
+    }
+
+    @Test
+    void keyEndingInsideCompressedEdgeStillMatches() {
+        MedicineSuggestTrie trie = MedicineSuggestTrie.build(List.of(
+                medicine(1, "X1", "Amoxicillin", null),
+                medicine(2, "X2", "Amlodipin", null)), id -> 0L, 10);
+
+        assertEquals(List.of(1L, 2L), trie.suggest("am", 10));
+        assertEquals(List.of(1L), trie.suggest("amoxi", 10));
+        assertEquals(List.of(2L), trie.suggest("amlodipin", 10));
+        assertTrue(trie.suggest("amoxy", 10).isEmpty());
+    }
+
+    @Test
+    void nodeCountStaysLinearInNumberOfKeys() {
+        String[] words = {"thuoc", "vien", "siro", "ho", "bo", "phe", "vitamin", "khang", "sinh", "giam", "dau",
+                "ha", "sot", "tieu", "hoa", "men", "nho", "mat", "da", "day", "gan", "than"};
+        Random random = new Random(7);
+        List<MedicineDTO.GetMedicineDTO> medicines = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        for (long id = 1; id <= 5_000; id++) {
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                String word = words[random.nextInt(words.length)] + random.nextInt(100);
+                name.append(word).append(' ');
+                keys.add(word);
+            }
+            keys.add(name.toString().trim());
+            keys.add("m" + id);
+            medicines.add(medicine(id, "M" + id, name.toString(), null));
+        }
+
+        MedicineSuggestTrie trie = MedicineSuggestTrie.build(medicines, id -> 0L, 10);
+
+        // Cây nén có tối đa một nút lá cho mỗi khóa và một nút rẽ nhánh cho mỗi lá, cộng nút gốc
+        assertTrue(trie.nodeCount() <= 2 * keys.size() + 1,
+                "Số nút " + trie.nodeCount() + " vượt quá 2 x " + keys.size() + " khóa");
+    }
+}
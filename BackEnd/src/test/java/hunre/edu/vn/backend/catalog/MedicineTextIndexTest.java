@@ -0,0 +1,130 @@
+package hunre.edu.vn.backend.catalog;
+
+import hunre.edu.vn.backend.dto.MedicineDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MedicineTextIndexTest {
+
+    private static MedicineDTO.GetMedicineDTO medicine(long id, String code, String name, String description) {
+        return MedicineDTO.GetMedicineDTO.builder()
+                .id(id)
+                .code(code)
+                .name(name)
+                .description(description)
+                .build();
+    }
+
+    private static MedicineTextIndex index(MedicineDTO.GetMedicineDTO... medicines) {
+        MedicineTextIndex index = new MedicineTextIndex();
+        index.rebuild(Arrays.asList(medicines));
+        return index;
+    }
+
+    @Test
+    void matchesWithoutDiacritics() {
+        MedicineTextIndex index = index(
+                medicine(1, "T01", "Thuốc ho bổ phế", null),
+                medicine(2, "T02", "Siro ho Prospan", null),
+                medicine(3, "T03", "Vitamin C", null));
+
+        assertEquals(List.of(1L), index.search("bo phe", 10, id -> true));
+        assertEquals(List.of(1L), index.search("BỔ PHẾ", 10, id -> true));
+    }
+
+    @Test
+    void nameMatchRanksAboveDescriptionMatch() {
+        MedicineTextIndex index = index(
+                medicine(1, "A01", "Vitamin tổng hợp", "Hỗ trợ giảm ho"),
+                medicine(2, "A02", "Siro ho trẻ em", null),
+                medicine(3, "A03", "Men vi sinh", null));
+
+        List<Long> result = index.search("ho", 10, id -> true);
+        assertEquals(2L, result.get(0));
+        assertTrue(result.contains(1L));
+        assertFalse(result.contains(3L));
+    }
+
+    @Test
+    void partialWordMatchesNameAndCodePrefix() {
+        MedicineTextIndex index = index(
+                medicine(1, "PARA500", "Paracetamol 500mg", null),
+                medicine(2, "AMOX250", "Amoxicillin 250mg", null));
+
+        assertEquals(List.of(1L), index.search("parace", 10, id -> true));
+        assertEquals(List.of(2L), index.search("amox", 10, id -> true));
+    }
+
+    @Test
+    void upsertAndRemoveUpdatePostings() {
+        MedicineTextIndex index = index(medicine(1, "C1", "Berberin", null));
+
+        index.upsert(medicine(1, "C1", "Cefuroxim", null));
+        assertTrue(index.search("berberin", 10, id -> true).isEmpty());
+        assertEquals(List.of(1L), index.search("cefuroxim", 10, id -> true));
+
+        index.remove(1L);
+        assertEquals(0, index.size());
+        assertTrue(index.search("cefuroxim", 10, id -> true).isEmpty());
+    }
+
+    @Test
+    void filterAndLimitApplyAfterScoring() {
+        MedicineTextIndex index = index(
+                medicine(1, "V1", "Vitamin A", null),
+                medicine(2, "V2", "Vitamin B", null),
+                medicine(3, "V3", "Vitamin C", null));
+
+        List<Long> result = index.search("vitamin", 2, id -> id != 2L);
+        assertEquals(2, result.size());
+        assertFalse(result.contains(2L));
+    }
+
+    /**
+     * Đo độ trễ tìm kiếm trên 100.000 thuốc giả lập. Chạy bằng: mvn test -Dtest=MedicineTextIndexTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void searchLatencyOnHundredThousandMedicines() {
+        String[] words = {"thuốc", "viên", "siro", "ho", "bổ", "phế", "vitamin", "kháng", "sinh", "giảm", "đau",
+                "hạ", "sốt", "tiêu", "hóa", "men", "vi", "sinh", "nhỏ", "mắt", "dạ", "dày", "gan", "thận"};
+        Random random = new Random(42);
+        List<MedicineDTO.GetMedicineDTO> medicines = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            StringBuilder name = new StringBuilder();
+            StringBuilder description = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                name.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            for (int i = 0; i < 20; i++) {
+                description.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            medicines.add(medicine(id, "M" + id, name.toString(), description.toString()));
+        }
+
+        MedicineTextIndex index = new MedicineTextIndex();
+        long buildStart = System.nanoTime();
+        index.rebuild(medicines);
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        String[] queries = {"siro ho", "vitamin", "giam dau ha sot", "men vi sinh", "kháng sinh", "thu"};
+        long[] samples = new long[200];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            index.search(queries[i % queries.length], 20, id -> true);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        long p95Millis = samples[(int) (samples.length * 0.95)] / 1_000_000;
+
+        System.out.printf("Dựng chỉ mục 100k thuốc: %d ms, p95 tìm kiếm: %d ms%n", buildMillis, p95Millis);
+        assertTrue(p95Millis < 500, "p95 tìm kiếm quá chậm: " + p95Millis + " ms");
+    }
+}
@@ -0,0 +1,98 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.dto.AttributeDTO;
+import hunre.edu.vn.backend.entity.Attribute;
+import hunre.edu.vn.backend.entity.Medicine;
+import hunre.edu.vn.backend.mapper.AttributeMapper;
+import hunre.edu.vn.backend.repository.AttributeRepository;
+import hunre.edu.vn.backend.repository.MedicineRepository;
+import hunre.edu.vn.backend.service.InventoryExpiryService;
+import hunre.edu.vn.backend.service.MedicineInventoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Số truy vấn thuộc tính khi nạp danh sách thuốc: một truy vấn cho mỗi lô 1000 ID, không truy vấn theo từng thuốc
+ */
+class AttributeServiceImplTest {
+
+    private AttributeRepository attributeRepository;
+    private AttributeServiceImpl attributeService;
+
+    @BeforeEach
+    void setUp() {
+        attributeRepository = mock(AttributeRepository.class);
+        AttributeMapper attributeMapper = mock(AttributeMapper.class);
+        when(attributeMapper.toGetAttributeDTO(any())).thenAnswer(invocation -> {
+            Attribute attribute = invocation.getArgument(0);
+            return AttributeDTO.GetAttributeDTO.builder()
+                    .id(attribute.getId())
+                    .medicineId(attribute.getMedicine().getId())
+                    .build();
+        });
+        // Mỗi thuốc có hai thuộc tính
+        when(attributeRepository.findByMedicineIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            List<Attribute> attributes = new ArrayList<>();
+            for (Long id : ids) {
+                attributes.add(attribute(id * 10, id));
+                attributes.add(attribute(id * 10 + 1, id));
+            }
+            return attributes;
+        });
+
+        attributeService = new AttributeServiceImpl(attributeRepository, mock(MedicineRepository.class),
+                attributeMapper, mock(MedicineInventoryService.class), mock(InventoryExpiryService.class));
+    }
+
+    private static Attribute attribute(long id, long medicineId) {
+        Medicine medicine = new Medicine();
+        medicine.setId(medicineId);
+        Attribute attribute = new Attribute();
+        attribute.setId(id);
+        attribute.setMedicine(medicine);
+        return attribute;
+    }
+
+    @Test
+    void onePageOfMedicinesUsesOneQuery() {
+        List<Long> ids = LongStream.rangeClosed(1, 20).boxed().collect(Collectors.toList());
+
+        Map<Long, List<AttributeDTO.GetAttributeDTO>> result = attributeService.findByMedicineIds(ids);
+
+        verify(attributeRepository, times(1)).findByMedicineIdIn(anyCollection());
+        verify(attributeRepository, never()).findByMedicineId(anyLong());
+        assertEquals(20, result.size());
+        assertTrue(result.values().stream().allMatch(attributes -> attributes.size() == 2));
+    }
+
+    @Test
+    void largeIdListIsChunkedUnderParameterLimit() {
+        List<Long> ids = LongStream.rangeClosed(1, 2500).boxed().collect(Collectors.toList());
+
+        Map<Long, List<AttributeDTO.GetAttributeDTO>> result = attributeService.findByMedicineIds(ids);
+
+        verify(attributeRepository, times(3)).findByMedicineIdIn(argThat(batch -> batch.size() <= 1000));
+        assertEquals(2500, result.size());
+    }
+
+    @Test
+    void duplicateAndEmptyIdsDoNotQueryTwice() {
+        assertTrue(attributeService.findByMedicineIds(Collections.emptyList()).isEmpty());
+        verify(attributeRepository, never()).findByMedicineIdIn(anyCollection());
+
+        attributeService.findByMedicineIds(List.of(1L, 1L, 2L));
+        verify(attributeRepository).findByMedicineIdIn(argThat(batch -> batch.size() == 2));
+    }
+}
@@ -0,0 +1,209 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.entity.EmailOutbox;
+import hunre.edu.vn.backend.entity.EmailOutboxStatus;
+import hunre.edu.vn.backend.entity.EmailType;
+import hunre.edu.vn.backend.repository.EmailOutboxRepository;
+import hunre.edu.vn.backend.service.EmailService;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Gửi email từ outbox với JavaMailSender giả: gửi theo lô, thử lại email lỗi và thời gian chờ tăng dần
+ */
+class EmailOutboxServiceImplTest {
+
+    private static final long BACKOFF_BASE_MS = 30_000;
+    private static final int MAX_ATTEMPTS = 8;
+
+    private EmailOutboxRepository emailOutboxRepository;
+    private JavaMailSender mailSender;
+    private ThreadPoolTaskExecutor mailExecutor;
+    private ThreadPoolExecutor pool;
+    private final Map<Long, MimeMessage> messagesByReference = new HashMap<>();
+    private EmailOutboxServiceImpl emailOutboxService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        emailOutboxRepository = mock(EmailOutboxRepository.class);
+        when(emailOutboxRepository.claim(anyLong(), any(), any())).thenReturn(1);
+
+        EmailService emailService = mock(EmailService.class);
+        when(emailService.buildOrderConfirmationMessage(anyLong(), anyString(), any())).thenAnswer(invocation ->
+                messagesByReference.computeIfAbsent(invocation.getArgument(0), id -> mock(MimeMessage.class)));
+        mailSender = mock(JavaMailSender.class);
+
+        // Lô được gửi ngay trên thread gọi để kiểm tra kết quả đồng bộ
+        pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(10));
+        mailExecutor = mock(ThreadPoolTaskExecutor.class);
+        when(mailExecutor.getThreadPoolExecutor()).thenReturn(pool);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(mailExecutor).execute(any(Runnable.class));
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> mock(TransactionStatus.class));
+
+        emailOutboxService = new EmailOutboxServiceImpl(emailOutboxRepository, emailService, mailSender,
+                mailExecutor, transactionManager);
+        ReflectionTestUtils.setField(emailOutboxService, "batchSize", 20);
+        ReflectionTestUtils.setField(emailOutboxService, "maxBatchesPerPoll", 10);
+        ReflectionTestUtils.setField(emailOutboxService, "leaseMs", 300_000L);
+        ReflectionTestUtils.setField(emailOutboxService, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(emailOutboxService, "backoffBaseMs", BACKOFF_BASE_MS);
+        ReflectionTestUtils.setField(emailOutboxService, "backoffMaxMs", 3_600_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    // Bản ghi như đọc lại sau khi nhận: attempts đã gồm lần thử hiện tại
+    private static EmailOutbox email(long id, int attempts) {
+        EmailOutbox email = EmailOutbox.builder()
+                .type(EmailType.ORDER_CONFIRMATION)
+                .referenceId(id)
+                .recipient("khach" + id + "@example.com")
+                .status(EmailOutboxStatus.SENDING)
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+        email.setId(id);
+        return email;
+    }
+
+    private void queue(EmailOutbox... emails) {
+        List<Long> ids = Arrays.stream(emails).map(EmailOutbox::getId).toList();
+        when(emailOutboxRepository.findDueIds(any(), any())).thenReturn(ids, List.of());
+        when(emailOutboxRepository.findAllById(ids)).thenReturn(List.of(emails));
+    }
+
+    private LocalDateTime retriedAt(long id) {
+        ArgumentCaptor<LocalDateTime> nextAttemptAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(emailOutboxRepository).markRetry(eq(id), nextAttemptAt.capture(), anyString());
+        return nextAttemptAt.getValue();
+    }
+
+    private static void assertDelayBetween(LocalDateTime before, LocalDateTime nextAttemptAt, long minMs, long maxMs) {
+        long delay = Duration.between(before, nextAttemptAt).toMillis();
+        assertTrue(delay >= minMs && delay <= maxMs + 1_000, "Thời gian chờ " + delay + "ms ngoài [" + minMs + ", " + maxMs + "]");
+    }
+
+    @Test
+    void claimedBatchIsSentOverOneConnection() {
+        queue(email(1, 1), email(2, 1), email(3, 1));
+
+        emailOutboxService.drain();
+
+        ArgumentCaptor<MimeMessage[]> sent = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, times(1)).send(sent.capture());
+        assertEquals(3, sent.getValue().length);
+        verify(emailOutboxRepository).markSent(argThat(ids -> new HashSet<>(ids).equals(Set.of(1L, 2L, 3L))), any());
+        verify(emailOutboxRepository, never()).markRetry(anyLong(), any(), any());
+    }
+
+    @Test
+    void fullBatchesKeepDrainingUpToPollLimit() {
+        ReflectionTestUtils.setField(emailOutboxService, "batchSize", 2);
+        ReflectionTestUtils.setField(emailOutboxService, "maxBatchesPerPoll", 3);
+        when(emailOutboxRepository.findDueIds(any(), any())).thenReturn(List.of(1L, 2L));
+        when(emailOutboxRepository.findAllById(any())).thenReturn(List.of(email(1, 1), email(2, 1)));
+
+        emailOutboxService.drain();
+
+        verify(mailSender, times(3)).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void onlyFailedMessagesAreRetriedWithBaseBackoff() {
+        queue(email(1, 1), email(2, 1), email(3, 1));
+        doAnswer(invocation -> {
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            failed.put(messagesByReference.get(2L), new IllegalStateException("550 mailbox unavailable"));
+            throw new MailSendException(failed);
+        }).when(mailSender).send(any(MimeMessage[].class));
+        LocalDateTime before = LocalDateTime.now();
+
+        emailOutboxService.drain();
+
+        assertDelayBetween(before, retriedAt(2L), BACKOFF_BASE_MS, BACKOFF_BASE_MS * 6 / 5);
+        verify(emailOutboxRepository).markSent(argThat(ids -> new HashSet<>(ids).equals(Set.of(1L, 3L))), any());
+    }
+
+    @Test
+    void backoffDoublesWithEachAttempt() {
+        queue(email(1, 4));
+        doThrow(new MailAuthenticationException("535 authentication failed"))
+                .when(mailSender).send(any(MimeMessage[].class));
+        LocalDateTime before = LocalDateTime.now();
+
+        emailOutboxService.drain();
+
+        // Lần thử thứ 4: chờ 30s x 2^3
+        assertDelayBetween(before, retriedAt(1L), BACKOFF_BASE_MS * 8, BACKOFF_BASE_MS * 8 * 6 / 5);
+        verify(emailOutboxRepository, never()).markSent(any(), any());
+    }
+
+    @Test
+    void lastAttemptMarksEmailFailed() {
+        queue(email(1, MAX_ATTEMPTS));
+        doThrow(new MailAuthenticationException("535 authentication failed"))
+                .when(mailSender).send(any(MimeMessage[].class));
+
+        emailOutboxService.drain();
+
+        verify(emailOutboxRepository).markFailed(eq(1L), anyString());
+        verify(emailOutboxRepository, never()).markRetry(anyLong(), any(), any());
+    }
+
+    @Test
+    void emailReclaimedPastMaxAttemptsIsFailedWithoutSending() {
+        // Worker dừng giữa chừng nhiều lần: mỗi lần nhận lại sau khi hết hạn nhận đều tăng attempts
+        queue(email(1, MAX_ATTEMPTS + 1));
+
+        emailOutboxService.drain();
+
+        verify(emailOutboxRepository).markFailed(eq(1L), anyString());
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void rejectedBatchIsReturnedToQueue() {
+        when(emailOutboxRepository.findDueIds(any(), any())).thenReturn(List.of(1L, 2L));
+        doThrow(new RejectedExecutionException("queue full")).when(mailExecutor).execute(any(Runnable.class));
+
+        emailOutboxService.drain();
+
+        verify(emailOutboxRepository).unclaim(eq(List.of(1L, 2L)), any());
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void builderStartsWithZeroAttempts() {
+        assertEquals(0, EmailOutbox.builder().build().getAttempts());
+    }
+}
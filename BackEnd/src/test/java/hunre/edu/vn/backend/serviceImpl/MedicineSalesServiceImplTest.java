@@ -0,0 +1,108 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.entity.OrderStatus;
+import hunre.edu.vn.backend.repository.MedicineSalesCounterRepository;
+import hunre.edu.vn.backend.repository.OrderDetailRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bản sao bộ đếm trong bộ nhớ chỉ đổi sau khi lần tính lại commit, và không mất delta trong lúc chờ
+ */
+class MedicineSalesServiceImplTest {
+
+    private OrderDetailRepository orderDetailRepository;
+    private MedicineSalesServiceImpl salesService;
+
+    @BeforeEach
+    void setUp() {
+        orderDetailRepository = mock(OrderDetailRepository.class);
+        salesService = new MedicineSalesServiceImpl(mock(MedicineSalesCounterRepository.class), orderDetailRepository);
+        ReflectionTestUtils.setField(salesService, "topK", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void rebuildInTransaction(long quantityOfMedicine1) {
+        when(orderDetailRepository.sumQuantityGroupByMedicine(OrderStatus.CANCELLED))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, quantityOfMedicine1}));
+        TransactionSynchronizationManager.initSynchronization();
+        salesService.rebuildCounters();
+    }
+
+    // Kết thúc transaction đang mô phỏng: chạy afterCommit (nếu commit) rồi afterCompletion
+    private void complete(boolean committed) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (committed) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        int status = committed ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK;
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    @Test
+    void rebuildIsPublishedOnlyAfterCommit() {
+        salesService.adjustSales(1L, 3);
+
+        rebuildInTransaction(7);
+        assertEquals(3, salesService.getQuantitySold(1L));
+
+        complete(true);
+        assertEquals(7, salesService.getQuantitySold(1L));
+        assertEquals(List.of(1L), salesService.findTopSellingMedicineIds(10));
+    }
+
+    @Test
+    void rolledBackRebuildKeepsCurrentCounters() {
+        salesService.adjustSales(1L, 3);
+
+        rebuildInTransaction(7);
+        complete(false);
+        assertEquals(3, salesService.getQuantitySold(1L));
+
+        // Delta sau lần tính lại bị rollback vẫn được cộng
+        salesService.adjustSales(1L, 2);
+        assertEquals(5, salesService.getQuantitySold(1L));
+    }
+
+    @Test
+    void deltaCommittedBeforeRebuildIsPublishedIsKept() {
+        rebuildInTransaction(7);
+        List<TransactionSynchronization> rebuild = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Đơn hàng commit sau lần tính lại trên database nhưng trước khi bản sao được thay
+        salesService.adjustSales(1L, 2);
+        assertEquals(0, salesService.getQuantitySold(1L));
+
+        rebuild.forEach(TransactionSynchronization::afterCommit);
+        assertEquals(9, salesService.getQuantitySold(1L));
+    }
+
+    @Test
+    void deltaIncludedInRebuildIsNotCountedTwice() {
+        salesService.adjustSales(1L, 3);
+        rebuildInTransaction(3);
+        complete(true);
+
+        // afterCommit muộn của một delta thuộc thế hệ cũ
+        ReflectionTestUtils.invokeMethod(salesService, "applyDelta", 1L, 3L, 0L);
+        assertEquals(3, salesService.getQuantitySold(1L));
+    }
+}
@@ -0,0 +1,168 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.dto.OrderDTO;
+import hunre.edu.vn.backend.entity.*;
+import hunre.edu.vn.backend.mapper.OrderDetailMapper;
+import hunre.edu.vn.backend.mapper.OrderMapper;
+import hunre.edu.vn.backend.repository.*;
+import hunre.edu.vn.backend.service.EmailOutboxService;
+import hunre.edu.vn.backend.service.MedicineSalesService;
+import hunre.edu.vn.backend.service.PricingService;
+import hunre.edu.vn.backend.service.StockReservationService;
+import hunre.edu.vn.backend.service.VoucherRedemptionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Quét đơn hết thời gian giữ hàng: mỗi đơn một transaction, một đơn lỗi không chặn các đơn còn lại.
+ * Đặt hàng từ chối thuốc đã xóa; email xác nhận cho đơn tạo qua /save
+ */
+class OrderServiceImplTest {
+
+    private OrderRepository orderRepository;
+    private PatientProfileRepository patientRepository;
+    private AttributeRepository attributeRepository;
+    private EmailOutboxService emailOutboxService;
+    private StockReservationService stockReservationService;
+    private PlatformTransactionManager transactionManager;
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        patientRepository = mock(PatientProfileRepository.class);
+        attributeRepository = mock(AttributeRepository.class);
+        emailOutboxService = mock(EmailOutboxService.class);
+        stockReservationService = mock(StockReservationService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> mock(TransactionStatus.class));
+
+        orderService = new OrderServiceImpl(orderRepository, patientRepository,
+                mock(OrderMapper.class), mock(UserRepository.class), mock(OrderDetailMapper.class),
+                mock(MedicineRepository.class), mock(VoucherRepository.class), mock(VoucherRepository.class),
+                emailOutboxService, mock(MedicineSalesService.class), stockReservationService,
+                mock(VoucherRedemptionService.class), attributeRepository, mock(PricingService.class),
+                transactionManager);
+        ReflectionTestUtils.setField(orderService, "reservationSweepBatch", 100);
+    }
+
+    private Order order(long id, OrderStatus status, PaymentStatus paymentStatus) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(status);
+        order.setPaymentMethod(PaymentMethod.CASH);
+        order.setPaymentStatus(paymentStatus);
+        when(orderRepository.findById(id)).thenReturn(Optional.of(order));
+        return order;
+    }
+
+    @Test
+    void eachExpiredOrderIsCancelledInItsOwnTransaction() {
+        Order first = order(1, OrderStatus.PENDING, PaymentStatus.PENDING);
+        Order second = order(2, OrderStatus.PENDING, PaymentStatus.PENDING);
+        when(stockReservationService.findOrdersWithExpiredReservations(anyInt())).thenReturn(List.of(1L, 2L));
+
+        orderService.cancelExpiredReservations();
+
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager, times(2)).commit(any());
+        verify(stockReservationService).releaseOrder(1L);
+        verify(stockReservationService).releaseOrder(2L);
+        assertEquals(OrderStatus.CANCELLED, first.getStatus());
+        assertEquals(OrderStatus.CANCELLED, second.getStatus());
+    }
+
+    @Test
+    void failingOrderRollsBackAloneAndSweepContinues() {
+        when(orderRepository.findById(1L)).thenThrow(new IllegalStateException("deadlock"));
+        Order second = order(2, OrderStatus.PENDING, PaymentStatus.PENDING);
+        when(stockReservationService.findOrdersWithExpiredReservations(anyInt())).thenReturn(List.of(1L, 2L));
+
+        orderService.cancelExpiredReservations();
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(stockReservationService, never()).releaseOrder(1L);
+        verify(stockReservationService).releaseOrder(2L);
+        assertEquals(OrderStatus.CANCELLED, second.getStatus());
+    }
+
+    @Test
+    void paidOrConfirmedOrderOnlyDropsTheHoldDeadline() {
+        Order paid = order(1, OrderStatus.PENDING, PaymentStatus.COMPLETED);
+        Order confirmed = order(2, OrderStatus.CONFIRMED, PaymentStatus.PENDING);
+        when(stockReservationService.findOrdersWithExpiredReservations(anyInt())).thenReturn(List.of(1L, 2L));
+
+        orderService.cancelExpiredReservations();
+
+        verify(stockReservationService).commitOrder(1L);
+        verify(stockReservationService).commitOrder(2L);
+        verify(stockReservationService, never()).releaseOrder(any());
+        assertEquals(OrderStatus.PENDING, paid.getStatus());
+        assertEquals(OrderStatus.CONFIRMED, confirmed.getStatus());
+    }
+
+    private static PatientProfile patient() {
+        User user = new User();
+        user.setEmail("khach@example.com");
+        user.setFullName("Nguyễn Văn A");
+        PatientProfile patient = new PatientProfile();
+        patient.setId(9L);
+        patient.setUser(user);
+        return patient;
+    }
+
+    @Test
+    void checkoutRejectsLotOfDeletedMedicine() {
+        when(patientRepository.findActiveById(9L)).thenReturn(Optional.of(patient()));
+        Medicine medicine = new Medicine();
+        medicine.setId(5L);
+        medicine.setIsDeleted(true);
+        Attribute attribute = new Attribute();
+        attribute.setId(50L);
+        attribute.setName("Hộp 10 vỉ");
+        attribute.setMedicine(medicine);
+        attribute.setPriceOut(BigDecimal.valueOf(10_000));
+        when(attributeRepository.findAllById(any())).thenReturn(List.of(attribute));
+
+        OrderDTO.CheckoutDTO checkout = OrderDTO.CheckoutDTO.builder()
+                .patientId(9L)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(List.of(OrderDTO.CheckoutItemDTO.builder().attributeId(50L).quantity(1).build()))
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.checkout(checkout));
+        verify(orderRepository, never()).save(any());
+        verify(stockReservationService, never()).reserve(any());
+    }
+
+    @Test
+    void confirmationEmailForLegacyOrderNeedsLines() {
+        Order order = new Order();
+        order.setId(3L);
+        order.setPatient(patient());
+        when(orderRepository.findActiveById(3L)).thenReturn(Optional.of(order));
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.enqueueConfirmationEmail(3L));
+        verify(emailOutboxService, never()).enqueueOrderConfirmation(any(), any(), any());
+
+        OrderDetail detail = new OrderDetail();
+        detail.setIsDeleted(false);
+        order.getOrderDetails().add(detail);
+        orderService.enqueueConfirmationEmail(3L);
+        verify(emailOutboxService).enqueueOrderConfirmation(3L, "khach@example.com", "Nguyễn Văn A");
+    }
+}
@@ -0,0 +1,128 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.dto.DiscountDTO;
+import hunre.edu.vn.backend.repository.DiscountRepository;
+import hunre.edu.vn.backend.service.CatalogService;
+import hunre.edu.vn.backend.utils.EntityVersionRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Dựng lại chỉ mục discount: request không chờ truy vấn mà dùng chỉ mục cũ cho đến khi bản mới sẵn sàng
+ */
+class PricingServiceImplTest {
+
+    private static final long MEDICINE_ID = 5L;
+    private static final BigDecimal PRICE = BigDecimal.valueOf(100_000);
+
+    private final AtomicReference<List<Object[]>> rules = new AtomicReference<>(new ArrayList<>());
+    private DiscountRepository discountRepository;
+    private CatalogService catalogService;
+    private PricingServiceImpl pricingService;
+
+    @BeforeEach
+    void setUp() {
+        discountRepository = mock(DiscountRepository.class);
+        when(discountRepository.findPricingRulesNotEndedBy(any())).thenAnswer(invocation -> rules.get());
+        catalogService = mock(CatalogService.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> mock(TransactionStatus.class));
+
+        pricingService = new PricingServiceImpl(discountRepository, catalogService,
+                mock(EntityVersionRegistry.class), transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pricingService.shutdown();
+    }
+
+    private static List<Object[]> percentOff(long discountId, double percentage) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{discountId, MEDICINE_ID, percentage, null, null, null, null,
+                LocalDateTime.now().minusDays(1), null});
+        return rows;
+    }
+
+    private BigDecimal quotedTotal() {
+        DiscountDTO.PricedLineDTO line = pricingService.quote(MEDICINE_ID, PRICE, 1);
+        return line.getFinalTotal();
+    }
+
+    @Test
+    void firstBuildRunsOnCallerThread() {
+        rules.set(percentOff(1, 10));
+
+        assertEquals(0, quotedTotal().compareTo(BigDecimal.valueOf(90_000)));
+        verify(discountRepository, times(1)).findPricingRulesNotEndedBy(any());
+    }
+
+    @Test
+    void invalidatedIndexIsServedWhileRebuildRunsOffThread() throws Exception {
+        rules.set(percentOff(1, 10));
+        assertEquals(0, quotedTotal().compareTo(BigDecimal.valueOf(90_000)));
+
+        // Lần dựng lại bị chặn cho đến khi test cho phép
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object[]> updated = percentOff(1, 20);
+        when(discountRepository.findPricingRulesNotEndedBy(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return updated;
+        });
+        pricingService.invalidate();
+
+        assertEquals(0, quotedTotal().compareTo(BigDecimal.valueOf(90_000)));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // Nhiều request trong lúc dựng không xếp thêm lần dựng nào
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, quotedTotal().compareTo(BigDecimal.valueOf(90_000)));
+        }
+        assertNotEquals("pricing-index", Thread.currentThread().getName());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (quotedTotal().compareTo(BigDecimal.valueOf(80_000)) != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, quotedTotal().compareTo(BigDecimal.valueOf(80_000)));
+        verify(discountRepository, times(2)).findPricingRulesNotEndedBy(any());
+        verify(catalogService).markDirty(argThat((Collection<Long> ids) -> ids.contains(MEDICINE_ID)));
+    }
+
+    @Test
+    void failedRebuildKeepsPreviousIndex() throws Exception {
+        rules.set(percentOff(1, 10));
+        assertEquals(0, quotedTotal().compareTo(BigDecimal.valueOf(90_000)));
+
+        CountDownLatch attempted = new CountDownLatch(1);
+        when(discountRepository.findPricingRulesNotEndedBy(any())).thenAnswer(invocation -> {
+            attempted.countDown();
+            throw new IllegalStateException("database unavailable");
+        });
+        pricingService.invalidate();
+        quotedTotal();
+
+        assertTrue(attempted.await(10, TimeUnit.SECONDS));
+        assertEquals(0, quotedTotal().compareTo(BigDecimal.valueOf(90_000)));
+        verify(catalogService, never()).markDirty(anyCollection());
+    }
+}
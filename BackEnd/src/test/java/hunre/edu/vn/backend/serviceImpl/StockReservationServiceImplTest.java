@@ -0,0 +1,120 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.entity.*;
+import hunre.edu.vn.backend.exception.InsufficientStockException;
+import hunre.edu.vn.backend.repository.AttributeRepository;
+import hunre.edu.vn.backend.repository.StockReservationRepository;
+import hunre.edu.vn.backend.service.InventoryExpiryService;
+import hunre.edu.vn.backend.service.MedicineInventoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Thời hạn giữ hàng theo phương thức thanh toán; tự hủy đơn COD chỉ bật khi cấu hình TTL lớn hơn 0
+ */
+class StockReservationServiceImplTest {
+
+    private AttributeRepository attributeRepository;
+    private StockReservationRepository stockReservationRepository;
+    private StockReservationServiceImpl stockReservationService;
+
+    @BeforeEach
+    void setUp() {
+        attributeRepository = mock(AttributeRepository.class);
+        stockReservationRepository = mock(StockReservationRepository.class);
+        when(stockReservationRepository.findByOrderDetailId(anyLong())).thenReturn(Optional.empty());
+        when(attributeRepository.reserveStock(anyLong(), anyInt())).thenReturn(1);
+
+        stockReservationService = new StockReservationServiceImpl(attributeRepository, stockReservationRepository,
+                mock(MedicineInventoryService.class), mock(InventoryExpiryService.class));
+        ReflectionTestUtils.setField(stockReservationService, "reservationTtlMinutes", 30L);
+        ReflectionTestUtils.setField(stockReservationService, "codReservationTtlMinutes", 0L);
+    }
+
+    private static OrderDetail line(PaymentMethod paymentMethod, PaymentStatus paymentStatus) {
+        Order order = new Order();
+        order.setId(1L);
+        order.setStatus(OrderStatus.PENDING);
+        order.setPaymentMethod(paymentMethod);
+        order.setPaymentStatus(paymentStatus);
+        Medicine medicine = new Medicine();
+        medicine.setId(5L);
+        Attribute attribute = new Attribute();
+        attribute.setId(50L);
+        attribute.setName("Hộp 10 vỉ");
+
+        OrderDetail detail = new OrderDetail();
+        detail.setId(100L);
+        detail.setOrder(order);
+        detail.setMedicine(medicine);
+        detail.setAttribute(attribute);
+        detail.setQuantity(2);
+        return detail;
+    }
+
+    private StockReservation saved() {
+        ArgumentCaptor<StockReservation> captor = ArgumentCaptor.forClass(StockReservation.class);
+        verify(stockReservationRepository).save(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void codHoldHasNoDeadlineByDefault() {
+        stockReservationService.reserve(line(PaymentMethod.CASH, PaymentStatus.PENDING));
+
+        StockReservation reservation = saved();
+        assertEquals(ReservationStatus.RESERVED, reservation.getStatus());
+        assertNull(reservation.getExpiresAt());
+    }
+
+    @Test
+    void codHoldExpiresWhenTtlIsConfigured() {
+        ReflectionTestUtils.setField(stockReservationService, "codReservationTtlMinutes", 60L);
+        LocalDateTime before = LocalDateTime.now();
+
+        stockReservationService.reserve(line(PaymentMethod.CASH, PaymentStatus.PENDING));
+
+        StockReservation reservation = saved();
+        assertEquals(ReservationStatus.RESERVED, reservation.getStatus());
+        assertFalse(reservation.getExpiresAt().isBefore(before.plusMinutes(60)));
+        assertTrue(reservation.getExpiresAt().isBefore(before.plusMinutes(61)));
+    }
+
+    @Test
+    void paidOnlineOrderIsCommittedWithoutDeadline() {
+        stockReservationService.reserve(line(PaymentMethod.PAYPAL, PaymentStatus.COMPLETED));
+
+        StockReservation reservation = saved();
+        assertEquals(ReservationStatus.COMMITTED, reservation.getStatus());
+        assertNull(reservation.getExpiresAt());
+    }
+
+    @Test
+    void unpaidOnlineOrderUsesOnlineTtl() {
+        LocalDateTime before = LocalDateTime.now();
+
+        stockReservationService.reserve(line(PaymentMethod.PAYPAL, PaymentStatus.PENDING));
+
+        assertFalse(saved().getExpiresAt().isBefore(before.plusMinutes(30)));
+    }
+
+    @Test
+    void insufficientStockIsRejectedWithoutLedgerEntry() {
+        when(attributeRepository.reserveStock(anyLong(), anyInt())).thenReturn(0);
+
+        assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.reserve(line(PaymentMethod.CASH, PaymentStatus.PENDING)));
+        verify(stockReservationRepository, never()).save(any());
+    }
+}
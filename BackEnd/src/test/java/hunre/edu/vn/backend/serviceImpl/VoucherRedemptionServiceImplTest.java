@@ -0,0 +1,194 @@
+package hunre.edu.vn.backend.serviceImpl;
+
+import hunre.edu.vn.backend.entity.Voucher;
+import hunre.edu.vn.backend.entity.VoucherRedemption;
+import hunre.edu.vn.backend.exception.VoucherNotApplicableException;
+import hunre.edu.vn.backend.repository.VoucherRedemptionRepository;
+import hunre.edu.vn.backend.repository.VoucherRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Nhiều đơn dùng cùng một mã đồng thời.
+ * Repository giả lập ngữ nghĩa của các câu UPDATE có điều kiện (kiểm tra và ghi nguyên tử),
+ * còn toàn bộ luồng đọc - quyết định của service chạy thật trên nhiều thread.
+ * Điều kiện WHERE thật trong VoucherRepository không được chạy ở đây: test chỉ chứng minh service không
+ * dùng quá số lượt khi câu UPDATE nguyên tử, việc câu SQL nguyên tử cần kiểm tra trên database thật
+ */
+class VoucherRedemptionServiceImplTest {
+
+    private static final int THREADS = 16;
+    private static final int CONCURRENT_REDEMPTIONS = 1_000;
+    private static final long VOUCHER_ID = 1L;
+
+    private final AtomicInteger stock = new AtomicInteger();
+    private final Map<Long, VoucherRedemption> redemptionsByOrder = new ConcurrentHashMap<>();
+    private final Set<Long> releasedIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private VoucherRedemptionServiceImpl voucherRedemptionService;
+
+    @BeforeEach
+    void setUp() {
+        Voucher voucher = Voucher.builder()
+                .code("SALE10")
+                .voucherPercentage(10.0)
+                .stock(0)
+                .startDate(LocalDateTime.now().minusDays(1))
+                .minimumOrderValue(BigDecimal.ZERO)
+                .status(Voucher.VoucherStatus.ACTIVE)
+                .build();
+        voucher.setId(VOUCHER_ID);
+
+        VoucherRepository voucherRepository = mock(VoucherRepository.class);
+        when(voucherRepository.findByCodeAndIsDeletedFalse("SALE10")).thenReturn(Optional.of(voucher));
+        // UPDATE ... SET stock = stock - 1 WHERE stock > 0
+        when(voucherRepository.redeem(eq(VOUCHER_ID), any(), any()))
+                .thenAnswer(invocation -> stock.getAndUpdate(value -> value > 0 ? value - 1 : value) > 0 ? 1 : 0);
+        when(voucherRepository.restoreRedemption(VOUCHER_ID)).thenAnswer(invocation -> {
+            stock.incrementAndGet();
+            return 1;
+        });
+
+        VoucherRedemptionRepository redemptionRepository = mock(VoucherRedemptionRepository.class);
+        when(redemptionRepository.findByOrderId(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(redemptionsByOrder.get(invocation.<Long>getArgument(0))));
+        when(redemptionRepository.save(any())).thenAnswer(invocation -> {
+            VoucherRedemption redemption = invocation.getArgument(0);
+            if (redemption.getId() == null) {
+                redemption.setId(nextId.getAndIncrement());
+            }
+            releasedIds.remove(redemption.getId());
+            redemptionsByOrder.put(redemption.getOrderId(), redemption);
+            return redemption;
+        });
+        // UPDATE ... SET released_at = CURRENT_TIMESTAMP WHERE released_at IS NULL
+        when(redemptionRepository.markReleased(anyLong()))
+                .thenAnswer(invocation -> releasedIds.add(invocation.<Long>getArgument(0)) ? 1 : 0);
+
+        voucherRedemptionService = new VoucherRedemptionServiceImpl(voucherRepository, redemptionRepository);
+    }
+
+    // Chạy các tác vụ cùng lúc: mọi thread chờ một hiệu lệnh chung rồi mới bắt đầu
+    private static <T> List<T> runConcurrently(List<Callable<T>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Callable<Boolean> redeem(long orderId) {
+        return () -> {
+            try {
+                voucherRedemptionService.redeem("SALE10", orderId, BigDecimal.valueOf(100_000));
+                return true;
+            } catch (VoucherNotApplicableException e) {
+                return false;
+            }
+        };
+    }
+
+    @Test
+    void concurrentOrdersNeverRedeemMoreThanStock() throws Exception {
+        stock.set(100);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (long orderId = 1; orderId <= CONCURRENT_REDEMPTIONS; orderId++) {
+            tasks.add(redeem(orderId));
+        }
+
+        List<Boolean> results = runConcurrently(tasks);
+
+        assertEquals(100, results.stream().filter(Boolean::booleanValue).count());
+        assertEquals(100, redemptionsByOrder.size());
+        assertEquals(0, stock.get());
+    }
+
+    @Test
+    void concurrentReleasesOfSameOrderRestoreOneUse() throws Exception {
+        stock.set(20);
+        for (long orderId = 1; orderId <= 20; orderId++) {
+            assertTrue(redeem(orderId).call());
+        }
+        assertEquals(0, stock.get());
+
+        // Hủy đơn bị gửi lặp lại: mỗi đơn được hủy từ nhiều thread cùng lúc
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int copy = 0; copy < 8; copy++) {
+            for (long orderId = 1; orderId <= 20; orderId++) {
+                long id = orderId;
+                tasks.add(() -> {
+                    voucherRedemptionService.releaseForOrder(id);
+                    return null;
+                });
+            }
+        }
+        Collections.shuffle(tasks, new Random(7));
+        runConcurrently(tasks);
+
+        assertEquals(20, stock.get());
+        assertEquals(20, releasedIds.size());
+    }
+
+    @Test
+    void mixedRedeemAndReleaseKeepsStockConsistent() throws Exception {
+        stock.set(10);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (long orderId = 1; orderId <= 200; orderId++) {
+            long id = orderId;
+            tasks.add(() -> {
+                boolean redeemed = redeem(id).call();
+                // Một nửa số đơn được hủy ngay sau khi dùng mã, trả lượt cho đơn khác
+                if (redeemed && id % 2 == 0) {
+                    voucherRedemptionService.releaseForOrder(id);
+                    return false;
+                }
+                return redeemed;
+            });
+        }
+
+        List<Boolean> results = runConcurrently(tasks);
+
+        long held = results.stream().filter(Boolean::booleanValue).count();
+        long active = redemptionsByOrder.values().stream().filter(redemption -> !releasedIds.contains(redemption.getId())).count();
+        assertEquals(held, active);
+        assertEquals(10, stock.get() + held);
+    }
+
+    @Test
+    void retryingSameOrderDoesNotTakeSecondUse() throws Exception {
+        stock.set(5);
+
+        // Client gửi lại yêu cầu của cùng một đơn: dùng lại lượt đã có thay vì trừ thêm
+        assertTrue(redeem(42L).call());
+        assertTrue(redeem(42L).call());
+        assertTrue(redeem(42L).call());
+
+        assertEquals(4, stock.get());
+        assertEquals(1, redemptionsByOrder.size());
+    }
+}
@@ -0,0 +1,90 @@
+package hunre.edu.vn.backend.storage;
+
+import hunre.edu.vn.backend.dto.StorageDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskReadCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private DiskReadCache cache(long maxBytes) throws IOException {
+        DiskReadCache cache = new DiskReadCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "directory", directory.toString());
+        ReflectionTestUtils.setField(cache, "maxBytes", maxBytes);
+        cache.init();
+        return cache;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void secondReadIsServedFromDisk() throws IOException {
+        DiskReadCache cache = cache(1024);
+        AtomicInteger loads = new AtomicInteger();
+
+        byte[] first = cache.get("a.png", () -> {
+            loads.incrementAndGet();
+            return bytes("anh-a");
+        });
+        byte[] second = cache.get("a.png", () -> {
+            loads.incrementAndGet();
+            return bytes("khac");
+        });
+
+        assertArrayEquals(bytes("anh-a"), first);
+        assertArrayEquals(bytes("anh-a"), second);
+        assertEquals(1, loads.get());
+        StorageDTO.CacheStatsDTO stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(5, stats.getSizeBytes());
+    }
+
+    @Test
+    void leastRecentlyReadEntryIsEvictedOverLimit() throws IOException {
+        DiskReadCache cache = cache(10);
+        cache.get("a", () -> bytes("aaaa"));
+        cache.get("b", () -> bytes("bbbb"));
+        // Đọc lại a để b trở thành phần tử cũ nhất
+        cache.get("a", () -> bytes("xxxx"));
+        cache.get("c", () -> bytes("cccc"));
+
+        assertArrayEquals(bytes("aaaa"), cache.get("a", () -> bytes("xxxx")));
+        assertArrayEquals(bytes("reloaded"), cache.get("b", () -> bytes("reloaded")));
+        assertTrue(cache.getStats().getEvictions() >= 1);
+        assertTrue(cache.getStats().getSizeBytes() <= 10 + "reloaded".length());
+    }
+
+    @Test
+    void invalidateAndOversizedObjectsAreNotServedFromCache() throws IOException {
+        DiskReadCache cache = cache(8);
+        cache.get("a", () -> bytes("v1"));
+        cache.invalidate("a");
+        assertArrayEquals(bytes("v2"), cache.get("a", () -> bytes("v2")));
+
+        cache.get("big", () -> bytes("0123456789"));
+        assertArrayEquals(bytes("again"), cache.get("big", () -> bytes("again")));
+    }
+
+    @Test
+    void entriesSurviveRestart() throws IOException {
+        cache(1024).get("a.png", () -> bytes("anh-a"));
+
+        DiskReadCache restarted = cache(1024);
+        assertEquals(1, restarted.getStats().getEntries());
+        assertArrayEquals(bytes("anh-a"), restarted.get("a.png", () -> bytes("khac")));
+    }
+}
@@ -0,0 +1,57 @@
+package hunre.edu.vn.backend.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalObjectStorageTest {
+
+    @TempDir
+    Path directory;
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    @Test
+    void openStreamsSmallAndMappedFiles() throws IOException {
+        LocalObjectStorage storage = new LocalObjectStorage(directory.toString(), "http://localhost/media/", 1024);
+        byte[] small = content(100);
+        byte[] large = content(10_000);
+        storage.put("small.bin", new ByteArrayInputStream(small), small.length, "application/octet-stream");
+        storage.put("large.bin", new ByteArrayInputStream(large), large.length, "application/octet-stream");
+
+        try (InputStream input = storage.open("small.bin")) {
+            assertArrayEquals(small, input.readAllBytes());
+        }
+        // File vượt ngưỡng được đọc từ vùng nhớ ánh xạ, đọc từng khúc nhỏ vẫn đúng nội dung
+        try (InputStream input = storage.open("large.bin")) {
+            assertEquals(large.length, input.available());
+            assertEquals(large[0] & 0xFF, input.read());
+            assertEquals(10, input.skip(10));
+            byte[] rest = input.readAllBytes();
+            assertEquals(large.length - 11, rest.length);
+            assertEquals(large[11], rest[0]);
+            assertEquals(-1, input.read());
+        }
+        assertArrayEquals(large, storage.read("large.bin"));
+        assertEquals("http://localhost/media/large.bin", storage.urlOf("large.bin"));
+    }
+
+    @Test
+    void keysCannotEscapeRoot() throws IOException {
+        LocalObjectStorage storage = new LocalObjectStorage(directory.toString(), "http://localhost/media", 1024);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.open("../secret"));
+        assertFalse(storage.exists("missing.bin"));
+    }
+}
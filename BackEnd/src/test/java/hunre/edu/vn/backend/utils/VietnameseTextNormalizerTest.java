@@ -0,0 +1,32 @@
+package hunre.edu.vn.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VietnameseTextNormalizerTest {
+
+    @Test
+    void foldRemovesDiacriticsAndLowercases() {
+        assertEquals("thuoc ho bo phe", VietnameseTextNormalizer.fold("Thuốc Ho Bổ Phế"));
+        assertEquals("duong huyet", VietnameseTextNormalizer.fold("Đường huyết"));
+        assertEquals("", VietnameseTextNormalizer.fold(null));
+    }
+
+    @Test
+    void precomposedAndDecomposedInputFoldTheSame() {
+        String precomposed = "Viên nén sủi";
+        String decomposed = java.text.Normalizer.normalize(precomposed, java.text.Normalizer.Form.NFD);
+        assertEquals(VietnameseTextNormalizer.fold(precomposed), VietnameseTextNormalizer.fold(decomposed));
+    }
+
+    @Test
+    void tokenizeSplitsOnPunctuationAndKeepsDigits() {
+        assertEquals(List.of("paracetamol", "500mg", "hop", "10", "vi"),
+                VietnameseTextNormalizer.tokenize("Paracetamol 500mg - Hộp 10 vỉ"));
+        assertTrue(VietnameseTextNormalizer.tokenize("  --  ").isEmpty());
+    }
+}